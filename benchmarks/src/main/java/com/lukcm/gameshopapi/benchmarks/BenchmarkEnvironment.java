@@ -0,0 +1,159 @@
+package com.lukcm.gameshopapi.benchmarks;
+
+import com.lukcm.gameshopapi.GameShopApplication;
+import com.lukcm.gameshopapi.dto.BulkImportResult;
+import com.lukcm.gameshopapi.model.Game;
+import com.lukcm.gameshopapi.service.GameBulkImporter;
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import de.flapdoodle.embed.mongo.MongodExecutable;
+import de.flapdoodle.embed.mongo.MongodStarter;
+import de.flapdoodle.embed.mongo.config.MongodConfig;
+import de.flapdoodle.embed.mongo.config.Net;
+import de.flapdoodle.embed.mongo.distribution.Version;
+import de.flapdoodle.embed.process.runtime.Network;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.NoSuchAlgorithmException;
+import java.security.interfaces.RSAPrivateKey;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * @author Max_MacKoul
+ *
+ * A GameShop application running against its own embedded MongoDB server, started once per benchmark fork.
+ * Application logging is limited to warnings so that the benchmarks measure the code paths and not the console.
+ *
+ * When started with a web server, requests are authenticated with JWTs signed by a key pair generated for the
+ * run; {@link #getToken()} returns a valid one.
+ */
+public class BenchmarkEnvironment implements AutoCloseable {
+
+    private final MongodExecutable mongod;
+
+    private final ConfigurableApplicationContext context;
+
+    private final Path publicKeyFile;
+
+    private final String token;
+
+    private BenchmarkEnvironment(MongodExecutable mongod, ConfigurableApplicationContext context, Path publicKeyFile,
+                                 String token) {
+        this.mongod = mongod;
+        this.context = context;
+        this.publicKeyFile = publicKeyFile;
+        this.token = token;
+    }
+
+    /**
+     * Starts MongoDB and the application.
+     *
+     * @param web whether to start the web server, on a random port
+     * @return the running environment
+     * @throws IOException if MongoDB cannot be started
+     */
+    public static BenchmarkEnvironment start(boolean web) throws IOException {
+        int port = Network.getFreeServerPort();
+        MongodExecutable mongod = MongodStarter.getDefaultInstance().prepare(MongodConfig.builder()
+                .version(Version.Main.V4_0)
+                .net(new Net(port, Network.localhostIsIPv6()))
+                .build());
+        mongod.start();
+
+        List<String> args = new ArrayList<>(List.of(
+                "--spring.data.mongodb.uri=mongodb://localhost:" + port + "/gameshop-benchmarks",
+                "--logging.level.root=warn",
+                "--server.port=0"));
+        Path publicKeyFile = null;
+        String token = null;
+        try {
+            if (web) {
+                KeyPair keys = KeyPairGenerator.getInstance("RSA").generateKeyPair();
+                publicKeyFile = Files.createTempFile("gameshop-benchmarks", ".pem");
+                Files.writeString(publicKeyFile, "-----BEGIN PUBLIC KEY-----\n"
+                        + Base64.getMimeEncoder().encodeToString(keys.getPublic().getEncoded())
+                        + "\n-----END PUBLIC KEY-----\n");
+                args.add("--spring.security.oauth2.resourceserver.jwt.public-key-location=file:" + publicKeyFile);
+                token = sign((RSAPrivateKey) keys.getPrivate());
+            }
+            ConfigurableApplicationContext context = new SpringApplicationBuilder(GameShopApplication.class)
+                    .web(web ? WebApplicationType.SERVLET : WebApplicationType.NONE)
+                    .run(args.toArray(String[]::new));
+            return new BenchmarkEnvironment(mongod, context, publicKeyFile, token);
+        } catch (RuntimeException | IOException | NoSuchAlgorithmException | JOSEException ex) {
+            mongod.stop();
+            if (publicKeyFile != null) {
+                Files.deleteIfExists(publicKeyFile);
+            }
+            throw new IllegalStateException("Cannot start the benchmark environment", ex);
+        }
+    }
+
+    private static String sign(RSAPrivateKey key) throws JOSEException {
+        SignedJWT jwt = new SignedJWT(new JWSHeader(JWSAlgorithm.RS256), new JWTClaimsSet.Builder()
+                .subject("benchmarks")
+                .issueTime(new Date())
+                .expirationTime(new Date(System.currentTimeMillis() + 24 * 3600 * 1000L))
+                .build());
+        jwt.sign(new RSASSASigner(key));
+        return jwt.serialize();
+    }
+
+    /**
+     * Writes games through the bulk import path, in batches of gameshop.bulk.batch-size.
+     *
+     * @param games the games to write
+     */
+    public void importGames(List<Game> games) {
+        GameBulkImporter importer = getBean(GameBulkImporter.class);
+        BulkImportResult result = importer.newResult();
+        for (int from = 0; from < games.size(); from += importer.getBatchSize()) {
+            importer.importBatch(games.subList(from, Math.min(games.size(), from + importer.getBatchSize())), from,
+                    result);
+        }
+        if (result.getFailed() > 0) {
+            throw new IllegalStateException("Failed to import " + result.getFailed() + " games");
+        }
+    }
+
+    public <T> T getBean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    /**
+     * @return the URL of the API, e.g. http://localhost:53121/api/gameshop
+     */
+    public String getBaseUrl() {
+        return "http://localhost:" + context.getEnvironment().getProperty("local.server.port") + "/api/gameshop";
+    }
+
+    public String getToken() {
+        return token;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            context.close();
+        } finally {
+            mongod.stop();
+            if (publicKeyFile != null) {
+                Files.deleteIfExists(publicKeyFile);
+            }
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.lukcm.gameshopapi.benchmarks;
+
+import com.lukcm.gameshopapi.model.Game;
+import com.lukcm.gameshopapi.model.Review;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * @author Max_MacKoul
+ *
+ * Generates a synthetic catalog for the benchmarks. The games and reviews only depend on the seed, so every run
+ * of a benchmark, on every machine, measures the same data.
+ */
+public final class CatalogGenerator {
+
+    /** The seed used by every benchmark. Changing it invalidates the kept results. */
+    public static final long SEED = 20231017L;
+
+    private static final String[] WORDS = {"Shadow", "Legends", "Star", "Quest", "Dragon", "Racing", "Kingdom",
+            "Galaxy", "Heroes", "Frontier", "Dungeon", "Empire", "Storm", "Tactics", "Odyssey", "Arena", "Rogue",
+            "Harvest", "Cyber", "Forest"};
+
+    private static final String[] GENRES = {"Action", "Adventure", "RPG", "Strategy", "Racing", "Sports",
+            "Puzzle", "Simulation", "Shooter", "Platformer"};
+
+    private static final String[] PLATFORMS = {"PC", "PS5", "PS4", "Xbox Series X", "Xbox One", "Switch"};
+
+    private static final String[] ESRB_RATINGS = {"E", "E10+", "T", "M"};
+
+    private static final String[] STUDIOS = {"Northwind Games", "Bluefin Studios", "Red Maple", "Pixel Forge",
+            "Ironclad Interactive", "Lantern Works", "Quiet Harbor", "Summit Digital"};
+
+    private static final long RELEASE_EPOCH = 946684800000L; // 2000-01-01
+
+    private final Random random;
+
+    public CatalogGenerator(long seed) {
+        this.random = new Random(seed);
+    }
+
+    /**
+     * Generates games with IDs game-00000, game-00001 and so on, prices spread evenly between 0 and 70 and no
+     * reviews.
+     *
+     * @param count the number of games
+     * @return the games
+     */
+    public List<Game> games(int count) {
+        List<Game> games = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            games.add(game(String.format("game-%05d", i)));
+        }
+        return games;
+    }
+
+    /**
+     * Generates one game without reviews.
+     *
+     * @param id the ID of the game
+     * @return the game
+     */
+    public Game game(String id) {
+        Game game = new Game();
+        game.setId(id);
+        game.setTitle(pick(WORDS) + " " + pick(WORDS) + " " + (1 + random.nextInt(5)));
+        game.setPrice(Math.round(random.nextDouble() * 7000) / 100.0);
+        game.setTotalStock(random.nextInt(500));
+        game.setEsrbRating(pick(ESRB_RATINGS));
+        game.setDeveloper(pick(STUDIOS));
+        game.setPublisher(pick(STUDIOS));
+        game.setGenres(distinct(GENRES, 1 + random.nextInt(3)));
+        game.setPlatforms(distinct(PLATFORMS, 1 + random.nextInt(4)));
+        game.setReleaseDate(new Date(RELEASE_EPOCH + (long) (random.nextDouble() * 24 * 365.25 * 86400000L)));
+        game.setDescription("A " + game.getGenres().get(0).toLowerCase() + " game about " + pick(WORDS).toLowerCase()
+                + "s and " + pick(WORDS).toLowerCase() + "s, set in a world of " + pick(WORDS).toLowerCase() + ".");
+        game.setRating(Math.round(random.nextDouble() * 100) / 10.0);
+        game.setImageUrl("https://img.example.com/" + id + ".png");
+        game.setLanguage(List.of("en", "fr", "de"));
+        game.setMultiplayer(random.nextBoolean());
+        return game;
+    }
+
+    /**
+     * Generates reviews, not yet attached to a game.
+     *
+     * @param count the number of reviews
+     * @return the reviews
+     */
+    public List<Review> reviews(int count) {
+        List<Review> reviews = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Review review = new Review();
+            review.setName("player" + random.nextInt(100000));
+            review.setComment(pick(WORDS) + " is " + (random.nextBoolean() ? "great" : "disappointing"));
+            review.setScore(random.nextInt(11));
+            review.setDate(new Date(RELEASE_EPOCH + random.nextInt(Integer.MAX_VALUE) * 1000L));
+            reviews.add(review);
+        }
+        return reviews;
+    }
+
+    private String pick(String[] values) {
+        return values[random.nextInt(values.length)];
+    }
+
+    private List<String> distinct(String[] values, int count) {
+        List<String> picked = new ArrayList<>(count);
+        int offset = random.nextInt(values.length);
+        for (int i = 0; i < count; i++) {
+            picked.add(values[(offset + i) % values.length]);
+        }
+        return picked;
+    }
+}
@@ -0,0 +1,79 @@
+package com.lukcm.gameshopapi.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * @author Max_MacKoul
+ *
+ * Compares two JMH JSON result files, typically the kept results/baseline.json and the results/jmh-result.json
+ * of a new run, and reports every benchmark whose throughput dropped, or whose allocation per operation grew,
+ * by more than the threshold. Exits with status 1 if there is any such regression.
+ * <pre>
+ *   java -cp ... CompareResults results/baseline.json results/jmh-result.json [threshold, default 0.10]
+ * </pre>
+ */
+public final class CompareResults {
+
+    private static final String ALLOCATION = "gc.alloc.rate.norm";
+
+    private CompareResults() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: CompareResults <baseline.json> <current.json> [threshold]");
+            System.exit(2);
+        }
+        double threshold = args.length > 2 ? Double.parseDouble(args[2]) : 0.10;
+        Map<String, double[]> baseline = read(new File(args[0]));
+        Map<String, double[]> current = read(new File(args[1]));
+
+        int regressions = 0;
+        for (Map.Entry<String, double[]> entry : new TreeMap<>(current).entrySet()) {
+            double[] before = baseline.get(entry.getKey());
+            double[] after = entry.getValue();
+            if (before == null) {
+                System.out.printf("NEW         %-70s %14.2f ops/s%n", entry.getKey(), after[0]);
+                continue;
+            }
+            double throughputChange = after[0] / before[0] - 1;
+            double allocationChange = before[1] > 0 && after[1] >= 0 ? after[1] / before[1] - 1 : 0;
+            boolean regressed = throughputChange < -threshold || allocationChange > threshold;
+            if (regressed) {
+                regressions++;
+            }
+            System.out.printf("%-11s %-70s %14.2f ops/s %+7.1f%%   alloc %+7.1f%%%n", regressed ? "REGRESSION" : "ok",
+                    entry.getKey(), after[0], throughputChange * 100, allocationChange * 100);
+        }
+        System.out.printf("%d regression(s) beyond %.0f%%%n", regressions, threshold * 100);
+        System.exit(regressions == 0 ? 0 : 1);
+    }
+
+    /**
+     * Reads the throughput and the allocation per operation (-1 if not profiled) of each benchmark, keyed by its
+     * name and parameters.
+     */
+    private static Map<String, double[]> read(File file) throws IOException {
+        Map<String, double[]> results = new LinkedHashMap<>();
+        for (JsonNode run : new ObjectMapper().readTree(file)) {
+            StringBuilder key = new StringBuilder(run.path("benchmark").asText());
+            Iterator<Map.Entry<String, JsonNode>> params = run.path("params").fields();
+            while (params.hasNext()) {
+                Map.Entry<String, JsonNode> param = params.next();
+                key.append(' ').append(param.getKey()).append('=').append(param.getValue().asText());
+            }
+            JsonNode allocation = run.path("secondaryMetrics").path(ALLOCATION).path("score");
+            results.put(key.toString(), new double[]{run.path("primaryMetric").path("score").asDouble(),
+                    allocation.isMissingNode() ? -1 : allocation.asDouble()});
+        }
+        return results;
+    }
+}
@@ -0,0 +1,104 @@
+package com.lukcm.gameshopapi.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.SplittableRandom;
+
+/**
+ * @author Max_MacKoul
+ *
+ * The API end to end over HTTP: Tomcat, security, controller, service, cache and MongoDB, against a catalog of
+ * 20000 generated games. Requests are sent by 8 benchmark threads so that the server handles several at once.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@Threads(8)
+public class ControllerBenchmark {
+
+    private static final int CATALOG_SIZE = 20000;
+
+    private BenchmarkEnvironment environment;
+
+    private HttpClient http;
+
+    private String baseUrl;
+
+    private String authorization;
+
+    /**
+     * The IDs requested by one benchmark thread, drawn from a fixed sequence.
+     */
+    @State(Scope.Thread)
+    public static class Ids {
+
+        private SplittableRandom random;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            random = new SplittableRandom(CatalogGenerator.SEED);
+        }
+
+        String next() {
+            return String.format("game-%05d", random.nextInt(CATALOG_SIZE));
+        }
+    }
+
+    @Setup
+    public void setUp() throws IOException {
+        environment = BenchmarkEnvironment.start(true);
+        environment.importGames(new CatalogGenerator(CatalogGenerator.SEED).games(CATALOG_SIZE));
+        http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        baseUrl = environment.getBaseUrl();
+        authorization = "Bearer " + environment.getToken();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        environment.close();
+    }
+
+    @Benchmark
+    public byte[] getGameById(Ids ids) throws IOException, InterruptedException {
+        return get("/" + ids.next());
+    }
+
+    @Benchmark
+    public byte[] searchByPrice() throws IOException, InterruptedException {
+        return get("/search?minPrice=20&maxPrice=22&sort=price&size=50");
+    }
+
+    @Benchmark
+    public byte[] firstCatalogPage() throws IOException, InterruptedException {
+        return get("?limit=50");
+    }
+
+    private byte[] get(String path) throws IOException, InterruptedException {
+        HttpResponse<byte[]> response = http.send(HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .header("Authorization", authorization)
+                .GET()
+                .build(), HttpResponse.BodyHandlers.ofByteArray());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("GET " + path + " returned " + response.statusCode());
+        }
+        return response.body();
+    }
+}
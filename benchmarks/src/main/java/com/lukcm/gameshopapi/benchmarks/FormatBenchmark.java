@@ -0,0 +1,85 @@
+package com.lukcm.gameshopapi.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lukcm.gameshopapi.model.Game;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * @author Max_MacKoul
+ *
+ * The cost of writing a list of games in each format the API negotiates, JSON, Smile and CBOR, with and
+ * without gzip at the default level used by Tomcat and Netty. The score is the time to encode the list, and
+ * the bytes counter is the size of the encoded list on the wire.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class FormatBenchmark {
+
+    @Param({"json", "smile", "cbor"})
+    public String format;
+
+    @Param({"none", "gzip"})
+    public String compression;
+
+    @Param({"1", "100", "10000"})
+    public int games;
+
+    private ObjectMapper objectMapper;
+
+    private List<Game> catalog;
+
+    /**
+     * The size of the last encoded list. JMH reports it next to the score.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class WireSize {
+
+        public long bytes;
+    }
+
+    @Setup
+    public void setUp() {
+        Jackson2ObjectMapperBuilder builder = switch (format) {
+            case "json" -> Jackson2ObjectMapperBuilder.json();
+            case "smile" -> Jackson2ObjectMapperBuilder.smile();
+            case "cbor" -> Jackson2ObjectMapperBuilder.cbor();
+            default -> throw new IllegalArgumentException("Unknown format " + format);
+        };
+        objectMapper = builder.build();
+        catalog = new CatalogGenerator(CatalogGenerator.SEED).games(games);
+    }
+
+    @Benchmark
+    public ByteArrayOutputStream write(WireSize wireSize) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (OutputStream out = "gzip".equals(compression) ? new GZIPOutputStream(bytes) : bytes) {
+            objectMapper.writeValue(out, catalog);
+        }
+        wireSize.bytes = bytes.size();
+        return bytes;
+    }
+}
@@ -0,0 +1,89 @@
+package com.lukcm.gameshopapi.benchmarks;
+
+import com.lukcm.gameshopapi.service.GameShopService;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Max_MacKoul
+ *
+ * The logging overhead of one service call, on 4 threads. Each call burns some CPU standing in for the work of
+ * a request and logs the entering and exiting lines of a GameShopService method:
+ *
+ * - baseline: no logging, the time of the work alone
+ * - synchronousText: the former setup, INFO lines written with the pattern layout by synchronous loggers
+ * - asynchronousJsonTraced: the current setup with method tracing turned on (DEBUG), written as JSON by
+ *   asynchronous loggers
+ * - asynchronousJsonGated: the current setup with the default INFO level, where the tracing lines are skipped
+ *
+ * The overhead of a setup is its time minus the baseline. Every benchmark runs in its own JVM configured by
+ * log4j2-benchmark.xml, which writes to a file in the temporary directory instead of the console.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Threads(4)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class LoggingBenchmark {
+
+    private static final String CONFIGURATION = "-Dlog4j.configurationFile=log4j2-benchmark.xml";
+
+    private static final String SYNCHRONOUS =
+            "-DLog4jContextSelector=org.apache.logging.log4j.core.selector.ClassLoaderContextSelector";
+
+    private static final Logger logger = LogManager.getLogger(GameShopService.class);
+
+    // The work of a request. It has to leave the background thread of the asynchronous loggers time to keep up,
+    // as it does in the API, otherwise the ring buffer fills and the benchmark measures the file writes.
+    @Param({"10000"})
+    public long work;
+
+    @Benchmark
+    @Fork(value = 2, jvmArgsAppend = CONFIGURATION)
+    public void baseline() {
+        Blackhole.consumeCPU(work);
+    }
+
+    @Benchmark
+    @Fork(value = 2, jvmArgsAppend = {CONFIGURATION, SYNCHRONOUS, "-Dlog4j2.is.webapp=true",
+            "-Dbenchmark.log.format=text", "-Dbenchmark.log.immediateFlush=true"})
+    public void synchronousText() {
+        String methodName = ".getGameById";
+        logger.info("{}: entering method", methodName);
+        Blackhole.consumeCPU(work);
+        logger.info("{}: exiting method", methodName);
+    }
+
+    @Benchmark
+    @Fork(value = 2, jvmArgsAppend = {CONFIGURATION, "-Dbenchmark.log.level=debug"})
+    public void asynchronousJsonTraced() {
+        String methodName = ".getGameById";
+        logger.debug("{}: entering method", methodName);
+        Blackhole.consumeCPU(work);
+        logger.debug("{}: exiting method", methodName);
+    }
+
+    @Benchmark
+    @Fork(value = 2, jvmArgsAppend = CONFIGURATION)
+    public void asynchronousJsonGated() {
+        String methodName = ".getGameById";
+        logger.debug("{}: entering method", methodName);
+        Blackhole.consumeCPU(work);
+        logger.debug("{}: exiting method", methodName);
+    }
+}
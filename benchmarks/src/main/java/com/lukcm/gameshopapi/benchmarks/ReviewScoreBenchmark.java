@@ -0,0 +1,83 @@
+package com.lukcm.gameshopapi.benchmarks;
+
+import com.lukcm.gameshopapi.model.Game;
+import com.lukcm.gameshopapi.model.Review;
+import com.lukcm.gameshopapi.model.ReviewStats;
+import com.lukcm.gameshopapi.service.GameShopService;
+import com.lukcm.gameshopapi.service.ReviewStatsBackfillJob;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.Optional;
+
+/**
+ * @author Max_MacKoul
+ *
+ * The two paths of the review statistics for a game with 10, 1000 and 100000 reviews: ReviewStatsBackfillJob.rebuild,
+ * which aggregates every review of the game, and GameShopService.addReview, which counts one more review with an
+ * $inc. The rebuild grows with the number of reviews while the write should not. Reading the statistics with
+ * getAverageScore is a single document lookup whatever the number of reviews, so it is not measured here. The
+ * reviews are added through GameShopService.addGame, so the game carries the review statistics a production game
+ * would.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReviewScoreBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    public int reviews;
+
+    private BenchmarkEnvironment environment;
+
+    private GameShopService gameShopService;
+
+    private ReviewStatsBackfillJob reviewStatsBackfill;
+
+    private Review review;
+
+    private String gameId;
+
+    @Setup
+    public void setUp() throws IOException {
+        environment = BenchmarkEnvironment.start(false);
+        gameShopService = environment.getBean(GameShopService.class);
+        reviewStatsBackfill = environment.getBean(ReviewStatsBackfillJob.class);
+        CatalogGenerator generator = new CatalogGenerator(CatalogGenerator.SEED);
+        Game game = generator.game("reviewed-game");
+        game.setReviews(generator.reviews(reviews));
+        gameId = gameShopService.addGame(game).getId();
+        review = generator.reviews(1).get(0);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        environment.close();
+    }
+
+    @Benchmark
+    public Optional<ReviewStats> rebuildStats() {
+        return reviewStatsBackfill.rebuild(gameId);
+    }
+
+    /**
+     * Each call stores one more review under a new ID, so the game gains reviews during the run. The $inc of the
+     * statistics does not depend on how many it has, which the three parameters should confirm.
+     */
+    @Benchmark
+    public Review addReview() {
+        return gameShopService.addReview(gameId, review);
+    }
+}
@@ -0,0 +1,65 @@
+package com.lukcm.gameshopapi.benchmarks;
+
+import com.lukcm.gameshopapi.dto.GameSearchCriteria;
+import com.lukcm.gameshopapi.dto.GameSummary;
+import com.lukcm.gameshopapi.service.GameShopService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * @author Max_MacKoul
+ *
+ * GameShopService.searchGames filtering a catalog of 20000 generated games by price, sorted by price, for price
+ * windows matching roughly 0.1%, 3% and 30% of the catalog. Only the first page of 50 summaries is returned, so
+ * the wider windows measure how well the query uses the price index rather than the size of the response.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SearchBenchmark {
+
+    private static final int CATALOG_SIZE = 20000;
+
+    private static final double MIN_PRICE = 20.0;
+
+    @Param({"0.07", "2", "20"})
+    public double priceWindow;
+
+    private BenchmarkEnvironment environment;
+
+    private GameShopService gameShopService;
+
+    private GameSearchCriteria criteria;
+
+    @Setup
+    public void setUp() throws IOException {
+        environment = BenchmarkEnvironment.start(false);
+        environment.importGames(new CatalogGenerator(CatalogGenerator.SEED).games(CATALOG_SIZE));
+        gameShopService = environment.getBean(GameShopService.class);
+        criteria = new GameSearchCriteria(null, null, MIN_PRICE, MIN_PRICE + priceWindow, null);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        environment.close();
+    }
+
+    @Benchmark
+    public List<GameSummary> searchByPrice() {
+        return gameShopService.searchGames(criteria, 0, 50, "price", "asc", GameSummary.class);
+    }
+}
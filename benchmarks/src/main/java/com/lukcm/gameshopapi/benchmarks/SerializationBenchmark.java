@@ -0,0 +1,68 @@
+package com.lukcm.gameshopapi.benchmarks;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lukcm.gameshopapi.dto.GameSummary;
+import com.lukcm.gameshopapi.model.Game;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * @author Max_MacKoul
+ *
+ * Jackson serialization of game lists as the API writes them, with full Game documents and with GameSummary
+ * projections. The ObjectMapper is configured like the one Spring Boot creates for the application.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class SerializationBenchmark {
+
+    @Param({"1", "100", "10000"})
+    public int games;
+
+    private ObjectMapper objectMapper;
+
+    private List<Game> fullGames;
+
+    private List<GameSummary> summaries;
+
+    private byte[] fullJson;
+
+    @Setup
+    public void setUp() throws JsonProcessingException {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        fullGames = new CatalogGenerator(CatalogGenerator.SEED).games(games);
+        summaries = fullGames.stream().map(GameSummary::of).toList();
+        fullJson = objectMapper.writeValueAsBytes(fullGames);
+    }
+
+    @Benchmark
+    public byte[] writeGames() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(fullGames);
+    }
+
+    @Benchmark
+    public byte[] writeSummaries() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(summaries);
+    }
+
+    @Benchmark
+    public Game[] readGames() throws IOException {
+        return objectMapper.readValue(fullJson, Game[].class);
+    }
+}
@@ -0,0 +1,157 @@
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @author Max_MacKoul
+ *
+ * Closed-loop HTTP load test for comparing the request execution modes of the GameShop API. Each client sends
+ * a request, waits for the response and immediately sends the next one, so the throughput measured is the
+ * throughput the server sustains with that many requests in flight.
+ *
+ * Run it with the source launcher, against a server started once with gameshop.threads.virtual=false and once
+ * with gameshop.threads.virtual=true:
+ * <pre>
+ *   java loadtest/LoadTest.java --clients 1000 --duration 60s --warmup 10s \
+ *       --url http://localhost:8080/api/gameshop?limit=20 --url http://localhost:8080/api/gameshop/&lt;id&gt;
+ * </pre>
+ * Options:
+ * <ul>
+ *     <li>--url - an endpoint to request; repeat it to spread the clients over several endpoints</li>
+ *     <li>--clients - the number of concurrent clients (default 1000)</li>
+ *     <li>--duration - how long to measure (default 60s)</li>
+ *     <li>--warmup - how long to send requests before measuring (default 10s)</li>
+ *     <li>--timeout - the response timeout of a single request (default 30s)</li>
+ * </ul>
+ * The bearer token sent with every request is read from the GAMESHOP_TOKEN environment variable.
+ */
+public class LoadTest {
+
+    public static void main(String[] args) throws Exception {
+        List<URI> urls = new ArrayList<>();
+        int clients = 1000;
+        Duration duration = Duration.ofSeconds(60);
+        Duration warmup = Duration.ofSeconds(10);
+        Duration timeout = Duration.ofSeconds(30);
+        for (int i = 0; i < args.length; i += 2) {
+            if (i + 1 == args.length) {
+                throw new IllegalArgumentException("Missing value for " + args[i]);
+            }
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--url" -> urls.add(URI.create(value));
+                case "--clients" -> clients = Integer.parseInt(value);
+                case "--duration" -> duration = parseDuration(value);
+                case "--warmup" -> warmup = parseDuration(value);
+                case "--timeout" -> timeout = parseDuration(value);
+                default -> throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+        if (urls.isEmpty()) {
+            urls.add(URI.create("http://localhost:8080/api/gameshop?limit=20"));
+        }
+        String token = System.getenv("GAMESHOP_TOKEN");
+
+        HttpClient http = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+        List<HttpRequest> requests = new ArrayList<>();
+        for (URI url : urls) {
+            HttpRequest.Builder request = HttpRequest.newBuilder(url).timeout(timeout).GET();
+            if (token != null) {
+                request.header("Authorization", "Bearer " + token);
+            }
+            requests.add(request.build());
+        }
+
+        long start = System.nanoTime();
+        long measureFrom = start + warmup.toNanos();
+        long measureUntil = measureFrom + duration.toNanos();
+        Map<String, LongAdder> outcomes = new ConcurrentHashMap<>();
+        List<long[]> latencies = new ArrayList<>();
+        int[] counts = new int[clients];
+        CountDownLatch done = new CountDownLatch(clients);
+
+        System.out.printf("%d clients, %s warmup, %s measured, %d endpoint(s)%n", clients, warmup, duration,
+                requests.size());
+        for (int c = 0; c < clients; c++) {
+            int client = c;
+            // Sized for one request every millisecond; grown when a client is faster than that
+            long[][] samples = {new long[(int) Math.min(duration.toMillis(), 1 << 16)]};
+            Thread thread = new Thread(() -> {
+                try {
+                    int n = 0;
+                    long now = System.nanoTime();
+                    while (now < measureUntil) {
+                        HttpRequest request = requests.get((client + n) % requests.size());
+                        String outcome;
+                        long sent = now;
+                        try {
+                            HttpResponse<Void> response = http.send(request, HttpResponse.BodyHandlers.discarding());
+                            outcome = String.valueOf(response.statusCode());
+                        } catch (Exception ex) {
+                            outcome = ex.getClass().getSimpleName();
+                        }
+                        now = System.nanoTime();
+                        if (sent >= measureFrom && now <= measureUntil) {
+                            if (counts[client] == samples[0].length) {
+                                samples[0] = Arrays.copyOf(samples[0], samples[0].length * 2);
+                            }
+                            samples[0][counts[client]++] = now - sent;
+                            outcomes.computeIfAbsent(outcome, key -> new LongAdder()).increment();
+                        }
+                        n++;
+                    }
+                } finally {
+                    synchronized (latencies) {
+                        latencies.add(Arrays.copyOf(samples[0], counts[client]));
+                    }
+                    done.countDown();
+                }
+            }, "client-" + c);
+            thread.setDaemon(true);
+            thread.start();
+        }
+        done.await();
+
+        long[] all = latencies.stream().flatMapToLong(Arrays::stream).sorted().toArray();
+        if (all.length == 0) {
+            System.out.println("No request completed within the measured window");
+            return;
+        }
+        System.out.printf("requests   %d%n", all.length);
+        System.out.printf("throughput %.1f req/s%n", all.length / (duration.toNanos() / 1e9));
+        System.out.printf("latency    p50 %s  p90 %s  p99 %s  p99.9 %s  max %s%n", millis(all, 0.50),
+                millis(all, 0.90), millis(all, 0.99), millis(all, 0.999), millis(all, 1.0));
+        System.out.printf("outcomes   %s%n", new TreeMap<>(outcomes));
+    }
+
+    private static String millis(long[] sorted, double quantile) {
+        int index = (int) Math.min(sorted.length - 1, Math.ceil(quantile * sorted.length) - 1);
+        return String.format("%.1fms", sorted[Math.max(index, 0)] / 1e6);
+    }
+
+    private static Duration parseDuration(String value) {
+        if (value.endsWith("ms")) {
+            return Duration.ofMillis(Long.parseLong(value.substring(0, value.length() - 2)));
+        }
+        if (value.endsWith("s")) {
+            return Duration.ofSeconds(Long.parseLong(value.substring(0, value.length() - 1)));
+        }
+        if (value.endsWith("m")) {
+            return Duration.ofMinutes(Long.parseLong(value.substring(0, value.length() - 1)));
+        }
+        return Duration.parse(value);
+    }
+}
@@ -2,10 +2,17 @@ package com.lukcm.gameshopapi;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.data.mongo.MongoReactiveDataAutoConfiguration;
+import org.springframework.boot.autoconfigure.data.mongo.MongoReactiveRepositoriesAutoConfiguration;
 import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.autoconfigure.mongo.MongoReactiveAutoConfiguration;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 
-@SpringBootApplication(exclude={DataSourceAutoConfiguration.class})
+// The reactive MongoDB driver is only set up by ReactiveMongoConfig, when running with the reactive profile
+@SpringBootApplication(exclude={DataSourceAutoConfiguration.class, MongoReactiveAutoConfiguration.class,
+        MongoReactiveDataAutoConfiguration.class, MongoReactiveRepositoriesAutoConfiguration.class})
+@EnableScheduling
 public class GameShopApplication {
 
     public static void main(String[] args) {
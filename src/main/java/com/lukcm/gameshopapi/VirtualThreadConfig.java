@@ -0,0 +1,65 @@
+package com.lukcm.gameshopapi;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * @author Max_MacKoul
+ *
+ * Runs every request on its own virtual thread instead of the fixed Tomcat worker pool, when
+ * gameshop.threads.virtual is set to true. Requests spend most of their time blocked on MongoDB, and a blocked
+ * virtual thread releases its carrier thread, so the number of requests in flight is no longer capped by
+ * server.tomcat.threads.max. MongoDB calls are made on the request thread and therefore run on virtual threads
+ * too; the number of calls running at once is then bounded by the connection pool, see MongoPoolConfig.
+ *
+ * Virtual threads need a Java 21 runtime. The application is still built for Java 17, so the executor is
+ * created reflectively and startup fails with an IllegalStateException on an older runtime. Tomcat must be 9.0.85
+ * or later, see the tomcat.version of the build: earlier versions hold a monitor while they process a request,
+ * which pins its virtual thread to a carrier thread, so that no more requests run at once than there are CPUs.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@ConditionalOnProperty(name = "gameshop.threads.virtual", havingValue = "true")
+public class VirtualThreadConfig {
+
+    private static final Logger logger = LogManager.getLogger(VirtualThreadConfig.class);
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandlerCustomizer() {
+        ThreadFactory threads = virtualThreadFactory("http-vt-");
+        logger.info("Requests will run on virtual threads");
+        // One new thread per task; virtual threads are cheap enough that there is nothing to pool
+        Executor executor = task -> threads.newThread(task).start();
+        return protocolHandler -> protocolHandler.setExecutor(executor);
+    }
+
+    /**
+     * Returns Thread.ofVirtual().name(prefix, 0).factory(), looked up reflectively.
+     */
+    private static ThreadFactory virtualThreadFactory(String prefix) {
+        Method ofVirtual;
+        try {
+            ofVirtual = Thread.class.getMethod("ofVirtual");
+        } catch (NoSuchMethodException ex) {
+            throw new IllegalStateException("gameshop.threads.virtual requires Java 21 or later, running on "
+                    + Runtime.version());
+        }
+        try {
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            Object builder = ofVirtual.invoke(null);
+            builder = builderType.getMethod("name", String.class, long.class).invoke(builder, prefix, 0L);
+            return (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException ex) {
+            throw new IllegalStateException("Cannot create virtual threads", ex);
+        }
+    }
+}
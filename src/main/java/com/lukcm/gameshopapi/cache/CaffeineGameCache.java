@@ -0,0 +1,114 @@
+package com.lukcm.gameshopapi.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.lukcm.gameshopapi.model.Game;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * @author Max_MacKoul
+ *
+ * GameCache backed by a bounded Caffeine cache. It is used unless gameshop.cache.enabled is set to false.
+ * <ul>
+ *     <li>gameshop.cache.maximum-size - the maximum number of cached IDs (default 10000)</li>
+ *     <li>gameshop.cache.ttl - how long a game stays cached after it was loaded (default 5m)</li>
+ *     <li>gameshop.cache.negative-ttl - how long an unknown ID stays cached (default 30s)</li>
+ * </ul>
+ * The TTL bounds how long a change made by another instance, or directly in the database, can go unseen.
+ *
+ * A bulk load of {@link #getAll(Set, Function)} does not hold the per-key locks a single load does, so an
+ * invalidation could otherwise land between its read and its store and be undone by it. Every invalidation
+ * advances a generation, and the games of a bulk load are only stored, each under the lock of its key, if no
+ * invalidation happened since the load started; otherwise they are returned without being cached.
+ */
+@Component
+@ConditionalOnProperty(name = "gameshop.cache.enabled", havingValue = "true", matchIfMissing = true)
+public class CaffeineGameCache implements GameCache {
+
+    private final Cache<String, Optional<Game>> cache;
+
+    // Advanced before every invalidation, see getAll
+    private final AtomicLong generation = new AtomicLong();
+
+    public CaffeineGameCache(@Value("${gameshop.cache.maximum-size:10000}") long maximumSize,
+                             @Value("${gameshop.cache.ttl:5m}") Duration ttl,
+                             @Value("${gameshop.cache.negative-ttl:30s}") Duration negativeTtl) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new Expiry<String, Optional<Game>>() {
+                    @Override
+                    public long expireAfterCreate(String id, Optional<Game> game, long currentTime) {
+                        return (game.isPresent() ? ttl : negativeTtl).toNanos();
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String id, Optional<Game> game, long currentTime, long currentDuration) {
+                        return expireAfterCreate(id, game, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String id, Optional<Game> game, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+    }
+
+    @Override
+    public Optional<Game> get(String id, Function<String, Optional<Game>> loader) {
+        return cache.get(id, loader);
+    }
+
+    @Override
+    public Map<String, Optional<Game>> getAll(Set<String> ids,
+                                              Function<Set<String>, Map<String, Optional<Game>>> loader) {
+        Map<String, Optional<Game>> games = new HashMap<>(cache.getAllPresent(ids));
+        Set<String> missingIds = new LinkedHashSet<>(ids);
+        missingIds.removeAll(games.keySet());
+        if (missingIds.isEmpty()) {
+            return games;
+        }
+        long loadedAt = generation.get();
+        Map<String, Optional<Game>> loaded = loader.apply(missingIds);
+        for (String id : missingIds) {
+            Optional<Game> game = loaded.getOrDefault(id, Optional.empty());
+            // The check runs under the lock of the key, which invalidate takes after advancing the generation
+            Optional<Game> cached = cache.asMap().compute(id, (key, current) ->
+                    current != null ? current : generation.get() == loadedAt ? game : null);
+            games.put(id, cached != null ? cached : game);
+        }
+        return games;
+    }
+
+    @Override
+    public void invalidate(String id) {
+        generation.incrementAndGet();
+        cache.invalidate(id);
+    }
+
+    @Override
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        cache.invalidateAll();
+    }
+
+    @Override
+    public GameCacheStats stats() {
+        CacheStats stats = cache.stats();
+        return new GameCacheStats(stats.hitCount(), stats.missCount(), stats.evictionCount(), cache.estimatedSize());
+    }
+}
@@ -0,0 +1,62 @@
+package com.lukcm.gameshopapi.cache;
+
+import com.lukcm.gameshopapi.model.Game;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * @author Max_MacKoul
+ *
+ * A read-through cache of games by ID, placed in front of the repository for single-game lookups. Lookups of
+ * unknown IDs are cached too, as empty Optionals, so that repeated requests for a missing game do not reach
+ * the database either.
+ *
+ * Every write to a game must be followed by {@link #invalidate(String)}. Once invalidate returns, the next
+ * lookup of that ID is loaded from the database again.
+ *
+ * The implementation is chosen with the gameshop.cache.enabled property.
+ */
+public interface GameCache {
+
+    /**
+     * Returns the cached game with the given ID, loading it with the loader on a miss. Concurrent misses on
+     * the same ID share a single load.
+     *
+     * @param id the ID of the game
+     * @param loader loads the game from the database
+     * @return the game, or an empty Optional if no game has that ID
+     */
+    Optional<Game> get(String id, Function<String, Optional<Game>> loader);
+
+    /**
+     * Returns the cached games with the given IDs, loading the missing ones with a single call to the loader.
+     * Unlike {@link #get(String, Function)}, concurrent misses on the same ID may each load it. A load overlapping
+     * an invalidation is returned but not cached.
+     *
+     * @param ids the IDs of the games
+     * @param loader loads the games with the IDs it is given from the database, mapping every one of those IDs
+     *               to the game or to an empty Optional if no game has that ID
+     * @return the games by ID, with an empty Optional for every ID no game has
+     */
+    Map<String, Optional<Game>> getAll(Set<String> ids, Function<Set<String>, Map<String, Optional<Game>>> loader);
+
+    /**
+     * Removes the game with the given ID from the cache, waiting for a load of that ID in progress to finish.
+     *
+     * @param id the ID of the game
+     */
+    void invalidate(String id);
+
+    /**
+     * Removes every game from the cache.
+     */
+    void invalidateAll();
+
+    /**
+     * @return a snapshot of the hit, miss and eviction counters of the cache
+     */
+    GameCacheStats stats();
+}
@@ -0,0 +1,33 @@
+package com.lukcm.gameshopapi.cache;
+
+import com.lukcm.gameshopapi.event.GameChangedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * @author Max_MacKoul
+ *
+ * Evicts games changed by other instances or by external tools from the local GameCache. Writes made through
+ * this instance are already invalidated by GameShopService as part of the write.
+ */
+@Component
+public class GameCacheInvalidator {
+
+    private final GameCache gameCache;
+
+    public GameCacheInvalidator(GameCache gameCache) {
+        this.gameCache = gameCache;
+    }
+
+    @EventListener
+    public void onGameChanged(GameChangedEvent event) {
+        if (!event.isRemote()) {
+            return;
+        }
+        if (event.getType() == GameChangedEvent.Type.RESET) {
+            gameCache.invalidateAll();
+        } else {
+            gameCache.invalidate(event.getGameId());
+        }
+    }
+}
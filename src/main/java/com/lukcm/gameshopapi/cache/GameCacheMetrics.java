@@ -0,0 +1,54 @@
+package com.lukcm.gameshopapi.cache;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.cache.CacheMeterBinder;
+import org.springframework.stereotype.Component;
+
+/**
+ * @author Max_MacKoul
+ *
+ * Publishes the counters of the GameCache as the standard Micrometer cache meters, tagged cache=games:
+ * cache.gets (with result=hit or result=miss), cache.evictions and cache.size. The hit ratio is
+ * cache_gets_total{result="hit"} over the sum of both results.
+ */
+@Component
+public class GameCacheMetrics extends CacheMeterBinder {
+
+    private final GameCache gameCache;
+
+    public GameCacheMetrics(GameCache gameCache) {
+        super(gameCache, "games", Tags.empty());
+        this.gameCache = gameCache;
+    }
+
+    @Override
+    protected Long size() {
+        return gameCache.stats().getSize();
+    }
+
+    @Override
+    protected long hitCount() {
+        return gameCache.stats().getHitCount();
+    }
+
+    @Override
+    protected Long missCount() {
+        return gameCache.stats().getMissCount();
+    }
+
+    @Override
+    protected Long evictionCount() {
+        return gameCache.stats().getEvictionCount();
+    }
+
+    @Override
+    protected long putCount() {
+        // Games are only put by loads, which are counted as misses
+        return gameCache.stats().getMissCount();
+    }
+
+    @Override
+    protected void bindImplementationSpecificMetrics(MeterRegistry registry) {
+    }
+}
@@ -0,0 +1,50 @@
+package com.lukcm.gameshopapi.cache;
+
+import com.lukcm.gameshopapi.model.Game;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * @author Max_MacKoul
+ *
+ * GameCache that caches nothing, used when gameshop.cache.enabled is set to false. Every lookup goes to the
+ * database and is counted as a miss.
+ */
+@Component
+@ConditionalOnProperty(name = "gameshop.cache.enabled", havingValue = "false")
+public class NoOpGameCache implements GameCache {
+
+    private final AtomicLong missCount = new AtomicLong();
+
+    @Override
+    public Optional<Game> get(String id, Function<String, Optional<Game>> loader) {
+        missCount.incrementAndGet();
+        return loader.apply(id);
+    }
+
+    @Override
+    public Map<String, Optional<Game>> getAll(Set<String> ids,
+                                              Function<Set<String>, Map<String, Optional<Game>>> loader) {
+        missCount.addAndGet(ids.size());
+        return loader.apply(ids);
+    }
+
+    @Override
+    public void invalidate(String id) {
+    }
+
+    @Override
+    public void invalidateAll() {
+    }
+
+    @Override
+    public GameCacheStats stats() {
+        return new GameCacheStats(0, missCount.get(), 0, 0);
+    }
+}
@@ -0,0 +1,103 @@
+package com.lukcm.gameshopapi.controller;
+
+import com.lukcm.gameshopapi.model.CatalogAnalytics;
+import com.lukcm.gameshopapi.service.CatalogAnalyticsService;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+
+import java.util.List;
+
+/**
+ * @author Max_MacKoul
+ *
+ * This controller handles the HTTP requests for the catalog analytics. The summary is read from the copy
+ * materialized on a schedule and carries the time it was computed as Last-Modified; the other endpoints run
+ * their aggregation on every request, with the parameters given.
+ *
+ * The aggregations run on the blocking driver, so these endpoints are only served by the servlet variant of
+ * the API, not when the application runs with the reactive profile.
+ */
+@RestController
+@RequestMapping("/api/gameshop/analytics")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class AnalyticsController {
+
+    private final CatalogAnalyticsService analyticsService;
+
+    /**
+     * Constructor for the AnalyticsController. Initializes the CatalogAnalyticsService.
+     *
+     * @param analyticsService the service layer object computing the analytics
+     */
+    public AnalyticsController(CatalogAnalyticsService analyticsService) {
+        this.analyticsService = analyticsService;
+    }
+
+    /**
+     * Handles the GET request to retrieve the summary of the catalog.
+     *
+     * @param request the current request, for its If-Modified-Since header
+     * @return the summary with HTTP status 200 (OK), or HTTP status 304 (Not Modified) if it has not been
+     *         recomputed since the client's copy
+     */
+    @GetMapping
+    public ResponseEntity<CatalogAnalytics> getSummary(WebRequest request) {
+        CatalogAnalytics summary = analyticsService.getSummary();
+        long computedAt = summary.getComputedAt().getTime();
+        if (request.checkNotModified(computedAt)) {
+            return null;
+        }
+        return ResponseEntity.ok().lastModified(computedAt).body(summary);
+    }
+
+    /**
+     * Handles the GET request to rank the games of each genre by average review score.
+     *
+     * @param perGenre the number of games per genre
+     * @param minReviews the number of reviews a game needs to be ranked
+     * @return one ranking per genre with HTTP status 200 (OK)
+     */
+    @GetMapping("/top-rated-by-genre")
+    public ResponseEntity<List<CatalogAnalytics.GenreRanking>> getTopRatedByGenre(
+            @RequestParam(defaultValue = "10") int perGenre,
+            @RequestParam(defaultValue = "5") long minReviews) {
+        return new ResponseEntity<>(analyticsService.getTopRatedByGenre(perGenre, minReviews), HttpStatus.OK);
+    }
+
+    /**
+     * Handles the GET request to retrieve the prices of the games on each platform.
+     *
+     * @return the prices of each platform with HTTP status 200 (OK)
+     */
+    @GetMapping("/price-by-platform")
+    public ResponseEntity<List<CatalogAnalytics.PlatformPrices>> getPriceByPlatform() {
+        return new ResponseEntity<>(analyticsService.getPriceByPlatform(), HttpStatus.OK);
+    }
+
+    /**
+     * Handles the GET request to retrieve the distribution of the review scores.
+     *
+     * @return the number of reviews with each whole-point score with HTTP status 200 (OK)
+     */
+    @GetMapping("/review-scores")
+    public ResponseEntity<List<Long>> getReviewScoreDistribution() {
+        return new ResponseEntity<>(analyticsService.getReviewScoreDistribution(), HttpStatus.OK);
+    }
+
+    /**
+     * Handles the GET request to retrieve the games out of stock.
+     *
+     * @param limit the number of games to list
+     * @return the games out of stock with HTTP status 200 (OK)
+     */
+    @GetMapping("/stock-outs")
+    public ResponseEntity<CatalogAnalytics.StockOuts> getStockOuts(@RequestParam(defaultValue = "100") int limit) {
+        return new ResponseEntity<>(analyticsService.getStockOuts(limit), HttpStatus.OK);
+    }
+}
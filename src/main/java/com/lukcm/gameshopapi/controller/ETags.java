@@ -0,0 +1,108 @@
+package com.lukcm.gameshopapi.controller;
+
+import com.lukcm.gameshopapi.dto.Leaderboard;
+import com.lukcm.gameshopapi.model.Identifiable;
+import com.lukcm.gameshopapi.model.Review;
+import org.springframework.http.HttpHeaders;
+import org.springframework.util.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * @author Max_MacKoul
+ *
+ * Builds the ETag and Last-Modified headers of game resources. The ETag of a game is derived from its version,
+ * which every write increments, so it changes whenever the representation of the game does. The ETag of a list
+ * is a hash of the IDs and versions of its items, in order, and of the cursor to the next page; two responses
+ * with the same ETag therefore hold the same items in the same state. Only versions read from the database are
+ * hashed: a list served from an in-memory index, which follows the database with a delay, has no ETag.
+ *
+ * The ETags are weak: the same game can be sent as JSON, Smile or CBOR, compressed or not, so the bytes of two
+ * responses with the same ETag may differ. Tomcat also never compresses a response that has a strong ETag.
+ */
+final class ETags {
+
+    private ETags() {
+    }
+
+    /**
+     * @param version the version of the game
+     * @param lastModified the time of the last write to the game, or null if unknown
+     * @return the ETag of the game
+     */
+    static String ofGame(long version, Date lastModified) {
+        // The time tells apart a deleted game from a new game created later with the same ID and version
+        return weak(lastModified == null ? Long.toString(version)
+                : version + "-" + Long.toHexString(lastModified.getTime()));
+    }
+
+    /**
+     * @param view the representation of the games, since a summary and a full game of the same version differ
+     * @param games the games of the list
+     * @param nextCursor the cursor to the next page, or null
+     * @return the ETag of the list
+     */
+    static String ofGames(String view, List<?> games, String nextCursor) {
+        StringBuilder key = new StringBuilder(view).append('|').append(nextCursor);
+        for (Object game : games) {
+            Identifiable item = (Identifiable) game;
+            key.append('|').append(item.getId()).append(':').append(item.getVersion());
+        }
+        return weak(DigestUtils.md5DigestAsHex(key.toString().getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Reviews are never changed once written, so a page of reviews is identified by their IDs.
+     *
+     * @param reviews the reviews of the page
+     * @param nextCursor the cursor to the next page, or null
+     * @return the ETag of the page
+     */
+    static String ofReviews(List<Review> reviews, String nextCursor) {
+        StringBuilder key = new StringBuilder().append(nextCursor);
+        for (Review review : reviews) {
+            key.append('|').append(review.getId());
+        }
+        return weak(DigestUtils.md5DigestAsHex(key.toString().getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * The snapshot versions of the leaderboards start over when the application restarts, so the ETag is a hash
+     * of the games and the fields they are ranked by instead.
+     *
+     * @param leaderboard the leaderboard
+     * @return the ETag of the leaderboard
+     */
+    static String ofLeaderboard(Leaderboard leaderboard) {
+        StringBuilder key = new StringBuilder().append(leaderboard.getKind()).append('|').append(leaderboard.getGenre());
+        for (Leaderboard.Entry entry : leaderboard.getGames()) {
+            key.append('|').append(entry.getId()).append(':').append(entry.getTitle()).append(':')
+                    .append(entry.getPrice()).append(':').append(entry.getRating()).append(':').append(entry.getReviews());
+        }
+        return weak(DigestUtils.md5DigestAsHex(key.toString().getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * @param etag the ETag of the response, or null if its items do not all come from the database
+     * @param lastModified the time of the last write, or null if unknown
+     * @return the ETag and Last-Modified headers when known, and a Vary header since the format of the body is
+     * negotiated from the Accept header
+     */
+    static HttpHeaders headers(String etag, Date lastModified) {
+        HttpHeaders headers = new HttpHeaders();
+        if (etag != null) {
+            headers.setETag(etag);
+        }
+        headers.setVary(List.of(HttpHeaders.ACCEPT));
+        if (lastModified != null) {
+            headers.setLastModified(lastModified.getTime());
+        }
+        return headers;
+    }
+
+    private static String weak(String value) {
+        return "W/\"" + value + "\"";
+    }
+}
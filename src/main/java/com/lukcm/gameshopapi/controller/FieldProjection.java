@@ -0,0 +1,64 @@
+package com.lukcm.gameshopapi.controller;
+
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.introspect.BeanPropertyDefinition;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.lukcm.gameshopapi.model.Game;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * @author Max_MacKoul
+ *
+ * Reduces games to the properties a client asked for with the fields request parameter, e.g.
+ * fields=title,price,imageUrl. The names are those of the JSON properties of a Game, and the id is always kept.
+ * The games are projected after they are loaded, so that the game cache keeps holding complete games.
+ */
+final class FieldProjection {
+
+    private final ObjectMapper objectMapper;
+
+    private final Set<String> properties;
+
+    FieldProjection(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+        BeanDescription game = objectMapper.getSerializationConfig()
+                .introspect(objectMapper.constructType(Game.class));
+        this.properties = game.findProperties().stream()
+                .map(BeanPropertyDefinition::getName)
+                .collect(Collectors.toSet());
+    }
+
+    /**
+     * @param fields the names of the properties to keep
+     * @return the names, with the id added
+     * @throws IllegalArgumentException if a name is not a property of a Game
+     */
+    Set<String> parse(List<String> fields) {
+        Set<String> names = new LinkedHashSet<>();
+        names.add("id");
+        for (String field : fields) {
+            String name = field.trim();
+            if (!properties.contains(name)) {
+                throw new IllegalArgumentException("Unknown field " + name + ", expected one of " + properties);
+            }
+            names.add(name);
+        }
+        return names;
+    }
+
+    /**
+     * @param games the games to project
+     * @param fields the names of the properties to keep, as returned by parse
+     * @return one JSON object per game holding only the given properties
+     */
+    List<ObjectNode> project(List<Game> games, Set<String> fields) {
+        return games.stream()
+                .map(game -> objectMapper.<ObjectNode>valueToTree(game).retain(fields))
+                .toList();
+    }
+}
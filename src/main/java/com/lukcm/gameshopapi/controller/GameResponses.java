@@ -0,0 +1,96 @@
+package com.lukcm.gameshopapi.controller;
+
+import com.lukcm.gameshopapi.dto.CursorPage;
+import com.lukcm.gameshopapi.dto.GameBatch;
+import com.lukcm.gameshopapi.dto.GameSummary;
+import com.lukcm.gameshopapi.dto.GameView;
+import com.lukcm.gameshopapi.dto.Leaderboard;
+import com.lukcm.gameshopapi.model.Game;
+import com.lukcm.gameshopapi.model.Review;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * @author Max_MacKoul
+ *
+ * The responses shared by GameShopController and ReactiveGameShopController: the representation of the games
+ * asked for, and the validators computed by ETags. Both Spring MVC and WebFlux answer a GET request whose
+ * If-None-Match header holds the ETag of the response with HTTP status 304 (Not Modified), so the two variants
+ * of the API support the same conditional requests.
+ */
+final class GameResponses {
+
+    private GameResponses() {
+    }
+
+    /**
+     * @param view the representation of the games, summary or full
+     * @return the page with the ETag of its games and cursor
+     */
+    static ResponseEntity<CursorPage<?>> page(CursorPage<?> page, String view) {
+        return new ResponseEntity<>(page,
+                ETags.headers(ETags.ofGames(view, page.getItems(), page.getNextCursor()), null), HttpStatus.OK);
+    }
+
+    /**
+     * @return the game with its ETag and Last-Modified headers
+     */
+    static ResponseEntity<Game> game(Game game) {
+        return new ResponseEntity<>(game,
+                ETags.headers(ETags.ofGame(game.getVersion(), game.getLastModified()), game.getLastModified()),
+                HttpStatus.OK);
+    }
+
+    /**
+     * @param batch the games found and the missing IDs
+     * @param fields the properties of each game to return, or null to return the view
+     * @param gameView the representation of the games when no properties are given
+     * @param view the name of that representation in the request
+     * @param fieldProjection projects the games on the properties
+     * @return the games in their representation with the missing IDs, and the ETag of that representation
+     */
+    static ResponseEntity<GameBatch<?>> batch(GameBatch<Game> batch, Set<String> fields, GameView gameView,
+                                              String view, FieldProjection fieldProjection) {
+        GameBatch<?> body;
+        String representation;
+        if (fields != null) {
+            body = new GameBatch<>(fieldProjection.project(batch.getGames(), fields), batch.getMissing());
+            representation = "fields:" + fields;
+        } else if (gameView == GameView.SUMMARY) {
+            body = new GameBatch<>(batch.getGames().stream().map(GameSummary::of).toList(), batch.getMissing());
+            representation = view;
+        } else {
+            body = batch;
+            representation = view;
+        }
+        return new ResponseEntity<>(body, ETags.headers(ETags.ofGames(representation, batch.getGames(), null), null),
+                HttpStatus.OK);
+    }
+
+    /**
+     * @param games games read from the database, Game or GameSummary
+     * @param view the representation of the games, summary or full
+     * @return the list with its ETag
+     */
+    static ResponseEntity<List<?>> games(List<?> games, String view) {
+        return new ResponseEntity<>(games, ETags.headers(ETags.ofGames(view, games, null), null), HttpStatus.OK);
+    }
+
+    /**
+     * @return the page of reviews with the ETag of its reviews and cursor
+     */
+    static ResponseEntity<CursorPage<Review>> reviews(CursorPage<Review> page) {
+        return new ResponseEntity<>(page,
+                ETags.headers(ETags.ofReviews(page.getItems(), page.getNextCursor()), null), HttpStatus.OK);
+    }
+
+    /**
+     * @return the leaderboard with its ETag
+     */
+    static ResponseEntity<Leaderboard> leaderboard(Leaderboard leaderboard) {
+        return new ResponseEntity<>(leaderboard, ETags.headers(ETags.ofLeaderboard(leaderboard), null), HttpStatus.OK);
+    }
+}
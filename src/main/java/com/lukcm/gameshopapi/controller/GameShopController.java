@@ -1,77 +1,316 @@
 package com.lukcm.gameshopapi.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.lukcm.gameshopapi.dto.BulkImportResult;
+import com.lukcm.gameshopapi.dto.CursorPage;
+import com.lukcm.gameshopapi.dto.FacetFilter;
+import com.lukcm.gameshopapi.dto.FacetedResult;
+import com.lukcm.gameshopapi.dto.GameBatch;
+import com.lukcm.gameshopapi.dto.GameSearchCriteria;
+import com.lukcm.gameshopapi.dto.GameSummary;
+import com.lukcm.gameshopapi.dto.GameVersion;
+import com.lukcm.gameshopapi.dto.GameView;
+import com.lukcm.gameshopapi.dto.Leaderboard;
+import com.lukcm.gameshopapi.dto.Suggestion;
+import com.lukcm.gameshopapi.exception.GameNotFoundException;
 import com.lukcm.gameshopapi.model.Game;
+import com.lukcm.gameshopapi.model.Identifiable;
+import com.lukcm.gameshopapi.model.Review;
+import com.lukcm.gameshopapi.service.GameBulkImporter;
 import com.lukcm.gameshopapi.service.GameShopService;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Date;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
 
 /**
  * @author Max_MacKoul
  *
  * This is the main controller class for the GameShop API. It handles all the HTTP requests related to Game objects.
+ *
+ * Games and lists of games are returned with an ETag, see ETags, and a request whose If-None-Match header holds
+ * the current ETag is answered with HTTP status 304 (Not Modified) and no body. The responses are built by
+ * GameResponses, shared with ReactiveGameShopController.
  */
 @RestController
 @RequestMapping("/api/gameshop")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class GameShopController {
 
     private final GameShopService gameShopService;
 
+    private final ObjectMapper objectMapper;
+
+    private final GameBulkImporter gameBulkImporter;
+
+    private final FieldProjection fieldProjection;
+
     /**
      * Constructor for the GameShopController. Initializes the GameShopService.
      *
      * @param gameShopService the service layer object responsible for business logic
+     * @param objectMapper the application's JSON mapper, used to write streamed responses and project games
+     * @param gameBulkImporter imports games from bulk request bodies
      */
-    public GameShopController(GameShopService gameShopService) {
+    public GameShopController(GameShopService gameShopService, ObjectMapper objectMapper,
+                              GameBulkImporter gameBulkImporter) {
         this.gameShopService = gameShopService;
+        this.objectMapper = objectMapper;
+        this.gameBulkImporter = gameBulkImporter;
+        this.fieldProjection = new FieldProjection(objectMapper);
     }
 
     /**
-     * Handles the GET request to retrieve all games.
+     * Handles the GET request to retrieve one page of the catalog.
      *
-     * @return a list of all games in the system
+     * @param after the cursor returned with the previous page; omit it to fetch the first page
+     * @param limit the maximum number of games to return
+     * @param view summary (default) for GameSummary items, or full for complete Game documents
+     * @return a page of games and the cursor to pass as "after" for the next page
      */
     @GetMapping
-    public ResponseEntity<List<Game>> getAllGames() {
-        return new ResponseEntity<>(gameShopService.getAllGames(), HttpStatus.OK);
+    public ResponseEntity<CursorPage<?>> getAllGames(@RequestParam(required = false) String after,
+                                                     @RequestParam(defaultValue = "50") int limit,
+                                                     @RequestParam(defaultValue = "summary") String view) {
+        Class<? extends Identifiable> type = GameView.fromString(view).getType();
+        return GameResponses.page(gameShopService.getAllGames(after, limit, type), view);
+    }
+
+    /**
+     * Handles the GET request to stream the whole catalog as newline-delimited JSON. Each game is written as
+     * soon as it is read from the database cursor, so the response starts immediately and memory use stays
+     * flat however large the catalog is.
+     *
+     * @param view summary (default) for GameSummary lines, or full for complete Game documents
+     * @return a streaming response body writing one game per line
+     */
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAllGames(@RequestParam(defaultValue = "summary") String view) {
+        Class<? extends Identifiable> type = GameView.fromString(view).getType();
+        StreamingResponseBody body = out -> {
+            try (Stream<? extends Identifiable> games = gameShopService.streamAllGames(type);
+                 SequenceWriter writer = objectMapper.writer()
+                         .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                         .withRootValueSeparator("\n")
+                         .writeValues(out)) {
+                Iterator<? extends Identifiable> it = games.iterator();
+                while (it.hasNext()) {
+                    writer.write(it.next());
+                }
+            }
+        };
+        return new ResponseEntity<>(body, HttpStatus.OK);
     }
 
     /**
-     * Handles the GET request to retrieve a game by its ID.
+     * Handles the GET request to retrieve a game by its ID. A conditional request (If-None-Match or
+     * If-Modified-Since) first reads only the version of the game, and is answered with HTTP status 304 (Not
+     * Modified) without loading the game when it has not changed.
      *
      * @param id the unique ID of the game
-     * @return the Game object if found, or a 404 Not Found status code if not found
+     * @param request the request, to check its conditional headers
+     * @return the Game object with its ETag and Last-Modified headers if found, HTTP status 304 (Not Modified)
+     * if the client's copy is current, or a 404 Not Found status code if not found
      */
     @GetMapping("/{id}")
-    public ResponseEntity<Game> getGameById(@PathVariable String id) {
-        Optional<Game> game = gameShopService.getGameById(id);
-        return game.map(value -> new ResponseEntity<>(value, HttpStatus.OK))
-                .orElseGet(() -> new ResponseEntity<>(HttpStatus.NOT_FOUND));
+    public ResponseEntity<Game> getGameById(@PathVariable String id, WebRequest request) {
+        Optional<Game> game;
+        if (request.getHeader(HttpHeaders.IF_NONE_MATCH) != null
+                || request.getHeader(HttpHeaders.IF_MODIFIED_SINCE) != null) {
+            Optional<GameVersion> version = gameShopService.getGameVersion(id);
+            if (version.isEmpty()) {
+                return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+            }
+            Date lastModified = version.get().getLastModified();
+            if (request.checkNotModified(ETags.ofGame(version.get().getVersion(), lastModified),
+                    lastModified == null ? -1 : lastModified.getTime())) {
+                return null;
+            }
+            game = gameShopService.getGameById(id, version.get().getVersion());
+        } else {
+            game = gameShopService.getGameById(id);
+        }
+        return game.map(GameResponses::game).orElseGet(() -> new ResponseEntity<>(HttpStatus.NOT_FOUND));
+    }
+
+    /**
+     * Handles the GET request to retrieve several games by their IDs, e.g. the games of a cart or a wishlist,
+     * with one request and at most one database query. The games are in the order of the IDs, and the IDs no
+     * game has are listed as missing.
+     *
+     * @param ids the IDs of the games, comma-separated or repeated, at most {@value GameShopService#MAX_BATCH_SIZE}
+     * @param fields the properties of each game to return, e.g. title,price,imageUrl; overrides view
+     * @param view summary (default) for GameSummary items, or full for complete Game documents
+     * @return the games and the missing IDs
+     */
+    @GetMapping("/batch")
+    public ResponseEntity<GameBatch<?>> getGamesByIds(@RequestParam List<String> ids,
+                                                      @RequestParam(required = false) List<String> fields,
+                                                      @RequestParam(defaultValue = "summary") String view) {
+        Set<String> names = fields == null ? null : fieldProjection.parse(fields);
+        GameView gameView = GameView.fromString(view);
+        return GameResponses.batch(gameShopService.getGamesByIds(ids), names, gameView, view, fieldProjection);
     }
 
     /**
      * Handles the GET request to search for games by their title.
      *
      * @param title the title (or part of the title) to search for
-     * @return a list of games that match the search criteria
+     * @param limit the maximum number of games to return
+     * @param view summary (default) for GameSummary items, or full for complete Game documents
+     * @return a list of games that match the search criteria, best matches first. The list has no ETag when
+     * its summaries come from the search index, whose versions may lag behind the database: an ETag built
+     * from them could confirm a stale copy with a 304.
      */
     @GetMapping("/title-search")
-    public ResponseEntity<List<Game>> getGameByTitle(@RequestParam String title) {
-        return new ResponseEntity<>(gameShopService.getGamesByTitle(title), HttpStatus.OK);
+    public ResponseEntity<List<?>> getGameByTitle(@RequestParam String title,
+                                                  @RequestParam(defaultValue = "50") int limit,
+                                                  @RequestParam(defaultValue = "summary") String view) {
+        Class<? extends Identifiable> type = GameView.fromString(view).getType();
+        List<?> games = gameShopService.getGamesByTitle(title, limit, type);
+        // Checked after the search, as the index only ever becomes ready: if it is not ready now, it was not
+        // during the search either and the games were read from the database
+        boolean fromIndex = type == GameSummary.class && gameShopService.isSearchIndexReady();
+        String etag = fromIndex ? null : ETags.ofGames(view, games, null);
+        return new ResponseEntity<>(games, ETags.headers(etag, null), HttpStatus.OK);
     }
 
+    /**
+     * Handles the GET request to suggest titles for a search box as the user types.
+     *
+     * @param prefix the text typed so far
+     * @param limit the maximum number of suggestions to return
+     * @return the suggested titles with the IDs of their games, best first
+     */
+    @GetMapping("/autocomplete")
+    public ResponseEntity<List<Suggestion>> autocomplete(@RequestParam String prefix,
+                                                         @RequestParam(defaultValue = "10") int limit) {
+        return new ResponseEntity<>(gameShopService.autocomplete(prefix, limit), HttpStatus.OK);
+    }
+
+    /**
+     * Handles the GET request to search the catalog. All filters are optional and are combined with AND.
+     *
+     * @param title part of the title, matched case-insensitively
+     * @param developer the exact name of the developer
+     * @param minPrice the minimum price (inclusive)
+     * @param maxPrice the maximum price (inclusive)
+     * @param genre one or more genres; a game matches if it has any of them
+     * @param page the zero-based index of the page to return
+     * @param size the maximum number of games to return
+     * @param sort the key to sort on: title, price, rating or releaseDate
+     * @param direction the direction of the sort: asc or desc
+     * @param view summary (default) for GameSummary items, or full for complete Game documents
+     * @return a list of games that match the search criteria
+     */
     @GetMapping("/search")
-    public ResponseEntity<List<Game>> searchGames(
+    public ResponseEntity<List<?>> searchGames(
             @RequestParam(required = false) String title,
             @RequestParam(required = false) String developer,
             @RequestParam(required = false) Double minPrice,
             @RequestParam(required = false) Double maxPrice,
-            @RequestParam(required = false) String genre) {
-        List<Game> results = gameShopService.searchGames(title, developer, minPrice, maxPrice, genre);
-        return new ResponseEntity<>(results, HttpStatus.OK);
+            @RequestParam(required = false) List<String> genre,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "50") int size,
+            @RequestParam(required = false) String sort,
+            @RequestParam(defaultValue = "asc") String direction,
+            @RequestParam(defaultValue = "summary") String view) {
+        GameSearchCriteria criteria = new GameSearchCriteria(title, developer, minPrice, maxPrice, genre);
+        Class<? extends Identifiable> type = GameView.fromString(view).getType();
+        List<?> results = gameShopService.searchGames(criteria, page, size, sort, direction, type);
+        return GameResponses.games(results, view);
+    }
+
+    /**
+     * Handles the GET request for a faceted search: one page of matching games together with the counts of
+     * every genre, platform, ESRB rating, multiplayer and price bucket value. Values selected within a facet
+     * are combined with OR, the facets with AND.
+     *
+     * @param genre one or more genres
+     * @param platform one or more platforms
+     * @param esrbRating one or more ESRB ratings
+     * @param multiplayer true or false to only return games with or without multiplayer support
+     * @param minPrice the minimum price (inclusive)
+     * @param maxPrice the maximum price (inclusive)
+     * @param page the zero-based index of the page to return
+     * @param size the maximum number of games to return
+     * @param sort the key to sort on: title, price or rating
+     * @param direction the direction of the sort: asc or desc
+     * @return the page of games, the total number of matches and the facet counts with HTTP status 200 (OK),
+     * HTTP status 503 (Service Unavailable) while the facet index is being built, or HTTP status 501 (Not
+     * Implemented) if the in-memory catalog indexes are disabled
+     */
+    @GetMapping("/facets")
+    public ResponseEntity<FacetedResult> getFacetedSearch(
+            @RequestParam(required = false) List<String> genre,
+            @RequestParam(required = false) List<String> platform,
+            @RequestParam(required = false) List<String> esrbRating,
+            @RequestParam(required = false) Boolean multiplayer,
+            @RequestParam(required = false) Double minPrice,
+            @RequestParam(required = false) Double maxPrice,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(defaultValue = "title") String sort,
+            @RequestParam(defaultValue = "asc") String direction) {
+        FacetFilter filter = new FacetFilter(genre, platform, esrbRating, multiplayer, minPrice, maxPrice);
+        return new ResponseEntity<>(gameShopService.getFacetedSearch(filter, page, size, sort, direction),
+                HttpStatus.OK);
+    }
+
+    /**
+     * Handles the GET request for the highest rated games.
+     *
+     * @param limit the number of games to return
+     * @return the leaderboard with HTTP status 200 (OK), HTTP status 503 (Service Unavailable) while the
+     * leaderboards are being built, or HTTP status 501 (Not Implemented) if the in-memory catalog indexes are
+     * disabled
+     */
+    @GetMapping("/leaderboards/top-rated")
+    public ResponseEntity<Leaderboard> getTopRated(@RequestParam(defaultValue = "10") int limit) {
+        return GameResponses.leaderboard(gameShopService.getLeaderboard(Leaderboard.Kind.TOP_RATED, null, limit));
+    }
+
+    /**
+     * Handles the GET request for the games with the most reviews.
+     *
+     * @param limit the number of games to return
+     * @return the leaderboard with HTTP status 200 (OK), HTTP status 503 (Service Unavailable) while the
+     * leaderboards are being built, or HTTP status 501 (Not Implemented) if the in-memory catalog indexes are
+     * disabled
+     */
+    @GetMapping("/leaderboards/most-reviewed")
+    public ResponseEntity<Leaderboard> getMostReviewed(@RequestParam(defaultValue = "10") int limit) {
+        return GameResponses.leaderboard(gameShopService.getLeaderboard(Leaderboard.Kind.MOST_REVIEWED, null, limit));
+    }
+
+    /**
+     * Handles the GET request for the cheapest games of a genre.
+     *
+     * @param genre the genre
+     * @param limit the number of games to return
+     * @return the leaderboard with HTTP status 200 (OK), HTTP status 503 (Service Unavailable) while the
+     * leaderboards are being built, or HTTP status 501 (Not Implemented) if the in-memory catalog indexes are
+     * disabled
+     */
+    @GetMapping("/leaderboards/deals/{genre}")
+    public ResponseEntity<Leaderboard> getDeals(@PathVariable String genre,
+                                                @RequestParam(defaultValue = "10") int limit) {
+        return GameResponses.leaderboard(gameShopService.getLeaderboard(Leaderboard.Kind.DEALS, genre, limit));
     }
 
     /**
@@ -85,6 +324,52 @@ public class GameShopController {
         return new ResponseEntity<>(gameShopService.addGame(game), HttpStatus.CREATED);
     }
 
+    /**
+     * Handles the POST request to import many games at once. The body is either a JSON array of games or
+     * newline-delimited JSON with one game per line, and is read incrementally as the games are written.
+     *
+     * @param body the request body
+     * @return a summary of the games inserted, updated and failed with HTTP status 200 (OK)
+     * @throws IOException if the request body cannot be read
+     */
+    @PostMapping(value = "/bulk", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public ResponseEntity<BulkImportResult> importGames(InputStream body) throws IOException {
+        return new ResponseEntity<>(gameBulkImporter.importGames(body), HttpStatus.OK);
+    }
+
+    /**
+     * Handles the GET request to retrieve one page of the reviews of a game, newest first.
+     *
+     * @param id the ID of the game
+     * @param before the cursor returned with the previous page; omit it to fetch the first page
+     * @param limit the maximum number of reviews to return
+     * @return a page of reviews and the cursor to pass as "before" for the next page, or HTTP status 404
+     * (Not Found) if the game does not exist
+     */
+    @GetMapping("/{id}/reviews")
+    public ResponseEntity<CursorPage<Review>> getReviews(@PathVariable String id,
+                                                         @RequestParam(required = false) String before,
+                                                         @RequestParam(defaultValue = "20") int limit) {
+        return GameResponses.reviews(gameShopService.getReviews(id, before, limit));
+    }
+
+    /**
+     * Handles the POST request to add a review to a game.
+     *
+     * @param id the ID of the game being reviewed
+     * @param review the review to add
+     * @return the stored review with HTTP status 201 (Created), or with HTTP status 202 (Accepted) when reviews
+     * are written in batches; HTTP status 404 (Not Found) if the game does not exist, or HTTP status 429 (Too Many
+     * Requests) if the review queue is full
+     */
+    @PostMapping("/{id}/reviews")
+    public ResponseEntity<Review> addReview(@PathVariable String id, @RequestBody Review review) {
+        if (gameShopService.isReviewWriteBehind()) {
+            return new ResponseEntity<>(gameShopService.submitReview(id, review), HttpStatus.ACCEPTED);
+        }
+        return new ResponseEntity<>(gameShopService.addReview(id, review), HttpStatus.CREATED);
+    }
+
     /**
      * Handles the HTTP GET requests that fetch the average review score for a specific game.
      *
@@ -98,15 +383,15 @@ public class GameShopController {
      * This method attempts to fetch the average review score of the game with the specified
      * ID by calling the getAverageScore() method in the GameShopService. If successful,
      * it returns a ResponseEntity with the average score and a status of HttpStatus.OK.
-     * If a RuntimeException is caught (which occurs when the game with the specified ID
-     * cannot be found), it returns a ResponseEntity with a status of HttpStatus.NOT_FOUND.
+     * If a GameNotFoundException is caught, it returns a ResponseEntity with a status of
+     * HttpStatus.NOT_FOUND. Any other error is left to GlobalExceptionHandler.
      */
     @GetMapping("/{id}/average-score")
     public ResponseEntity<Double> getAverageScore(@PathVariable String id) {
         try {
             double averageScore = gameShopService.getAverageScore(id);
             return new ResponseEntity<>(averageScore, HttpStatus.OK);
-        } catch (RuntimeException ex) {
+        } catch (GameNotFoundException ex) {
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         }
     }
@@ -118,14 +403,15 @@ public class GameShopController {
      * @return a ResponseEntity with either the total number of reviews and HTTP status OK, or HTTP status Not Found
      *
      * If the game with the provided ID is found, the total number of reviews is calculated and returned with HTTP status 200 (OK).
-     * If the game is not found, HTTP status 404 (Not Found) is returned.
+     * If the game is not found, HTTP status 404 (Not Found) is returned. Any other error is left to
+     * GlobalExceptionHandler.
      */
     @GetMapping("/{id}/total-reviews")
     public ResponseEntity <Integer> getTotalReviews(@PathVariable String id) {
         try {
             int totalReviews = gameShopService.getTotalReviews(id);
             return new ResponseEntity<>(totalReviews, HttpStatus.OK);
-        }catch (RuntimeException ex) {
+        }catch (GameNotFoundException ex) {
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         }
     }
@@ -134,12 +420,16 @@ public class GameShopController {
      * This API endpoint is used to retrieve games within a specific price range.
      * @param lowerBound The minimum price of the games (included in the range).
      * @param upperBound The maximum price of the games (included in the range).
+     * @param view summary (default) for GameSummary items, or full for complete Game documents.
      * @return A ResponseEntity containing the list of games within the specified price range and
      * HTTP status OK.
      */
     @GetMapping("/price-range")
-    public ResponseEntity<List<Game>> getGamesByPriceRange(@RequestParam double lowerBound, @RequestParam double upperBound) {
-        return new ResponseEntity<>(gameShopService.getGamesByPriceRange(lowerBound, upperBound), HttpStatus.OK);
+    public ResponseEntity<List<?>> getGamesByPriceRange(@RequestParam double lowerBound, @RequestParam double upperBound,
+                                                        @RequestParam(defaultValue = "summary") String view) {
+        Class<? extends Identifiable> type = GameView.fromString(view).getType();
+        List<?> games = gameShopService.getGamesByPriceRange(lowerBound, upperBound, type);
+        return GameResponses.games(games, view);
     }
 
     /**
@@ -0,0 +1,391 @@
+package com.lukcm.gameshopapi.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lukcm.gameshopapi.dto.BulkImportResult;
+import com.lukcm.gameshopapi.dto.CursorPage;
+import com.lukcm.gameshopapi.dto.FacetFilter;
+import com.lukcm.gameshopapi.dto.FacetedResult;
+import com.lukcm.gameshopapi.dto.GameBatch;
+import com.lukcm.gameshopapi.dto.GameSearchCriteria;
+import com.lukcm.gameshopapi.dto.GameView;
+import com.lukcm.gameshopapi.dto.Leaderboard;
+import com.lukcm.gameshopapi.dto.Suggestion;
+import com.lukcm.gameshopapi.exception.GameNotFoundException;
+import com.lukcm.gameshopapi.model.Game;
+import com.lukcm.gameshopapi.model.Identifiable;
+import com.lukcm.gameshopapi.model.Review;
+import com.lukcm.gameshopapi.service.GameShopService;
+import com.lukcm.gameshopapi.service.ReactiveGameShopService;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * @author Max_MacKoul
+ *
+ * The WebFlux counterpart of GameShopController, serving the same endpoints when the application runs with the
+ * reactive profile. Endpoints returning a list of games emit them as they are read from MongoDB: a client that
+ * accepts application/x-ndjson receives one game per line with backpressure applied to the database cursor,
+ * while application/json clients receive a JSON array. Smile and CBOR clients receive an array as well.
+ *
+ * The responses that are not streamed are built by GameResponses, shared with GameShopController, so a game, a
+ * page of games or reviews, a batch and a leaderboard carry the same ETag as in the blocking variant and are
+ * answered with HTTP status 304 (Not Modified) in the same cases. Streamed lists have no ETag, since their
+ * headers are sent before their games are read.
+ */
+@RestController
+@RequestMapping("/api/gameshop")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveGameShopController {
+
+    private static final String SMILE_VALUE = "application/x-jackson-smile";
+
+    private final ReactiveGameShopService gameShopService;
+
+    private final FieldProjection fieldProjection;
+
+    /**
+     * Constructor for the ReactiveGameShopController. Initializes the ReactiveGameShopService.
+     *
+     * @param gameShopService the service layer object responsible for business logic
+     * @param objectMapper the application's JSON mapper, used to project games
+     */
+    public ReactiveGameShopController(ReactiveGameShopService gameShopService, ObjectMapper objectMapper) {
+        this.gameShopService = gameShopService;
+        this.fieldProjection = new FieldProjection(objectMapper);
+    }
+
+    /**
+     * Handles the GET request to retrieve one page of the catalog.
+     *
+     * @param after the cursor returned with the previous page; omit it to fetch the first page
+     * @param limit the maximum number of games to return
+     * @param view summary (default) for GameSummary items, or full for complete Game documents
+     * @return a page of games and the cursor to pass as "after" for the next page, with its ETag
+     */
+    @GetMapping
+    public Mono<ResponseEntity<CursorPage<?>>> getAllGames(@RequestParam(required = false) String after,
+                                                           @RequestParam(defaultValue = "50") int limit,
+                                                           @RequestParam(defaultValue = "summary") String view) {
+        Class<? extends Identifiable> type = GameView.fromString(view).getType();
+        return gameShopService.getAllGames(after, limit, type).map(page -> GameResponses.page(page, view));
+    }
+
+    /**
+     * Handles the GET request to stream the whole catalog as newline-delimited JSON. Games are read from the
+     * database cursor only as fast as the client consumes them.
+     *
+     * @param view summary (default) for GameSummary lines, or full for complete Game documents
+     * @return all games, one per line
+     */
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<?> streamAllGames(@RequestParam(defaultValue = "summary") String view) {
+        return gameShopService.streamAllGames(GameView.fromString(view).getType());
+    }
+
+    /**
+     * Handles the GET request to retrieve a game by its ID. See GameShopController.getGameById for conditional
+     * requests.
+     *
+     * @param id the unique ID of the game
+     * @param exchange the exchange, to check the conditional headers of the request
+     * @return the Game object with its ETag and Last-Modified headers if found, HTTP status 304 (Not Modified)
+     * if the client's copy is current, or a 404 Not Found status code if not found
+     */
+    @GetMapping("/{id}")
+    public Mono<ResponseEntity<Game>> getGameById(@PathVariable String id, ServerWebExchange exchange) {
+        HttpHeaders requestHeaders = exchange.getRequest().getHeaders();
+        if (requestHeaders.getIfNoneMatch().isEmpty() && requestHeaders.getIfModifiedSince() < 0) {
+            return gameShopService.getGameById(id)
+                    .map(GameResponses::game)
+                    .defaultIfEmpty(new ResponseEntity<>(HttpStatus.NOT_FOUND));
+        }
+        return gameShopService.getGameVersion(id)
+                .flatMap(version -> {
+                    Date lastModified = version.getLastModified();
+                    if (exchange.checkNotModified(ETags.ofGame(version.getVersion(), lastModified),
+                            lastModified == null ? Instant.EPOCH.minusMillis(1) : lastModified.toInstant())) {
+                        return Mono.just(new ResponseEntity<Game>(HttpStatus.NOT_MODIFIED));
+                    }
+                    return gameShopService.getGameById(id).map(GameResponses::game);
+                })
+                .defaultIfEmpty(new ResponseEntity<>(HttpStatus.NOT_FOUND));
+    }
+
+    /**
+     * Handles the GET request to retrieve several games by their IDs with one database query. See
+     * GameShopController.getGamesByIds.
+     *
+     * @param ids the IDs of the games, comma-separated or repeated, at most {@value GameShopService#MAX_BATCH_SIZE}
+     * @param fields the properties of each game to return, e.g. title,price,imageUrl; overrides view
+     * @param view summary (default) for GameSummary items, or full for complete Game documents
+     * @return the games and the missing IDs, with their ETag
+     */
+    @GetMapping("/batch")
+    public Mono<ResponseEntity<GameBatch<?>>> getGamesByIds(@RequestParam List<String> ids,
+                                                            @RequestParam(required = false) List<String> fields,
+                                                            @RequestParam(defaultValue = "summary") String view) {
+        Set<String> names = fields == null ? null : fieldProjection.parse(fields);
+        GameView gameView = GameView.fromString(view);
+        return gameShopService.getGamesByIds(ids)
+                .map(batch -> GameResponses.batch(batch, names, gameView, view, fieldProjection));
+    }
+
+    /**
+     * Handles the GET request to search for games by their title.
+     *
+     * @param title the title (or part of the title) to search for
+     * @param limit the maximum number of games to return
+     * @param view summary (default) for GameSummary items, or full for complete Game documents
+     * @return the games that match the search criteria, best matches first
+     */
+    @GetMapping(value = "/title-search", produces = {MediaType.APPLICATION_JSON_VALUE,
+            MediaType.APPLICATION_NDJSON_VALUE, SMILE_VALUE, MediaType.APPLICATION_CBOR_VALUE})
+    public Flux<?> getGameByTitle(@RequestParam String title,
+                                  @RequestParam(defaultValue = "50") int limit,
+                                  @RequestParam(defaultValue = "summary") String view) {
+        return gameShopService.getGamesByTitle(title, limit, GameView.fromString(view).getType());
+    }
+
+    /**
+     * Handles the GET request to suggest titles for a search box as the user types.
+     *
+     * @param prefix the text typed so far
+     * @param limit the maximum number of suggestions to return
+     * @return the suggested titles with the IDs of their games, best first
+     */
+    @GetMapping("/autocomplete")
+    public Flux<Suggestion> autocomplete(@RequestParam String prefix,
+                                         @RequestParam(defaultValue = "10") int limit) {
+        return gameShopService.autocomplete(prefix, limit);
+    }
+
+    /**
+     * Handles the GET request to search the catalog. All filters are optional and are combined with AND.
+     *
+     * @param title part of the title, matched case-insensitively
+     * @param developer the exact name of the developer
+     * @param minPrice the minimum price (inclusive)
+     * @param maxPrice the maximum price (inclusive)
+     * @param genre one or more genres; a game matches if it has any of them
+     * @param page the zero-based index of the page to return
+     * @param size the maximum number of games to return
+     * @param sort the key to sort on: title, price, rating or releaseDate
+     * @param direction the direction of the sort: asc or desc
+     * @param view summary (default) for GameSummary items, or full for complete Game documents
+     * @return the games that match the search criteria
+     */
+    @GetMapping(value = "/search", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE,
+            SMILE_VALUE, MediaType.APPLICATION_CBOR_VALUE})
+    public Flux<?> searchGames(
+            @RequestParam(required = false) String title,
+            @RequestParam(required = false) String developer,
+            @RequestParam(required = false) Double minPrice,
+            @RequestParam(required = false) Double maxPrice,
+            @RequestParam(required = false) List<String> genre,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "50") int size,
+            @RequestParam(required = false) String sort,
+            @RequestParam(defaultValue = "asc") String direction,
+            @RequestParam(defaultValue = "summary") String view) {
+        GameSearchCriteria criteria = new GameSearchCriteria(title, developer, minPrice, maxPrice, genre);
+        return gameShopService.searchGames(criteria, page, size, sort, direction, GameView.fromString(view).getType());
+    }
+
+    /**
+     * Handles the GET request for a faceted search. See GameShopController.getFacetedSearch.
+     *
+     * @param genre one or more genres
+     * @param platform one or more platforms
+     * @param esrbRating one or more ESRB ratings
+     * @param multiplayer true or false to only return games with or without multiplayer support
+     * @param minPrice the minimum price (inclusive)
+     * @param maxPrice the maximum price (inclusive)
+     * @param page the zero-based index of the page to return
+     * @param size the maximum number of games to return
+     * @param sort the key to sort on: title, price or rating
+     * @param direction the direction of the sort: asc or desc
+     * @return the page of games, the total number of matches and the facet counts with HTTP status 200 (OK),
+     * HTTP status 503 (Service Unavailable) while the facet index is being built, or HTTP status 501 (Not
+     * Implemented) if the in-memory catalog indexes are disabled
+     */
+    @GetMapping("/facets")
+    public Mono<ResponseEntity<FacetedResult>> getFacetedSearch(
+            @RequestParam(required = false) List<String> genre,
+            @RequestParam(required = false) List<String> platform,
+            @RequestParam(required = false) List<String> esrbRating,
+            @RequestParam(required = false) Boolean multiplayer,
+            @RequestParam(required = false) Double minPrice,
+            @RequestParam(required = false) Double maxPrice,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(defaultValue = "title") String sort,
+            @RequestParam(defaultValue = "asc") String direction) {
+        FacetFilter filter = new FacetFilter(genre, platform, esrbRating, multiplayer, minPrice, maxPrice);
+        return gameShopService.getFacetedSearch(filter, page, size, sort, direction)
+                .map(result -> new ResponseEntity<>(result, HttpStatus.OK));
+    }
+
+    /**
+     * Handles the GET request for the highest rated games.
+     *
+     * @param limit the number of games to return
+     * @return the leaderboard with HTTP status 200 (OK), HTTP status 503 (Service Unavailable) while the
+     * leaderboards are being built, or HTTP status 501 (Not Implemented) if the in-memory catalog indexes are
+     * disabled
+     */
+    @GetMapping("/leaderboards/top-rated")
+    public Mono<ResponseEntity<Leaderboard>> getTopRated(@RequestParam(defaultValue = "10") int limit) {
+        return gameShopService.getLeaderboard(Leaderboard.Kind.TOP_RATED, null, limit).map(GameResponses::leaderboard);
+    }
+
+    /**
+     * Handles the GET request for the games with the most reviews.
+     *
+     * @param limit the number of games to return
+     * @return the leaderboard with HTTP status 200 (OK), HTTP status 503 (Service Unavailable) while the
+     * leaderboards are being built, or HTTP status 501 (Not Implemented) if the in-memory catalog indexes are
+     * disabled
+     */
+    @GetMapping("/leaderboards/most-reviewed")
+    public Mono<ResponseEntity<Leaderboard>> getMostReviewed(@RequestParam(defaultValue = "10") int limit) {
+        return gameShopService.getLeaderboard(Leaderboard.Kind.MOST_REVIEWED, null, limit).map(GameResponses::leaderboard);
+    }
+
+    /**
+     * Handles the GET request for the cheapest games of a genre.
+     *
+     * @param genre the genre
+     * @param limit the number of games to return
+     * @return the leaderboard with HTTP status 200 (OK), HTTP status 503 (Service Unavailable) while the
+     * leaderboards are being built, or HTTP status 501 (Not Implemented) if the in-memory catalog indexes are
+     * disabled
+     */
+    @GetMapping("/leaderboards/deals/{genre}")
+    public Mono<ResponseEntity<Leaderboard>> getDeals(@PathVariable String genre,
+                                                      @RequestParam(defaultValue = "10") int limit) {
+        return gameShopService.getLeaderboard(Leaderboard.Kind.DEALS, genre, limit).map(GameResponses::leaderboard);
+    }
+
+    /**
+     * Handles the POST request to add a new game.
+     *
+     * @param game the Game object to create
+     * @return the created Game object
+     */
+    @PostMapping
+    public Mono<ResponseEntity<Game>> addGame(@RequestBody Game game) {
+        return gameShopService.addGame(game).map(saved -> new ResponseEntity<>(saved, HttpStatus.CREATED));
+    }
+
+    /**
+     * Handles the POST request to import many games at once. The body is either a JSON array of games or
+     * newline-delimited JSON with one game per line, and is decoded incrementally as the games are written.
+     *
+     * @param games the games of the request body
+     * @return a summary of the games inserted, updated and failed with HTTP status 200 (OK)
+     */
+    @PostMapping(value = "/bulk", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public Mono<ResponseEntity<BulkImportResult>> importGames(@RequestBody Flux<Game> games) {
+        return gameShopService.importGames(games).map(result -> new ResponseEntity<>(result, HttpStatus.OK));
+    }
+
+    /**
+     * Handles the GET request to retrieve one page of the reviews of a game, newest first.
+     *
+     * @param id the ID of the game
+     * @param before the cursor returned with the previous page; omit it to fetch the first page
+     * @param limit the maximum number of reviews to return
+     * @return a page of reviews and the cursor to pass as "before" for the next page, or HTTP status 404
+     * (Not Found) if the game does not exist
+     */
+    @GetMapping("/{id}/reviews")
+    public Mono<ResponseEntity<CursorPage<Review>>> getReviews(@PathVariable String id,
+                                                               @RequestParam(required = false) String before,
+                                                               @RequestParam(defaultValue = "20") int limit) {
+        return gameShopService.getReviews(id, before, limit).map(GameResponses::reviews);
+    }
+
+    /**
+     * Handles the POST request to add a review to a game.
+     *
+     * @param id the ID of the game being reviewed
+     * @param review the review to add
+     * @return the stored review with HTTP status 201 (Created), or with HTTP status 202 (Accepted) when reviews
+     * are written in batches; HTTP status 404 (Not Found) if the game does not exist, or HTTP status 429 (Too Many
+     * Requests) if the review queue is full
+     */
+    @PostMapping("/{id}/reviews")
+    public Mono<ResponseEntity<Review>> addReview(@PathVariable String id, @RequestBody Review review) {
+        if (gameShopService.isReviewWriteBehind()) {
+            return gameShopService.submitReview(id, review)
+                    .map(queued -> new ResponseEntity<>(queued, HttpStatus.ACCEPTED));
+        }
+        return gameShopService.addReview(id, review).map(saved -> new ResponseEntity<>(saved, HttpStatus.CREATED));
+    }
+
+    /**
+     * Handles the GET request to fetch the average review score of a game.
+     *
+     * @param id the ID of the game
+     * @return the average review score with HTTP status 200 (OK), or HTTP status 404 (Not Found) if the game
+     * cannot be found; other errors are answered by GlobalExceptionHandler
+     */
+    @GetMapping("/{id}/average-score")
+    public Mono<ResponseEntity<Double>> getAverageScore(@PathVariable String id) {
+        return gameShopService.getAverageScore(id)
+                .map(averageScore -> new ResponseEntity<>(averageScore, HttpStatus.OK))
+                .onErrorReturn(GameNotFoundException.class, new ResponseEntity<>(HttpStatus.NOT_FOUND));
+    }
+
+    /**
+     * Handles the GET request to fetch the total number of reviews of a game.
+     *
+     * @param id the ID of the game
+     * @return the total number of reviews with HTTP status 200 (OK), or HTTP status 404 (Not Found) if the
+     * game cannot be found; other errors are answered by GlobalExceptionHandler
+     */
+    @GetMapping("/{id}/total-reviews")
+    public Mono<ResponseEntity<Integer>> getTotalReviews(@PathVariable String id) {
+        return gameShopService.getTotalReviews(id)
+                .map(totalReviews -> new ResponseEntity<>(totalReviews, HttpStatus.OK))
+                .onErrorReturn(GameNotFoundException.class, new ResponseEntity<>(HttpStatus.NOT_FOUND));
+    }
+
+    /**
+     * Handles the GET request to retrieve games within a price range.
+     *
+     * @param lowerBound the minimum price of the games (included in the range)
+     * @param upperBound the maximum price of the games (included in the range)
+     * @param view summary (default) for GameSummary items, or full for complete Game documents
+     * @return the games within the price range
+     */
+    @GetMapping(value = "/price-range", produces = {MediaType.APPLICATION_JSON_VALUE,
+            MediaType.APPLICATION_NDJSON_VALUE, SMILE_VALUE, MediaType.APPLICATION_CBOR_VALUE})
+    public Flux<?> getGamesByPriceRange(@RequestParam double lowerBound, @RequestParam double upperBound,
+                                        @RequestParam(defaultValue = "summary") String view) {
+        return gameShopService.getGamesByPriceRange(lowerBound, upperBound, GameView.fromString(view).getType());
+    }
+
+    /**
+     * Handles the DELETE request to remove a game by its ID.
+     *
+     * @param id the unique ID of the game
+     * @return HTTP status 204 (No Content) once the game is deleted
+     */
+    @DeleteMapping("/{id}")
+    public Mono<ResponseEntity<Void>> deleteGame(@PathVariable String id) {
+        return gameShopService.deleteGame(id).thenReturn(new ResponseEntity<>(HttpStatus.NO_CONTENT));
+    }
+}
@@ -0,0 +1,132 @@
+package com.lukcm.gameshopapi.controller;
+
+import com.lukcm.gameshopapi.model.StockReservation;
+import com.lukcm.gameshopapi.service.StockService;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+/**
+ * @author Max_MacKoul
+ *
+ * This controller handles the HTTP requests that read and change the stock of games, including the
+ * reservations made during checkout.
+ *
+ * Stock changes run on the blocking driver, so these endpoints are only served by the servlet variant of the
+ * API, not when the application runs with the reactive profile.
+ */
+@RestController
+@RequestMapping("/api/gameshop")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class StockController {
+
+    private final StockService stockService;
+
+    /**
+     * Constructor for the StockController. Initializes the StockService.
+     *
+     * @param stockService the service layer object responsible for stock changes
+     */
+    public StockController(StockService stockService) {
+        this.stockService = stockService;
+    }
+
+    /**
+     * Handles the GET request to retrieve the available stock of a game.
+     *
+     * @param id the ID of the game
+     * @return the available stock with HTTP status 200 (OK), or HTTP status 404 (Not Found)
+     */
+    @GetMapping("/{id}/stock")
+    public ResponseEntity<Integer> getStock(@PathVariable String id) {
+        return new ResponseEntity<>(stockService.getStock(id), HttpStatus.OK);
+    }
+
+    /**
+     * Handles the POST request to add stock to a game.
+     *
+     * @param id the ID of the game
+     * @param quantity the quantity to add
+     * @return the available stock after the delivery with HTTP status 200 (OK)
+     */
+    @PostMapping("/{id}/stock")
+    public ResponseEntity<Integer> restock(@PathVariable String id, @RequestParam int quantity) {
+        return new ResponseEntity<>(stockService.restock(id, quantity), HttpStatus.OK);
+    }
+
+    /**
+     * Handles the PUT request to split the stock of a game into buckets (hot-SKU mode).
+     *
+     * @param id the ID of the game
+     * @param count the number of buckets
+     * @return HTTP status 204 (No Content)
+     */
+    @PutMapping("/{id}/stock/buckets")
+    public ResponseEntity<Void> splitStock(@PathVariable String id, @RequestParam int count) {
+        stockService.splitStock(id, count);
+        return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+    }
+
+    /**
+     * Handles the DELETE request to move the stock of a game in hot-SKU mode back into a single counter.
+     *
+     * @param id the ID of the game
+     * @return HTTP status 204 (No Content)
+     */
+    @DeleteMapping("/{id}/stock/buckets")
+    public ResponseEntity<Void> mergeStock(@PathVariable String id) {
+        stockService.mergeStock(id);
+        return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+    }
+
+    /**
+     * Handles the POST request to reserve stock of one or more games. Either every item is reserved or none
+     * is.
+     *
+     * @param items the games and quantities to reserve
+     * @return the held reservation with HTTP status 201 (Created), or HTTP status 409 (Conflict) if a game
+     * does not have enough stock
+     */
+    @PostMapping("/reservations")
+    public ResponseEntity<StockReservation> reserve(@RequestBody List<StockReservation.Item> items) {
+        return new ResponseEntity<>(stockService.reserve(items), HttpStatus.CREATED);
+    }
+
+    /**
+     * Handles the GET request to retrieve a reservation.
+     *
+     * @param id the ID of the reservation
+     * @return the reservation with HTTP status 200 (OK), or HTTP status 404 (Not Found)
+     */
+    @GetMapping("/reservations/{id}")
+    public ResponseEntity<StockReservation> getReservation(@PathVariable String id) {
+        return new ResponseEntity<>(stockService.getReservation(id), HttpStatus.OK);
+    }
+
+    /**
+     * Handles the POST request to commit a held reservation.
+     *
+     * @param id the ID of the reservation
+     * @return the committed reservation with HTTP status 200 (OK), or HTTP status 409 (Conflict) if it is no
+     * longer held
+     */
+    @PostMapping("/reservations/{id}/commit")
+    public ResponseEntity<StockReservation> commit(@PathVariable String id) {
+        return new ResponseEntity<>(stockService.commit(id), HttpStatus.OK);
+    }
+
+    /**
+     * Handles the POST request to release a held reservation and return its stock.
+     *
+     * @param id the ID of the reservation
+     * @return the released reservation with HTTP status 200 (OK), or HTTP status 409 (Conflict) if it is no
+     * longer held
+     */
+    @PostMapping("/reservations/{id}/release")
+    public ResponseEntity<StockReservation> release(@PathVariable String id) {
+        return new ResponseEntity<>(stockService.release(id), HttpStatus.OK);
+    }
+}
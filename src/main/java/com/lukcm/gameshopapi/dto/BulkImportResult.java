@@ -0,0 +1,119 @@
+package com.lukcm.gameshopapi.dto;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * @author Max_MacKoul
+ *
+ * The outcome of a bulk import. Every record of the request is counted as inserted, updated or failed. The
+ * individual failures are listed up to a configured limit so that the summary of a very large import stays
+ * small; errorsTruncated tells whether failures were left out of the list.
+ */
+public class BulkImportResult {
+
+    /**
+     * A record that could not be imported.
+     */
+    public static class RecordError {
+
+        private final int index;
+
+        private final String id;
+
+        private final String message;
+
+        public RecordError(int index, String id, String message) {
+            this.index = index;
+            this.id = id;
+            this.message = message;
+        }
+
+        /**
+         * @return the zero-based position of the record in the request body
+         */
+        public int getIndex() {
+            return index;
+        }
+
+        /**
+         * @return the ID of the record, or null if it had none or could not be read
+         */
+        public String getId() {
+            return id;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+    }
+
+    private final int maxErrors;
+
+    private long received;
+
+    private long inserted;
+
+    private long updated;
+
+    private long failed;
+
+    private final List<RecordError> errors = new ArrayList<>();
+
+    public BulkImportResult(int maxErrors) {
+        this.maxErrors = maxErrors;
+    }
+
+    /**
+     * Counts a record read from the request body.
+     */
+    public void recordReceived() {
+        received++;
+    }
+
+    /**
+     * Counts the records of a batch that were written.
+     *
+     * @param inserted the number of games that did not exist before
+     * @param updated the number of existing games that were overwritten
+     */
+    public void recordWritten(long inserted, long updated) {
+        this.inserted += inserted;
+        this.updated += updated;
+    }
+
+    /**
+     * Counts a record that could not be imported, and lists it if the error limit has not been reached.
+     */
+    public void recordError(int index, String id, String message) {
+        failed++;
+        if (errors.size() < maxErrors) {
+            errors.add(new RecordError(index, id, message));
+        }
+    }
+
+    public long getReceived() {
+        return received;
+    }
+
+    public long getInserted() {
+        return inserted;
+    }
+
+    public long getUpdated() {
+        return updated;
+    }
+
+    public long getFailed() {
+        return failed;
+    }
+
+    public List<RecordError> getErrors() {
+        return Collections.unmodifiableList(errors);
+    }
+
+    public boolean isErrorsTruncated() {
+        return failed > errors.size();
+    }
+}
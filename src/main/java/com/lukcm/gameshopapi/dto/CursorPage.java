@@ -0,0 +1,31 @@
+package com.lukcm.gameshopapi.dto;
+
+import java.util.List;
+
+/**
+ * @author Max_MacKoul
+ *
+ * A single page of a keyset-paginated listing. The nextCursor is an opaque token that the client passes back
+ * as the "after" request parameter to fetch the following page; it is null once the listing is exhausted.
+ *
+ * @param <T> the type of the items in the page
+ */
+public class CursorPage<T> {
+
+    private final List<T> items;
+
+    private final String nextCursor;
+
+    public CursorPage(List<T> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+}
@@ -0,0 +1,65 @@
+package com.lukcm.gameshopapi.dto;
+
+import java.util.List;
+
+/**
+ * @author Max_MacKoul
+ *
+ * The filters of a faceted search. Every filter is optional; a null or empty filter does not restrict the
+ * results. Values selected within one facet are combined with OR, the facets themselves with AND.
+ * <ul>
+ *     <li>genres - the game must have at least one of these genres</li>
+ *     <li>platforms - the game must run on at least one of these platforms</li>
+ *     <li>esrbRatings - the game must have one of these ESRB ratings</li>
+ *     <li>multiplayer - the game must, or must not, support multiplayer</li>
+ *     <li>minPrice and maxPrice - the inclusive bounds of the price range</li>
+ * </ul>
+ */
+public class FacetFilter {
+
+    private final List<String> genres;
+
+    private final List<String> platforms;
+
+    private final List<String> esrbRatings;
+
+    private final Boolean multiplayer;
+
+    private final Double minPrice;
+
+    private final Double maxPrice;
+
+    public FacetFilter(List<String> genres, List<String> platforms, List<String> esrbRatings, Boolean multiplayer,
+                       Double minPrice, Double maxPrice) {
+        this.genres = genres;
+        this.platforms = platforms;
+        this.esrbRatings = esrbRatings;
+        this.multiplayer = multiplayer;
+        this.minPrice = minPrice;
+        this.maxPrice = maxPrice;
+    }
+
+    public List<String> getGenres() {
+        return genres;
+    }
+
+    public List<String> getPlatforms() {
+        return platforms;
+    }
+
+    public List<String> getEsrbRatings() {
+        return esrbRatings;
+    }
+
+    public Boolean getMultiplayer() {
+        return multiplayer;
+    }
+
+    public Double getMinPrice() {
+        return minPrice;
+    }
+
+    public Double getMaxPrice() {
+        return maxPrice;
+    }
+}
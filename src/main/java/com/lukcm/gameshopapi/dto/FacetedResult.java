@@ -0,0 +1,44 @@
+package com.lukcm.gameshopapi.dto;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @author Max_MacKoul
+ *
+ * One page of a faceted search together with the facet counts for the sidebar. The count of a facet value is
+ * the number of games that would match if that value were selected in addition to the current filters of the
+ * other facets, so the values of a facet that already has a selection still show their alternatives.
+ */
+public class FacetedResult {
+
+    private final long total;
+
+    private final List<GameSummary> items;
+
+    private final Map<String, Map<String, Integer>> facets;
+
+    public FacetedResult(long total, List<GameSummary> items, Map<String, Map<String, Integer>> facets) {
+        this.total = total;
+        this.items = items;
+        this.facets = facets;
+    }
+
+    /**
+     * @return the number of games matching all filters
+     */
+    public long getTotal() {
+        return total;
+    }
+
+    public List<GameSummary> getItems() {
+        return items;
+    }
+
+    /**
+     * @return the counts of every facet, by facet name and then by value, most frequent value first
+     */
+    public Map<String, Map<String, Integer>> getFacets() {
+        return facets;
+    }
+}
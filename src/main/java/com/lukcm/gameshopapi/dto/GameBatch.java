@@ -0,0 +1,31 @@
+package com.lukcm.gameshopapi.dto;
+
+import java.util.List;
+
+/**
+ * @author Max_MacKoul
+ *
+ * The result of looking up several games by ID at once. The games are in the order their IDs were asked for,
+ * and the IDs no game has are listed in missing, in the same order.
+ *
+ * @param <T> the representation of the games
+ */
+public class GameBatch<T> {
+
+    private final List<T> games;
+
+    private final List<String> missing;
+
+    public GameBatch(List<T> games, List<String> missing) {
+        this.games = games;
+        this.missing = missing;
+    }
+
+    public List<T> getGames() {
+        return games;
+    }
+
+    public List<String> getMissing() {
+        return missing;
+    }
+}
@@ -0,0 +1,78 @@
+package com.lukcm.gameshopapi.dto;
+
+import java.util.List;
+
+/**
+ * @author Max_MacKoul
+ *
+ * The filters of a catalog search. Every filter is optional; a null filter does not restrict the results.
+ * <ul>
+ *     <li>title - part of the title, matched case-insensitively</li>
+ *     <li>developer - the exact name of the developer</li>
+ *     <li>minPrice and maxPrice - the inclusive bounds of the price range</li>
+ *     <li>genres - the game must have at least one of these genres</li>
+ * </ul>
+ */
+public class GameSearchCriteria {
+
+    private String title;
+
+    private String developer;
+
+    private Double minPrice;
+
+    private Double maxPrice;
+
+    private List<String> genres;
+
+    public GameSearchCriteria() {
+    }
+
+    public GameSearchCriteria(String title, String developer, Double minPrice, Double maxPrice, List<String> genres) {
+        this.title = title;
+        this.developer = developer;
+        this.minPrice = minPrice;
+        this.maxPrice = maxPrice;
+        this.genres = genres;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    public String getDeveloper() {
+        return developer;
+    }
+
+    public void setDeveloper(String developer) {
+        this.developer = developer;
+    }
+
+    public Double getMinPrice() {
+        return minPrice;
+    }
+
+    public void setMinPrice(Double minPrice) {
+        this.minPrice = minPrice;
+    }
+
+    public Double getMaxPrice() {
+        return maxPrice;
+    }
+
+    public void setMaxPrice(Double maxPrice) {
+        this.maxPrice = maxPrice;
+    }
+
+    public List<String> getGenres() {
+        return genres;
+    }
+
+    public void setGenres(List<String> genres) {
+        this.genres = genres;
+    }
+}
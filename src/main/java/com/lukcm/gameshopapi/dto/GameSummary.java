@@ -0,0 +1,90 @@
+package com.lukcm.gameshopapi.dto;
+
+import com.lukcm.gameshopapi.model.Game;
+import com.lukcm.gameshopapi.model.Identifiable;
+
+import java.util.List;
+
+/**
+ * @author Max_MacKoul
+ *
+ * The compact representation of a game returned by list endpoints: only what a storefront grid displays.
+ * When it is used as the result type of a repository query, Spring Data reads only these fields from
+ * MongoDB, so the description, image, languages and reviews are neither transferred nor decoded.
+ */
+public class GameSummary implements Identifiable {
+
+    private final String id;
+
+    private final String title;
+
+    private final double price;
+
+    private final List<String> genres;
+
+    private final List<String> platforms;
+
+    private final double rating;
+
+    private final int totalStock;
+
+    private final long version;
+
+    public GameSummary(String id, String title, double price, List<String> genres, List<String> platforms,
+                       double rating, int totalStock, Long version) {
+        this.id = id;
+        this.title = title;
+        this.price = price;
+        this.genres = genres;
+        this.platforms = platforms;
+        this.rating = rating;
+        this.totalStock = totalStock;
+        // Games written before versions were introduced have none
+        this.version = version == null ? 0 : version;
+    }
+
+    /**
+     * Builds the summary of a fully loaded game.
+     *
+     * @param game the game to summarize
+     * @return the summary of the game
+     */
+    public static GameSummary of(Game game) {
+        return new GameSummary(game.getId(), game.getTitle(), game.getPrice(), game.getGenres(),
+                game.getPlatforms(), game.getRating(), game.getTotalStock(), game.getVersion());
+    }
+
+    @Override
+    public String getId() {
+        return id;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public double getPrice() {
+        return price;
+    }
+
+    public List<String> getGenres() {
+        return genres;
+    }
+
+    public List<String> getPlatforms() {
+        return platforms;
+    }
+
+    public double getRating() {
+        return rating;
+    }
+
+    public int getTotalStock() {
+        return totalStock;
+    }
+
+    @Override
+    public long getVersion() {
+        return version;
+    }
+}
@@ -0,0 +1,42 @@
+package com.lukcm.gameshopapi.dto;
+
+import java.util.Date;
+
+/**
+ * @author Max_MacKoul
+ *
+ * The version of a game and the time it was last written, read on their own to answer conditional requests
+ * without loading the game. When it is used as the result type of a repository query, Spring Data reads only
+ * these fields from MongoDB.
+ */
+public class GameVersion {
+
+    private final String id;
+
+    private final long version;
+
+    private final Date lastModified;
+
+    public GameVersion(String id, Long version, Date lastModified) {
+        this.id = id;
+        // Games written before versions were introduced have none
+        this.version = version == null ? 0 : version;
+        this.lastModified = lastModified;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * @return the time of the last write to the game, or null if it has not been written since versions were
+     * introduced
+     */
+    public Date getLastModified() {
+        return lastModified;
+    }
+}
@@ -0,0 +1,48 @@
+package com.lukcm.gameshopapi.dto;
+
+import com.lukcm.gameshopapi.model.Game;
+import com.lukcm.gameshopapi.model.Identifiable;
+
+import java.util.Locale;
+
+/**
+ * @author Max_MacKoul
+ *
+ * The representations a client can ask list endpoints for with the view request parameter.
+ */
+public enum GameView {
+
+    /** The GameSummary of each game. This is the default. */
+    SUMMARY(GameSummary.class),
+
+    /** The complete Game document. */
+    FULL(Game.class);
+
+    private final Class<? extends Identifiable> type;
+
+    GameView(Class<? extends Identifiable> type) {
+        this.type = type;
+    }
+
+    /**
+     * @return the class the games are read into for this view
+     */
+    public Class<? extends Identifiable> getType() {
+        return type;
+    }
+
+    /**
+     * Parses the value of a view request parameter, ignoring case.
+     *
+     * @param view the parameter value, summary or full
+     * @return the matching view
+     * @throws IllegalArgumentException if the value is not a known view
+     */
+    public static GameView fromString(String view) {
+        try {
+            return valueOf(view.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException ex) {
+            throw new IllegalArgumentException("view must be summary or full", ex);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.lukcm.gameshopapi.dto;
+
+import java.util.List;
+
+/**
+ * @author Max_MacKoul
+ *
+ * The first games of a leaderboard, as of one snapshot. The version changes whenever the games of the
+ * leaderboard, their order or their displayed fields change, and never goes back, so a client can tell
+ * whether a leaderboard it holds is still current.
+ */
+public class Leaderboard {
+
+    /** The orders the leaderboards are kept in. */
+    public enum Kind {
+        /** The highest rated games first. */
+        TOP_RATED,
+        /** The games with the most reviews first. */
+        MOST_REVIEWED,
+        /** The cheapest games of a genre first. */
+        DEALS
+    }
+
+    /**
+     * A game on a leaderboard, with the fields the leaderboards are ordered by.
+     */
+    public static class Entry {
+
+        private final String id;
+
+        private final String title;
+
+        private final double price;
+
+        private final double rating;
+
+        private final long reviews;
+
+        public Entry(String id, String title, double price, double rating, long reviews) {
+            this.id = id;
+            this.title = title;
+            this.price = price;
+            this.rating = rating;
+            this.reviews = reviews;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public String getTitle() {
+            return title;
+        }
+
+        public double getPrice() {
+            return price;
+        }
+
+        public double getRating() {
+            return rating;
+        }
+
+        public long getReviews() {
+            return reviews;
+        }
+    }
+
+    private final Kind kind;
+
+    private final String genre;
+
+    private final long version;
+
+    private final List<Entry> games;
+
+    public Leaderboard(Kind kind, String genre, long version, List<Entry> games) {
+        this.kind = kind;
+        this.genre = genre;
+        this.version = version;
+        this.games = games;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * @return the genre of a DEALS leaderboard, or null
+     */
+    public String getGenre() {
+        return genre;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public List<Entry> getGames() {
+        return games;
+    }
+}
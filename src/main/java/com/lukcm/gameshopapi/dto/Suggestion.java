@@ -0,0 +1,26 @@
+package com.lukcm.gameshopapi.dto;
+
+/**
+ * @author Max_MacKoul
+ *
+ * An autocomplete suggestion: the title of a matching game and the ID to open it with.
+ */
+public class Suggestion {
+
+    private final String id;
+
+    private final String title;
+
+    public Suggestion(String id, String title) {
+        this.id = id;
+        this.title = title;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+}
@@ -0,0 +1,280 @@
+package com.lukcm.gameshopapi.event;
+
+import com.lukcm.gameshopapi.model.Game;
+import com.mongodb.MongoException;
+import com.mongodb.MongoServerException;
+import com.mongodb.client.ChangeStreamIterable;
+import com.mongodb.client.MongoChangeStreamCursor;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.ReplaceOptions;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.FullDocument;
+import com.mongodb.client.model.changestream.OperationType;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.bson.BsonDateTime;
+import org.bson.BsonDocument;
+import org.bson.BsonString;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Max_MacKoul
+ *
+ * Watches the games collection through a MongoDB change stream and republishes every change as a
+ * GameChangedEvent, so that local caches and in-memory indexes also see writes made by other instances or
+ * directly in the database. Change streams need a replica set, so the listener is only started when
+ * gameshop.change-stream.enabled is set to true.
+ * <ul>
+ *     <li>gameshop.change-stream.listener-id - identifies this instance's resume token (default: host name)</li>
+ *     <li>gameshop.change-stream.token-save-interval - how often the resume token is stored (default 5s)</li>
+ * </ul>
+ * The resume token is stored in the change_stream_tokens collection, and the stream resumes from it after a
+ * restart or a lost connection. Because the token is saved periodically, a few changes may be delivered
+ * again after a restart; if the token has fallen off the oplog, a RESET event is published instead.
+ *
+ * A change that cannot be handled, because it cannot be read as a Game or because a listener fails, is
+ * replaced by a RESET so that the listeners reload what they missed, and the stream moves on. If the RESET
+ * fails as well, the stream is resumed before that change after a pause, so that it is retried.
+ */
+@Component
+@ConditionalOnProperty(name = "gameshop.change-stream.enabled", havingValue = "true")
+public class GameChangeStreamListener implements SmartLifecycle {
+
+    private static final Logger logger = LogManager.getLogger(GameChangeStreamListener.class);
+
+    private static final String TOKEN_COLLECTION = "change_stream_tokens";
+
+    private static final int CHANGE_STREAM_FATAL_ERROR = 280;
+
+    private static final int CHANGE_STREAM_HISTORY_LOST = 286;
+
+    private static final long RETRY_DELAY_MILLIS = 1000;
+
+    // Reviews are never needed by listeners and can make up most of the document
+    private static final List<Bson> PIPELINE =
+            Collections.singletonList(Aggregates.project(Projections.exclude("fullDocument.reviews")));
+
+    private final MongoTemplate mongoTemplate;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final String listenerId;
+
+    private final long tokenSaveIntervalMillis;
+
+    private volatile boolean running;
+
+    private Thread watcher;
+
+    private volatile BsonDocument resumeToken;
+
+    private volatile long lastTokenSave;
+
+    public GameChangeStreamListener(MongoTemplate mongoTemplate,
+                                    ApplicationEventPublisher eventPublisher,
+                                    @Value("${gameshop.change-stream.listener-id:${HOSTNAME:gameshop}}") String listenerId,
+                                    @Value("${gameshop.change-stream.token-save-interval:5s}") Duration tokenSaveInterval) {
+        this.mongoTemplate = mongoTemplate;
+        this.eventPublisher = eventPublisher;
+        this.listenerId = listenerId;
+        this.tokenSaveIntervalMillis = tokenSaveInterval.toMillis();
+    }
+
+    @Override
+    public void start() {
+        resumeToken = loadResumeToken();
+        running = true;
+        watcher = new Thread(this::watch, "game-change-stream");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        try {
+            watcher.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        saveResumeToken();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Translates a single change into a GameChangedEvent and publishes it. Inserts, updates and replaces
+     * become UPSERTED events carrying the new state of the game; deletes become DELETED events; drops,
+     * renames and invalidations become a RESET event.
+     *
+     * @param change the change read from the change stream
+     */
+    public void handle(ChangeStreamDocument<Document> change) {
+        String methodName = ".handle";
+
+        switch (change.getOperationType()) {
+            case INSERT:
+            case UPDATE:
+            case REPLACE:
+                String gameId = idOf(change.getDocumentKey());
+                Document fullDocument = change.getFullDocument();
+                if (fullDocument == null) {
+                    // The game was deleted before the update could be looked up
+                    eventPublisher.publishEvent(GameChangedEvent.deleted(gameId, true));
+                } else {
+                    Game game = mongoTemplate.getConverter().read(Game.class, fullDocument);
+                    eventPublisher.publishEvent(GameChangedEvent.upserted(gameId, game, true));
+                }
+                break;
+            case DELETE:
+                eventPublisher.publishEvent(GameChangedEvent.deleted(idOf(change.getDocumentKey()), true));
+                break;
+            case DROP:
+            case RENAME:
+            case DROP_DATABASE:
+            case INVALIDATE:
+                logger.info("{}: games collection was {}, resetting", methodName, change.getOperationType());
+                eventPublisher.publishEvent(GameChangedEvent.reset());
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void watch() {
+        String methodName = ".watch";
+        logger.info("{}: entering method, resuming from {}", methodName, resumeToken == null ? "now" : "stored token");
+
+        while (running) {
+            try {
+                watchUntilStopped();
+            } catch (MongoServerException ex) {
+                if (ex.getCode() == CHANGE_STREAM_HISTORY_LOST || ex.getCode() == CHANGE_STREAM_FATAL_ERROR) {
+                    logger.error("{}: cannot resume change stream, resetting: {}", methodName, ex.getMessage());
+                    resumeToken = null;
+                    eventPublisher.publishEvent(GameChangedEvent.reset());
+                } else {
+                    logger.error("{}: change stream failed, retrying: {}", methodName, ex.getMessage());
+                    pause();
+                }
+            } catch (MongoException ex) {
+                logger.error("{}: change stream failed, retrying: {}", methodName, ex.getMessage());
+                pause();
+            } catch (RuntimeException ex) {
+                // Not a driver error, e.g. a listener failing to reload from the database; resume and retry
+                logger.error("{}: Error handling change, retrying: {}", methodName, ex);
+                pause();
+            }
+        }
+
+        logger.debug("{}: exiting method", methodName);
+    }
+
+    private void watchUntilStopped() {
+        ChangeStreamIterable<Document> stream = mongoTemplate.getCollection(mongoTemplate.getCollectionName(Game.class))
+                .watch(PIPELINE)
+                .fullDocument(FullDocument.UPDATE_LOOKUP)
+                .maxAwaitTime(1, TimeUnit.SECONDS);
+        if (resumeToken != null) {
+            stream = stream.resumeAfter(resumeToken);
+        }
+
+        try (MongoChangeStreamCursor<ChangeStreamDocument<Document>> cursor = stream.cursor()) {
+            while (running) {
+                ChangeStreamDocument<Document> change = cursor.tryNext();
+                if (change != null) {
+                    dispatch(change);
+                    if (change.getOperationType() == OperationType.INVALIDATE) {
+                        // The server closes the stream after an invalidate; start over from the current time
+                        resumeToken = null;
+                        return;
+                    }
+                }
+                BsonDocument token = cursor.getResumeToken();
+                if (token != null) {
+                    resumeToken = token;
+                }
+                if (System.currentTimeMillis() - lastTokenSave >= tokenSaveIntervalMillis) {
+                    saveResumeToken();
+                }
+            }
+        }
+    }
+
+    /**
+     * Handles a change, publishing a RESET instead if it fails. A failing RESET is thrown, so that the
+     * change is not acknowledged and is delivered again when the stream resumes.
+     */
+    private void dispatch(ChangeStreamDocument<Document> change) {
+        String methodName = ".dispatch";
+        try {
+            handle(change);
+        } catch (RuntimeException ex) {
+            logger.error("{}: Error handling {} of {}, resetting: {}", methodName, change.getOperationType(),
+                    change.getDocumentKey(), ex);
+            eventPublisher.publishEvent(GameChangedEvent.reset());
+        }
+    }
+
+    private BsonDocument loadResumeToken() {
+        BsonDocument stored = tokenCollection().find(Filters.eq("_id", listenerId)).first();
+        return stored == null ? null : stored.getDocument("token", null);
+    }
+
+    private void saveResumeToken() {
+        String methodName = ".saveResumeToken";
+        lastTokenSave = System.currentTimeMillis();
+        BsonDocument token = resumeToken;
+        if (token == null) {
+            return;
+        }
+        try {
+            BsonDocument stored = new BsonDocument("_id", new BsonString(listenerId))
+                    .append("token", token)
+                    .append("updatedAt", new BsonDateTime(lastTokenSave));
+            tokenCollection().replaceOne(Filters.eq("_id", listenerId), stored, new ReplaceOptions().upsert(true));
+        } catch (MongoException ex) {
+            logger.error("{}: Error saving resume token: {}", methodName, ex.getMessage());
+        }
+    }
+
+    private MongoCollection<BsonDocument> tokenCollection() {
+        return mongoTemplate.getDb().getCollection(TOKEN_COLLECTION, BsonDocument.class);
+    }
+
+    private static String idOf(BsonDocument documentKey) {
+        BsonValue id = documentKey.get("_id");
+        if (id.isObjectId()) {
+            return id.asObjectId().getValue().toHexString();
+        }
+        return id.isString() ? id.asString().getValue() : id.toString();
+    }
+
+    private void pause() {
+        try {
+            Thread.sleep(RETRY_DELAY_MILLIS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+}
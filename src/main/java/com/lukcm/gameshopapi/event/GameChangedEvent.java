@@ -0,0 +1,78 @@
+package com.lukcm.gameshopapi.event;
+
+import com.lukcm.gameshopapi.model.Game;
+
+/**
+ * @author Max_MacKoul
+ *
+ * Application event published whenever a game in the catalog changes, either through this instance or, when
+ * the change stream listener is enabled, through another instance or directly in the database. Components
+ * that keep local copies of catalog data listen for it to stay up to date.
+ *
+ * Events may be delivered more than once for the same change (once by the local write and once by the change
+ * stream), so listeners must be idempotent.
+ */
+public class GameChangedEvent {
+
+    /** The kind of change. */
+    public enum Type {
+        /** The game was inserted, updated or replaced. The event carries its new state when known. */
+        UPSERTED,
+        /** The game was deleted. */
+        DELETED,
+        /** Changes may have been missed, for example because the collection was dropped; reload everything. */
+        RESET
+    }
+
+    private final Type type;
+
+    private final String gameId;
+
+    private final Game game;
+
+    private final boolean remote;
+
+    private GameChangedEvent(Type type, String gameId, Game game, boolean remote) {
+        this.type = type;
+        this.gameId = gameId;
+        this.game = game;
+        this.remote = remote;
+    }
+
+    public static GameChangedEvent upserted(String gameId, Game game, boolean remote) {
+        return new GameChangedEvent(Type.UPSERTED, gameId, game, remote);
+    }
+
+    public static GameChangedEvent deleted(String gameId, boolean remote) {
+        return new GameChangedEvent(Type.DELETED, gameId, null, remote);
+    }
+
+    public static GameChangedEvent reset() {
+        return new GameChangedEvent(Type.RESET, null, null, true);
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * @return the ID of the changed game, or null for a RESET
+     */
+    public String getGameId() {
+        return gameId;
+    }
+
+    /**
+     * @return the new state of an UPSERTED game without its reviews, or null if it is not known
+     */
+    public Game getGame() {
+        return game;
+    }
+
+    /**
+     * @return true if the change was observed on the change stream rather than made by this instance
+     */
+    public boolean isRemote() {
+        return remote;
+    }
+}
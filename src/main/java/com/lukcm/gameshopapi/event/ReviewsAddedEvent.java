@@ -0,0 +1,34 @@
+package com.lukcm.gameshopapi.event;
+
+import com.lukcm.gameshopapi.model.ReviewStats;
+
+/**
+ * @author Max_MacKoul
+ *
+ * Application event published once reviews have been counted in the review statistics of a game. It carries
+ * the increment rather than the new statistics, so listeners that keep their own copy of a game's review
+ * count can follow it without reading the game back. Writes made by other instances reach them as a
+ * GameChangedEvent holding the whole game instead.
+ */
+public class ReviewsAddedEvent {
+
+    private final String gameId;
+
+    private final ReviewStats delta;
+
+    public ReviewsAddedEvent(String gameId, ReviewStats delta) {
+        this.gameId = gameId;
+        this.delta = delta;
+    }
+
+    public String getGameId() {
+        return gameId;
+    }
+
+    /**
+     * @return the statistics of the reviews added
+     */
+    public ReviewStats getDelta() {
+        return delta;
+    }
+}
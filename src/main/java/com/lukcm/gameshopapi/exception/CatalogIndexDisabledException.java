@@ -0,0 +1,12 @@
+package com.lukcm.gameshopapi.exception;
+
+/**
+ * Thrown when a request needs an in-memory catalog index that this instance never builds, because
+ * gameshop.search.index.enabled is false. Unlike CatalogNotReadyException, retrying does not help.
+ */
+public class CatalogIndexDisabledException extends RuntimeException {
+
+    public CatalogIndexDisabledException(String index) {
+        super("Error: The " + index + " is disabled on this server");
+    }
+}
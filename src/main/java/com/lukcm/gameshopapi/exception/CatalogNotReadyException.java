@@ -0,0 +1,11 @@
+package com.lukcm.gameshopapi.exception;
+
+/**
+ * Thrown when a request needs an in-memory catalog index that has not been built yet.
+ */
+public class CatalogNotReadyException extends RuntimeException {
+
+    public CatalogNotReadyException(String index) {
+        super("Error: The " + index + " is not ready yet, retry shortly");
+    }
+}
@@ -0,0 +1,11 @@
+package com.lukcm.gameshopapi.exception;
+
+/**
+ * Thrown when an operation targets a game ID that does not exist in the database.
+ */
+public class GameNotFoundException extends RuntimeException {
+
+    public GameNotFoundException(String gameId) {
+        super("Error: Game with ID " + gameId + " not found");
+    }
+}
@@ -10,7 +10,6 @@ import org.springframework.security.access.AccessDeniedException;
 import org.springframework.web.bind.MissingServletRequestParameterException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
-import org.springframework.web.context.request.WebRequest;
 
 /**
  * @author Max_MacKoul
@@ -62,15 +61,130 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>("The required parameter " + paramName + " is missing.", HttpStatus.BAD_REQUEST);
     }
 
+    /**
+     * Handles exceptions of type GameNotFoundException. This type of exception is thrown by the service
+     * layer when an operation targets a game ID that does not exist.
+     *
+     * @param ex The GameNotFoundException that was thrown.
+     * @return A ResponseEntity containing the error message and an HTTP status code indicating
+     *         that the game was not found.
+     */
+    @ExceptionHandler(GameNotFoundException.class)
+    public ResponseEntity<String> handleGameNotFound(GameNotFoundException ex) {
+        String methodName = ".handleGameNotFound";
+
+        logger.error("{}: {}  {} ", methodName, ex.getMessage(), HttpStatus.NOT_FOUND);
+        return new ResponseEntity<>(ex.getMessage(), HttpStatus.NOT_FOUND);
+    }
+
+    /**
+     * Handles exceptions of type ReservationNotFoundException. This type of exception is thrown by the stock
+     * service when an operation targets a reservation ID that does not exist.
+     *
+     * @param ex The ReservationNotFoundException that was thrown.
+     * @return A ResponseEntity containing the error message and an HTTP status code indicating
+     *         that the reservation was not found.
+     */
+    @ExceptionHandler(ReservationNotFoundException.class)
+    public ResponseEntity<String> handleReservationNotFound(ReservationNotFoundException ex) {
+        String methodName = ".handleReservationNotFound";
+
+        logger.error("{}: {}  {} ", methodName, ex.getMessage(), HttpStatus.NOT_FOUND);
+        return new ResponseEntity<>(ex.getMessage(), HttpStatus.NOT_FOUND);
+    }
+
+    /**
+     * Handles the exceptions thrown by the stock service when a reservation cannot be made because stock ran
+     * out, or cannot be committed or released because it is no longer held.
+     *
+     * @param ex The InsufficientStockException or ReservationStateException that was thrown.
+     * @return A ResponseEntity containing the error message and an HTTP status code indicating
+     *         a conflict with the current stock or reservation state.
+     */
+    @ExceptionHandler({InsufficientStockException.class, ReservationStateException.class})
+    public ResponseEntity<String> handleStockConflict(RuntimeException ex) {
+        String methodName = ".handleStockConflict";
+
+        logger.error("{}: {}  {} ", methodName, ex.getMessage(), HttpStatus.CONFLICT);
+        return new ResponseEntity<>(ex.getMessage(), HttpStatus.CONFLICT);
+    }
+
+    /**
+     * Handles exceptions of type CatalogNotReadyException. This type of exception is thrown by the service
+     * layer when a request arrives before an in-memory catalog index has been built at startup.
+     *
+     * @param ex The CatalogNotReadyException that was thrown.
+     * @return A ResponseEntity containing the error message and an HTTP status code indicating
+     *         that the service is temporarily unavailable.
+     */
+    @ExceptionHandler(CatalogNotReadyException.class)
+    public ResponseEntity<String> handleCatalogNotReady(CatalogNotReadyException ex) {
+        String methodName = ".handleCatalogNotReady";
+
+        logger.error("{}: {}  {} ", methodName, ex.getMessage(), HttpStatus.SERVICE_UNAVAILABLE);
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "5")
+                .body(ex.getMessage());
+    }
+
+    /**
+     * Handles exceptions of type CatalogIndexDisabledException. This type of exception is thrown by the
+     * service layer when a request needs an in-memory catalog index that is disabled by configuration.
+     *
+     * @param ex The CatalogIndexDisabledException that was thrown.
+     * @return A ResponseEntity containing the error message and an HTTP status code indicating that the
+     *         server does not offer this request, without a Retry-After header.
+     */
+    @ExceptionHandler(CatalogIndexDisabledException.class)
+    public ResponseEntity<String> handleCatalogIndexDisabled(CatalogIndexDisabledException ex) {
+        String methodName = ".handleCatalogIndexDisabled";
+
+        logger.warn("{}: {}  {} ", methodName, ex.getMessage(), HttpStatus.NOT_IMPLEMENTED);
+        return new ResponseEntity<>(ex.getMessage(), HttpStatus.NOT_IMPLEMENTED);
+    }
+
+    /**
+     * Handles exceptions of type ReviewQueueFullException. This type of exception is thrown by the service
+     * layer when reviews arrive faster than they can be written, or while the application shuts down.
+     *
+     * @param ex The ReviewQueueFullException that was thrown.
+     * @return A ResponseEntity containing the error message and an HTTP status code asking the client to
+     *         slow down.
+     */
+    @ExceptionHandler(ReviewQueueFullException.class)
+    public ResponseEntity<String> handleReviewQueueFull(ReviewQueueFullException ex) {
+        String methodName = ".handleReviewQueueFull";
+
+        logger.warn("{}: {}  {} ", methodName, ex.getMessage(), HttpStatus.TOO_MANY_REQUESTS);
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(ex.getMessage());
+    }
+
+    /**
+     * Handles exceptions of type IllegalArgumentException. This type of exception is thrown by the service
+     * layer when a request parameter is present but has an invalid value, such as a malformed cursor.
+     *
+     * @param ex The IllegalArgumentException that was thrown.
+     * @return A ResponseEntity containing the error message and an HTTP status code indicating
+     *         that a bad request occurred.
+     */
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<String> handleIllegalArgument(IllegalArgumentException ex) {
+        String methodName = ".handleIllegalArgument";
+
+        logger.error("{}: Invalid request parameter: {}  {} ", methodName, ex.getMessage(), HttpStatus.BAD_REQUEST);
+        return new ResponseEntity<>(ex.getMessage(), HttpStatus.BAD_REQUEST);
+    }
+
     /**
      * Handles AccessDeniedException across the whole application.
      *
      * @param ex      the exception caught
-     * @param request the current web request
      * @return a ResponseEntity object with an error message, empty headers, and an HTTP status code
      */
     @ExceptionHandler(AccessDeniedException.class)
-    public ResponseEntity<Object> handleAccessDeniedException(Exception ex, WebRequest request) {
+    public ResponseEntity<Object> handleAccessDeniedException(Exception ex) {
         return new ResponseEntity<>("Access denied message here", new HttpHeaders(), HttpStatus.UNAUTHORIZED);
     }
 
@@ -0,0 +1,11 @@
+package com.lukcm.gameshopapi.exception;
+
+/**
+ * Thrown when a reservation asks for more stock of a game than is available.
+ */
+public class InsufficientStockException extends RuntimeException {
+
+    public InsufficientStockException(String gameId, int quantity) {
+        super("Error: Not enough stock of game with ID " + gameId + " to reserve " + quantity);
+    }
+}
@@ -0,0 +1,11 @@
+package com.lukcm.gameshopapi.exception;
+
+/**
+ * Thrown when an operation targets a stock reservation ID that does not exist in the database.
+ */
+public class ReservationNotFoundException extends RuntimeException {
+
+    public ReservationNotFoundException(String reservationId) {
+        super("Error: Reservation with ID " + reservationId + " not found");
+    }
+}
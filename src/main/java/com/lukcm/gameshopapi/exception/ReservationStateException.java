@@ -0,0 +1,11 @@
+package com.lukcm.gameshopapi.exception;
+
+/**
+ * Thrown when a stock reservation cannot be committed or released because it is no longer held.
+ */
+public class ReservationStateException extends RuntimeException {
+
+    public ReservationStateException(String reservationId, String state) {
+        super("Error: Reservation with ID " + reservationId + " is " + state);
+    }
+}
@@ -0,0 +1,12 @@
+package com.lukcm.gameshopapi.exception;
+
+/**
+ * Thrown when a review cannot be queued for writing because the queue is full or the application is shutting
+ * down.
+ */
+public class ReviewQueueFullException extends RuntimeException {
+
+    public ReviewQueueFullException(String reason) {
+        super("Error: Reviews cannot be accepted right now (" + reason + "), retry shortly");
+    }
+}
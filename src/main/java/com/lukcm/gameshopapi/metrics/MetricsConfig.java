@@ -0,0 +1,50 @@
+package com.lukcm.gameshopapi.metrics;
+
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.config.MeterFilter;
+import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.Set;
+
+/**
+ * @author Max_MacKoul
+ *
+ * Metrics of the GameShop API, exposed at /actuator/prometheus. Besides the JVM and process meters, they are:
+ * <ul>
+ *     <li>http.server.requests - a timer per endpoint, tagged with the method, URI template and status</li>
+ *     <li>spring.data.repository.invocations - a timer per repository method, tagged with the repository,
+ *     the method and whether it failed</li>
+ *     <li>mongodb.driver.commands - a timer per MongoDB command and collection</li>
+ *     <li>mongodb.driver.pool.* - the size, checked out connections and wait queue of each connection pool</li>
+ *     <li>gameshop.results - the number of items returned by the service methods, see ResultSizeMetrics</li>
+ *     <li>cache.* - the hits, misses, evictions and size of the game cache, see GameCacheMetrics</li>
+ * </ul>
+ * When gameshop.metrics.percentile-histograms is true (the default), the timers and gameshop.results publish
+ * histogram buckets, from which Prometheus computes percentiles across instances with histogram_quantile.
+ *
+ * Timings of the reactive repositories only cover building the query; the driver command timers cover both
+ * variants.
+ */
+@Configuration(proxyBeanMethods = false)
+public class MetricsConfig {
+
+    private static final Set<String> HISTOGRAM_METRICS = Set.of("http.server.requests",
+            "spring.data.repository.invocations", "mongodb.driver.commands", ResultSizeMetrics.METRIC_NAME);
+
+    @Bean
+    public MeterFilter percentileHistogramFilter(
+            @Value("${gameshop.metrics.percentile-histograms:true}") boolean enabled) {
+        return new MeterFilter() {
+            @Override
+            public DistributionStatisticConfig configure(Meter.Id id, DistributionStatisticConfig config) {
+                if (!enabled || !HISTOGRAM_METRICS.contains(id.getName())) {
+                    return config;
+                }
+                return DistributionStatisticConfig.builder().percentilesHistogram(true).build().merge(config);
+            }
+        };
+    }
+}
@@ -0,0 +1,62 @@
+package com.lukcm.gameshopapi.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author Max_MacKoul
+ *
+ * Records the number of items returned by the service methods that return lists, as the distribution summary
+ * gameshop.results tagged with the method. Its count and sum are the number of calls and of items returned, and
+ * its histogram shows which calls return unusually large results.
+ */
+@Component
+public class ResultSizeMetrics {
+
+    public static final String METRIC_NAME = "gameshop.results";
+
+    private final MeterRegistry registry;
+
+    private final Map<String, DistributionSummary> summaries = new ConcurrentHashMap<>();
+
+    public ResultSizeMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * Records the size of a result.
+     *
+     * @param method the name of the service method, e.g. searchGames
+     * @param size the number of items returned
+     */
+    public void record(String method, int size) {
+        summaries.computeIfAbsent(method, name -> DistributionSummary.builder(METRIC_NAME)
+                        .description("Number of items returned by a service call")
+                        .baseUnit("items")
+                        .tag("method", name)
+                        .register(registry))
+                .record(size);
+    }
+
+    /**
+     * Records the number of items a Flux emits once it completes.
+     *
+     * @param method the name of the service method, e.g. searchGames
+     * @param items the result
+     * @param <T> the type of the items
+     * @return the result, counting its items as they are emitted
+     */
+    public <T> Flux<T> record(String method, Flux<T> items) {
+        return Flux.defer(() -> {
+            AtomicInteger count = new AtomicInteger();
+            return items.doOnNext(item -> count.incrementAndGet())
+                    .doOnComplete(() -> record(method, count.get()));
+        });
+    }
+}
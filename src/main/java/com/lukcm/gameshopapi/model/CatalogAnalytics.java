@@ -0,0 +1,258 @@
+package com.lukcm.gameshopapi.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * @author Max_MacKoul
+ *
+ * The catalog figures the merchandising team follows, computed by aggregation pipelines in MongoDB. A summary
+ * with the default parameters is recomputed on a schedule and kept as a single document, so that reading it
+ * costs one lookup; computedAt tells how fresh it is.
+ */
+@Document(collection = "catalog_analytics")
+public class CatalogAnalytics {
+
+    /** The ID of the materialized summary. */
+    public static final String SUMMARY_ID = "summary";
+
+    /**
+     * The best reviewed games of a genre, best average score first.
+     */
+    public static class GenreRanking {
+
+        private String genre;
+
+        private List<RankedGame> games;
+
+        public GenreRanking() {
+        }
+
+        public GenreRanking(String genre, List<RankedGame> games) {
+            this.genre = genre;
+            this.games = games;
+        }
+
+        public String getGenre() {
+            return genre;
+        }
+
+        public List<RankedGame> getGames() {
+            return games;
+        }
+    }
+
+    /**
+     * A game of a ranking with its average review score and number of reviews.
+     */
+    public static class RankedGame {
+
+        private String id;
+
+        private String title;
+
+        private double averageScore;
+
+        private long reviews;
+
+        public RankedGame() {
+        }
+
+        public RankedGame(String id, String title, double averageScore, long reviews) {
+            this.id = id;
+            this.title = title;
+            this.averageScore = averageScore;
+            this.reviews = reviews;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public String getTitle() {
+            return title;
+        }
+
+        public double getAverageScore() {
+            return averageScore;
+        }
+
+        public long getReviews() {
+            return reviews;
+        }
+    }
+
+    /**
+     * The prices of the games available on a platform.
+     */
+    public static class PlatformPrices {
+
+        private String platform;
+
+        private long games;
+
+        private double averagePrice;
+
+        private double minPrice;
+
+        private double maxPrice;
+
+        public PlatformPrices() {
+        }
+
+        public PlatformPrices(String platform, long games, double averagePrice, double minPrice, double maxPrice) {
+            this.platform = platform;
+            this.games = games;
+            this.averagePrice = averagePrice;
+            this.minPrice = minPrice;
+            this.maxPrice = maxPrice;
+        }
+
+        public String getPlatform() {
+            return platform;
+        }
+
+        public long getGames() {
+            return games;
+        }
+
+        public double getAveragePrice() {
+            return averagePrice;
+        }
+
+        public double getMinPrice() {
+            return minPrice;
+        }
+
+        public double getMaxPrice() {
+            return maxPrice;
+        }
+    }
+
+    /**
+     * The games that cannot be sold for lack of stock.
+     */
+    public static class StockOuts {
+
+        private long count;
+
+        private List<GenreCount> byGenre;
+
+        private List<RankedGame> games;
+
+        public StockOuts() {
+        }
+
+        public StockOuts(long count, List<GenreCount> byGenre, List<RankedGame> games) {
+            this.count = count;
+            this.byGenre = byGenre;
+            this.games = games;
+        }
+
+        /**
+         * @return the number of games out of stock
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * @return the number of games out of stock in each genre, most affected genre first
+         */
+        public List<GenreCount> getByGenre() {
+            return byGenre;
+        }
+
+        /**
+         * @return the games out of stock, most reviewed first, up to the requested number
+         */
+        public List<RankedGame> getGames() {
+            return games;
+        }
+    }
+
+    /**
+     * A number of games of a genre.
+     */
+    public static class GenreCount {
+
+        private String genre;
+
+        private long count;
+
+        public GenreCount() {
+        }
+
+        public GenreCount(String genre, long count) {
+            this.genre = genre;
+            this.count = count;
+        }
+
+        public String getGenre() {
+            return genre;
+        }
+
+        public long getCount() {
+            return count;
+        }
+    }
+
+    @Id
+    private String id;
+
+    private Date computedAt;
+
+    private List<GenreRanking> topRatedByGenre;
+
+    private List<PlatformPrices> priceByPlatform;
+
+    private List<Long> reviewScores;
+
+    private StockOuts stockOuts;
+
+    public CatalogAnalytics() {
+    }
+
+    public CatalogAnalytics(String id, Date computedAt, List<GenreRanking> topRatedByGenre,
+                            List<PlatformPrices> priceByPlatform, List<Long> reviewScores, StockOuts stockOuts) {
+        this.id = id;
+        this.computedAt = computedAt;
+        this.topRatedByGenre = topRatedByGenre;
+        this.priceByPlatform = priceByPlatform;
+        this.reviewScores = reviewScores;
+        this.stockOuts = stockOuts;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * @return when the figures were computed
+     */
+    public Date getComputedAt() {
+        return computedAt;
+    }
+
+    public List<GenreRanking> getTopRatedByGenre() {
+        return topRatedByGenre;
+    }
+
+    public List<PlatformPrices> getPriceByPlatform() {
+        return priceByPlatform;
+    }
+
+    /**
+     * @return the number of reviews with each whole-point score, from 0 to 9, with a perfect 10 counted as 9
+     */
+    public List<Long> getReviewScores() {
+        return reviewScores;
+    }
+
+    public StockOuts getStockOuts() {
+        return stockOuts;
+    }
+}
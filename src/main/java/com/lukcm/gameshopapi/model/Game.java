@@ -1,24 +1,35 @@
 package com.lukcm.gameshopapi.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.data.mongodb.core.mapping.Field;
 
 import java.util.Date;
 import java.util.List;
+import java.util.Locale;
 
 @Document(collection = "games")
-public class Game {
+@CompoundIndex(name = "genres_price", def = "{ 'genres' : 1, 'price' : 1 }")
+public class Game implements Identifiable {
     @Id
     private String id;
     private String title;
+    @Indexed
+    private String normalizedTitle;
     private int totalStock;
+    private Integer stockBuckets;
+    @Indexed
     private double price;
     @Field("esrb_rating")
     private String esrbRating;
 
+    @Indexed
     private String developer;
 
+    @Indexed
     private List<String> genres;
 
     private String publisher;
@@ -33,6 +44,8 @@ public class Game {
 
     private List<Review> reviews;
 
+    private ReviewStats reviewStats;
+
     private String imageUrl;
 
     private List<String> language;
@@ -40,6 +53,11 @@ public class Game {
     @Field("multiplayer")
     private boolean isMultiplayer;
 
+    private long version;
+
+    private Date lastModified;
+
+    @Override
     public String getId() {
         return id;
     }
@@ -54,6 +72,28 @@ public class Game {
 
     public void setTitle(String title) {
         this.title = title;
+        this.normalizedTitle = normalizeTitle(title);
+    }
+
+    /**
+     * The lower-cased title, kept in sync by setTitle. Title searches match against this field so that they
+     * can be served from an index instead of a case-insensitive regex over every title.
+     *
+     * @return the normalized title
+     */
+    @JsonIgnore
+    public String getNormalizedTitle() {
+        return normalizedTitle;
+    }
+
+    /**
+     * Normalizes a title, or a part of a title being searched for, the same way normalizedTitle is stored.
+     *
+     * @param title the title to normalize, may be null
+     * @return the normalized title, or null if the title is null
+     */
+    public static String normalizeTitle(String title) {
+        return title == null ? null : title.toLowerCase(Locale.ROOT);
     }
 
     public int getTotalStock() {
@@ -64,6 +104,18 @@ public class Game {
         this.totalStock = totalStock;
     }
 
+    /**
+     * @return the number of stock buckets the stock of this game is split into, or null if it is held in
+     * totalStock
+     */
+    public Integer getStockBuckets() {
+        return stockBuckets;
+    }
+
+    public void setStockBuckets(Integer stockBuckets) {
+        this.stockBuckets = stockBuckets;
+    }
+
     public double getPrice() {
         return price;
     }
@@ -144,6 +196,14 @@ public class Game {
         this.reviews = reviews;
     }
 
+    public ReviewStats getReviewStats() {
+        return reviewStats;
+    }
+
+    public void setReviewStats(ReviewStats reviewStats) {
+        this.reviewStats = reviewStats;
+    }
+
     public String getImageUrl() {
         return imageUrl;
     }
@@ -167,4 +227,29 @@ public class Game {
     public void setMultiplayer(boolean multiplayer) {
         isMultiplayer = multiplayer;
     }
+
+    /**
+     * @return the number of writes made to this game, incremented by every update of the document; 0 for a
+     * game that has not been written since versions were introduced
+     */
+    @Override
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
+    /**
+     * @return the time of the last write to this game, or null if it has not been written since versions were
+     * introduced
+     */
+    public Date getLastModified() {
+        return lastModified;
+    }
+
+    public void setLastModified(Date lastModified) {
+        this.lastModified = lastModified;
+    }
 }
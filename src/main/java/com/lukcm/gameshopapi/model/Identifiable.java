@@ -0,0 +1,15 @@
+package com.lukcm.gameshopapi.model;
+
+/**
+ * @author Max_MacKoul
+ *
+ * Implemented by every representation of a game that can appear in a listing, so that keyset pagination can
+ * read the ID of the last item of a page whichever representation was requested, and the ETag of a listing can
+ * be derived from the versions of its games.
+ */
+public interface Identifiable {
+
+    String getId();
+
+    long getVersion();
+}
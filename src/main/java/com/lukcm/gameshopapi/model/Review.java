@@ -1,9 +1,27 @@
 package com.lukcm.gameshopapi.model;
 
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+
 import java.util.Date;
 
+/**
+ * @author Max_MacKoul
+ *
+ * A review of a game. Reviews are stored in their own collection, keyed by the ID of the game, so that they
+ * can be paged through newest first without loading the game. Games written before this collection existed
+ * still embed their reviews until ReviewMigrationJob moves them out.
+ */
+@Document(collection = "reviews")
+@CompoundIndex(name = "gameId_date_id", def = "{ 'gameId' : 1, 'date' : -1, '_id' : -1 }")
 public class Review {
 
+    @Id
+    private String id;
+
+    private String gameId;
+
     private String name;
 
     private String comment;
@@ -12,6 +30,22 @@ public class Review {
 
     private Date date;
 
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getGameId() {
+        return gameId;
+    }
+
+    public void setGameId(String gameId) {
+        this.gameId = gameId;
+    }
+
     public String getName() {
         return name;
     }
@@ -0,0 +1,142 @@
+package com.lukcm.gameshopapi.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * @author Max_MacKoul
+ *
+ * Pre-aggregated review statistics for a single game. They are stored on the game document and kept up to
+ * date with $inc/$min/$max whenever reviews are written, so that the average score and the number of reviews
+ * can be read without loading the reviews themselves. The same class describes the increment applied by a
+ * write: the statistics of the reviews being added.
+ *
+ * Review scores are on a 0 to 10 scale. The histogram holds one counter per whole point, with a perfect 10
+ * counted in the last bucket.
+ */
+public class ReviewStats {
+
+    /** The highest score a review can give. */
+    public static final double MAX_SCORE = 10.0;
+
+    /** The number of buckets in the score histogram. */
+    public static final int HISTOGRAM_BUCKETS = 10;
+
+    private long count;
+
+    private double sum;
+
+    private Double min;
+
+    private Double max;
+
+    private List<Integer> histogram;
+
+    /**
+     * Builds the statistics for a complete list of reviews.
+     *
+     * @param reviews the reviews to aggregate, may be null
+     * @return the statistics of the given reviews
+     */
+    public static ReviewStats of(List<Review> reviews) {
+        ReviewStats stats = new ReviewStats();
+        stats.setHistogram(new ArrayList<>(Collections.nCopies(HISTOGRAM_BUCKETS, 0)));
+        if (reviews != null) {
+            for (Review review : reviews) {
+                stats.add(review.getScore());
+            }
+        }
+        return stats;
+    }
+
+    /**
+     * Adds a group of scores that fall into the same histogram bucket, as produced by an aggregation.
+     *
+     * @param bucket the histogram bucket of the scores
+     * @param count the number of scores
+     * @param sum the sum of the scores
+     * @param min the lowest score
+     * @param max the highest score
+     */
+    public void addBucket(int bucket, long count, double sum, double min, double max) {
+        this.count += count;
+        this.sum += sum;
+        this.min = this.min == null ? min : Math.min(this.min, min);
+        this.max = this.max == null ? max : Math.max(this.max, max);
+        histogram.set(bucket, histogram.get(bucket) + (int) count);
+    }
+
+    /**
+     * Maps a score to the index of its histogram bucket.
+     *
+     * @param score a score between 0 and {@link #MAX_SCORE}
+     * @return the bucket index, between 0 and {@link #HISTOGRAM_BUCKETS} - 1
+     */
+    public static int bucketOf(double score) {
+        return Math.max(0, Math.min(HISTOGRAM_BUCKETS - 1, (int) Math.floor(score)));
+    }
+
+    /**
+     * Adds a single score to these statistics.
+     *
+     * @param score the score of the review
+     */
+    public void add(double score) {
+        count++;
+        sum += score;
+        min = min == null ? score : Math.min(min, score);
+        max = max == null ? score : Math.max(max, score);
+        int bucket = bucketOf(score);
+        histogram.set(bucket, histogram.get(bucket) + 1);
+    }
+
+    /**
+     * Not a getter, so that it is neither stored nor serialized with the statistics.
+     *
+     * @return the average score, or 0.0 if there are no reviews
+     */
+    public double average() {
+        return count == 0 ? 0.0 : sum / count;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public void setCount(long count) {
+        this.count = count;
+    }
+
+    public double getSum() {
+        return sum;
+    }
+
+    public void setSum(double sum) {
+        this.sum = sum;
+    }
+
+    public Double getMin() {
+        return min;
+    }
+
+    public void setMin(Double min) {
+        this.min = min;
+    }
+
+    public Double getMax() {
+        return max;
+    }
+
+    public void setMax(Double max) {
+        this.max = max;
+    }
+
+    public List<Integer> getHistogram() {
+        return histogram;
+    }
+
+    public void setHistogram(List<Integer> histogram) {
+        this.histogram = histogram;
+    }
+}
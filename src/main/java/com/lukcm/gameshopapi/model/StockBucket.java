@@ -0,0 +1,62 @@
+package com.lukcm.gameshopapi.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+/**
+ * @author Max_MacKoul
+ *
+ * One share of the stock of a game in hot-SKU mode. The stock of a game that sells too fast for a single
+ * document is split across several buckets, so concurrent reservations update different documents instead of
+ * queueing on one. The ID of a bucket is the game ID followed by the bucket number, see {@link #idOf}.
+ */
+@Document(collection = "stock_buckets")
+public class StockBucket {
+
+    @Id
+    private String id;
+
+    @Indexed
+    private String gameId;
+
+    private int bucket;
+
+    private int stock;
+
+    public static String idOf(String gameId, int bucket) {
+        return gameId + ":" + bucket;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getGameId() {
+        return gameId;
+    }
+
+    public void setGameId(String gameId) {
+        this.gameId = gameId;
+    }
+
+    public int getBucket() {
+        return bucket;
+    }
+
+    public void setBucket(int bucket) {
+        this.bucket = bucket;
+    }
+
+    public int getStock() {
+        return stock;
+    }
+
+    public void setStock(int stock) {
+        this.stock = stock;
+    }
+}
@@ -0,0 +1,123 @@
+package com.lukcm.gameshopapi.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * @author Max_MacKoul
+ *
+ * Stock held for a checkout. The stock of every item has already been taken from its game when the
+ * reservation is created. A held reservation is either committed, which makes the sale final, or released,
+ * which returns the stock; held reservations that are not committed before they expire are released
+ * automatically.
+ */
+@Document(collection = "stock_reservations")
+@CompoundIndex(name = "status_expiresAt", def = "{ 'status' : 1, 'expiresAt' : 1 }")
+public class StockReservation {
+
+    /** The state of a reservation. Only HELD reservations can change state. */
+    public enum Status { HELD, COMMITTED, RELEASED }
+
+    /**
+     * A quantity of one game held by a reservation.
+     */
+    public static class Item {
+
+        private String gameId;
+
+        private int quantity;
+
+        private Integer bucket;
+
+        public Item() {
+        }
+
+        public Item(String gameId, int quantity, Integer bucket) {
+            this.gameId = gameId;
+            this.quantity = quantity;
+            this.bucket = bucket;
+        }
+
+        public String getGameId() {
+            return gameId;
+        }
+
+        public void setGameId(String gameId) {
+            this.gameId = gameId;
+        }
+
+        public int getQuantity() {
+            return quantity;
+        }
+
+        public void setQuantity(int quantity) {
+            this.quantity = quantity;
+        }
+
+        /**
+         * @return the stock bucket the quantity was taken from, or null if it was taken from totalStock
+         */
+        public Integer getBucket() {
+            return bucket;
+        }
+
+        public void setBucket(Integer bucket) {
+            this.bucket = bucket;
+        }
+    }
+
+    @Id
+    private String id;
+
+    private List<Item> items;
+
+    private Status status;
+
+    private Date createdAt;
+
+    private Date expiresAt;
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public List<Item> getItems() {
+        return items;
+    }
+
+    public void setItems(List<Item> items) {
+        this.items = items;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+
+    public Date getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(Date createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public Date getExpiresAt() {
+        return expiresAt;
+    }
+
+    public void setExpiresAt(Date expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+}
@@ -0,0 +1,14 @@
+package com.lukcm.gameshopapi.repository;
+
+import com.lukcm.gameshopapi.model.CatalogAnalytics;
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+/**
+ * @author Max_MacKoul
+ *
+ * This interface represents the repository layer for the catalog analytics. The collection holds the
+ * materialized summary, and the pipelines computing the figures are declared by CatalogAnalyticsRepositoryCustom.
+ */
+public interface CatalogAnalyticsRepository extends MongoRepository<CatalogAnalytics, String>,
+        CatalogAnalyticsRepositoryCustom {
+}
@@ -0,0 +1,51 @@
+package com.lukcm.gameshopapi.repository;
+
+import com.lukcm.gameshopapi.model.CatalogAnalytics;
+
+import java.util.List;
+
+/**
+ * @author Max_MacKoul
+ *
+ * This interface declares the catalog analytics computed by aggregation pipelines in MongoDB, so that only the
+ * figures leave the database instead of the games they are computed from. It is implemented by
+ * CatalogAnalyticsRepositoryCustomImpl and mixed into CatalogAnalyticsRepository by Spring Data.
+ */
+public interface CatalogAnalyticsRepositoryCustom {
+
+    /**
+     * This method is used to rank the games of each genre by their average review score. Games with fewer
+     * reviews than minReviews are left out, so that a single perfect review does not top a ranking.
+     *
+     * @param perGenre The number of games to keep in each genre.
+     * @param minReviews The number of reviews a game needs to be ranked, at least 1.
+     * @return One ranking per genre, in genre order.
+     */
+    List<CatalogAnalytics.GenreRanking> topRatedByGenre(int perGenre, long minReviews);
+
+    /**
+     * This method is used to compute the number of games and the average, lowest and highest price on each
+     * platform.
+     *
+     * @return The prices of each platform, in platform order.
+     */
+    List<CatalogAnalytics.PlatformPrices> priceByPlatform();
+
+    /**
+     * This method is used to compute the distribution of the review scores over the whole catalog. It sums the
+     * histograms kept in the review statistics of the games rather than reading the reviews.
+     *
+     * @return The number of reviews in each of the {@value com.lukcm.gameshopapi.model.ReviewStats#HISTOGRAM_BUCKETS}
+     *         histogram buckets.
+     */
+    List<Long> reviewScoreDistribution();
+
+    /**
+     * This method is used to find the games that cannot be sold for lack of stock, counting the stock of
+     * games in hot-SKU mode over their buckets.
+     *
+     * @param limit The number of games to list, the most reviewed first.
+     * @return The number of games out of stock, their breakdown by genre and the first of them.
+     */
+    CatalogAnalytics.StockOuts stockOuts(int limit);
+}
@@ -0,0 +1,156 @@
+package com.lukcm.gameshopapi.repository;
+
+import com.lukcm.gameshopapi.model.CatalogAnalytics;
+import com.lukcm.gameshopapi.model.Game;
+import com.lukcm.gameshopapi.model.ReviewStats;
+import com.lukcm.gameshopapi.model.StockBucket;
+import org.bson.Document;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOptions;
+import org.springframework.data.mongodb.core.aggregation.ArithmeticOperators;
+import org.springframework.data.mongodb.core.aggregation.ArrayOperators;
+import org.springframework.data.mongodb.core.query.Criteria;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * @author Max_MacKoul
+ *
+ * MongoTemplate-backed implementation of CatalogAnalyticsRepositoryCustom. The pipelines may sort and group the
+ * whole catalog, so they are allowed to spill to disk.
+ */
+public class CatalogAnalyticsRepositoryCustomImpl implements CatalogAnalyticsRepositoryCustom {
+
+    private static final AggregationOptions OPTIONS = AggregationOptions.builder().allowDiskUse(true).build();
+
+    private final MongoTemplate mongoTemplate;
+
+    public CatalogAnalyticsRepositoryCustomImpl(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public List<CatalogAnalytics.GenreRanking> topRatedByGenre(int perGenre, long minReviews) {
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(Criteria.where("reviewStats.count").gte(minReviews)),
+                Aggregation.project("title", "genres")
+                        .and("reviewStats.count").as("reviews")
+                        .and(ArithmeticOperators.Divide.valueOf("reviewStats.sum").divideBy("reviewStats.count"))
+                        .as("averageScore"),
+                Aggregation.unwind("genres"),
+                Aggregation.sort(Sort.by(Sort.Direction.DESC, "averageScore", "reviews")),
+                // $push keeps the order of the sort, so each genre's games arrive best first
+                Aggregation.group("genres").push(Aggregation.ROOT).as("games"),
+                Aggregation.sort(Sort.by("_id")),
+                Aggregation.project()
+                        .and(ArrayOperators.Slice.sliceArrayOf("games").itemCount(perGenre)).as("games"))
+                .withOptions(OPTIONS);
+
+        List<CatalogAnalytics.GenreRanking> rankings = new ArrayList<>();
+        for (Document genre : mongoTemplate.aggregate(aggregation, Game.class, Document.class)) {
+            List<CatalogAnalytics.RankedGame> games = new ArrayList<>();
+            for (Document game : genre.getList("games", Document.class)) {
+                games.add(new CatalogAnalytics.RankedGame(game.get("_id").toString(), game.getString("title"),
+                        ((Number) game.get("averageScore")).doubleValue(),
+                        ((Number) game.get("reviews")).longValue()));
+            }
+            rankings.add(new CatalogAnalytics.GenreRanking(genre.getString("_id"), games));
+        }
+        return rankings;
+    }
+
+    @Override
+    public List<CatalogAnalytics.PlatformPrices> priceByPlatform() {
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.unwind("platforms"),
+                Aggregation.group("platforms")
+                        .count().as("games")
+                        .avg("price").as("averagePrice")
+                        .min("price").as("minPrice")
+                        .max("price").as("maxPrice"),
+                Aggregation.sort(Sort.by("_id"))).withOptions(OPTIONS);
+
+        List<CatalogAnalytics.PlatformPrices> prices = new ArrayList<>();
+        for (Document platform : mongoTemplate.aggregate(aggregation, Game.class, Document.class)) {
+            prices.add(new CatalogAnalytics.PlatformPrices(platform.getString("_id"),
+                    ((Number) platform.get("games")).longValue(),
+                    ((Number) platform.get("averagePrice")).doubleValue(),
+                    ((Number) platform.get("minPrice")).doubleValue(),
+                    ((Number) platform.get("maxPrice")).doubleValue()));
+        }
+        return prices;
+    }
+
+    @Override
+    public List<Long> reviewScoreDistribution() {
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(Criteria.where("reviewStats.histogram").exists(true)),
+                Aggregation.unwind("reviewStats.histogram", "bucket"),
+                Aggregation.group("bucket").sum("reviewStats.histogram").as("count")).withOptions(OPTIONS);
+
+        List<Long> distribution = new ArrayList<>(Collections.nCopies(ReviewStats.HISTOGRAM_BUCKETS, 0L));
+        for (Document bucket : mongoTemplate.aggregate(aggregation, Game.class, Document.class)) {
+            int index = ((Number) bucket.get("_id")).intValue();
+            if (index < distribution.size()) {
+                distribution.set(index, ((Number) bucket.get("count")).longValue());
+            }
+        }
+        return distribution;
+    }
+
+    @Override
+    public CatalogAnalytics.StockOuts stockOuts(int limit) {
+        // The stock of a game in hot-SKU mode is the sum of its buckets, which are few per game
+        Aggregation emptyBuckets = Aggregation.newAggregation(
+                Aggregation.group("gameId").sum("stock").as("stock"),
+                Aggregation.match(Criteria.where("stock").lte(0))).withOptions(OPTIONS);
+        List<String> bucketedOut = new ArrayList<>();
+        for (Document game : mongoTemplate.aggregate(emptyBuckets, StockBucket.class, Document.class)) {
+            bucketedOut.add(game.getString("_id"));
+        }
+
+        Criteria outOfStock = Criteria.where("stockBuckets").exists(false).and("totalStock").lte(0);
+        if (!bucketedOut.isEmpty()) {
+            // Merging a game out of hot-SKU mode drains its buckets but keeps them, so empty buckets only count
+            // for the games still in that mode
+            outOfStock = new Criteria().orOperator(outOfStock,
+                    Criteria.where("stockBuckets").exists(true).and("id").in(bucketedOut));
+        }
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(outOfStock),
+                Aggregation.facet(Aggregation.count().as("count")).as("total")
+                        .and(Aggregation.unwind("genres"), Aggregation.sortByCount("genres")).as("byGenre")
+                        .and(Aggregation.sort(Sort.by(Sort.Direction.DESC, "reviewStats.count")),
+                                Aggregation.limit(limit),
+                                Aggregation.project("title")
+                                        .and("reviewStats.count").as("reviews")
+                                        .and("reviewStats.sum").as("scoreSum")).as("games"))
+                .withOptions(OPTIONS);
+
+        Document result = mongoTemplate.aggregate(aggregation, Game.class, Document.class).getUniqueMappedResult();
+        if (result == null) {
+            return new CatalogAnalytics.StockOuts(0, List.of(), List.of());
+        }
+        List<Document> total = result.getList("total", Document.class);
+        long count = total.isEmpty() ? 0 : ((Number) total.get(0).get("count")).longValue();
+
+        List<CatalogAnalytics.GenreCount> byGenre = new ArrayList<>();
+        for (Document genre : result.getList("byGenre", Document.class)) {
+            byGenre.add(new CatalogAnalytics.GenreCount(genre.getString("_id"),
+                    ((Number) genre.get("count")).longValue()));
+        }
+
+        List<CatalogAnalytics.RankedGame> games = new ArrayList<>();
+        for (Document game : result.getList("games", Document.class)) {
+            long reviews = game.get("reviews") == null ? 0 : ((Number) game.get("reviews")).longValue();
+            double sum = reviews == 0 ? 0 : ((Number) game.get("scoreSum")).doubleValue();
+            games.add(new CatalogAnalytics.RankedGame(game.get("_id").toString(), game.getString("title"),
+                    reviews == 0 ? 0.0 : sum / reviews, reviews));
+        }
+        return new CatalogAnalytics.StockOuts(count, byGenre, games);
+    }
+}
@@ -0,0 +1,213 @@
+package com.lukcm.gameshopapi.repository;
+
+import com.lukcm.gameshopapi.dto.GameSearchCriteria;
+import com.lukcm.gameshopapi.model.Game;
+import com.lukcm.gameshopapi.model.Review;
+import com.lukcm.gameshopapi.model.StockBucket;
+import com.lukcm.gameshopapi.model.StockReservation;
+import com.mongodb.client.FindIterable;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.QueryMapper;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.IndexResolver;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * @author Max_MacKoul
+ *
+ * Creates the indexes declared on the Game, Review, StockReservation and StockBucket models with @Indexed and
+ * the compound indexes, then checks with explain() that every query shape issued by GameShopRepository,
+ * ReviewRepository and StockBucketRepository is answered from an index. It runs before the other startup jobs.
+ * What happens when a query shape would fall back to a collection scan is controlled by the
+ * gameshop.indexes.verify property:
+ * <ul>
+ *     <li>warn (default) - the query shape is logged as an error and startup continues</li>
+ *     <li>fail - startup is aborted</li>
+ *     <li>off - the query shapes are not checked</li>
+ * </ul>
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class GameIndexManager implements ApplicationRunner {
+
+    /** What to do when a query shape falls back to a collection scan. */
+    public enum VerifyMode { OFF, WARN, FAIL }
+
+    private static final Logger logger = LogManager.getLogger(GameIndexManager.class);
+
+    private static final List<Class<?>> INDEXED_TYPES =
+            List.of(Game.class, Review.class, StockReservation.class, StockBucket.class);
+
+    private final MongoTemplate mongoTemplate;
+
+    private final VerifyMode verifyMode;
+
+    public GameIndexManager(MongoTemplate mongoTemplate,
+                            @Value("${gameshop.indexes.verify:warn}") VerifyMode verifyMode) {
+        this.mongoTemplate = mongoTemplate;
+        this.verifyMode = verifyMode;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        ensureIndexes();
+        if (verifyMode != VerifyMode.OFF) {
+            List<String> collectionScans = verifyQueryShapes();
+            if (!collectionScans.isEmpty() && verifyMode == VerifyMode.FAIL) {
+                throw new IllegalStateException("Query shapes without a usable index: " + collectionScans);
+            }
+        }
+    }
+
+    /**
+     * Creates the indexes declared on the Game, Review, StockReservation and StockBucket models. Indexes that
+     * already exist are left untouched.
+     */
+    public void ensureIndexes() {
+        String methodName = ".ensureIndexes";
+        logger.debug("{}: entering method", methodName);
+
+        IndexResolver resolver =
+                new MongoPersistentEntityIndexResolver(mongoTemplate.getConverter().getMappingContext());
+        for (Class<?> type : INDEXED_TYPES) {
+            IndexOperations indexOps = mongoTemplate.indexOps(type);
+            resolver.resolveIndexFor(type).forEach(index -> {
+                String name = indexOps.ensureIndex(index);
+                logger.info("{}: ensured index {} on {}", methodName, name, mongoTemplate.getCollectionName(type));
+            });
+        }
+
+        logger.debug("{}: exiting method", methodName);
+    }
+
+    /**
+     * Explains every query shape issued against the games, reviews and stock buckets collections and reports the
+     * ones whose winning plan contains a collection scan.
+     *
+     * @return the names of the query shapes that would scan the whole collection
+     */
+    public List<String> verifyQueryShapes() {
+        String methodName = ".verifyQueryShapes";
+        logger.debug("{}: entering method", methodName);
+
+        List<String> collectionScans = new ArrayList<>();
+        explain(Game.class, queryShapes(), collectionScans);
+        explain(Review.class, reviewQueryShapes(), collectionScans);
+        explain(StockBucket.class, stockBucketQueryShapes(), collectionScans);
+
+        logger.debug("{}: exiting method", methodName);
+        return collectionScans;
+    }
+
+    private void explain(Class<?> type, Map<String, Query> shapes, List<String> collectionScans) {
+        String methodName = ".verifyQueryShapes";
+        MongoPersistentEntity<?> entity = mongoTemplate.getConverter().getMappingContext()
+                .getRequiredPersistentEntity(type);
+        QueryMapper queryMapper = new QueryMapper(mongoTemplate.getConverter());
+
+        shapes.forEach((name, query) -> {
+            Document filter = queryMapper.getMappedObject(query.getQueryObject(), entity);
+            Document sort = queryMapper.getMappedSort(query.getSortObject(), entity);
+            FindIterable<Document> find = mongoTemplate.getCollection(mongoTemplate.getCollectionName(type))
+                    .find(filter)
+                    .sort(sort);
+            Document winningPlan = find.explain().get("queryPlanner", Document.class)
+                    .get("winningPlan", Document.class);
+
+            if (containsCollectionScan(winningPlan)) {
+                logger.error("{}: query shape {} falls back to a collection scan: {}", methodName, name,
+                        filter.toJson());
+                collectionScans.add(name);
+            } else {
+                logger.info("{}: query shape {} is served from an index", methodName, name);
+            }
+        });
+    }
+
+    /**
+     * The query shapes issued by GameShopRepository, with placeholder values. Derived query methods are
+     * written out with the same operators Spring Data generates for them.
+     */
+    private static Map<String, Query> queryShapes() {
+        Map<String, Query> shapes = new LinkedHashMap<>();
+        shapes.put("findByPriceBetween", new Query(Criteria.where("price").gt(0.0).lt(1.0)));
+        shapes.put("findByNormalizedTitleContaining",
+                new Query(Criteria.where("normalizedTitle").regex(".*" + Pattern.quote("x") + ".*")));
+        shapes.put("findByNormalizedTitleStartingWith",
+                new Query(Criteria.where("normalizedTitle").regex("^" + Pattern.quote("x"))));
+        shapes.put("search(title)", search(new GameSearchCriteria("x", null, null, null, null), null));
+        shapes.put("search(developer)", search(new GameSearchCriteria(null, "x", null, null, null), null));
+        shapes.put("search(genre)",
+                search(new GameSearchCriteria(null, null, null, null, Collections.singletonList("x")), null));
+        shapes.put("search(genre, price)",
+                search(new GameSearchCriteria(null, null, 0.0, 1.0, Arrays.asList("x", "y")), "price"));
+        shapes.put("search(price)", search(new GameSearchCriteria(null, null, 0.0, 1.0, null), "price"));
+        return shapes;
+    }
+
+    /**
+     * The query shapes issued by ReviewRepository, with placeholder values.
+     */
+    private static Map<String, Query> reviewQueryShapes() {
+        Sort newestFirst = Sort.by(Sort.Direction.DESC, "date", "id");
+        Date date = new Date(0);
+        Map<String, Query> shapes = new LinkedHashMap<>();
+        shapes.put("findByGameId", new Query(Criteria.where("gameId").is("x")).with(newestFirst));
+        shapes.put("findByGameIdBefore", new Query(Criteria.where("gameId").is("x").orOperator(
+                Criteria.where("date").lt(date),
+                Criteria.where("date").is(date).and("id").lt(new ObjectId()))).with(newestFirst));
+        return shapes;
+    }
+
+    /**
+     * The query shapes issued by StockBucketRepository on other fields than the ID, with placeholder values.
+     * findByGameId and deleteByGameId share one shape, issued for every stock read of a game in hot-SKU mode
+     * and for every deleted game.
+     */
+    private static Map<String, Query> stockBucketQueryShapes() {
+        Map<String, Query> shapes = new LinkedHashMap<>();
+        shapes.put("StockBucketRepository.findByGameId", new Query(Criteria.where("gameId").is("x")));
+        return shapes;
+    }
+
+    private static Query search(GameSearchCriteria criteria, String sortBy) {
+        return GameQueries.search(criteria).with(GameQueries.sort(sortBy, Sort.Direction.ASC));
+    }
+
+    private static boolean containsCollectionScan(Object plan) {
+        if (plan instanceof Document) {
+            Document stage = (Document) plan;
+            if ("COLLSCAN".equals(stage.get("stage"))) {
+                return true;
+            }
+            return stage.values().stream().anyMatch(GameIndexManager::containsCollectionScan);
+        }
+        if (plan instanceof List) {
+            return ((List<?>) plan).stream().anyMatch(GameIndexManager::containsCollectionScan);
+        }
+        return false;
+    }
+}
@@ -0,0 +1,99 @@
+package com.lukcm.gameshopapi.repository;
+
+import com.lukcm.gameshopapi.dto.GameSearchCriteria;
+import com.lukcm.gameshopapi.model.Game;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * @author Max_MacKoul
+ *
+ * Builds the MongoDB queries issued against the games collection from request parameters. Keeping them in one
+ * place lets the repository run them and the startup index verification explain the exact same query shapes.
+ */
+public final class GameQueries {
+
+    /** The sort keys accepted from clients, mapped to the document fields they sort on. */
+    public static final Map<String, String> SORT_FIELDS = Map.of(
+            "title", "normalizedTitle",
+            "price", "price",
+            "rating", "rating",
+            "releaseDate", "releaseDate");
+
+    private GameQueries() {
+    }
+
+    /**
+     * Builds the query for a catalog search. Only the filters that are set become predicates, and every
+     * predicate is evaluated by MongoDB:
+     * <ul>
+     *     <li>title matches as a substring of the lower-cased normalizedTitle, which lets MongoDB scan the
+     *     normalizedTitle index keys instead of every document</li>
+     *     <li>developer matches exactly</li>
+     *     <li>genres becomes an $in over the genres array</li>
+     *     <li>minPrice and maxPrice become an inclusive range on price</li>
+     * </ul>
+     *
+     * @param criteria the search filters
+     * @return the query matching the filters
+     */
+    public static Query search(GameSearchCriteria criteria) {
+        Criteria where = new Criteria();
+
+        if (hasText(criteria.getTitle())) {
+            where.and("normalizedTitle").regex(Pattern.quote(Game.normalizeTitle(criteria.getTitle())));
+        }
+        if (hasText(criteria.getDeveloper())) {
+            where.and("developer").is(criteria.getDeveloper());
+        }
+        if (criteria.getGenres() != null) {
+            List<String> genres = criteria.getGenres().stream()
+                    .filter(GameQueries::hasText)
+                    .collect(Collectors.toList());
+            if (!genres.isEmpty()) {
+                where.and("genres").in(genres);
+            }
+        }
+        if (criteria.getMinPrice() != null || criteria.getMaxPrice() != null) {
+            Criteria price = where.and("price");
+            if (criteria.getMinPrice() != null) {
+                price.gte(criteria.getMinPrice());
+            }
+            if (criteria.getMaxPrice() != null) {
+                price.lte(criteria.getMaxPrice());
+            }
+        }
+        return new Query(where);
+    }
+
+    /**
+     * Builds the sort order for a search from a client-supplied sort key. Results are always ordered by ID
+     * last, so that pages of games with equal sort keys do not overlap.
+     *
+     * @param sortBy one of the keys of {@link #SORT_FIELDS}, or null to sort by ID only
+     * @param direction the direction of the sort on sortBy
+     * @return the sort order
+     * @throws IllegalArgumentException if sortBy is not a supported sort key
+     */
+    public static Sort sort(String sortBy, Sort.Direction direction) {
+        Sort byId = Sort.by(Sort.Direction.ASC, "id");
+        if (sortBy == null) {
+            return byId;
+        }
+        String field = SORT_FIELDS.get(sortBy);
+        if (field == null) {
+            throw new IllegalArgumentException("sort must be one of " + SORT_FIELDS.keySet());
+        }
+        return Sort.by(direction, field).and(byId);
+    }
+
+    private static boolean hasText(String value) {
+        return value != null && !value.isBlank();
+    }
+}
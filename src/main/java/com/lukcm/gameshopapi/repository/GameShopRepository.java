@@ -1,9 +1,15 @@
 package com.lukcm.gameshopapi.repository;
 
+import com.lukcm.gameshopapi.dto.GameVersion;
 import com.lukcm.gameshopapi.model.Game;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
 
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * @author Max_MacKoul
@@ -11,17 +17,36 @@ import java.util.List;
  * This interface represents the repository layer for the Game model, providing methods for interacting with
  * the underlying MongoDB database. It extends Spring's MongoRepository interface to gain access to common
  * MongoDB operations.
+ *
+ * List queries take the class to read the games into. Passing a projection such as GameSummary makes Spring
+ * Data read only the fields of the projection from MongoDB.
  */
-public interface GameShopRepository extends MongoRepository<Game, String> {
+public interface GameShopRepository extends MongoRepository<Game, String>, GameShopRepositoryCustom {
 
     /**
-     * This method is used to find games whose title contains the provided string (case-insensitive).
-     * The matching is done regardless of the case of the characters in the game titles and the provided string.
+     * This method is used to find games whose title contains the provided string. It matches against the
+     * lower-cased normalizedTitle, so the provided string must be normalized with Game.normalizeTitle to make
+     * the match case-insensitive. The match is not anchored, so it cannot be narrowed to a range of the
+     * normalizedTitle index: MongoDB scans every key of the index. That is cheaper than reading every document,
+     * as a case-insensitive regex on the title would, but it still grows with the catalog; prefix searches should
+     * use {@link #findByNormalizedTitleStartingWith(String, Pageable, Class)}.
      *
-     * @param title The string to match within the titles of the games.
+     * @param normalizedTitle The normalized string to match within the titles of the games.
+     * @param type The class to read the games into, Game or a projection such as GameSummary.
      * @return A list of games with titles containing the provided string.
      */
-    List<Game> findByTitleContainingIgnoreCase(String title);
+    <T> List<T> findByNormalizedTitleContaining(String normalizedTitle, Class<T> type);
+
+    /**
+     * This method is used to find games whose title starts with the provided string. The anchored match on
+     * normalizedTitle is answered from a range of the normalizedTitle index.
+     *
+     * @param normalizedPrefix The normalized start of the titles.
+     * @param pageable The maximum number of games to return and their order.
+     * @param type The class to read the games into, Game or a projection such as GameSummary.
+     * @return A list of games with titles starting with the provided string.
+     */
+    <T> List<T> findByNormalizedTitleStartingWith(String normalizedPrefix, Pageable pageable, Class<T> type);
 
     /**
      * This method is used to find games within a specific price range. It uses the built-in query method
@@ -30,7 +55,120 @@ public interface GameShopRepository extends MongoRepository<Game, String> {
      *
      * @param lowerBound The minimum price of the games.
      * @param upperBound The maximum price of the games.
+     * @param type The class to read the games into, Game or a projection such as GameSummary.
      * @return A list of games within the specified price range.
      */
-    List<Game> findByPriceBetween(double lowerBound, double upperBound);
+    <T> List<T> findByPriceBetween(double lowerBound, double upperBound, Class<T> type);
+
+    /**
+     * This method is used to read the first page of the catalog. The Pageable carries the page size and the
+     * sort order; it should sort on the id so that {@link #findByIdGreaterThan(String, Pageable, Class)} can continue
+     * from the last id returned.
+     *
+     * @param pageable The page size and sort order. Only the first page should be requested.
+     * @param type The class to read the games into, Game or a projection such as GameSummary.
+     * @return A list of at most pageable.getPageSize() games.
+     */
+    <T> List<T> findAllBy(Pageable pageable, Class<T> type);
+
+    /**
+     * This method is used for keyset pagination over the catalog. It returns the games whose id sorts after the
+     * provided id, which lets MongoDB seek straight to the next page through the _id index instead of skipping
+     * over every game already returned.
+     *
+     * @param id The id of the last game of the previous page.
+     * @param pageable The page size and sort order. It should sort on the id in ascending order.
+     * @param type The class to read the games into, Game or a projection such as GameSummary.
+     * @return A list of at most pageable.getPageSize() games whose id is greater than the provided id.
+     */
+    <T> List<T> findByIdGreaterThan(String id, Pageable pageable, Class<T> type);
+
+    /**
+     * This method is used to iterate over the whole catalog through a server-side cursor. Games are decoded
+     * one batch at a time as the stream is consumed, so the caller never holds the full collection in memory.
+     * The returned stream holds an open cursor and must be closed by the caller.
+     *
+     * @param sort The order in which the games should be returned.
+     * @param type The class to read the games into, Game or a projection such as GameSummary.
+     * @return A stream over every game in the collection.
+     */
+    <T> Stream<T> streamAllBy(Sort sort, Class<T> type);
+
+    /**
+     * This method is used to read the stock of a game without loading the rest of the document. Only the id,
+     * totalStock and stockBuckets fields of the returned game are populated.
+     *
+     * @param id The ID of the game.
+     * @return An Optional containing the partially loaded game, or an empty Optional if no game has that ID.
+     */
+    @Query(value = "{ '_id' : ?0 }", fields = "{ 'totalStock' : 1, 'stockBuckets' : 1 }")
+    Optional<Game> findStockById(String id);
+
+    /**
+     * This method is used to read the review statistics of a game without loading the rest of the document.
+     * Only the id and reviewStats fields of the returned game are populated.
+     *
+     * @param id The ID of the game.
+     * @return An Optional containing the partially loaded game, or an empty Optional if no game has that ID.
+     */
+    @Query(value = "{ '_id' : ?0 }", fields = "{ 'reviewStats' : 1 }")
+    Optional<Game> findReviewStatsById(String id);
+
+    /**
+     * This method is used to read the version and last modification time of a game without loading the rest
+     * of the document, to answer conditional requests.
+     *
+     * @param id The ID of the game.
+     * @return An Optional containing the version of the game, or an empty Optional if no game has that ID.
+     */
+    @Query(value = "{ '_id' : ?0 }", fields = "{ 'version' : 1, 'lastModified' : 1 }")
+    Optional<GameVersion> findVersionById(String id);
+
+    /**
+     * This method is used to read the reviews of a game without loading the rest of the document.
+     * Only the id and reviews fields of the returned game are populated.
+     *
+     * @param id The ID of the game.
+     * @return An Optional containing the partially loaded game, or an empty Optional if no game has that ID.
+     */
+    @Query(value = "{ '_id' : ?0 }", fields = "{ 'reviews' : 1 }")
+    Optional<Game> findReviewsById(String id);
+
+    /**
+     * This method is used to tell whether a game still embeds reviews that have not been moved to the reviews
+     * collection yet.
+     *
+     * @param id The ID of the game.
+     * @return true if the game exists and embeds at least one review.
+     */
+    @Query(value = "{ '_id' : ?0, 'reviews.0' : { '$exists' : true } }", exists = true)
+    boolean hasEmbeddedReviews(String id);
+
+    /**
+     * This method is used to iterate over the games that still embed reviews. Only the id of the returned games
+     * is populated. The returned stream holds an open cursor and must be closed by the caller.
+     *
+     * @return A stream over the games with embedded reviews.
+     */
+    @Query(value = "{ 'reviews.0' : { '$exists' : true } }", fields = "{ '_id' : 1 }")
+    Stream<Game> streamIdsWithEmbeddedReviews();
+
+    /**
+     * This method is used to iterate over the games whose review statistics have not been computed yet. Only
+     * the id of the returned games is populated. The returned stream holds an open cursor and must be closed
+     * by the caller.
+     *
+     * @return A stream over the games without review statistics.
+     */
+    @Query(value = "{ 'reviewStats' : { '$exists' : false } }", fields = "{ '_id' : 1 }")
+    Stream<Game> streamIdsWithoutReviewStats();
+
+    /**
+     * This method is used to iterate over the IDs of every game. Only the id of the returned games is populated.
+     * The returned stream holds an open cursor and must be closed by the caller.
+     *
+     * @return A stream over all games.
+     */
+    @Query(value = "{}", fields = "{ '_id' : 1 }")
+    Stream<Game> streamAllIds();
 }
@@ -0,0 +1,133 @@
+package com.lukcm.gameshopapi.repository;
+
+import com.lukcm.gameshopapi.dto.GameSearchCriteria;
+import com.lukcm.gameshopapi.model.Game;
+import com.lukcm.gameshopapi.model.ReviewStats;
+import com.mongodb.bulk.BulkWriteResult;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+
+/**
+ * @author Max_MacKoul
+ *
+ * This interface declares the repository operations that cannot be expressed as derived query methods, such as
+ * partial updates with MongoDB update operators. It is implemented by GameShopRepositoryCustomImpl and mixed
+ * into GameShopRepository by Spring Data.
+ */
+public interface GameShopRepositoryCustom {
+
+    /**
+     * This method is used to insert a game, or update the catalog fields of an existing game, in a single
+     * upsert. Fields managed by other operations, such as the review statistics and the stock, are left
+     * untouched on an existing game and initialized on a new one. Catalog fields that are null on the provided game are
+     * removed from the document, so the result matches what a full replace would have stored.
+     *
+     * @param game The game to write. A new ID is assigned to it if it has none.
+     * @return The game as stored after the write.
+     */
+    Game upsertGame(Game game);
+
+    /**
+     * This method is used to write many games in unordered bulk upserts, with the same semantics as upsertGame
+     * for each of them. A failing game does not prevent the others from being written; the failures are
+     * reported through a BulkOperationException that also carries the result of the successful writes.
+     *
+     * @param games The games to write. A new ID is assigned to the games that have none.
+     * @return The result of the bulk write.
+     * @throws org.springframework.data.mongodb.BulkOperationException if some of the games could not be written.
+     */
+    BulkWriteResult upsertGames(List<Game> games);
+
+    /**
+     * This method is used to take stock of a game in a single conditional $inc. The update only applies if
+     * the game holds at least the requested quantity and its stock is not split into buckets, so concurrent
+     * reservations can never take the stock below zero.
+     *
+     * @param gameId The ID of the game.
+     * @param quantity The quantity to take.
+     * @return true if the stock was taken, false if there is not enough, the stock is split or the game does
+     * not exist.
+     */
+    boolean reserveStock(String gameId, int quantity);
+
+    /**
+     * This method is used to return stock to a game whose stock is not split into buckets.
+     *
+     * @param gameId The ID of the game.
+     * @param quantity The quantity to return.
+     * @return true if the stock was returned, false if the stock is split or the game does not exist.
+     */
+    boolean releaseStock(String gameId, int quantity);
+
+    /**
+     * This method is used to switch a game to hot-SKU mode. It records the number of buckets and empties
+     * totalStock in one update, so the caller can move the stock it held into the buckets.
+     *
+     * @param gameId The ID of the game.
+     * @param buckets The number of buckets to split the stock into.
+     * @return The game with its totalStock as it was before the update, or null if the game does not exist or
+     * its stock is already split.
+     */
+    Game splitStock(String gameId, int buckets);
+
+    /**
+     * This method is used to switch a game back from hot-SKU mode. After it returns, reservations take stock
+     * from totalStock again and the caller moves the stock left in the buckets back into it.
+     *
+     * @param gameId The ID of the game.
+     * @return true if the game was in hot-SKU mode, false otherwise.
+     */
+    boolean mergeStock(String gameId);
+
+    /**
+     * This method is used to add the statistics of newly written reviews to the review statistics of a game
+     * in a single $inc/$min/$max update. The update only applies to games whose statistics have already been
+     * computed, because incrementing missing statistics would leave out the reviews written before them.
+     *
+     * @param gameId The ID of the game being reviewed.
+     * @param delta The statistics of the reviews being added.
+     * @return true if the statistics were updated, false if the game does not exist or has no statistics yet.
+     */
+    boolean incrementReviewStats(String gameId, ReviewStats delta);
+
+    /**
+     * This method is used to overwrite the review statistics of a game after they have been rebuilt from its
+     * reviews. The write only applies if the statistics still hold the number of reviews they held when the
+     * rebuild started, so that an increment made in the meantime is never overwritten.
+     *
+     * @param gameId The ID of the game.
+     * @param expected The statistics read before the rebuild started, or null if the game had none.
+     * @param stats The rebuilt statistics.
+     * @return true if the statistics were written, false if they changed or the game does not exist.
+     */
+    boolean replaceReviewStats(String gameId, ReviewStats expected, ReviewStats stats);
+
+    /**
+     * This method is used to remove the embedded reviews of a game once they have been copied to the reviews
+     * collection. The removal only applies if the game still embeds the number of reviews that were copied.
+     *
+     * @param gameId The ID of the game.
+     * @param reviewCount The number of embedded reviews that were copied.
+     * @return true if the embedded reviews were removed, false if they changed or the game does not exist.
+     */
+    boolean unsetEmbeddedReviews(String gameId, int reviewCount);
+
+    /**
+     * This method is used to search the catalog. All filters, including the price range, are evaluated by
+     * MongoDB, and only the requested page of matching games is returned.
+     *
+     * @param criteria The search filters, see GameQueries.search.
+     * @param pageable The page to return and its sort order.
+     * @param type The class to read the games into, Game or a projection such as GameSummary.
+     * @return The games of the requested page.
+     */
+    <T> List<T> search(GameSearchCriteria criteria, Pageable pageable, Class<T> type);
+
+    /**
+     * This method is used to fill in the normalizedTitle of games written before the field existed.
+     *
+     * @return The number of games updated.
+     */
+    int backfillNormalizedTitles();
+}
@@ -0,0 +1,144 @@
+package com.lukcm.gameshopapi.repository;
+
+import com.lukcm.gameshopapi.dto.GameSearchCriteria;
+import com.lukcm.gameshopapi.model.Game;
+import com.lukcm.gameshopapi.model.ReviewStats;
+import com.mongodb.bulk.BulkWriteResult;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.util.CloseableIterator;
+
+import java.util.List;
+
+/**
+ * @author Max_MacKoul
+ *
+ * MongoTemplate-backed implementation of GameShopRepositoryCustom.
+ */
+public class GameShopRepositoryCustomImpl implements GameShopRepositoryCustom {
+
+    private static final int BULK_BATCH_SIZE = 500;
+
+    private final MongoTemplate mongoTemplate;
+
+    public GameShopRepositoryCustomImpl(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public Game upsertGame(Game game) {
+        return mongoTemplate.findAndModify(GameUpdates.byId(game),
+                GameUpdates.catalogUpdate(mongoTemplate.getConverter(), game),
+                FindAndModifyOptions.options().upsert(true).returnNew(true), Game.class);
+    }
+
+    @Override
+    public BulkWriteResult upsertGames(List<Game> games) {
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Game.class);
+        for (Game game : games) {
+            bulk.upsert(GameUpdates.byId(game), GameUpdates.catalogUpdate(mongoTemplate.getConverter(), game));
+        }
+        return bulk.execute();
+    }
+
+    @Override
+    public boolean reserveStock(String gameId, int quantity) {
+        Query query = new Query(Criteria.where("id").is(gameId)
+                .and("stockBuckets").exists(false)
+                .and("totalStock").gte(quantity));
+        Update update = GameUpdates.touch(new Update().inc("totalStock", -quantity));
+
+        return mongoTemplate.findAndModify(query, update, Game.class) != null;
+    }
+
+    @Override
+    public boolean releaseStock(String gameId, int quantity) {
+        Query query = new Query(Criteria.where("id").is(gameId).and("stockBuckets").exists(false));
+        Update update = GameUpdates.touch(new Update().inc("totalStock", quantity));
+
+        return mongoTemplate.updateFirst(query, update, Game.class).getMatchedCount() > 0;
+    }
+
+    @Override
+    public Game splitStock(String gameId, int buckets) {
+        Query query = new Query(Criteria.where("id").is(gameId).and("stockBuckets").exists(false));
+        query.fields().include("totalStock");
+        Update update = GameUpdates.touch(new Update().set("stockBuckets", buckets).set("totalStock", 0));
+
+        return mongoTemplate.findAndModify(query, update, Game.class);
+    }
+
+    @Override
+    public boolean mergeStock(String gameId) {
+        Query query = new Query(Criteria.where("id").is(gameId).and("stockBuckets").exists(true));
+        Update update = GameUpdates.touch(new Update().unset("stockBuckets"));
+
+        return mongoTemplate.updateFirst(query, update, Game.class).getMatchedCount() > 0;
+    }
+
+    @Override
+    public boolean incrementReviewStats(String gameId, ReviewStats delta) {
+        return mongoTemplate.updateFirst(GameUpdates.withReviewStats(gameId), GameUpdates.reviewStatsIncrement(delta),
+                Game.class).getMatchedCount() > 0;
+    }
+
+    @Override
+    public boolean replaceReviewStats(String gameId, ReviewStats expected, ReviewStats stats) {
+        Criteria criteria = Criteria.where("id").is(gameId);
+        if (expected == null) {
+            criteria.and("reviewStats").exists(false);
+        } else {
+            criteria.and("reviewStats.count").is(expected.getCount());
+        }
+        Update update = GameUpdates.touch(new Update().set("reviewStats", stats));
+
+        return mongoTemplate.updateFirst(new Query(criteria), update, Game.class).getMatchedCount() > 0;
+    }
+
+    @Override
+    public boolean unsetEmbeddedReviews(String gameId, int reviewCount) {
+        Query query = new Query(Criteria.where("id").is(gameId).and("reviews").size(reviewCount));
+        Update update = GameUpdates.touch(new Update().unset("reviews"));
+
+        return mongoTemplate.updateFirst(query, update, Game.class).getMatchedCount() > 0;
+    }
+
+    @Override
+    public <T> List<T> search(GameSearchCriteria criteria, Pageable pageable, Class<T> type) {
+        return mongoTemplate.query(Game.class)
+                .as(type)
+                .matching(GameQueries.search(criteria).with(pageable))
+                .all();
+    }
+
+    @Override
+    public int backfillNormalizedTitles() {
+        Query query = new Query(Criteria.where("normalizedTitle").exists(false));
+        query.fields().include("title");
+
+        int updated = 0;
+        int pending = 0;
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Game.class);
+        try (CloseableIterator<Game> games = mongoTemplate.stream(query, Game.class)) {
+            while (games.hasNext()) {
+                Game game = games.next();
+                bulk.updateOne(new Query(Criteria.where("id").is(game.getId())),
+                        GameUpdates.touch(new Update().set("normalizedTitle", Game.normalizeTitle(game.getTitle()))));
+                if (++pending == BULK_BATCH_SIZE) {
+                    updated += bulk.execute().getModifiedCount();
+                    bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Game.class);
+                    pending = 0;
+                }
+            }
+        }
+        if (pending > 0) {
+            updated += bulk.execute().getModifiedCount();
+        }
+        return updated;
+    }
+}
@@ -0,0 +1,121 @@
+package com.lukcm.gameshopapi.repository;
+
+import com.lukcm.gameshopapi.model.Game;
+import com.lukcm.gameshopapi.model.ReviewStats;
+import org.bson.types.ObjectId;
+import org.springframework.data.mapping.PersistentPropertyAccessor;
+import org.springframework.data.mongodb.core.convert.MongoConverter;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentProperty;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.Set;
+
+/**
+ * @author Max_MacKoul
+ *
+ * Builds the queries and updates of the write operations on games, so that the blocking and the reactive
+ * repositories write games in exactly the same way.
+ *
+ * Every update of a game must go through {@link #touch(Update)}, which maintains the version and the last
+ * modification time that the ETag and Last-Modified headers of the API are derived from.
+ */
+public final class GameUpdates {
+
+    // Fields written by dedicated operations rather than by a catalog upsert
+    private static final Set<String> MANAGED_PROPERTIES = Set.of("reviews", "reviewStats", "totalStock", "stockBuckets",
+            "version", "lastModified");
+
+    private GameUpdates() {
+    }
+
+    /**
+     * Selects the game by its ID, assigning a new ID first if it has none.
+     *
+     * @param game the game to select
+     * @return the query matching the game
+     */
+    public static Query byId(Game game) {
+        if (game.getId() == null) {
+            game.setId(new ObjectId().toHexString());
+        }
+        return new Query(Criteria.where("id").is(game.getId()));
+    }
+
+    /**
+     * Sets every catalog field of the game and unsets the ones that are null. Managed fields are only
+     * initialized when the game is inserted.
+     *
+     * @param converter the converter holding the mapping metadata of Game
+     * @param game the game to write
+     * @return the update for an upsert of the game
+     */
+    public static Update catalogUpdate(MongoConverter converter, Game game) {
+        MongoPersistentEntity<?> entity = converter.getMappingContext().getRequiredPersistentEntity(Game.class);
+        PersistentPropertyAccessor<Game> accessor = entity.getPropertyAccessor(game);
+
+        Update update = new Update();
+        for (MongoPersistentProperty property : entity) {
+            if (property.isIdProperty() || MANAGED_PROPERTIES.contains(property.getName())) {
+                continue;
+            }
+            Object value = accessor.getProperty(property);
+            if (value == null) {
+                update.unset(property.getName());
+            } else {
+                update.set(property.getName(), value);
+            }
+        }
+        update.setOnInsert("reviewStats", ReviewStats.of(null));
+        update.setOnInsert("totalStock", game.getTotalStock());
+        return touch(update);
+    }
+
+    /**
+     * Increments the version of the game and sets its last modification time to the time of the write. A game
+     * inserted by an upsert starts at version 1.
+     *
+     * @param update the update of the game
+     * @return the same update
+     */
+    public static Update touch(Update update) {
+        return update.inc("version", 1).currentDate("lastModified");
+    }
+
+    /**
+     * Selects a game whose review statistics have already been computed.
+     *
+     * @param gameId the ID of the game
+     * @return the query matching the game
+     */
+    public static Query withReviewStats(String gameId) {
+        return new Query(Criteria.where("id").is(gameId).and("reviewStats").exists(true));
+    }
+
+    /**
+     * Adds the statistics of newly written reviews to the review statistics of a game.
+     *
+     * @param delta the statistics of the reviews being added
+     * @return the $inc/$min/$max update
+     */
+    public static Update reviewStatsIncrement(ReviewStats delta) {
+        Update update = new Update()
+                .inc("reviewStats.count", delta.getCount())
+                .inc("reviewStats.sum", delta.getSum());
+        for (int bucket = 0; bucket < ReviewStats.HISTOGRAM_BUCKETS; bucket++) {
+            int count = delta.getHistogram().get(bucket);
+            if (count > 0) {
+                update.inc("reviewStats.histogram." + bucket, count);
+            }
+        }
+        if (delta.getMin() != null) {
+            update.min("reviewStats.min", delta.getMin());
+        }
+        if (delta.getMax() != null) {
+            update.max("reviewStats.max", delta.getMax());
+        }
+        return touch(update);
+    }
+}
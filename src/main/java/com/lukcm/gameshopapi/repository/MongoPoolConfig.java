@@ -0,0 +1,68 @@
+package com.lukcm.gameshopapi.repository;
+
+import com.mongodb.connection.ConnectionPoolSettings;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Max_MacKoul
+ *
+ * Sizes the MongoDB connection pools of both the blocking and the reactive client.
+ * <ul>
+ *     <li>gameshop.mongo.pool.max-size - the most connections open to each server (driver default 100)</li>
+ *     <li>gameshop.mongo.pool.min-size - the connections kept open when idle (driver default 0)</li>
+ *     <li>gameshop.mongo.pool.max-wait - how long a call waits for a free connection before failing (driver
+ *     default 2m)</li>
+ * </ul>
+ * Properties that are not set leave the driver default, or the value given in the connection string, in place.
+ *
+ * On platform threads the Tomcat worker pool bounds the number of calls waiting for a connection. With
+ * gameshop.threads.virtual every request in flight can be waiting, and the pool becomes the only bound on
+ * concurrent database calls. Size it from the throughput to sustain and the time a call holds a connection, the
+ * mean of mongodb_driver_commands_seconds: max-size = requests per second x MongoDB calls per request x mean call
+ * time, plus some headroom, and no more than the servers can serve. At 200 requests per second of one call each
+ * and 50ms per call that is 10 connections; the driver default of 100 then only binds once calls take 500ms.
+ * Lower max-wait as well, so that an overloaded pool fails requests quickly instead of queueing every one of
+ * them. A warning is logged when virtual threads run with no max-size set.
+ */
+@Configuration(proxyBeanMethods = false)
+public class MongoPoolConfig {
+
+    private static final Logger logger = LogManager.getLogger(MongoPoolConfig.class);
+
+    @Bean
+    public MongoClientSettingsBuilderCustomizer connectionPoolCustomizer(
+            @Value("${gameshop.mongo.pool.max-size:#{null}}") Integer maxSize,
+            @Value("${gameshop.mongo.pool.min-size:#{null}}") Integer minSize,
+            @Value("${gameshop.mongo.pool.max-wait:#{null}}") Duration maxWait,
+            @Value("${gameshop.threads.virtual:false}") boolean virtualThreads) {
+        if (maxSize != null && maxSize < 1) {
+            throw new IllegalArgumentException("gameshop.mongo.pool.max-size must be positive");
+        }
+        if (virtualThreads && maxSize == null) {
+            logger.warn("Requests run on virtual threads but gameshop.mongo.pool.max-size is not set, so the "
+                    + "connection pool alone bounds concurrent MongoDB calls at its default size");
+        }
+        return builder -> builder.applyToConnectionPoolSettings(pool -> {
+            if (maxSize != null) {
+                pool.maxSize(maxSize);
+            }
+            if (minSize != null) {
+                pool.minSize(minSize);
+            }
+            if (maxWait != null) {
+                pool.maxWaitTime(maxWait.toMillis(), TimeUnit.MILLISECONDS);
+            }
+            ConnectionPoolSettings settings = pool.build();
+            logger.info("MongoDB connection pool: max size {}, min size {}, max wait {} ms", settings.getMaxSize(),
+                    settings.getMinSize(), settings.getMaxWaitTime(TimeUnit.MILLISECONDS));
+        });
+    }
+}
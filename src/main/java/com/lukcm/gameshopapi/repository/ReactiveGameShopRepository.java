@@ -0,0 +1,107 @@
+package com.lukcm.gameshopapi.repository;
+
+import com.lukcm.gameshopapi.dto.GameVersion;
+import com.lukcm.gameshopapi.model.Game;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.repository.Query;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * @author Max_MacKoul
+ *
+ * The non-blocking counterpart of GameShopRepository, used by the reactive variant of the API. Its queries are
+ * the same as those of GameShopRepository, so they are served by the same indexes; results are emitted as
+ * they arrive from the database, at the pace the subscriber requests them.
+ */
+public interface ReactiveGameShopRepository extends ReactiveMongoRepository<Game, String>,
+        ReactiveGameShopRepositoryCustom {
+
+    /**
+     * This method is used to find games whose title contains the provided normalized string.
+     *
+     * @param normalizedTitle The normalized string to match within the titles of the games.
+     * @param type The class to read the games into, Game or a projection such as GameSummary.
+     * @return The games with titles containing the provided string.
+     */
+    <T> Flux<T> findByNormalizedTitleContaining(String normalizedTitle, Class<T> type);
+
+    /**
+     * This method is used to find games whose title starts with the provided normalized string.
+     *
+     * @param normalizedPrefix The normalized start of the titles.
+     * @param pageable The maximum number of games to return and their order.
+     * @param type The class to read the games into, Game or a projection such as GameSummary.
+     * @return The games with titles starting with the provided string.
+     */
+    <T> Flux<T> findByNormalizedTitleStartingWith(String normalizedPrefix, Pageable pageable, Class<T> type);
+
+    /**
+     * This method is used to find games whose price is between the provided bounds.
+     *
+     * @param lowerBound The lower bound of the price range.
+     * @param upperBound The upper bound of the price range.
+     * @param type The class to read the games into, Game or a projection such as GameSummary.
+     * @return The games within the price range.
+     */
+    <T> Flux<T> findByPriceBetween(double lowerBound, double upperBound, Class<T> type);
+
+    /**
+     * This method is used to read the first page of the catalog.
+     *
+     * @param pageable The page size and sort order. It should sort on id.
+     * @param type The class to read the games into, Game or a projection such as GameSummary.
+     * @return At most pageable.getPageSize() games.
+     */
+    <T> Flux<T> findAllBy(Pageable pageable, Class<T> type);
+
+    /**
+     * This method is used for keyset pagination over the catalog, see GameShopRepository.findByIdGreaterThan.
+     *
+     * @param id The id of the last game of the previous page.
+     * @param pageable The page size and sort order. It should sort on id.
+     * @param type The class to read the games into, Game or a projection such as GameSummary.
+     * @return At most pageable.getPageSize() games with an id greater than the provided one.
+     */
+    <T> Flux<T> findByIdGreaterThan(String id, Pageable pageable, Class<T> type);
+
+    /**
+     * This method is used to read the whole catalog from a single cursor.
+     *
+     * @param sort The order of the games.
+     * @param type The class to read the games into, Game or a projection such as GameSummary.
+     * @return Every game in the collection.
+     */
+    <T> Flux<T> streamAllBy(Sort sort, Class<T> type);
+
+    /**
+     * This method is used to read the review statistics of a game without loading the rest of the document.
+     *
+     * @param id The ID of the game.
+     * @return The partially loaded game, or an empty Mono if no game has that ID.
+     */
+    @Query(value = "{ '_id' : ?0 }", fields = "{ 'reviewStats' : 1 }")
+    Mono<Game> findReviewStatsById(String id);
+
+    /**
+     * This method is used to read the version and last modification time of a game without loading the rest
+     * of the document.
+     *
+     * @param id The ID of the game.
+     * @return The version of the game, or an empty Mono if no game has that ID.
+     */
+    @Query(value = "{ '_id' : ?0 }", fields = "{ 'version' : 1, 'lastModified' : 1 }")
+    Mono<GameVersion> findVersionById(String id);
+
+    /**
+     * This method is used to check whether a game still embeds reviews that have not been moved to the reviews
+     * collection yet.
+     *
+     * @param id The ID of the game.
+     * @return true if the game exists and embeds at least one review.
+     */
+    @Query(value = "{ '_id' : ?0, 'reviews.0' : { '$exists' : true } }", exists = true)
+    Mono<Boolean> hasEmbeddedReviews(String id);
+}
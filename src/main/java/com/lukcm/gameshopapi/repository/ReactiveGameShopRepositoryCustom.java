@@ -0,0 +1,45 @@
+package com.lukcm.gameshopapi.repository;
+
+import com.lukcm.gameshopapi.dto.GameSearchCriteria;
+import com.lukcm.gameshopapi.model.Game;
+import com.lukcm.gameshopapi.model.ReviewStats;
+import org.springframework.data.domain.Pageable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * @author Max_MacKoul
+ *
+ * The non-blocking counterparts of the GameShopRepositoryCustom operations used by the reactive variant of the
+ * API. They issue the same updates, built by GameUpdates. It is implemented by
+ * ReactiveGameShopRepositoryCustomImpl and mixed into ReactiveGameShopRepository by Spring Data.
+ */
+public interface ReactiveGameShopRepositoryCustom {
+
+    /**
+     * See GameShopRepositoryCustom.upsertGame.
+     *
+     * @param game The game to write. A new ID is assigned to it if it has none.
+     * @return The game as stored after the write.
+     */
+    Mono<Game> upsertGame(Game game);
+
+    /**
+     * See GameShopRepositoryCustom.incrementReviewStats.
+     *
+     * @param gameId The ID of the game being reviewed.
+     * @param delta The statistics of the reviews being added.
+     * @return true if the statistics were updated, false if the game does not exist or has no statistics yet.
+     */
+    Mono<Boolean> incrementReviewStats(String gameId, ReviewStats delta);
+
+    /**
+     * See GameShopRepositoryCustom.search.
+     *
+     * @param criteria The search filters, see GameQueries.search.
+     * @param pageable The page to return and its sort order.
+     * @param type The class to read the games into, Game or a projection such as GameSummary.
+     * @return The games of the requested page.
+     */
+    <T> Flux<T> search(GameSearchCriteria criteria, Pageable pageable, Class<T> type);
+}
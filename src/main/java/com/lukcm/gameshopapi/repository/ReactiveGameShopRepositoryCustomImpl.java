@@ -0,0 +1,46 @@
+package com.lukcm.gameshopapi.repository;
+
+import com.lukcm.gameshopapi.dto.GameSearchCriteria;
+import com.lukcm.gameshopapi.model.Game;
+import com.lukcm.gameshopapi.model.ReviewStats;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * @author Max_MacKoul
+ *
+ * ReactiveMongoTemplate-backed implementation of ReactiveGameShopRepositoryCustom.
+ */
+public class ReactiveGameShopRepositoryCustomImpl implements ReactiveGameShopRepositoryCustom {
+
+    private final ReactiveMongoTemplate mongoTemplate;
+
+    public ReactiveGameShopRepositoryCustomImpl(ReactiveMongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public Mono<Game> upsertGame(Game game) {
+        return mongoTemplate.findAndModify(GameUpdates.byId(game),
+                GameUpdates.catalogUpdate(mongoTemplate.getConverter(), game),
+                FindAndModifyOptions.options().upsert(true).returnNew(true), Game.class);
+    }
+
+    @Override
+    public Mono<Boolean> incrementReviewStats(String gameId, ReviewStats delta) {
+        return mongoTemplate.updateFirst(GameUpdates.withReviewStats(gameId), GameUpdates.reviewStatsIncrement(delta),
+                        Game.class)
+                .map(result -> result.getMatchedCount() > 0);
+    }
+
+    @Override
+    public <T> Flux<T> search(GameSearchCriteria criteria, Pageable pageable, Class<T> type) {
+        return mongoTemplate.query(Game.class)
+                .as(type)
+                .matching(GameQueries.search(criteria).with(pageable))
+                .all();
+    }
+}
@@ -0,0 +1,50 @@
+package com.lukcm.gameshopapi.repository;
+
+import com.mongodb.MongoClientSettings;
+import com.mongodb.reactivestreams.client.MongoClient;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.boot.autoconfigure.mongo.MongoProperties;
+import org.springframework.boot.autoconfigure.mongo.ReactiveMongoClientFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.SimpleReactiveMongoDatabaseFactory;
+import org.springframework.data.mongodb.core.convert.MongoConverter;
+import org.springframework.data.mongodb.repository.config.EnableMongoRepositories;
+import org.springframework.data.mongodb.repository.config.EnableReactiveMongoRepositories;
+
+/**
+ * @author Max_MacKoul
+ *
+ * Sets up the reactive MongoDB driver and the reactive repositories, only when the application runs as a
+ * reactive web application (the "reactive" profile). The servlet variant therefore does not open a second
+ * connection pool. The blocking repositories stay available in both variants for the startup and background
+ * jobs.
+ *
+ * Spring Boot's reactive MongoDB auto-configuration is excluded by GameShopApplication, so the client and the
+ * template are declared here. The client is built from the same spring.data.mongodb properties as the blocking
+ * one, and the template shares its mapping converter. Declaring the reactive repositories turns off the
+ * auto-configured blocking ones, so they are declared here as well.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@EnableMongoRepositories(basePackageClasses = ReactiveMongoConfig.class)
+@EnableReactiveMongoRepositories(basePackageClasses = ReactiveMongoConfig.class)
+public class ReactiveMongoConfig {
+
+    @Bean(destroyMethod = "close")
+    public MongoClient reactiveMongoClient(ObjectProvider<MongoClientSettingsBuilderCustomizer> customizers) {
+        return new ReactiveMongoClientFactory(customizers.orderedStream().toList())
+                .createMongoClient(MongoClientSettings.builder().build());
+    }
+
+    @Bean
+    public ReactiveMongoTemplate reactiveMongoTemplate(MongoClient reactiveMongoClient, MongoProperties properties,
+                                                       MongoConverter converter) {
+        return new ReactiveMongoTemplate(
+                new SimpleReactiveMongoDatabaseFactory(reactiveMongoClient, properties.getMongoClientDatabase()),
+                converter);
+    }
+}
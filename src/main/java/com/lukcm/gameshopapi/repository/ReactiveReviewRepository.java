@@ -0,0 +1,48 @@
+package com.lukcm.gameshopapi.repository;
+
+import com.lukcm.gameshopapi.model.Review;
+import org.bson.types.ObjectId;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.repository.Query;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Date;
+
+/**
+ * @author Max_MacKoul
+ *
+ * The non-blocking counterpart of ReviewRepository, used by the reactive variant of the API.
+ */
+public interface ReactiveReviewRepository extends ReactiveMongoRepository<Review, String> {
+
+    /**
+     * See ReviewRepository.findByGameId.
+     *
+     * @param gameId The ID of the game.
+     * @param pageable The page size and sort order. It should sort on date and then id, both descending.
+     * @return At most pageable.getPageSize() reviews.
+     */
+    Flux<Review> findByGameId(String gameId, Pageable pageable);
+
+    /**
+     * See ReviewRepository.findByGameIdBefore.
+     *
+     * @param gameId The ID of the game.
+     * @param date The date of the last review of the previous page.
+     * @param id The id of the last review of the previous page.
+     * @param pageable The page size and sort order. It should sort on date and then id, both descending.
+     * @return At most pageable.getPageSize() reviews.
+     */
+    @Query("{ 'gameId' : ?0, '$or' : [ { 'date' : { '$lt' : ?1 } }, { 'date' : ?1, '_id' : { '$lt' : ?2 } } ] }")
+    Flux<Review> findByGameIdBefore(String gameId, Date date, ObjectId id, Pageable pageable);
+
+    /**
+     * This method is used to delete every review of a game.
+     *
+     * @param gameId The ID of the game.
+     * @return The number of reviews deleted.
+     */
+    Mono<Long> deleteByGameId(String gameId);
+}
@@ -0,0 +1,22 @@
+package com.lukcm.gameshopapi.repository;
+
+import com.lukcm.gameshopapi.model.StockBucket;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import reactor.core.publisher.Mono;
+
+/**
+ * @author Max_MacKoul
+ *
+ * The non-blocking counterpart of StockBucketRepository, used by the reactive variant of the API to clean up
+ * after deleted games.
+ */
+public interface ReactiveStockBucketRepository extends ReactiveMongoRepository<StockBucket, String> {
+
+    /**
+     * This method is used to delete every bucket of a game.
+     *
+     * @param gameId The ID of the game.
+     * @return The number of buckets deleted.
+     */
+    Mono<Long> deleteByGameId(String gameId);
+}
@@ -0,0 +1,49 @@
+package com.lukcm.gameshopapi.repository;
+
+import com.lukcm.gameshopapi.model.Review;
+import org.bson.types.ObjectId;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * @author Max_MacKoul
+ *
+ * This interface represents the repository layer for the Review model. Reviews live in their own collection
+ * and are paged through per game, newest first, using the (gameId, date, _id) index.
+ */
+public interface ReviewRepository extends MongoRepository<Review, String>, ReviewRepositoryCustom {
+
+    /**
+     * This method is used to read the first page of the reviews of a game.
+     *
+     * @param gameId The ID of the game.
+     * @param pageable The page size and sort order. It should sort on date and then id, both descending.
+     * @return A list of at most pageable.getPageSize() reviews.
+     */
+    List<Review> findByGameId(String gameId, Pageable pageable);
+
+    /**
+     * This method is used for keyset pagination over the reviews of a game. It returns the reviews that sort
+     * after the provided date and id in (date, id) descending order, so each page is read straight from the
+     * index without skipping over the reviews already returned.
+     *
+     * @param gameId The ID of the game.
+     * @param date The date of the last review of the previous page.
+     * @param id The id of the last review of the previous page.
+     * @param pageable The page size and sort order. It should sort on date and then id, both descending.
+     * @return A list of at most pageable.getPageSize() reviews.
+     */
+    @Query("{ 'gameId' : ?0, '$or' : [ { 'date' : { '$lt' : ?1 } }, { 'date' : ?1, '_id' : { '$lt' : ?2 } } ] }")
+    List<Review> findByGameIdBefore(String gameId, Date date, ObjectId id, Pageable pageable);
+
+    /**
+     * This method is used to delete every review of a game.
+     *
+     * @param gameId The ID of the game.
+     */
+    void deleteByGameId(String gameId);
+}
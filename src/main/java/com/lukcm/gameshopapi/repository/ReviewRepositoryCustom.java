@@ -0,0 +1,32 @@
+package com.lukcm.gameshopapi.repository;
+
+import com.lukcm.gameshopapi.model.Review;
+import com.lukcm.gameshopapi.model.ReviewStats;
+
+import java.util.List;
+
+/**
+ * @author Max_MacKoul
+ *
+ * This interface declares the review repository operations that cannot be expressed as derived query
+ * methods. It is implemented by ReviewRepositoryCustomImpl and mixed into ReviewRepository by Spring Data.
+ */
+public interface ReviewRepositoryCustom {
+
+    /**
+     * This method is used to write many reviews in a single unordered bulk write. Reviews whose id already
+     * exists are replaced, which makes the write safe to repeat.
+     *
+     * @param reviews The reviews to write. Each review must have an id.
+     */
+    void upsertAll(List<Review> reviews);
+
+    /**
+     * This method is used to compute the review statistics of a game from its reviews with an aggregation
+     * pipeline, so that only one small document per histogram bucket leaves the database.
+     *
+     * @param gameId The ID of the game.
+     * @return The statistics of the reviews of the game.
+     */
+    ReviewStats aggregateStats(String gameId);
+}
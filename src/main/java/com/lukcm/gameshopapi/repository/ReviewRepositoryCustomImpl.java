@@ -0,0 +1,63 @@
+package com.lukcm.gameshopapi.repository;
+
+import com.lukcm.gameshopapi.model.Review;
+import com.lukcm.gameshopapi.model.ReviewStats;
+import org.bson.Document;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndReplaceOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.ArithmeticOperators;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.List;
+
+/**
+ * @author Max_MacKoul
+ *
+ * MongoTemplate-backed implementation of ReviewRepositoryCustom.
+ */
+public class ReviewRepositoryCustomImpl implements ReviewRepositoryCustom {
+
+    private final MongoTemplate mongoTemplate;
+
+    public ReviewRepositoryCustomImpl(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public void upsertAll(List<Review> reviews) {
+        if (reviews.isEmpty()) {
+            return;
+        }
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Review.class);
+        for (Review review : reviews) {
+            bulk.replaceOne(new Query(Criteria.where("id").is(review.getId())), review,
+                    FindAndReplaceOptions.options().upsert());
+        }
+        bulk.execute();
+    }
+
+    @Override
+    public ReviewStats aggregateStats(String gameId) {
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(Criteria.where("gameId").is(gameId)),
+                Aggregation.project("score").and(ArithmeticOperators.Floor.floorValueOf("score")).as("bucket"),
+                Aggregation.group("bucket")
+                        .count().as("count")
+                        .sum("score").as("sum")
+                        .min("score").as("min")
+                        .max("score").as("max"));
+
+        ReviewStats stats = ReviewStats.of(null);
+        for (Document bucket : mongoTemplate.aggregate(aggregation, Review.class, Document.class)) {
+            stats.addBucket(ReviewStats.bucketOf(((Number) bucket.get("_id")).doubleValue()),
+                    ((Number) bucket.get("count")).longValue(),
+                    ((Number) bucket.get("sum")).doubleValue(),
+                    ((Number) bucket.get("min")).doubleValue(),
+                    ((Number) bucket.get("max")).doubleValue());
+        }
+        return stats;
+    }
+}
@@ -0,0 +1,29 @@
+package com.lukcm.gameshopapi.repository;
+
+import com.lukcm.gameshopapi.model.StockBucket;
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+import java.util.List;
+
+/**
+ * @author Max_MacKoul
+ *
+ * This interface represents the repository layer for the stock buckets of games in hot-SKU mode.
+ */
+public interface StockBucketRepository extends MongoRepository<StockBucket, String>, StockBucketRepositoryCustom {
+
+    /**
+     * This method is used to read every bucket of a game.
+     *
+     * @param gameId The ID of the game.
+     * @return The buckets of the game, in no particular order.
+     */
+    List<StockBucket> findByGameId(String gameId);
+
+    /**
+     * This method is used to delete every bucket of a game.
+     *
+     * @param gameId The ID of the game.
+     */
+    void deleteByGameId(String gameId);
+}
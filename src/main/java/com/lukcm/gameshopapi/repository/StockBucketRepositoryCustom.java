@@ -0,0 +1,39 @@
+package com.lukcm.gameshopapi.repository;
+
+/**
+ * @author Max_MacKoul
+ *
+ * This interface declares the stock bucket operations that update a bucket with MongoDB update operators. It
+ * is implemented by StockBucketRepositoryCustomImpl and mixed into StockBucketRepository by Spring Data.
+ */
+public interface StockBucketRepositoryCustom {
+
+    /**
+     * This method is used to take stock from one bucket in a single conditional $inc. The update only applies
+     * if the bucket holds at least the requested quantity.
+     *
+     * @param gameId The ID of the game.
+     * @param bucket The number of the bucket.
+     * @param quantity The quantity to take.
+     * @return true if the stock was taken, false if the bucket does not hold enough.
+     */
+    boolean take(String gameId, int bucket, int quantity);
+
+    /**
+     * This method is used to add stock to one bucket, creating the bucket if it does not exist.
+     *
+     * @param gameId The ID of the game.
+     * @param bucket The number of the bucket.
+     * @param quantity The quantity to add.
+     */
+    void put(String gameId, int bucket, int quantity);
+
+    /**
+     * This method is used to empty one bucket.
+     *
+     * @param gameId The ID of the game.
+     * @param bucket The number of the bucket.
+     * @return The stock the bucket held before it was emptied.
+     */
+    int drain(String gameId, int bucket);
+}
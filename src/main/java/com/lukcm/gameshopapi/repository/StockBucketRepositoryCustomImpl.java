@@ -0,0 +1,48 @@
+package com.lukcm.gameshopapi.repository;
+
+import com.lukcm.gameshopapi.model.StockBucket;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+/**
+ * @author Max_MacKoul
+ *
+ * MongoTemplate-backed implementation of StockBucketRepositoryCustom.
+ */
+public class StockBucketRepositoryCustomImpl implements StockBucketRepositoryCustom {
+
+    private final MongoTemplate mongoTemplate;
+
+    public StockBucketRepositoryCustomImpl(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public boolean take(String gameId, int bucket, int quantity) {
+        Query query = new Query(Criteria.where("id").is(StockBucket.idOf(gameId, bucket)).and("stock").gte(quantity));
+        Update update = new Update().inc("stock", -quantity);
+
+        return mongoTemplate.updateFirst(query, update, StockBucket.class).getModifiedCount() > 0;
+    }
+
+    @Override
+    public void put(String gameId, int bucket, int quantity) {
+        Query query = new Query(Criteria.where("id").is(StockBucket.idOf(gameId, bucket)));
+        Update update = new Update()
+                .inc("stock", quantity)
+                .setOnInsert("gameId", gameId)
+                .setOnInsert("bucket", bucket);
+
+        mongoTemplate.upsert(query, update, StockBucket.class);
+    }
+
+    @Override
+    public int drain(String gameId, int bucket) {
+        Query query = new Query(Criteria.where("id").is(StockBucket.idOf(gameId, bucket)));
+        StockBucket drained = mongoTemplate.findAndModify(query, new Update().set("stock", 0), StockBucket.class);
+
+        return drained == null ? 0 : drained.getStock();
+    }
+}
@@ -0,0 +1,28 @@
+package com.lukcm.gameshopapi.repository;
+
+import com.lukcm.gameshopapi.model.StockReservation;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
+
+import java.util.Date;
+import java.util.stream.Stream;
+
+/**
+ * @author Max_MacKoul
+ *
+ * This interface represents the repository layer for stock reservations.
+ */
+public interface StockReservationRepository extends MongoRepository<StockReservation, String>,
+        StockReservationRepositoryCustom {
+
+    /**
+     * This method is used to find the reservations that are still held after they expired. Only their ids
+     * are loaded; the sweeper releases them one by one.
+     *
+     * @param status The status of the reservations, normally HELD.
+     * @param expiresAt The current time.
+     * @return A stream over the expired reservations, which must be closed after use.
+     */
+    @Query(fields = "{ '_id' : 1 }")
+    Stream<StockReservation> streamByStatusAndExpiresAtBefore(StockReservation.Status status, Date expiresAt);
+}
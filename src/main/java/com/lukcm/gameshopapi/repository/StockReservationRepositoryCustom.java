@@ -0,0 +1,28 @@
+package com.lukcm.gameshopapi.repository;
+
+import com.lukcm.gameshopapi.model.StockReservation;
+
+import java.util.Date;
+
+/**
+ * @author Max_MacKoul
+ *
+ * This interface declares the stock reservation operations that change the state of a reservation
+ * atomically. It is implemented by StockReservationRepositoryCustomImpl and mixed into
+ * StockReservationRepository by Spring Data.
+ */
+public interface StockReservationRepositoryCustom {
+
+    /**
+     * This method is used to move a held reservation to a new state in a single conditional update. Of
+     * several concurrent attempts on the same reservation only one succeeds, so the stock of a reservation is
+     * returned at most once.
+     *
+     * @param id The ID of the reservation.
+     * @param status The new state, COMMITTED or RELEASED.
+     * @param notExpiredAt If not null, the update only applies to reservations that expire after this time.
+     * @return The reservation as it was before the update, or null if it does not exist, is no longer held or
+     * has expired.
+     */
+    StockReservation finishHeld(String id, StockReservation.Status status, Date notExpiredAt);
+}
@@ -0,0 +1,33 @@
+package com.lukcm.gameshopapi.repository;
+
+import com.lukcm.gameshopapi.model.StockReservation;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.Date;
+
+/**
+ * @author Max_MacKoul
+ *
+ * MongoTemplate-backed implementation of StockReservationRepositoryCustom.
+ */
+public class StockReservationRepositoryCustomImpl implements StockReservationRepositoryCustom {
+
+    private final MongoTemplate mongoTemplate;
+
+    public StockReservationRepositoryCustomImpl(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public StockReservation finishHeld(String id, StockReservation.Status status, Date notExpiredAt) {
+        Criteria criteria = Criteria.where("id").is(id).and("status").is(StockReservation.Status.HELD);
+        if (notExpiredAt != null) {
+            criteria.and("expiresAt").gt(notExpiredAt);
+        }
+        return mongoTemplate.findAndModify(new Query(criteria), new Update().set("status", status),
+                StockReservation.class);
+    }
+}
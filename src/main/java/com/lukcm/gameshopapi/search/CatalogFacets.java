@@ -0,0 +1,468 @@
+package com.lukcm.gameshopapi.search;
+
+import com.lukcm.gameshopapi.dto.FacetFilter;
+import com.lukcm.gameshopapi.dto.FacetedResult;
+import com.lukcm.gameshopapi.dto.GameSummary;
+import com.lukcm.gameshopapi.model.Game;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * @author Max_MacKoul
+ *
+ * A columnar in-memory snapshot of the catalog answering faceted searches. Every game occupies a row. Prices
+ * are kept in a double[], genres, platforms and ESRB ratings are dictionary-encoded with one bitset of rows
+ * per distinct value, and multiplayer support is a bitset of its own. A search combines the bitsets of the
+ * selected values with word-wise AND/OR, and each facet value is counted with a popcount of its bitset
+ * against the rows matching the other facets, so filtering and counting never allocate per row.
+ *
+ * Rows of removed games are reused by later games. Reads run in parallel; writes take an exclusive lock.
+ */
+@Component
+public class CatalogFacets implements CatalogIndex {
+
+    public static final String GENRE = "genre";
+
+    public static final String PLATFORM = "platform";
+
+    public static final String ESRB_RATING = "esrbRating";
+
+    public static final String MULTIPLAYER = "multiplayer";
+
+    public static final String PRICE = "price";
+
+    /** The upper bounds of the price facet buckets; the last bucket is open-ended. */
+    static final double[] PRICE_BUCKET_BOUNDS = {10, 20, 30, 40, 60};
+
+    private static final String[] PRICE_BUCKET_LABELS = {"0-10", "10-20", "20-30", "30-40", "40-60", "60+"};
+
+    private static final String[] SORT_KEYS = {"title", "price", "rating"};
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private volatile Columns columns = new Columns();
+
+    private volatile boolean ready;
+
+    @Override
+    public boolean isReady() {
+        return ready;
+    }
+
+    @Override
+    public Loader newLoader() {
+        Columns rebuilt = new Columns();
+        return new Loader() {
+            @Override
+            public void add(Game game) {
+                rebuilt.put(game);
+            }
+
+            @Override
+            public void publish() {
+                lock.writeLock().lock();
+                try {
+                    columns = rebuilt;
+                    ready = true;
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            }
+        };
+    }
+
+    @Override
+    public void put(Game game) {
+        lock.writeLock().lock();
+        try {
+            columns.put(game);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void remove(String gameId) {
+        lock.writeLock().lock();
+        try {
+            columns.remove(gameId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Runs a faceted search.
+     *
+     * @param filter the selected facet values and price range
+     * @param page the zero-based index of the page to return
+     * @param size the maximum number of games to return
+     * @param sortBy the key to sort on, title, price or rating
+     * @param ascending true to sort in ascending order
+     * @return the games of the requested page, the total number of matches and the facet counts
+     * @throws IllegalArgumentException if the sort key is unknown
+     */
+    public FacetedResult search(FacetFilter filter, int page, int size, String sortBy, boolean ascending) {
+        if (!Arrays.asList(SORT_KEYS).contains(sortBy)) {
+            throw new IllegalArgumentException("sort must be one of " + Arrays.toString(SORT_KEYS));
+        }
+        lock.readLock().lock();
+        try {
+            return columns.search(filter, page, size, sortBy, ascending);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static int priceBucket(double price) {
+        int bucket = 0;
+        while (bucket < PRICE_BUCKET_BOUNDS.length && price >= PRICE_BUCKET_BOUNDS[bucket]) {
+            bucket++;
+        }
+        return bucket;
+    }
+
+    private static void set(long[] bits, int row) {
+        bits[row >>> 6] |= 1L << row;
+    }
+
+    private static void clear(long[] bits, int row) {
+        bits[row >>> 6] &= ~(1L << row);
+    }
+
+    private static void and(long[] target, long[] other) {
+        for (int i = 0; i < target.length; i++) {
+            target[i] &= other[i];
+        }
+    }
+
+    private static int countAnd(long[] a, long[] b) {
+        int count = 0;
+        for (int i = 0; i < a.length; i++) {
+            count += Long.bitCount(a[i] & b[i]);
+        }
+        return count;
+    }
+
+    private static int count(long[] bits) {
+        int count = 0;
+        for (long word : bits) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    /**
+     * Maps the distinct values of a facet to codes, and each code to the bitset of the rows holding it.
+     */
+    private static final class Dictionary {
+
+        private final Map<String, Integer> codes = new HashMap<>();
+
+        private final List<String> values = new ArrayList<>();
+
+        private final List<long[]> rows = new ArrayList<>();
+
+        private int codeOf(String value, int words) {
+            Integer code = codes.get(value);
+            if (code == null) {
+                code = values.size();
+                codes.put(value, code);
+                values.add(value);
+                rows.add(new long[words]);
+            }
+            return code;
+        }
+
+        private void grow(int words) {
+            rows.replaceAll(bits -> Arrays.copyOf(bits, words));
+        }
+
+        /**
+         * ORs the bitsets of the selected values into a new bitset, or returns null if nothing is selected.
+         */
+        private long[] select(List<String> selected, int words) {
+            if (selected == null || selected.isEmpty()) {
+                return null;
+            }
+            long[] union = new long[words];
+            for (String value : selected) {
+                Integer code = codes.get(value);
+                if (code != null) {
+                    long[] bits = rows.get(code);
+                    for (int i = 0; i < words; i++) {
+                        union[i] |= bits[i];
+                    }
+                }
+            }
+            return union;
+        }
+
+        private Map<String, Integer> counts(long[] mask, List<String> selected) {
+            List<Map.Entry<String, Integer>> entries = new ArrayList<>();
+            for (int code = 0; code < values.size(); code++) {
+                int count = countAnd(mask, rows.get(code));
+                String value = values.get(code);
+                if (count > 0 || (selected != null && selected.contains(value))) {
+                    entries.add(Map.entry(value, count));
+                }
+            }
+            entries.sort(Map.Entry.<String, Integer>comparingByValue().reversed()
+                    .thenComparing(Map.Entry.comparingByKey()));
+            Map<String, Integer> counts = new LinkedHashMap<>();
+            entries.forEach(entry -> counts.put(entry.getKey(), entry.getValue()));
+            return counts;
+        }
+    }
+
+    /**
+     * The content of the snapshot. Columns are not thread-safe; CatalogFacets guards them with its lock.
+     */
+    private static final class Columns {
+
+        private int capacity = 64;
+
+        private int words = 1;
+
+        private int rowCount;
+
+        private final Map<String, Integer> rowsById = new HashMap<>();
+
+        private final Deque<Integer> freeRows = new ArrayDeque<>();
+
+        private GameSummary[] summaries = new GameSummary[capacity];
+
+        private String[] titles = new String[capacity];
+
+        private double[] prices = new double[capacity];
+
+        private double[] ratings = new double[capacity];
+
+        private int[] esrbCodes = new int[capacity];
+
+        private long[] alive = new long[words];
+
+        private long[] multiplayer = new long[words];
+
+        private final Dictionary genres = new Dictionary();
+
+        private final Dictionary platforms = new Dictionary();
+
+        private final Dictionary esrbRatings = new Dictionary();
+
+        private void put(Game game) {
+            if (game.getId() == null) {
+                return;
+            }
+            remove(game.getId());
+            int row = freeRows.isEmpty() ? rowCount++ : freeRows.pop();
+            if (row == capacity) {
+                grow();
+            }
+            rowsById.put(game.getId(), row);
+
+            GameSummary summary = GameSummary.of(game);
+            summaries[row] = summary;
+            titles[row] = game.getTitle() == null ? "" : Game.normalizeTitle(game.getTitle());
+            prices[row] = game.getPrice();
+            ratings[row] = game.getRating();
+            set(alive, row);
+            if (game.isMultiplayer()) {
+                set(multiplayer, row);
+            }
+            if (summary.getGenres() != null) {
+                summary.getGenres().forEach(genre -> set(genres.rows.get(genres.codeOf(genre, words)), row));
+            }
+            if (summary.getPlatforms() != null) {
+                summary.getPlatforms().forEach(platform ->
+                        set(platforms.rows.get(platforms.codeOf(platform, words)), row));
+            }
+            if (game.getEsrbRating() == null) {
+                esrbCodes[row] = -1;
+            } else {
+                esrbCodes[row] = esrbRatings.codeOf(game.getEsrbRating(), words);
+                set(esrbRatings.rows.get(esrbCodes[row]), row);
+            }
+        }
+
+        private void remove(String gameId) {
+            Integer row = rowsById.remove(gameId);
+            if (row == null) {
+                return;
+            }
+            GameSummary summary = summaries[row];
+            if (summary.getGenres() != null) {
+                summary.getGenres().forEach(genre -> clear(genres.rows.get(genres.codes.get(genre)), row));
+            }
+            if (summary.getPlatforms() != null) {
+                summary.getPlatforms().forEach(platform ->
+                        clear(platforms.rows.get(platforms.codes.get(platform)), row));
+            }
+            if (esrbCodes[row] >= 0) {
+                clear(esrbRatings.rows.get(esrbCodes[row]), row);
+            }
+            clear(alive, row);
+            clear(multiplayer, row);
+            summaries[row] = null;
+            titles[row] = null;
+            freeRows.push(row);
+        }
+
+        private void grow() {
+            capacity *= 2;
+            words = capacity >>> 6;
+            summaries = Arrays.copyOf(summaries, capacity);
+            titles = Arrays.copyOf(titles, capacity);
+            prices = Arrays.copyOf(prices, capacity);
+            ratings = Arrays.copyOf(ratings, capacity);
+            esrbCodes = Arrays.copyOf(esrbCodes, capacity);
+            alive = Arrays.copyOf(alive, words);
+            multiplayer = Arrays.copyOf(multiplayer, words);
+            genres.grow(words);
+            platforms.grow(words);
+            esrbRatings.grow(words);
+        }
+
+        private FacetedResult search(FacetFilter filter, int page, int size, String sortBy, boolean ascending) {
+            // One bitset per facet with a selection; a null bitset means the facet does not filter
+            long[][] selections = {
+                    genres.select(filter.getGenres(), words),
+                    platforms.select(filter.getPlatforms(), words),
+                    esrbRatings.select(filter.getEsrbRatings(), words),
+                    multiplayerSelection(filter.getMultiplayer()),
+                    priceSelection(filter.getMinPrice(), filter.getMaxPrice())
+            };
+
+            long[] matches = maskExcept(selections, -1);
+            Map<String, Map<String, Integer>> facets = new LinkedHashMap<>();
+            facets.put(GENRE, genres.counts(maskExcept(selections, 0), filter.getGenres()));
+            facets.put(PLATFORM, platforms.counts(maskExcept(selections, 1), filter.getPlatforms()));
+            facets.put(ESRB_RATING, esrbRatings.counts(maskExcept(selections, 2), filter.getEsrbRatings()));
+            facets.put(MULTIPLAYER, multiplayerCounts(maskExcept(selections, 3)));
+            facets.put(PRICE, priceCounts(maskExcept(selections, 4)));
+
+            return new FacetedResult(count(matches), page(matches, page, size, sortBy, ascending), facets);
+        }
+
+        /**
+         * ANDs the live rows with every selection except the one at the given position.
+         */
+        private long[] maskExcept(long[][] selections, int except) {
+            long[] mask = alive.clone();
+            for (int i = 0; i < selections.length; i++) {
+                if (i != except && selections[i] != null) {
+                    and(mask, selections[i]);
+                }
+            }
+            return mask;
+        }
+
+        private long[] multiplayerSelection(Boolean wanted) {
+            if (wanted == null) {
+                return null;
+            }
+            if (wanted) {
+                return multiplayer;
+            }
+            long[] singlePlayer = new long[words];
+            for (int i = 0; i < words; i++) {
+                singlePlayer[i] = ~multiplayer[i];
+            }
+            return singlePlayer;
+        }
+
+        private long[] priceSelection(Double minPrice, Double maxPrice) {
+            if (minPrice == null && maxPrice == null) {
+                return null;
+            }
+            double min = minPrice == null ? Double.NEGATIVE_INFINITY : minPrice;
+            double max = maxPrice == null ? Double.POSITIVE_INFINITY : maxPrice;
+            long[] inRange = new long[words];
+            for (int row = 0; row < rowCount; row++) {
+                if (prices[row] >= min && prices[row] <= max) {
+                    set(inRange, row);
+                }
+            }
+            return inRange;
+        }
+
+        private Map<String, Integer> multiplayerCounts(long[] mask) {
+            int multi = countAnd(mask, multiplayer);
+            Map<String, Integer> counts = new LinkedHashMap<>();
+            counts.put("true", multi);
+            counts.put("false", count(mask) - multi);
+            return counts;
+        }
+
+        private Map<String, Integer> priceCounts(long[] mask) {
+            int[] buckets = new int[PRICE_BUCKET_LABELS.length];
+            for (int word = 0; word < mask.length; word++) {
+                long bits = mask[word];
+                while (bits != 0) {
+                    int row = (word << 6) + Long.numberOfTrailingZeros(bits);
+                    buckets[priceBucket(prices[row])]++;
+                    bits &= bits - 1;
+                }
+            }
+            Map<String, Integer> counts = new LinkedHashMap<>();
+            for (int i = 0; i < buckets.length; i++) {
+                counts.put(PRICE_BUCKET_LABELS[i], buckets[i]);
+            }
+            return counts;
+        }
+
+        /**
+         * Selects the requested page of the matching rows with a heap holding only the rows up to the end of
+         * that page.
+         */
+        private List<GameSummary> page(long[] matches, int page, int size, String sortBy, boolean ascending) {
+            Comparator<Integer> order;
+            if ("price".equals(sortBy)) {
+                order = Comparator.comparingDouble(row -> prices[row]);
+            } else if ("rating".equals(sortBy)) {
+                order = Comparator.comparingDouble(row -> ratings[row]);
+            } else {
+                order = Comparator.comparing(row -> titles[row]);
+            }
+            if (!ascending) {
+                order = order.reversed();
+            }
+            order = order.thenComparing(row -> summaries[row].getId());
+
+            long end = (long) page * size + size;
+            PriorityQueue<Integer> best = new PriorityQueue<>(order.reversed());
+            for (int word = 0; word < matches.length; word++) {
+                long bits = matches[word];
+                while (bits != 0) {
+                    int row = (word << 6) + Long.numberOfTrailingZeros(bits);
+                    bits &= bits - 1;
+                    if (best.size() < end) {
+                        best.add(row);
+                    } else if (order.compare(row, best.peek()) < 0) {
+                        best.poll();
+                        best.add(row);
+                    }
+                }
+            }
+            List<Integer> rows = new ArrayList<>(best);
+            rows.sort(order);
+            List<GameSummary> items = new ArrayList<>(size);
+            for (long i = (long) page * size; i < rows.size(); i++) {
+                items.add(summaries[rows.get((int) i)]);
+            }
+            return items;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.lukcm.gameshopapi.search;
+
+import com.lukcm.gameshopapi.model.Game;
+
+/**
+ * @author Max_MacKoul
+ *
+ * An in-memory structure derived from the whole catalog, built at startup and kept up to date by
+ * GameSearchIndexer. Implementations must be safe to read while they are being updated.
+ */
+public interface CatalogIndex {
+
+    /**
+     * Collects the games of a rebuild. The games are added one by one as they are read from the database,
+     * then published together, replacing the previous content of the index.
+     */
+    interface Loader {
+
+        void add(Game game);
+
+        void publish();
+    }
+
+    /**
+     * @return true once the index holds the whole catalog
+     */
+    boolean isReady();
+
+    /**
+     * @return a loader for a complete replacement of the content of the index
+     */
+    Loader newLoader();
+
+    /**
+     * Adds a game to the index, or replaces the indexed fields of a game already in it.
+     *
+     * @param game the game to index
+     */
+    void put(Game game);
+
+    /**
+     * Removes a game from the index.
+     *
+     * @param gameId the ID of the game
+     */
+    void remove(String gameId);
+}
@@ -0,0 +1,448 @@
+package com.lukcm.gameshopapi.search;
+
+import com.lukcm.gameshopapi.dto.GameSummary;
+import com.lukcm.gameshopapi.dto.Suggestion;
+import com.lukcm.gameshopapi.model.Game;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * @author Max_MacKoul
+ *
+ * An in-memory inverted index over the title, developer, publisher and genres of every game, used to answer
+ * searches and autocomplete requests without querying MongoDB.
+ *
+ * Text is lower-cased and split into terms on every character that is not a letter or a digit. A query term
+ * matches a game when it equals one of the game's terms, is a prefix of one, or occurs inside one; the third
+ * case is found through an index of the trigrams of every term. Games must match every query term. They are
+ * ranked by how well and in which field each term matched, with a bonus for titles starting with the query,
+ * then by rating.
+ *
+ * Reads run in parallel; writes take an exclusive lock for the few microseconds it takes to update the terms
+ * of one game. The summaries returned hold the catalog fields of the last write, so their totalStock does not
+ * follow reservations.
+ */
+@Component
+public class GameSearchIndex implements CatalogIndex {
+
+    /** The indexed fields of a game and the weight of a match in each of them. */
+    enum Field {
+        TITLE(8), DEVELOPER(3), PUBLISHER(3), GENRE(2);
+
+        private final int weight;
+
+        Field(int weight) {
+            this.weight = weight;
+        }
+    }
+
+    private static final Field[] FIELDS = Field.values();
+
+    private static final int EXACT_MATCH = 3;
+
+    private static final int PREFIX_MATCH = 2;
+
+    private static final int INFIX_MATCH = 1;
+
+    private static final int TITLE_PREFIX_BONUS = 4;
+
+    /** The largest number of terms a single short query term is expanded to by prefix or infix matching. */
+    private static final int MAX_EXPANSIONS = 2048;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private volatile Segment segment = new Segment();
+
+    private volatile boolean ready;
+
+    @Override
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * @return the number of games in the index
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return segment.ordinals.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * The new content is built before the old one is swapped out, so searches keep being answered in the
+     * meantime. Publishing it marks the index as ready.
+     */
+    @Override
+    public Loader newLoader() {
+        Segment rebuilt = new Segment();
+        return new Loader() {
+            @Override
+            public void add(Game game) {
+                rebuilt.put(game);
+            }
+
+            @Override
+            public void publish() {
+                lock.writeLock().lock();
+                try {
+                    segment = rebuilt;
+                    ready = true;
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            }
+        };
+    }
+
+    @Override
+    public void put(Game game) {
+        lock.writeLock().lock();
+        try {
+            segment.remove(game.getId());
+            segment.put(game);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void remove(String gameId) {
+        lock.writeLock().lock();
+        try {
+            segment.remove(gameId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the games matching every term of the query, best matches first.
+     *
+     * @param query the text typed by the user
+     * @param limit the maximum number of games to return
+     * @return the summaries of the matching games
+     */
+    public List<GameSummary> search(String query, int limit) {
+        List<String> queryTerms = tokenize(query);
+        if (queryTerms.isEmpty()) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try {
+            return segment.rank(queryTerms, Game.normalizeTitle(query.trim()), false, limit).stream()
+                    .map(doc -> doc.summary)
+                    .toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Completes the title being typed. The last term of the prefix only has to start a word of the title,
+     * the terms before it must match words of the title exactly.
+     *
+     * @param prefix the text typed so far
+     * @param limit the maximum number of suggestions to return
+     * @return the suggestions, best first
+     */
+    public List<Suggestion> autocomplete(String prefix, int limit) {
+        List<String> queryTerms = tokenize(prefix);
+        if (queryTerms.isEmpty()) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try {
+            return segment.rank(queryTerms, Game.normalizeTitle(prefix.trim()), true, limit).stream()
+                    .map(doc -> new Suggestion(doc.summary.getId(), doc.summary.getTitle()))
+                    .toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Splits text into distinct lower-case terms.
+     */
+    static List<String> tokenize(String text) {
+        if (text == null) {
+            return List.of();
+        }
+        Set<String> terms = new LinkedHashSet<>();
+        String lower = text.toLowerCase(Locale.ROOT);
+        int start = -1;
+        for (int i = 0; i <= lower.length(); i++) {
+            boolean wordChar = i < lower.length() && Character.isLetterOrDigit(lower.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                terms.add(lower.substring(start, i));
+                start = -1;
+            }
+        }
+        return new ArrayList<>(terms);
+    }
+
+    private static List<String> trigrams(String term) {
+        List<String> trigrams = new ArrayList<>(Math.max(0, term.length() - 2));
+        for (int i = 0; i + 3 <= term.length(); i++) {
+            trigrams.add(term.substring(i, i + 3));
+        }
+        return trigrams;
+    }
+
+    /**
+     * An indexed game: its summary and the terms it was indexed under, per field.
+     */
+    private static final class Doc {
+
+        private final GameSummary summary;
+
+        private final String normalizedTitle;
+
+        private final List<List<String>> terms;
+
+        private Doc(Game game) {
+            this.summary = GameSummary.of(game);
+            this.normalizedTitle = game.getTitle() == null ? "" : Game.normalizeTitle(game.getTitle());
+            this.terms = new ArrayList<>(FIELDS.length);
+            terms.add(tokenize(game.getTitle()));
+            terms.add(tokenize(game.getDeveloper()));
+            terms.add(tokenize(game.getPublisher()));
+            terms.add(game.getGenres() == null ? List.of() : tokenize(String.join(" ", game.getGenres())));
+        }
+    }
+
+    /**
+     * The games containing a term, per field, as sorted arrays of game ordinals.
+     */
+    private static final class Postings {
+
+        private final int[][] ordinals = new int[FIELDS.length][];
+
+        private final int[] sizes = new int[FIELDS.length];
+
+        private void add(int field, int ordinal) {
+            int[] list = ordinals[field];
+            if (list == null) {
+                list = ordinals[field] = new int[2];
+            }
+            int at = -Arrays.binarySearch(list, 0, sizes[field], ordinal) - 1;
+            if (at < 0) {
+                return;
+            }
+            if (sizes[field] == list.length) {
+                list = ordinals[field] = Arrays.copyOf(list, list.length * 2);
+            }
+            System.arraycopy(list, at, list, at + 1, sizes[field] - at);
+            list[at] = ordinal;
+            sizes[field]++;
+        }
+
+        private void remove(int field, int ordinal) {
+            int[] list = ordinals[field];
+            int at = list == null ? -1 : Arrays.binarySearch(list, 0, sizes[field], ordinal);
+            if (at >= 0) {
+                System.arraycopy(list, at + 1, list, at, sizes[field] - at - 1);
+                sizes[field]--;
+            }
+        }
+
+        private boolean isEmpty() {
+            return Arrays.stream(sizes).allMatch(size -> size == 0);
+        }
+    }
+
+    /**
+     * The content of the index. A segment is not thread-safe; GameSearchIndex guards it with its lock.
+     */
+    private static final class Segment {
+
+        private final Map<String, Integer> ordinals = new HashMap<>();
+
+        private final List<Doc> docs = new ArrayList<>();
+
+        private final Deque<Integer> freeOrdinals = new ArrayDeque<>();
+
+        private final NavigableMap<String, Postings> terms = new TreeMap<>();
+
+        private final Map<String, Set<String>> termsByTrigram = new HashMap<>();
+
+        private void put(Game game) {
+            if (game.getId() == null) {
+                return;
+            }
+            Doc doc = new Doc(game);
+            int ordinal;
+            if (freeOrdinals.isEmpty()) {
+                ordinal = docs.size();
+                docs.add(doc);
+            } else {
+                ordinal = freeOrdinals.pop();
+                docs.set(ordinal, doc);
+            }
+            ordinals.put(game.getId(), ordinal);
+
+            for (int field = 0; field < FIELDS.length; field++) {
+                for (String term : doc.terms.get(field)) {
+                    Postings postings = terms.get(term);
+                    if (postings == null) {
+                        postings = new Postings();
+                        terms.put(term, postings);
+                        for (String trigram : trigrams(term)) {
+                            termsByTrigram.computeIfAbsent(trigram, t -> new HashSet<>()).add(term);
+                        }
+                    }
+                    postings.add(field, ordinal);
+                }
+            }
+        }
+
+        private void remove(String gameId) {
+            Integer ordinal = ordinals.remove(gameId);
+            if (ordinal == null) {
+                return;
+            }
+            Doc doc = docs.get(ordinal);
+            for (int field = 0; field < FIELDS.length; field++) {
+                for (String term : doc.terms.get(field)) {
+                    Postings postings = terms.get(term);
+                    postings.remove(field, ordinal);
+                    if (postings.isEmpty()) {
+                        terms.remove(term);
+                        for (String trigram : trigrams(term)) {
+                            Set<String> trigramTerms = termsByTrigram.get(trigram);
+                            trigramTerms.remove(term);
+                            if (trigramTerms.isEmpty()) {
+                                termsByTrigram.remove(trigram);
+                            }
+                        }
+                    }
+                }
+            }
+            docs.set(ordinal, null);
+            freeOrdinals.push(ordinal);
+        }
+
+        private List<Doc> rank(List<String> queryTerms, String normalizedQuery, boolean autocomplete, int limit) {
+            Map<Integer, Integer> scores = null;
+            for (int i = 0; i < queryTerms.size(); i++) {
+                boolean last = i == queryTerms.size() - 1;
+                Map<Integer, Integer> termScores = autocomplete
+                        ? match(queryTerms.get(i), true, last, false)
+                        : match(queryTerms.get(i), false, true, true);
+                if (scores == null) {
+                    scores = termScores;
+                } else {
+                    Map<Integer, Integer> combined = new HashMap<>();
+                    for (Map.Entry<Integer, Integer> entry : scores.entrySet()) {
+                        Integer termScore = termScores.get(entry.getKey());
+                        if (termScore != null) {
+                            combined.put(entry.getKey(), entry.getValue() + termScore);
+                        }
+                    }
+                    scores = combined;
+                }
+                if (scores.isEmpty()) {
+                    return List.of();
+                }
+            }
+
+            Map<Integer, Integer> finalScores = scores;
+            finalScores.replaceAll((ordinal, score) -> docs.get(ordinal).normalizedTitle.startsWith(normalizedQuery)
+                    ? score + TITLE_PREFIX_BONUS
+                    : score);
+            Comparator<Integer> order = Comparator.<Integer>comparingInt(finalScores::get).reversed()
+                    .thenComparing(Comparator.<Integer>comparingDouble(ordinal -> docs.get(ordinal).summary.getRating()).reversed())
+                    .thenComparingInt(ordinal -> docs.get(ordinal).normalizedTitle.length())
+                    .thenComparing(ordinal -> docs.get(ordinal).normalizedTitle);
+            return finalScores.keySet().stream()
+                    .sorted(order)
+                    .limit(limit)
+                    .map(docs::get)
+                    .toList();
+        }
+
+        /**
+         * Scores the games matching one query term, keeping the best match of each game.
+         */
+        private Map<Integer, Integer> match(String queryTerm, boolean titleOnly, boolean prefix, boolean infix) {
+            Map<Integer, Integer> scores = new HashMap<>();
+            Postings exact = terms.get(queryTerm);
+            if (exact != null) {
+                collect(exact, EXACT_MATCH, titleOnly, scores);
+            }
+            if (prefix) {
+                int expanded = 0;
+                for (Postings postings : terms.subMap(queryTerm, false, queryTerm + Character.MAX_VALUE, false).values()) {
+                    collect(postings, PREFIX_MATCH, titleOnly, scores);
+                    if (++expanded == MAX_EXPANSIONS) {
+                        break;
+                    }
+                }
+            }
+            if (infix && queryTerm.length() >= 3) {
+                int expanded = 0;
+                for (String term : infixCandidates(queryTerm)) {
+                    if (term.contains(queryTerm) && !term.startsWith(queryTerm)) {
+                        collect(terms.get(term), INFIX_MATCH, titleOnly, scores);
+                        if (++expanded == MAX_EXPANSIONS) {
+                            break;
+                        }
+                    }
+                }
+            }
+            return scores;
+        }
+
+        /**
+         * Returns the terms containing every trigram of the query term, starting from the rarest trigram.
+         */
+        private Set<String> infixCandidates(String queryTerm) {
+            List<Set<String>> sets = new ArrayList<>();
+            for (String trigram : trigrams(queryTerm)) {
+                Set<String> trigramTerms = termsByTrigram.get(trigram);
+                if (trigramTerms == null) {
+                    return Set.of();
+                }
+                sets.add(trigramTerms);
+            }
+            sets.sort(Comparator.comparingInt(Set::size));
+            Set<String> candidates = new HashSet<>(sets.get(0));
+            for (int i = 1; i < sets.size() && !candidates.isEmpty(); i++) {
+                candidates.retainAll(sets.get(i));
+            }
+            return candidates;
+        }
+
+        private void collect(Postings postings, int matchKind, boolean titleOnly, Map<Integer, Integer> scores) {
+            int fields = titleOnly ? 1 : FIELDS.length;
+            for (int field = 0; field < fields; field++) {
+                int score = FIELDS[field].weight * matchKind;
+                int[] list = postings.ordinals[field];
+                for (int i = 0; i < postings.sizes[field]; i++) {
+                    scores.merge(list[i], score, Math::max);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.lukcm.gameshopapi.search;
+
+import com.lukcm.gameshopapi.event.GameChangedEvent;
+import com.lukcm.gameshopapi.model.Game;
+import com.lukcm.gameshopapi.repository.GameShopRepository;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * @author Max_MacKoul
+ *
+ * Fills the in-memory catalog indexes, the GameSearchIndex, the CatalogFacets and the Leaderboards, from a
+ * single pass over the games collection at startup and applies every GameChangedEvent to them afterwards.
+ * Until the first build completes, searches are answered from MongoDB. Set gameshop.search.index.enabled to
+ * false to never build the indexes.
+ *
+ * Games changed while the index is being built are reloaded from the database once the build is done, so
+ * changes the build read too early are not lost.
+ */
+@Component
+public class GameSearchIndexer implements ApplicationRunner {
+
+    private static final Logger logger = LogManager.getLogger(GameSearchIndexer.class);
+
+    private final List<CatalogIndex> indexes;
+
+    private final GameShopRepository gameRepository;
+
+    private final boolean enabled;
+
+    private final Object pendingLock = new Object();
+
+    // IDs of the games changed during a build, or null when no build is running
+    private Set<String> pending;
+
+    public GameSearchIndexer(List<CatalogIndex> indexes, GameShopRepository gameRepository,
+                             @Value("${gameshop.search.index.enabled:true}") boolean enabled) {
+        this.indexes = indexes;
+        this.gameRepository = gameRepository;
+        this.enabled = enabled;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (enabled) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Rebuilds every index from the whole catalog.
+     */
+    public void rebuild() {
+        String methodName = ".rebuild";
+        logger.debug("{}: entering method", methodName);
+
+        synchronized (pendingLock) {
+            pending = new LinkedHashSet<>();
+        }
+        Set<String> changed;
+        int count = 0;
+        try (Stream<Game> games = gameRepository.streamAllBy(Sort.by("id"), Game.class)) {
+            List<CatalogIndex.Loader> loaders = indexes.stream().map(CatalogIndex::newLoader).toList();
+            Iterator<Game> it = games.iterator();
+            while (it.hasNext()) {
+                Game game = it.next();
+                loaders.forEach(loader -> loader.add(game));
+                count++;
+            }
+            loaders.forEach(CatalogIndex.Loader::publish);
+        } finally {
+            synchronized (pendingLock) {
+                changed = pending;
+                pending = null;
+            }
+        }
+        changed.forEach(this::reload);
+
+        logger.info("{}: exiting method, {} games indexed", methodName, count);
+    }
+
+    @EventListener
+    public void onGameChanged(GameChangedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        if (event.getType() == GameChangedEvent.Type.RESET) {
+            rebuild();
+            return;
+        }
+        synchronized (pendingLock) {
+            if (pending != null) {
+                pending.add(event.getGameId());
+            }
+        }
+        if (event.getType() == GameChangedEvent.Type.DELETED) {
+            indexes.forEach(index -> index.remove(event.getGameId()));
+        } else if (event.getGame() != null) {
+            indexes.forEach(index -> index.put(event.getGame()));
+        } else {
+            reload(event.getGameId());
+        }
+    }
+
+    private void reload(String gameId) {
+        Optional<Game> game = gameRepository.findById(gameId);
+        if (game.isPresent()) {
+            indexes.forEach(index -> index.put(game.get()));
+        } else {
+            indexes.forEach(index -> index.remove(gameId));
+        }
+    }
+}
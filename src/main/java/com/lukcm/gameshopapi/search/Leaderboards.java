@@ -0,0 +1,296 @@
+package com.lukcm.gameshopapi.search;
+
+import com.lukcm.gameshopapi.dto.Leaderboard;
+import com.lukcm.gameshopapi.event.ReviewsAddedEvent;
+import com.lukcm.gameshopapi.model.Game;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @author Max_MacKoul
+ *
+ * The storefront leaderboards, kept up to date game by game instead of being computed by scanning the
+ * catalog: the highest rated games, the most reviewed games, and the cheapest games of each genre. Each
+ * leaderboard keeps every game in a sorted set, so that the next game moves up when one of the first leaves,
+ * and publishes an immutable snapshot of its first gameshop.leaderboards.size games (default 100). Reads
+ * return the snapshot without locking or sorting, whatever the size of the catalog.
+ *
+ * A change only publishes a new snapshot, with a new version, when it touches the games of the snapshot.
+ * Writes are serialized; review counts follow the ReviewsAddedEvent of local review writes and the whole game
+ * of remote ones.
+ */
+@Component
+public class Leaderboards implements CatalogIndex {
+
+    private static final Comparator<Leaderboard.Entry> BY_RATING = Comparator
+            .comparingDouble(Leaderboard.Entry::getRating).reversed()
+            .thenComparing(Leaderboard.Entry::getId);
+
+    private static final Comparator<Leaderboard.Entry> BY_REVIEWS = Comparator
+            .comparingLong(Leaderboard.Entry::getReviews).reversed()
+            .thenComparing(Leaderboard.Entry::getId);
+
+    private static final Comparator<Leaderboard.Entry> BY_PRICE = Comparator
+            .comparingDouble(Leaderboard.Entry::getPrice)
+            .thenComparing(Leaderboard.Entry::getId);
+
+    private final int size;
+
+    // Shared by every leaderboard, so that versions keep increasing across rebuilds
+    private final AtomicLong versions = new AtomicLong();
+
+    private final Object writeLock = new Object();
+
+    private volatile Boards boards = new Boards();
+
+    private volatile boolean ready;
+
+    public Leaderboards(@Value("${gameshop.leaderboards.size:100}") int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("gameshop.leaderboards.size must be at least 1");
+        }
+        this.size = size;
+    }
+
+    /**
+     * @return the number of games kept in the snapshot of each leaderboard
+     */
+    public int getSize() {
+        return size;
+    }
+
+    @Override
+    public boolean isReady() {
+        return ready;
+    }
+
+    @Override
+    public Loader newLoader() {
+        Boards rebuilt = new Boards();
+        return new Loader() {
+            @Override
+            public void add(Game game) {
+                rebuilt.put(game);
+            }
+
+            @Override
+            public void publish() {
+                synchronized (writeLock) {
+                    rebuilt.publish(true);
+                    boards = rebuilt;
+                    ready = true;
+                }
+            }
+        };
+    }
+
+    @Override
+    public void put(Game game) {
+        synchronized (writeLock) {
+            boards.put(game);
+            boards.publish(false);
+        }
+    }
+
+    @Override
+    public void remove(String gameId) {
+        synchronized (writeLock) {
+            boards.remove(gameId);
+            boards.publish(false);
+        }
+    }
+
+    @EventListener
+    public void onReviewsAdded(ReviewsAddedEvent event) {
+        synchronized (writeLock) {
+            boards.addReviews(event.getGameId(), event.getDelta().getCount());
+            boards.publish(false);
+        }
+    }
+
+    /**
+     * Returns the first games of a leaderboard.
+     *
+     * @param kind the leaderboard
+     * @param genre the genre of a DEALS leaderboard, ignored otherwise
+     * @param limit the number of games to return, between 1 and {@link #getSize()}
+     * @return the first games of the current snapshot; a genre no game has yields an empty leaderboard
+     * @throws IllegalArgumentException if the limit is out of range or the genre of a DEALS leaderboard is missing
+     */
+    public Leaderboard get(Leaderboard.Kind kind, String genre, int limit) {
+        if (limit < 1 || limit > size) {
+            throw new IllegalArgumentException("limit must be between 1 and " + size);
+        }
+        if (kind == Leaderboard.Kind.DEALS && (genre == null || genre.isBlank())) {
+            throw new IllegalArgumentException("genre is required");
+        }
+        Boards current = boards;
+        Board board = switch (kind) {
+            case TOP_RATED -> current.topRated;
+            case MOST_REVIEWED -> current.mostReviewed;
+            case DEALS -> current.deals.get(genre);
+        };
+        if (board == null) {
+            return new Leaderboard(kind, genre, 0, List.of());
+        }
+        Leaderboard snapshot = board.snapshot;
+        if (limit >= snapshot.getGames().size()) {
+            return snapshot;
+        }
+        return new Leaderboard(kind, snapshot.getGenre(), snapshot.getVersion(), snapshot.getGames().subList(0, limit));
+    }
+
+    /**
+     * The fields of a game the leaderboards were last given, to find it again in the sorted sets.
+     */
+    private record Ranked(Leaderboard.Entry entry, List<String> genres) {
+
+        boolean sameAs(Ranked other) {
+            return entry.getTitle().equals(other.entry.getTitle())
+                    && entry.getPrice() == other.entry.getPrice()
+                    && entry.getRating() == other.entry.getRating()
+                    && entry.getReviews() == other.entry.getReviews()
+                    && genres.equals(other.genres);
+        }
+    }
+
+    /**
+     * Every leaderboard, and the games they hold. Only changed under the write lock.
+     */
+    private final class Boards {
+
+        private final Map<String, Ranked> games = new HashMap<>();
+
+        private final Board topRated = new Board(Leaderboard.Kind.TOP_RATED, null, BY_RATING);
+
+        private final Board mostReviewed = new Board(Leaderboard.Kind.MOST_REVIEWED, null, BY_REVIEWS);
+
+        private final Map<String, Board> deals = new ConcurrentHashMap<>();
+
+        private void put(Game game) {
+            Ranked previous = games.get(game.getId());
+            // Review statistics are written by the review writes only, so a game sent without them keeps its count
+            long reviews = game.getReviewStats() != null ? game.getReviewStats().getCount()
+                    : previous != null ? previous.entry().getReviews() : 0;
+            Leaderboard.Entry entry = new Leaderboard.Entry(game.getId(), game.getTitle() == null ? "" : game.getTitle(),
+                    game.getPrice(), game.getRating(), reviews);
+            List<String> genres = game.getGenres() == null ? List.of()
+                    : game.getGenres().stream().filter(Objects::nonNull).distinct().toList();
+            replace(previous, new Ranked(entry, genres));
+        }
+
+        private void remove(String gameId) {
+            replace(games.get(gameId), null);
+        }
+
+        private void addReviews(String gameId, long count) {
+            Ranked previous = games.get(gameId);
+            if (previous == null || count == 0) {
+                return;
+            }
+            Leaderboard.Entry entry = previous.entry();
+            replace(previous, new Ranked(new Leaderboard.Entry(entry.getId(), entry.getTitle(), entry.getPrice(),
+                    entry.getRating(), entry.getReviews() + count), previous.genres()));
+        }
+
+        private void replace(Ranked previous, Ranked next) {
+            if (previous != null && next != null && previous.sameAs(next)) {
+                // Events may be delivered twice, and most updates do not touch the ranked fields
+                return;
+            }
+            if (previous != null) {
+                games.remove(previous.entry().getId());
+                topRated.remove(previous.entry());
+                mostReviewed.remove(previous.entry());
+                for (String genre : previous.genres()) {
+                    deals.get(genre).remove(previous.entry());
+                }
+            }
+            if (next != null) {
+                games.put(next.entry().getId(), next);
+                topRated.add(next.entry());
+                mostReviewed.add(next.entry());
+                for (String genre : next.genres()) {
+                    deals.computeIfAbsent(genre, key -> new Board(Leaderboard.Kind.DEALS, key, BY_PRICE))
+                            .add(next.entry());
+                }
+            }
+        }
+
+        private void publish(boolean all) {
+            topRated.publish(all);
+            mostReviewed.publish(all);
+            deals.values().forEach(board -> board.publish(all));
+        }
+    }
+
+    /**
+     * One leaderboard: every game in order, and the published snapshot of the first of them.
+     */
+    private final class Board {
+
+        private final Leaderboard.Kind kind;
+
+        private final String genre;
+
+        private final Comparator<Leaderboard.Entry> order;
+
+        private final NavigableSet<Leaderboard.Entry> ranked;
+
+        private volatile Leaderboard snapshot;
+
+        private boolean changed = true;
+
+        private Board(Leaderboard.Kind kind, String genre, Comparator<Leaderboard.Entry> order) {
+            this.kind = kind;
+            this.genre = genre;
+            this.order = order;
+            this.ranked = new TreeSet<>(order);
+            this.snapshot = new Leaderboard(kind, genre, 0, List.of());
+        }
+
+        private void add(Leaderboard.Entry entry) {
+            changed |= inSnapshot(entry);
+            ranked.add(entry);
+        }
+
+        private void remove(Leaderboard.Entry entry) {
+            changed |= inSnapshot(entry);
+            ranked.remove(entry);
+        }
+
+        /**
+         * @return true if the entry is, or would be, one of the games of the snapshot
+         */
+        private boolean inSnapshot(Leaderboard.Entry entry) {
+            List<Leaderboard.Entry> games = snapshot.getGames();
+            return games.size() < size || order.compare(entry, games.get(games.size() - 1)) <= 0;
+        }
+
+        private void publish(boolean all) {
+            if (!changed && !all) {
+                return;
+            }
+            List<Leaderboard.Entry> first = new ArrayList<>(Math.min(size, ranked.size()));
+            Iterator<Leaderboard.Entry> it = ranked.iterator();
+            while (it.hasNext() && first.size() < size) {
+                first.add(it.next());
+            }
+            snapshot = new Leaderboard(kind, genre, versions.incrementAndGet(), List.copyOf(first));
+            changed = false;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.lukcm.gameshopapi.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtException;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+
+/**
+ * @author Max_MacKoul
+ *
+ * Remembers the tokens another JwtDecoder has validated, so that a client sending the same token with every
+ * request pays for the signature check and the claim parsing once. Tokens are keyed by their SHA-256 hash and
+ * stay cached until they expire, or for the TTL when that comes first. Tokens that fail validation are not
+ * cached.
+ *
+ * A cached token is not checked against the JWK set again, so a token signed with a key the issuer has since
+ * withdrawn is accepted for at most the TTL.
+ */
+public class CachingJwtDecoder implements JwtDecoder {
+
+    private final JwtDecoder delegate;
+
+    private final Clock clock;
+
+    private final Cache<String, Jwt> cache;
+
+    /**
+     * Constructor for the CachingJwtDecoder.
+     *
+     * @param delegate validates the tokens that are not cached
+     * @param maximumSize the maximum number of cached tokens
+     * @param ttl the longest a token stays cached
+     * @param clock the clock the expiry of the tokens is compared to
+     */
+    public CachingJwtDecoder(JwtDecoder delegate, long maximumSize, Duration ttl, Clock clock) {
+        this.delegate = delegate;
+        this.clock = clock;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new Expiry<String, Jwt>() {
+                    @Override
+                    public long expireAfterCreate(String hash, Jwt jwt, long currentTime) {
+                        if (jwt.getExpiresAt() == null) {
+                            return ttl.toNanos();
+                        }
+                        Duration remaining = Duration.between(clock.instant(), jwt.getExpiresAt());
+                        return Math.max(0, Math.min(remaining.toNanos(), ttl.toNanos()));
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String hash, Jwt jwt, long currentTime, long currentDuration) {
+                        return expireAfterCreate(hash, jwt, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String hash, Jwt jwt, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+    }
+
+    @Override
+    public Jwt decode(String token) throws JwtException {
+        String hash = hash(token);
+        Jwt jwt = cache.getIfPresent(hash);
+        if (jwt != null && (jwt.getExpiresAt() == null || jwt.getExpiresAt().isAfter(clock.instant()))) {
+            return jwt;
+        }
+        jwt = delegate.decode(token);
+        cache.put(hash, jwt);
+        return jwt;
+    }
+
+    /**
+     * @return the cache of validated tokens, for metrics
+     */
+    public Cache<String, Jwt> getCache() {
+        return cache;
+    }
+
+    private static String hash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 is not available", ex);
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.lukcm.gameshopapi.security;
+
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.source.ImmutableJWKSet;
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.proc.JWSVerificationKeySelector;
+import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jwt.proc.DefaultJWTProcessor;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.security.oauth2.resource.OAuth2ResourceServerProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.Resource;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtDecoders;
+import org.springframework.security.oauth2.jwt.JwtValidators;
+import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
+import org.springframework.security.oauth2.jwt.ReactiveJwtDecoder;
+import org.springframework.util.StringUtils;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.InputStream;
+import java.net.URL;
+import java.security.KeyFactory;
+import java.security.interfaces.RSAPublicKey;
+import java.security.spec.X509EncodedKeySpec;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Base64;
+
+/**
+ * @author Max_MacKoul
+ *
+ * The JwtDecoder validating the bearer tokens of both variants of the API, in place of the one Spring Boot
+ * would create. The keys come from the first of these that is set:
+ * <ul>
+ *     <li>gameshop.security.jwt.jwk-set-location - a local JWK set file, e.g. file:/etc/gameshop/jwks.json</li>
+ *     <li>spring.security.oauth2.resourceserver.jwt.public-key-location - a local RSA public key in PEM format</li>
+ *     <li>spring.security.oauth2.resourceserver.jwt.jwk-set-uri - the JWK set of the issuer, fetched in the
+ *     background every gameshop.security.jwt.jwk-set-refresh-interval (default 5m), see RefreshingJwkSource.
+ *     The fetches run on a thread of their own, jwk-refresh-1, rather than on the single thread of the
+ *     application's TaskScheduler: a long stock sweep or analytics refresh must not delay a key rotation, and
+ *     a slow issuer must not delay them.</li>
+ *     <li>spring.security.oauth2.resourceserver.jwt.issuer-uri - the issuer, whose metadata is read at startup
+ *     to find its JWK set</li>
+ * </ul>
+ * The local files let the API start and validate tokens without any network access, e.g. against the keys of a
+ * stand-in issuer in tests. When issuer-uri is set, the iss claim of every token must match it.
+ *
+ * Validated tokens are cached by CachingJwtDecoder unless gameshop.security.jwt.cache.enabled is false:
+ * <ul>
+ *     <li>gameshop.security.jwt.cache.maximum-size - the maximum number of cached tokens (default 10000)</li>
+ *     <li>gameshop.security.jwt.cache.ttl - the longest a token stays cached (default 5m)</li>
+ * </ul>
+ */
+@Configuration(proxyBeanMethods = false)
+public class JwtDecoderConfig {
+
+    @Bean
+    public JwtDecoder jwtDecoder(OAuth2ResourceServerProperties properties, MeterRegistry meterRegistry,
+                                 @Value("${gameshop.security.jwt.jwk-set-location:#{null}}") Resource jwkSetLocation,
+                                 @Value("${gameshop.security.jwt.jwk-set-refresh-interval:5m}")
+                                 Duration refreshInterval,
+                                 @Value("${gameshop.security.jwt.cache.enabled:true}") boolean cacheEnabled,
+                                 @Value("${gameshop.security.jwt.cache.maximum-size:10000}") long cacheMaximumSize,
+                                 @Value("${gameshop.security.jwt.cache.ttl:5m}") Duration cacheTtl)
+            throws Exception {
+        OAuth2ResourceServerProperties.Jwt jwt = properties.getJwt();
+        JwtDecoder decoder;
+        if (jwkSetLocation != null) {
+            try (InputStream in = jwkSetLocation.getInputStream()) {
+                decoder = nimbusDecoder(new ImmutableJWKSet<>(JWKSet.load(in)), jwt);
+            }
+        } else if (jwt.getPublicKeyLocation() != null) {
+            decoder = nimbusDecoder(new ImmutableJWKSet<>(new JWKSet(new RSAKey.Builder(readPublicKey(jwt)).build())),
+                    jwt);
+        } else if (StringUtils.hasText(jwt.getJwkSetUri())) {
+            decoder = nimbusDecoder(new RefreshingJwkSource(new URL(jwt.getJwkSetUri()), refreshInterval,
+                    jwkRefreshScheduler()), jwt);
+        } else if (StringUtils.hasText(jwt.getIssuerUri())) {
+            decoder = JwtDecoders.fromIssuerLocation(jwt.getIssuerUri());
+        } else {
+            throw new IllegalStateException("Set gameshop.security.jwt.jwk-set-location or one of "
+                    + "spring.security.oauth2.resourceserver.jwt.public-key-location, jwk-set-uri or issuer-uri");
+        }
+
+        if (!cacheEnabled) {
+            return decoder;
+        }
+        CachingJwtDecoder cachingDecoder = new CachingJwtDecoder(decoder, cacheMaximumSize, cacheTtl,
+                Clock.systemUTC());
+        CaffeineCacheMetrics.monitor(meterRegistry, cachingDecoder.getCache(), "jwt");
+        return cachingDecoder;
+    }
+
+    /**
+     * The reactive variant validates tokens with the same decoder. A token the cache does not hold may block on
+     * the issuer, to discover it when only issuer-uri is set or to fetch its keys, so decoding runs on the bounded
+     * elastic scheduler rather than on the event loop.
+     */
+    @Bean
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+    public ReactiveJwtDecoder reactiveJwtDecoder(JwtDecoder jwtDecoder) {
+        return token -> Mono.fromCallable(() -> jwtDecoder.decode(token)).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    /**
+     * Not a bean: a second TaskScheduler bean would make Spring Boot drop the one the @Scheduled methods run
+     * on. Its thread is a daemon, so it does not hold up the shutdown of the JVM.
+     */
+    private static ThreadPoolTaskScheduler jwkRefreshScheduler() {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(1);
+        scheduler.setThreadNamePrefix("jwk-refresh-");
+        scheduler.setDaemon(true);
+        scheduler.initialize();
+        return scheduler;
+    }
+
+    private static JwtDecoder nimbusDecoder(JWKSource<SecurityContext> keys, OAuth2ResourceServerProperties.Jwt jwt) {
+        DefaultJWTProcessor<SecurityContext> processor = new DefaultJWTProcessor<>();
+        processor.setJWSKeySelector(new JWSVerificationKeySelector<>(JWSAlgorithm.parse(jwt.getJwsAlgorithm()), keys));
+        NimbusJwtDecoder decoder = new NimbusJwtDecoder(processor);
+        decoder.setJwtValidator(!StringUtils.hasText(jwt.getIssuerUri())
+                ? JwtValidators.createDefault()
+                : JwtValidators.createDefaultWithIssuer(jwt.getIssuerUri()));
+        return decoder;
+    }
+
+    private static RSAPublicKey readPublicKey(OAuth2ResourceServerProperties.Jwt jwt) throws Exception {
+        String pem = jwt.readPublicKey()
+                .replace("-----BEGIN PUBLIC KEY-----", "")
+                .replace("-----END PUBLIC KEY-----", "")
+                .replaceAll("\\s+", "");
+        return (RSAPublicKey) KeyFactory.getInstance("RSA")
+                .generatePublic(new X509EncodedKeySpec(Base64.getDecoder().decode(pem)));
+    }
+}
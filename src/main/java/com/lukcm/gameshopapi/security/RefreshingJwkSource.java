@@ -0,0 +1,124 @@
+package com.lukcm.gameshopapi.security;
+
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSelector;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.jwk.source.RemoteJWKSet;
+import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jose.util.DefaultResourceRetriever;
+import com.nimbusds.jose.util.ResourceRetriever;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.scheduling.TaskScheduler;
+
+import java.io.IOException;
+import java.net.URL;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @author Max_MacKoul
+ *
+ * The keys of a remote JWK set, fetched in the background so that validating a token never waits on the
+ * issuer. The set is fetched as soon as the source is created and then again after every refresh interval.
+ *
+ * A token signed with a key ID that is not in the set, typically right after the issuer rotated its keys,
+ * is rejected, and a refresh is started for the tokens that follow. Those refreshes happen at most once every
+ * {@link #MIN_REFRESH_INTERVAL} after the last successful fetch or the last such refresh, and never while a
+ * fetch is running, so tokens with made-up key IDs cannot flood the issuer. When a refresh fails the previous
+ * keys are kept; if the first fetch fails, the next token with a key ID starts a refresh right away.
+ */
+public class RefreshingJwkSource implements JWKSource<SecurityContext> {
+
+    private static final Logger logger = LogManager.getLogger(RefreshingJwkSource.class);
+
+    static final Duration MIN_REFRESH_INTERVAL = Duration.ofSeconds(30);
+
+    private final URL jwkSetUrl;
+
+    private final TaskScheduler scheduler;
+
+    private final ResourceRetriever retriever = new DefaultResourceRetriever(
+            RemoteJWKSet.DEFAULT_HTTP_CONNECT_TIMEOUT, RemoteJWKSet.DEFAULT_HTTP_READ_TIMEOUT,
+            RemoteJWKSet.DEFAULT_HTTP_SIZE_LIMIT);
+
+    private volatile JWKSet jwkSet = new JWKSet();
+
+    // When the last fetch succeeded or the last refresh was requested for a token, or MIN_VALUE if neither yet
+    private final AtomicLong lastRefresh = new AtomicLong(Long.MIN_VALUE);
+
+    private volatile boolean fetching;
+
+    /**
+     * Constructor for the RefreshingJwkSource. Schedules the first fetch right away.
+     *
+     * @param jwkSetUrl the URL of the JWK set of the issuer
+     * @param refreshInterval the time between two scheduled fetches
+     * @param scheduler runs the fetches
+     */
+    public RefreshingJwkSource(URL jwkSetUrl, Duration refreshInterval, TaskScheduler scheduler) {
+        this.jwkSetUrl = jwkSetUrl;
+        this.scheduler = scheduler;
+        // Tokens that arrive before the first fetch has completed must not start another one
+        fetching = true;
+        scheduler.scheduleWithFixedDelay(this::refresh, Instant.now(), refreshInterval);
+    }
+
+    @Override
+    public List<JWK> get(JWKSelector jwkSelector, SecurityContext context) {
+        List<JWK> keys = jwkSelector.select(jwkSet);
+        if (keys.isEmpty() && !jwkSelector.getMatcher().getKeyIDs().isEmpty()) {
+            requestRefresh();
+        }
+        return keys;
+    }
+
+    /**
+     * Starts a refresh in the background unless a fetch is running or one was due less than
+     * {@link #MIN_REFRESH_INTERVAL} ago.
+     */
+    private void requestRefresh() {
+        if (fetching) {
+            return;
+        }
+        long now = System.nanoTime();
+        long last = lastRefresh.get();
+        if ((last == Long.MIN_VALUE || now - last >= MIN_REFRESH_INTERVAL.toNanos())
+                && lastRefresh.compareAndSet(last, now)) {
+            scheduler.schedule(this::refresh, Instant.now());
+        }
+    }
+
+    /**
+     * Fetches the JWK set and replaces the current keys with it, or keeps them if the fetch fails.
+     */
+    void refresh() {
+        String methodName = ".refresh";
+        logger.debug("{}: entering method", methodName);
+
+        fetching = true;
+        try {
+            JWKSet fetched = JWKSet.parse(retriever.retrieveResource(jwkSetUrl).getContent());
+            if (!keyIds(fetched).equals(keyIds(jwkSet))) {
+                logger.info("{}: keys of {} are now {}", methodName, jwkSetUrl, keyIds(fetched));
+            }
+            jwkSet = fetched;
+            lastRefresh.set(System.nanoTime());
+        } catch (IOException | ParseException ex) {
+            logger.warn("{}: could not fetch the JWK set from {}, keeping the current keys: {}", methodName, jwkSetUrl,
+                    ex.toString());
+        } finally {
+            fetching = false;
+        }
+
+        logger.debug("{}: exiting method", methodName);
+    }
+
+    private static List<String> keyIds(JWKSet set) {
+        return set.getKeys().stream().map(JWK::getKeyID).toList();
+    }
+}
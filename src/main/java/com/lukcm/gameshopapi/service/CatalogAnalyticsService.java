@@ -0,0 +1,170 @@
+package com.lukcm.gameshopapi.service;
+
+import com.lukcm.gameshopapi.exception.GameServiceException;
+import com.lukcm.gameshopapi.model.CatalogAnalytics;
+import com.lukcm.gameshopapi.repository.CatalogAnalyticsRepository;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Date;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * @author Max_MacKoul
+ *
+ * Computes the catalog analytics with aggregation pipelines run by MongoDB. Each figure can be computed on
+ * demand with the parameters of the request, and a summary holding all of them with the default parameters is
+ * materialized in the catalog_analytics collection every gameshop.analytics.refresh-interval-ms (default 15
+ * minutes), so that dashboards read one document instead of scanning the catalog. Setting
+ * gameshop.analytics.materialize.enabled to false stops the refresh, and the summary is then computed on every
+ * read.
+ */
+@Service
+public class CatalogAnalyticsService {
+
+    private static final Logger logger = LogManager.getLogger(CatalogAnalyticsService.class);
+
+    /** The largest number of games a ranking or a stock-out list may hold. */
+    public static final int MAX_GAMES = 500;
+
+    /** The number of games per genre in the summary. */
+    public static final int SUMMARY_PER_GENRE = 10;
+
+    /** The number of reviews a game needs to be ranked in the summary. */
+    public static final long SUMMARY_MIN_REVIEWS = 5;
+
+    /** The number of games out of stock listed in the summary. */
+    public static final int SUMMARY_STOCK_OUTS = 100;
+
+    private final CatalogAnalyticsRepository analyticsRepository;
+
+    private final RequestCoalescer coalescer;
+
+    private final boolean materialize;
+
+    /**
+     * @param analyticsRepository runs the pipelines and stores the summary
+     * @param coalescer makes concurrent reads of a missing summary compute it once
+     * @param materialize whether the summary is stored and refreshed on a schedule
+     */
+    public CatalogAnalyticsService(CatalogAnalyticsRepository analyticsRepository, RequestCoalescer coalescer,
+                                   @Value("${gameshop.analytics.materialize.enabled:true}") boolean materialize) {
+        this.analyticsRepository = analyticsRepository;
+        this.coalescer = coalescer;
+        this.materialize = materialize;
+    }
+
+    /**
+     * Returns the summary of the catalog, as last materialized. The first read after startup on an empty
+     * collection computes and stores it.
+     *
+     * @return the summary, with the time it was computed
+     */
+    public CatalogAnalytics getSummary() {
+        String methodName = ".getSummary";
+        logger.debug("{}: entering method", methodName);
+
+        try {
+            if (!materialize) {
+                return coalescer.execute("getCatalogSummary", CatalogAnalytics.SUMMARY_ID, this::computeSummary);
+            }
+            return analyticsRepository.findById(CatalogAnalytics.SUMMARY_ID)
+                    .orElseGet(() -> coalescer.execute("getCatalogSummary", CatalogAnalytics.SUMMARY_ID,
+                            () -> analyticsRepository.save(computeSummary())));
+        } catch (DataAccessException ex) {
+            logger.error("{}: Error computing the catalog summary: {}", methodName, ex);
+            throw new GameServiceException("Error computing the catalog summary", ex);
+        } finally {
+            logger.debug("{}: exiting method", methodName);
+        }
+    }
+
+    /**
+     * Recomputes the summary of the catalog and replaces the stored one. Errors are logged, and the previous
+     * summary is served until the next refresh succeeds.
+     */
+    @Scheduled(fixedDelayString = "${gameshop.analytics.refresh-interval-ms:900000}")
+    public void refreshSummary() {
+        String methodName = ".refreshSummary";
+
+        if (!materialize) {
+            return;
+        }
+        try {
+            long start = System.nanoTime();
+            analyticsRepository.save(computeSummary());
+            logger.info("{}: refreshed the catalog summary in {} ms", methodName, (System.nanoTime() - start) / 1_000_000);
+        } catch (DataAccessException ex) {
+            logger.error("{}: Error refreshing the catalog summary: {}", methodName, ex);
+        }
+    }
+
+    /**
+     * Ranks the games of each genre by average review score.
+     *
+     * @param perGenre the number of games per genre, between 1 and {@value #MAX_GAMES}
+     * @param minReviews the number of reviews a game needs to be ranked, at least 1
+     * @return one ranking per genre, in genre order
+     */
+    public List<CatalogAnalytics.GenreRanking> getTopRatedByGenre(int perGenre, long minReviews) {
+        if (perGenre < 1 || perGenre > MAX_GAMES) {
+            throw new IllegalArgumentException("perGenre must be between 1 and " + MAX_GAMES);
+        }
+        if (minReviews < 1) {
+            throw new IllegalArgumentException("minReviews must be at least 1");
+        }
+        return aggregate(".getTopRatedByGenre", () -> analyticsRepository.topRatedByGenre(perGenre, minReviews));
+    }
+
+    /**
+     * @return the number of games and their average, lowest and highest price on each platform
+     */
+    public List<CatalogAnalytics.PlatformPrices> getPriceByPlatform() {
+        return aggregate(".getPriceByPlatform", analyticsRepository::priceByPlatform);
+    }
+
+    /**
+     * @return the number of reviews with each whole-point score over the whole catalog
+     */
+    public List<Long> getReviewScoreDistribution() {
+        return aggregate(".getReviewScoreDistribution", analyticsRepository::reviewScoreDistribution);
+    }
+
+    /**
+     * Finds the games that cannot be sold for lack of stock.
+     *
+     * @param limit the number of games to list, between 1 and {@value #MAX_GAMES}
+     * @return the number of games out of stock, their breakdown by genre and the most reviewed of them
+     */
+    public CatalogAnalytics.StockOuts getStockOuts(int limit) {
+        if (limit < 1 || limit > MAX_GAMES) {
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_GAMES);
+        }
+        return aggregate(".getStockOuts", () -> analyticsRepository.stockOuts(limit));
+    }
+
+    private CatalogAnalytics computeSummary() {
+        return new CatalogAnalytics(CatalogAnalytics.SUMMARY_ID, new Date(),
+                analyticsRepository.topRatedByGenre(SUMMARY_PER_GENRE, SUMMARY_MIN_REVIEWS),
+                analyticsRepository.priceByPlatform(),
+                analyticsRepository.reviewScoreDistribution(),
+                analyticsRepository.stockOuts(SUMMARY_STOCK_OUTS));
+    }
+
+    private <T> T aggregate(String methodName, Supplier<T> pipeline) {
+        logger.debug("{}: entering method", methodName);
+        try {
+            return pipeline.get();
+        } catch (DataAccessException ex) {
+            logger.error("{}: Error running the aggregation: {}", methodName, ex);
+            throw new GameServiceException("Error computing catalog analytics", ex);
+        } finally {
+            logger.debug("{}: exiting method", methodName);
+        }
+    }
+}
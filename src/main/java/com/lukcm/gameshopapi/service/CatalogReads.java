@@ -0,0 +1,67 @@
+package com.lukcm.gameshopapi.service;
+
+import com.lukcm.gameshopapi.dto.FacetFilter;
+import com.lukcm.gameshopapi.dto.FacetedResult;
+import com.lukcm.gameshopapi.dto.Leaderboard;
+import com.lukcm.gameshopapi.exception.CatalogIndexDisabledException;
+import com.lukcm.gameshopapi.exception.CatalogNotReadyException;
+import com.lukcm.gameshopapi.metrics.ResultSizeMetrics;
+import com.lukcm.gameshopapi.search.CatalogFacets;
+import com.lukcm.gameshopapi.search.Leaderboards;
+import org.springframework.data.domain.Sort;
+
+/**
+ * @author Max_MacKoul
+ *
+ * The reads answered from the in-memory catalog indexes alone, shared by GameShopService and
+ * ReactiveGameShopService. They never reach MongoDB, so the reactive service only wraps them in a Mono.
+ */
+final class CatalogReads {
+
+    private final CatalogFacets catalogFacets;
+
+    private final Leaderboards leaderboards;
+
+    private final ResultSizeMetrics resultSizes;
+
+    private final boolean enabled;
+
+    CatalogReads(CatalogFacets catalogFacets, Leaderboards leaderboards, ResultSizeMetrics resultSizes,
+                 boolean enabled) {
+        this.catalogFacets = catalogFacets;
+        this.leaderboards = leaderboards;
+        this.resultSizes = resultSizes;
+        this.enabled = enabled;
+    }
+
+    /**
+     * See GameShopService.getFacetedSearch.
+     *
+     * @throws IllegalArgumentException if a paging or sort parameter is invalid
+     * @throws CatalogIndexDisabledException if the in-memory catalog indexes are disabled
+     * @throws CatalogNotReadyException if the snapshot has not been built yet
+     */
+    FacetedResult facetedSearch(FacetFilter filter, int page, int size, String sortBy, String direction) {
+        GameRequests.checkPage(page, size);
+        boolean ascending = Sort.Direction.fromString(direction).isAscending();
+        GameRequests.checkIndex("facet index", enabled, catalogFacets.isReady());
+
+        FacetedResult result = catalogFacets.search(filter, page, size, sortBy, ascending);
+        resultSizes.record("getFacetedSearch", result.getItems().size());
+        return result;
+    }
+
+    /**
+     * See GameShopService.getLeaderboard.
+     *
+     * @throws IllegalArgumentException if the limit is out of range or the genre is missing
+     * @throws CatalogIndexDisabledException if the in-memory catalog indexes are disabled
+     * @throws CatalogNotReadyException if the leaderboards have not been built yet
+     */
+    Leaderboard leaderboard(Leaderboard.Kind kind, String genre, int limit) {
+        GameRequests.checkIndex("leaderboard index", enabled, leaderboards.isReady());
+        Leaderboard leaderboard = leaderboards.get(kind, genre, limit);
+        resultSizes.record("getLeaderboard", leaderboard.getGames().size());
+        return leaderboard;
+    }
+}
@@ -0,0 +1,242 @@
+package com.lukcm.gameshopapi.service;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.lukcm.gameshopapi.cache.GameCache;
+import com.lukcm.gameshopapi.dto.BulkImportResult;
+import com.lukcm.gameshopapi.event.GameChangedEvent;
+import com.lukcm.gameshopapi.exception.GameServiceException;
+import com.lukcm.gameshopapi.model.Game;
+import com.lukcm.gameshopapi.repository.GameShopRepository;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * @author Max_MacKoul
+ *
+ * Imports games from a request body holding either a JSON array of games or newline-delimited JSON, one game
+ * per line. Games are parsed one at a time and written in unordered bulk upserts of
+ * gameshop.bulk.batch-size games, so memory use depends on the batch size and not on the size of the body.
+ *
+ * Each game is written like POST /api/gameshop would write it: its catalog fields replace those of an
+ * existing game with the same ID and its reviews are kept. Reviews cannot be imported in bulk; records that
+ * carry reviews are reported as failed. A record that cannot be mapped to a game is reported as failed and
+ * the import continues with the next one, while malformed JSON ends the import at that point.
+ */
+@Component
+public class GameBulkImporter {
+
+    private static final Logger logger = LogManager.getLogger(GameBulkImporter.class);
+
+    private final GameShopRepository gameRepository;
+
+    private final GameCache gameCache;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final ObjectReader gameReader;
+
+    private final int batchSize;
+
+    private final int maxErrors;
+
+    public GameBulkImporter(GameShopRepository gameRepository, GameCache gameCache,
+                            ApplicationEventPublisher eventPublisher, ObjectMapper objectMapper,
+                            @Value("${gameshop.bulk.batch-size:1000}") int batchSize,
+                            @Value("${gameshop.bulk.max-errors:100}") int maxErrors) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("gameshop.bulk.batch-size must be positive");
+        }
+        this.gameRepository = gameRepository;
+        this.gameCache = gameCache;
+        this.eventPublisher = eventPublisher;
+        this.gameReader = objectMapper.readerFor(Game.class);
+        this.batchSize = batchSize;
+        this.maxErrors = maxErrors;
+    }
+
+    /**
+     * Imports every game in the body.
+     *
+     * @param body a JSON array of games, or one game per line
+     * @return the number of games inserted, updated and failed, with the failures up to the error limit
+     * @throws IOException if the body cannot be read
+     * @throws GameServiceException if an error occurs during database access
+     */
+    public BulkImportResult importGames(InputStream body) throws IOException {
+        String methodName = ".importGames";
+        logger.debug("{}: entering method", methodName);
+
+        BulkImportResult result = newResult();
+        List<Game> batch = new ArrayList<>(batchSize);
+        List<Integer> batchIndexes = new ArrayList<>(batchSize);
+        int index = 0;
+
+        try (MappingIterator<Game> games = gameReader.readValues(body)) {
+            while (true) {
+                Game game;
+                try {
+                    if (!games.hasNextValue()) {
+                        break;
+                    }
+                    game = games.nextValue();
+                } catch (JsonParseException ex) {
+                    result.recordReceived();
+                    result.recordError(index, null, "Malformed JSON, import stopped: " + ex.getOriginalMessage());
+                    break;
+                } catch (JsonMappingException ex) {
+                    result.recordReceived();
+                    result.recordError(index++, null, ex.getOriginalMessage());
+                    continue;
+                }
+
+                result.recordReceived();
+                if (!admit(game, index, result)) {
+                    index++;
+                    continue;
+                }
+                batch.add(game);
+                batchIndexes.add(index++);
+                if (batch.size() == batchSize) {
+                    write(batch, batchIndexes, result);
+                    batch.clear();
+                    batchIndexes.clear();
+                }
+            }
+        }
+        if (!batch.isEmpty()) {
+            write(batch, batchIndexes, result);
+        }
+
+        logger.info("{}: exiting method, {} received, {} inserted, {} updated, {} failed", methodName,
+                result.getReceived(), result.getInserted(), result.getUpdated(), result.getFailed());
+        return result;
+    }
+
+    /**
+     * Imports games that have already been parsed, used by the reactive variant of the API which decodes the
+     * body itself. The games are written in one bulk upsert, so the list should hold at most
+     * {@link #getBatchSize()} games. This method blocks until the write completes.
+     *
+     * @param games the games to import
+     * @param firstIndex the position of the first game in the body, used to report failures
+     * @param result the summary of the import the games are counted in
+     * @throws GameServiceException if an error occurs during database access
+     */
+    public void importBatch(List<Game> games, int firstIndex, BulkImportResult result) {
+        List<Game> batch = new ArrayList<>(games.size());
+        List<Integer> batchIndexes = new ArrayList<>(games.size());
+        for (int i = 0; i < games.size(); i++) {
+            result.recordReceived();
+            if (admit(games.get(i), firstIndex + i, result)) {
+                batch.add(games.get(i));
+                batchIndexes.add(firstIndex + i);
+            }
+        }
+        if (!batch.isEmpty()) {
+            write(batch, batchIndexes, result);
+        }
+    }
+
+    /**
+     * @return an empty summary honouring gameshop.bulk.max-errors
+     */
+    public BulkImportResult newResult() {
+        return new BulkImportResult(maxErrors);
+    }
+
+    /**
+     * @return the number of games written per bulk upsert, gameshop.bulk.batch-size
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    private static boolean admit(Game game, int index, BulkImportResult result) {
+        if (game.getReviews() != null && !game.getReviews().isEmpty()) {
+            result.recordError(index, game.getId(), "Reviews cannot be imported in bulk");
+            return false;
+        }
+        return true;
+    }
+
+    private void write(List<Game> batch, List<Integer> batchIndexes, BulkImportResult result) {
+        String methodName = ".write";
+
+        BulkWriteResult written;
+        Set<Integer> failed = new HashSet<>();
+        try {
+            written = gameRepository.upsertGames(batch);
+        } catch (BulkOperationException ex) {
+            written = ex.getResult();
+            for (BulkWriteError error : ex.getErrors()) {
+                failed.add(error.getIndex());
+                result.recordError(batchIndexes.get(error.getIndex()), batch.get(error.getIndex()).getId(),
+                        error.getMessage());
+            }
+        } catch (DataAccessException ex) {
+            logger.error("{}: Error writing games to database: {}", methodName, ex);
+            throw new GameServiceException("Error writing games to database", ex);
+        }
+        result.recordWritten(written.getUpserts().size(), written.getMatchedCount());
+
+        List<String> ids = new ArrayList<>(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            if (!failed.contains(i)) {
+                ids.add(batch.get(i).getId());
+                gameCache.invalidate(batch.get(i).getId());
+            }
+        }
+        publishWritten(ids);
+    }
+
+    /**
+     * Publishes the written games as they were stored. The parsed games cannot be published: they lack the
+     * version, the last modification time and the review statistics the database keeps, and hold a stock that
+     * an update ignores. If the games cannot be read back, events without a game make the listeners reload
+     * each of them.
+     */
+    private void publishWritten(List<String> ids) {
+        String methodName = ".publishWritten";
+        if (ids.isEmpty()) {
+            return;
+        }
+
+        Iterable<Game> stored;
+        try {
+            stored = gameRepository.findAllById(ids);
+        } catch (DataAccessException ex) {
+            logger.error("{}: Error reading back {} written games: {}", methodName, ids.size(), ex);
+            ids.forEach(id -> eventPublisher.publishEvent(GameChangedEvent.upserted(id, null, false)));
+            return;
+        }
+        Set<String> found = new HashSet<>();
+        for (Game game : stored) {
+            found.add(game.getId());
+            eventPublisher.publishEvent(GameChangedEvent.upserted(game.getId(), game, false));
+        }
+        for (String id : ids) {
+            if (!found.contains(id)) {
+                // Deleted since it was written
+                eventPublisher.publishEvent(GameChangedEvent.deleted(id, false));
+            }
+        }
+    }
+}
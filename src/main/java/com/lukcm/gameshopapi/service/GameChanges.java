@@ -0,0 +1,54 @@
+package com.lukcm.gameshopapi.service;
+
+import com.lukcm.gameshopapi.cache.GameCache;
+import com.lukcm.gameshopapi.event.GameChangedEvent;
+import com.lukcm.gameshopapi.event.ReviewsAddedEvent;
+import com.lukcm.gameshopapi.model.Game;
+import com.lukcm.gameshopapi.model.ReviewStats;
+import org.springframework.context.ApplicationEventPublisher;
+
+/**
+ * @author Max_MacKoul
+ *
+ * The side effects of a write to a game, shared by GameShopService, ReactiveGameShopService and
+ * ReviewWriteBehind: the eviction of the game from the game cache, then the event that keeps the in-memory
+ * indexes up to date. The listeners of the events run synchronously and may read the database, so these
+ * methods may block; the reactive service calls them on the bounded elastic scheduler.
+ */
+final class GameChanges {
+
+    private final GameCache gameCache;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    GameChanges(GameCache gameCache, ApplicationEventPublisher eventPublisher) {
+        this.gameCache = gameCache;
+        this.eventPublisher = eventPublisher;
+    }
+
+    /**
+     * After a game was added or its catalog fields replaced.
+     */
+    void upserted(Game saved) {
+        gameCache.invalidate(saved.getId());
+        eventPublisher.publishEvent(GameChangedEvent.upserted(saved.getId(), saved, false));
+    }
+
+    /**
+     * After a game was deleted with its reviews and stock buckets.
+     */
+    void deleted(String id) {
+        gameCache.invalidate(id);
+        eventPublisher.publishEvent(GameChangedEvent.deleted(id, false));
+    }
+
+    /**
+     * After reviews were counted in the statistics of a game, whether or not they are stored yet.
+     *
+     * @param delta the statistics of the reviews added
+     */
+    void reviewsAdded(String gameId, ReviewStats delta) {
+        gameCache.invalidate(gameId);
+        eventPublisher.publishEvent(new ReviewsAddedEvent(gameId, delta));
+    }
+}
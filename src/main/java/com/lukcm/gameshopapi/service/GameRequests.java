@@ -0,0 +1,190 @@
+package com.lukcm.gameshopapi.service;
+
+import com.lukcm.gameshopapi.dto.CursorPage;
+import com.lukcm.gameshopapi.exception.CatalogIndexDisabledException;
+import com.lukcm.gameshopapi.exception.CatalogNotReadyException;
+import com.lukcm.gameshopapi.model.Game;
+import com.lukcm.gameshopapi.model.Identifiable;
+import com.lukcm.gameshopapi.model.Review;
+import com.lukcm.gameshopapi.model.ReviewStats;
+import org.bson.types.ObjectId;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * @author Max_MacKoul
+ *
+ * The request rules shared by GameShopService and ReactiveGameShopService: the validation of their parameters
+ * and of incoming reviews, and the keyset paging of the game and review listings. Both services call these
+ * methods before touching the database, so the two variants of the API accept and page exactly the same way.
+ */
+final class GameRequests {
+
+    static final Sort ID_ORDER = Sort.by(Sort.Direction.ASC, "id");
+
+    static final Sort REVIEW_ORDER = Sort.by(Sort.Direction.DESC, "date", "id");
+
+    private GameRequests() {
+    }
+
+    /**
+     * @throws IllegalArgumentException if the size is not between 1 and {@value GameShopService#MAX_PAGE_SIZE}
+     */
+    static void checkSize(String name, int size) {
+        if (size < 1 || size > GameShopService.MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException(name + " must be between 1 and " + GameShopService.MAX_PAGE_SIZE);
+        }
+    }
+
+    /**
+     * @throws IllegalArgumentException if the page is negative or the size is out of range
+     */
+    static void checkPage(int page, int size) {
+        if (page < 0) {
+            throw new IllegalArgumentException("page must not be negative");
+        }
+        checkSize("size", size);
+    }
+
+    /**
+     * @return the IDs without duplicates, in their order
+     * @throws IllegalArgumentException if there are none or more than {@value GameShopService#MAX_BATCH_SIZE}
+     */
+    static Set<String> distinctIds(List<String> ids) {
+        Set<String> distinctIds = new LinkedHashSet<>(ids);
+        if (distinctIds.isEmpty() || distinctIds.size() > GameShopService.MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("ids must hold between 1 and " + GameShopService.MAX_BATCH_SIZE
+                    + " IDs");
+        }
+        return distinctIds;
+    }
+
+    /**
+     * Checks that an in-memory catalog index can answer a request. A disabled index never will, while one
+     * that is not ready will once it has been built.
+     *
+     * @throws CatalogIndexDisabledException if gameshop.search.index.enabled is false
+     * @throws CatalogNotReadyException if the index has not been built yet
+     */
+    static void checkIndex(String index, boolean enabled, boolean ready) {
+        if (!enabled) {
+            throw new CatalogIndexDisabledException(index);
+        }
+        if (!ready) {
+            throw new CatalogNotReadyException(index);
+        }
+    }
+
+    /**
+     * Validates a review before it is written and dates it now when it has no date.
+     *
+     * @throws IllegalArgumentException if the score is outside the 0 to 10 scale
+     */
+    static void prepareReview(Review review) {
+        // Written so that NaN fails too, as a single NaN would make the sum of the statistics NaN for good
+        if (!(review.getScore() >= 0 && review.getScore() <= ReviewStats.MAX_SCORE)) {
+            throw new IllegalArgumentException("score must be between 0 and " + ReviewStats.MAX_SCORE);
+        }
+        if (review.getDate() == null) {
+            review.setDate(new Date());
+        }
+    }
+
+    /**
+     * Validates the reviews sent with a game and detaches them from it, since reviews are stored in the reviews
+     * collection and never with the game.
+     *
+     * @return the reviews of the game, possibly none
+     * @throws IllegalArgumentException if a score is outside the 0 to 10 scale
+     */
+    static List<Review> takeReviews(Game game) {
+        List<Review> reviews = game.getReviews() == null ? List.of() : new ArrayList<>(game.getReviews());
+        reviews.forEach(GameRequests::prepareReview);
+        game.setReviews(null);
+        return reviews;
+    }
+
+    /**
+     * Gives reviews that have been counted in the statistics of their game their ID and game ID, just before
+     * they are stored.
+     */
+    static void assignReviews(String gameId, List<Review> reviews) {
+        for (Review review : reviews) {
+            review.setId(new ObjectId().toHexString());
+            review.setGameId(gameId);
+        }
+    }
+
+    /**
+     * @return the request of a listing page, one item longer than the limit to find out whether there is a
+     * next page without a count query
+     */
+    static Pageable pageOf(int limit, Sort sort) {
+        return PageRequest.of(0, limit + 1, sort);
+    }
+
+    /**
+     * Cuts the items read with {@link #pageOf(int, Sort)} to the limit.
+     *
+     * @param items the items read, at most one more than the limit
+     * @param limit the size of the page
+     * @param key the sort key of an item, from which the cursor of the next page is built
+     * @param <T> the type of the items
+     * @return the page, with a cursor if there are more items
+     */
+    static <T> CursorPage<T> cursorPage(List<T> items, int limit, Function<T, String> key) {
+        if (items.size() <= limit) {
+            return new CursorPage<>(items, null);
+        }
+        List<T> page = items.subList(0, limit);
+        return new CursorPage<>(page, PageCursor.encode(key.apply(page.get(limit - 1))));
+    }
+
+    /**
+     * Cuts a page of games read in ID order. See {@link #cursorPage(List, int, Function)}.
+     */
+    static <T extends Identifiable> CursorPage<T> gamePage(List<T> games, int limit) {
+        return cursorPage(games, limit, Identifiable::getId);
+    }
+
+    /**
+     * Cuts a page of reviews read newest first. See {@link #cursorPage(List, int, Function)}.
+     */
+    static CursorPage<Review> reviewPage(List<Review> reviews, int limit) {
+        return cursorPage(reviews, limit, review -> review.getDate().getTime() + ":" + review.getId());
+    }
+
+    /**
+     * Recovers the date and ID of the last review of the previous page from a cursor of
+     * {@link #reviewPage(List, int)}.
+     *
+     * @throws IllegalArgumentException if the cursor is malformed
+     */
+    static ReviewCursor decodeReviewCursor(String before) {
+        String key = PageCursor.decode(before);
+        int separator = key.indexOf(':');
+        if (separator < 0) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        try {
+            return new ReviewCursor(new Date(Long.parseLong(key.substring(0, separator))),
+                    new ObjectId(key.substring(separator + 1)));
+        } catch (IllegalArgumentException ex) {
+            throw new IllegalArgumentException("Invalid cursor", ex);
+        }
+    }
+
+    /**
+     * The position in the reviews of a game a page of reviews starts after.
+     */
+    record ReviewCursor(Date date, ObjectId id) {
+    }
+}
@@ -0,0 +1,74 @@
+package com.lukcm.gameshopapi.service;
+
+import com.lukcm.gameshopapi.dto.GameBatch;
+import com.lukcm.gameshopapi.exception.GameNotFoundException;
+import com.lukcm.gameshopapi.exception.GameServiceException;
+import com.lukcm.gameshopapi.model.Game;
+import org.apache.logging.log4j.Logger;
+import org.springframework.dao.DataAccessException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * @author Max_MacKoul
+ *
+ * How GameShopService and ReactiveGameShopService assemble what they read and report what went wrong, so that
+ * both variants of the API answer alike: the games of a batch and of a search in the order of their IDs, and
+ * the exceptions, logged the same way, that stand for a missing game and for a database error.
+ */
+final class GameResults {
+
+    private GameResults() {
+    }
+
+    /**
+     * @param ids the IDs asked for, without duplicates
+     * @param found the game with an ID, or null if no game has it
+     * @return the games in the order of their IDs, and the IDs no game has
+     */
+    static GameBatch<Game> batchOf(Set<String> ids, Function<String, Game> found) {
+        List<Game> games = new ArrayList<>(ids.size());
+        List<String> missing = new ArrayList<>();
+        for (String id : ids) {
+            Game game = found.apply(id);
+            if (game != null) {
+                games.add(game);
+            } else {
+                missing.add(id);
+            }
+        }
+        return new GameBatch<>(games, missing);
+    }
+
+    /**
+     * @param ids the IDs in the order to return the games in
+     * @param games the games read, by ID
+     * @param type the representation of the games, a supertype of Game
+     * @return the games in the order of their IDs, without the IDs no game has
+     */
+    static <T> List<T> inOrder(List<String> ids, Map<String, Game> games, Class<T> type) {
+        return ids.stream().map(games::get).filter(Objects::nonNull).map(type::cast).toList();
+    }
+
+    /**
+     * Logs that a game was not found and returns the exception to throw, or to signal, for it.
+     */
+    static GameNotFoundException notFound(Logger logger, String methodName, String gameId) {
+        logger.error("{} Game with ID {} not found", methodName, gameId);
+        return new GameNotFoundException(gameId);
+    }
+
+    /**
+     * Logs a database error and returns the GameServiceException to throw, or to signal, for it.
+     */
+    static GameServiceException serviceException(Logger logger, String methodName, String message,
+                                                 DataAccessException ex) {
+        logger.error("{}: {}: {}", methodName, message, ex);
+        return new GameServiceException(message, ex);
+    }
+}
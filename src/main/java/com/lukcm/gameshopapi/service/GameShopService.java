@@ -1,64 +1,194 @@
 package com.lukcm.gameshopapi.service;
 
+import com.lukcm.gameshopapi.cache.GameCache;
+import com.lukcm.gameshopapi.dto.CursorPage;
+import com.lukcm.gameshopapi.dto.FacetFilter;
+import com.lukcm.gameshopapi.dto.FacetedResult;
+import com.lukcm.gameshopapi.dto.GameBatch;
+import com.lukcm.gameshopapi.dto.GameSearchCriteria;
+import com.lukcm.gameshopapi.dto.GameSummary;
+import com.lukcm.gameshopapi.dto.GameVersion;
+import com.lukcm.gameshopapi.dto.Leaderboard;
+import com.lukcm.gameshopapi.dto.Suggestion;
+import com.lukcm.gameshopapi.exception.CatalogIndexDisabledException;
+import com.lukcm.gameshopapi.exception.CatalogNotReadyException;
+import com.lukcm.gameshopapi.exception.GameNotFoundException;
 import com.lukcm.gameshopapi.exception.GameServiceException;
+import com.lukcm.gameshopapi.exception.ReviewQueueFullException;
+import com.lukcm.gameshopapi.metrics.ResultSizeMetrics;
 import com.lukcm.gameshopapi.model.Game;
+import com.lukcm.gameshopapi.model.Identifiable;
 import com.lukcm.gameshopapi.model.Review;
+import com.lukcm.gameshopapi.model.ReviewStats;
+import com.lukcm.gameshopapi.repository.GameQueries;
 import com.lukcm.gameshopapi.repository.GameShopRepository;
+import com.lukcm.gameshopapi.repository.ReviewRepository;
+import com.lukcm.gameshopapi.repository.StockBucketRepository;
+import com.lukcm.gameshopapi.search.CatalogFacets;
+import com.lukcm.gameshopapi.search.GameSearchIndex;
+import com.lukcm.gameshopapi.search.Leaderboards;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.dao.DataAccessException;
-import org.springframework.data.domain.Example;
-import org.springframework.data.domain.ExampleMatcher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 
-import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.Set;
+import java.util.stream.Stream;
 
 /**
  * @author Max_MacKoul
  *
- * Service layer for handling game-related operations.
+ * Service layer for handling game-related operations. ReactiveGameShopService answers the same operations
+ * without blocking; the steps that do not touch the database live in GameRequests, CatalogReads, GameResults
+ * and GameChanges so that both variants share them.
  */
 @Service
 public class GameShopService {
 
     // Logger for this class
     private static final Logger logger = LogManager.getLogger(GameShopService.class);
+
+    /** The largest page a client may request from a paginated listing. */
+    public static final int MAX_PAGE_SIZE = 500;
+
+    /** The largest number of IDs a batch lookup accepts. */
+    public static final int MAX_BATCH_SIZE = 100;
+
     private final GameShopRepository gameRepository;
 
+    private final ReviewRepository reviewRepository;
+
+    private final StockBucketRepository stockBucketRepository;
+
+    private final ReviewStatsBackfillJob reviewStatsBackfill;
+
+    private final ReviewMigrationJob reviewMigration;
+
+    private final GameCache gameCache;
+
+    private final GameSearchIndex searchIndex;
+
+    private final CatalogReads catalogReads;
+
+    private final GameChanges gameChanges;
+
+    private final ResultSizeMetrics resultSizes;
+
+    private final RequestCoalescer coalescer;
+
+    private final ReviewWriteBehind reviewWriteBehind;
+
     /**
      * Constructor for the GameShopService. Initializes the GameShopRepository.
      *
      * @param gameRepository the repository layer object responsible for database operations
+     * @param reviewRepository the repository of the reviews collection
+     * @param stockBucketRepository the repository of the stock buckets of games in hot-SKU mode
+     * @param reviewStatsBackfill rebuilds review statistics that have not been computed yet
+     * @param reviewMigration moves reviews still embedded in a game into the reviews collection
+     * @param gameCache the cache of games by ID, invalidated on every write
+     * @param searchIndex the in-memory index answering title searches and autocomplete
+     * @param catalogFacets the in-memory columnar snapshot answering faceted searches
+     * @param leaderboards the in-memory leaderboards of the storefront
+     * @param eventPublisher publishes a GameChangedEvent for every game added or deleted, and a ReviewsAddedEvent
+     *                       for every review write
+     * @param resultSizes records the number of items returned by the methods returning lists
+     * @param coalescer collapses concurrent identical reads into one database call
+     * @param reviewWriteBehind queues reviews and writes them in batches, when enabled
+     * @param catalogIndexEnabled whether the in-memory catalog indexes are built, gameshop.search.index.enabled
      */
-    public GameShopService(GameShopRepository gameRepository) {
+    public GameShopService(GameShopRepository gameRepository, ReviewRepository reviewRepository,
+                           StockBucketRepository stockBucketRepository, ReviewStatsBackfillJob reviewStatsBackfill,
+                           ReviewMigrationJob reviewMigration, GameCache gameCache, GameSearchIndex searchIndex,
+                           CatalogFacets catalogFacets, Leaderboards leaderboards,
+                           ApplicationEventPublisher eventPublisher, ResultSizeMetrics resultSizes,
+                           RequestCoalescer coalescer, ReviewWriteBehind reviewWriteBehind,
+                           @Value("${gameshop.search.index.enabled:true}") boolean catalogIndexEnabled) {
         this.gameRepository = gameRepository;
+        this.reviewRepository = reviewRepository;
+        this.stockBucketRepository = stockBucketRepository;
+        this.reviewStatsBackfill = reviewStatsBackfill;
+        this.reviewMigration = reviewMigration;
+        this.gameCache = gameCache;
+        this.searchIndex = searchIndex;
+        this.catalogReads = new CatalogReads(catalogFacets, leaderboards, resultSizes, catalogIndexEnabled);
+        this.gameChanges = new GameChanges(gameCache, eventPublisher);
+        this.resultSizes = resultSizes;
+        this.coalescer = coalescer;
+        this.reviewWriteBehind = reviewWriteBehind;
     }
 
     /**
-     * Retrieves all games from the database.
+     * Retrieves one page of the catalog, ordered by game ID. Pages are fetched by seeking past the last ID of
+     * the previous page, so every page costs the same regardless of how deep the client has paged.
      *
-     * @return a list of all games
+     * @param after the cursor returned with the previous page, or null to fetch the first page
+     * @param limit the maximum number of games to return, between 1 and {@value #MAX_PAGE_SIZE}
+     * @param type the class to read the games into, Game or GameSummary
+     * @param <T> the representation of the games
+     * @return the page of games together with the cursor for the next page
+     * @throws IllegalArgumentException if the limit is out of range or the cursor is malformed
      * @throws GameServiceException if an error occurs during database access
      */
-    public List<Game> getAllGames() {
+    public <T extends Identifiable> CursorPage<T> getAllGames(String after, int limit, Class<T> type) {
         String methodName = ".getAllGames";
-        logger.info("{}: entering method", methodName);
+        logger.debug("{}: entering method", methodName);
+
+        GameRequests.checkSize("limit", limit);
+        Pageable pageable = GameRequests.pageOf(limit, GameRequests.ID_ORDER);
 
         try {
-            return gameRepository.findAll();
+            List<T> games = after == null
+                    ? gameRepository.findAllBy(pageable, type)
+                    : gameRepository.findByIdGreaterThan(PageCursor.decode(after), pageable, type);
+
+            CursorPage<T> page = GameRequests.gamePage(games, limit);
+            resultSizes.record("getAllGames", page.getItems().size());
+            return page;
         } catch (DataAccessException ex) {
-            logger.error("{}: Error fetching games from database: {}", methodName, ex);
-            throw new GameServiceException("Error fetching games from database", ex);
+            throw GameResults.serviceException(logger, methodName, "Error fetching games from database", ex);
         }finally {
-            logger.info("{}: exiting method", methodName);
+            logger.debug("{}: exiting method", methodName);
         }
     }
 
     /**
-     * Retrieves a game by its ID.
+     * Opens a cursor over the whole catalog, ordered by game ID. Games are read from MongoDB in batches as the
+     * stream is consumed, so memory use does not grow with the size of the collection.
+     *
+     * The returned stream holds an open database cursor and must be closed by the caller, preferably with
+     * try-with-resources.
+     *
+     * @param type the class to read the games into, Game or GameSummary
+     * @param <T> the representation of the games
+     * @return a stream over all games
+     * @throws GameServiceException if an error occurs during database access
+     */
+    public <T> Stream<T> streamAllGames(Class<T> type) {
+        String methodName = ".streamAllGames";
+        logger.debug("{}: entering method", methodName);
+
+        try {
+            return gameRepository.streamAllBy(GameRequests.ID_ORDER, type);
+        } catch (DataAccessException ex) {
+            throw GameResults.serviceException(logger, methodName, "Error fetching games from database", ex);
+        }finally {
+            logger.debug("{}: exiting method", methodName);
+        }
+    }
+
+    /**
+     * Retrieves a game by its ID. The game is served from the game cache when possible, and concurrent lookups
+     * of the same ID share one database call.
      *
      * @param id the unique ID of the game
      * @return an Optional containing the game if found, or an empty Optional if not found
@@ -66,87 +196,402 @@ public class GameShopService {
      */
     public Optional<Game> getGameById(String id) {
         String methodName = ".getGameById";
-        logger.info("{}: entering method", methodName);
+        logger.debug("{}: entering method", methodName);
 
         try {
-            return gameRepository.findById(id);
+            return gameCache.get(id, key -> coalescer.execute("getGameById", key, () -> gameRepository.findById(key)));
         } catch (DataAccessException ex) {
-            logger.error("{}: Error fetching game with ID {} from database: {}", methodName, id, ex);
-            throw new GameServiceException("Error fetching game with ID " + id + " from database", ex);
+            throw GameResults.serviceException(logger, methodName,
+                    "Error fetching game with ID " + id + " from database", ex);
         }finally {
-            logger.info("{}: exiting method", methodName);
+            logger.debug("{}: exiting method", methodName);
+        }
+    }
+
+    /**
+     * Retrieves a game by its ID like getGameById, reloading it from the database if the cached copy is older
+     * than the given version. Used after a version lookup, so that the game returned is at least as recent as
+     * the version the caller has seen.
+     *
+     * @param id the unique ID of the game
+     * @param minVersion the version the game must have reached
+     * @return an Optional containing the game if found, or an empty Optional if not found
+     * @throws GameServiceException if an error occurs during database access
+     */
+    public Optional<Game> getGameById(String id, long minVersion) {
+        Optional<Game> game = getGameById(id);
+        if (game.isPresent() && game.get().getVersion() < minVersion) {
+            gameCache.invalidate(id);
+            game = getGameById(id);
+        }
+        return game;
+    }
+
+    /**
+     * Retrieves several games by their IDs. The games found in the game cache are served from it, and all the
+     * others are read with a single query and cached, including the IDs no game has.
+     *
+     * @param ids the IDs of the games, between 1 and {@value #MAX_BATCH_SIZE}; duplicates are looked up once
+     * @return the games in the order of their IDs, and the IDs no game has
+     * @throws IllegalArgumentException if there are no IDs or too many
+     * @throws GameServiceException if an error occurs during database access
+     */
+    public GameBatch<Game> getGamesByIds(List<String> ids) {
+        String methodName = ".getGamesByIds";
+        logger.debug("{}: entering method", methodName);
+
+        Set<String> distinctIds = GameRequests.distinctIds(ids);
+
+        try {
+            Map<String, Optional<Game>> found = gameCache.getAll(distinctIds, this::findGamesByIds);
+            GameBatch<Game> batch = GameResults.batchOf(distinctIds,
+                    id -> found.getOrDefault(id, Optional.empty()).orElse(null));
+            resultSizes.record("getGamesByIds", batch.getGames().size());
+            return batch;
+        } catch (DataAccessException ex) {
+            throw GameResults.serviceException(logger, methodName, "Error fetching games by ID from database", ex);
+        } finally {
+            logger.debug("{}: exiting method", methodName);
+        }
+    }
+
+    private Map<String, Optional<Game>> findGamesByIds(Set<String> ids) {
+        Map<String, Optional<Game>> games = new HashMap<>();
+        for (String id : ids) {
+            games.put(id, Optional.empty());
+        }
+        for (Game game : gameRepository.findAllById(ids)) {
+            games.put(game.getId(), Optional.of(game));
         }
+        return games;
     }
 
     /**
-     * Searches for games by their title.
+     * Retrieves the version and last modification time of a game from the database, without loading the game.
+     * The game cache is bypassed, so the version is that of the latest write, wherever it was made.
+     *
+     * @param id the unique ID of the game
+     * @return an Optional containing the version of the game, or an empty Optional if the game does not exist
+     * @throws GameServiceException if an error occurs during database access
+     */
+    public Optional<GameVersion> getGameVersion(String id) {
+        String methodName = ".getGameVersion";
+        logger.debug("{}: entering method", methodName);
+
+        try {
+            return gameRepository.findVersionById(id);
+        } catch (DataAccessException ex) {
+            throw GameResults.serviceException(logger, methodName,
+                    "Error fetching version of game with ID " + id + " from database", ex);
+        } finally {
+            logger.debug("{}: exiting method", methodName);
+        }
+    }
+
+    /**
+     * Searches for games by their title. Once the search index is built, the words of the query are matched
+     * against the title, developer, publisher and genres of every game in memory and the best matches are
+     * returned first; summaries are then served without querying MongoDB. Until then, the games whose title
+     * contains the query are read from MongoDB. Concurrent identical searches share those reads.
      *
      * @param title the title (or part of the title) to search for
+     * @param limit the maximum number of games to return, between 1 and {@value #MAX_PAGE_SIZE}
+     * @param type the class to read the games into, Game or GameSummary
+     * @param <T> the representation of the games
      * @return a list of games that match the search criteria
+     * @throws IllegalArgumentException if the limit is out of range
      * @throws GameServiceException if an error occurs during database access
      */
-    public List<Game> getGamesByTitle(String title) {
+    public <T> List<T> getGamesByTitle(String title, int limit, Class<T> type) {
         String methodName = ".getGamesByTitle";
-        logger.info("{}: entering method", methodName);
+        logger.debug("{}: entering method", methodName);
+
+        GameRequests.checkSize("limit", limit);
 
         try {
-            return gameRepository.findByTitleContainingIgnoreCase(title);
+            List<T> games;
+            if (searchIndex.isReady()) {
+                List<GameSummary> hits = searchIndex.search(title, limit);
+                if (type.isAssignableFrom(GameSummary.class)) {
+                    games = hits.stream().map(type::cast).toList();
+                } else {
+                    List<String> ids = hits.stream().map(GameSummary::getId).toList();
+                    games = coalescer.execute("getGamesByTitle", List.of(ids, type), () -> getGamesInOrder(ids, type));
+                }
+            } else {
+                String normalizedTitle = Game.normalizeTitle(title);
+                games = coalescer.execute("getGamesByTitle", List.of(normalizedTitle, limit, type),
+                        () -> gameRepository.findByNormalizedTitleContaining(normalizedTitle, type).stream()
+                                .limit(limit)
+                                .toList());
+            }
+            resultSizes.record("getGamesByTitle", games.size());
+            return games;
         }catch (DataAccessException ex) {
-            logger.error("{}: Error fetching title from database: {}", methodName, ex);
-            throw new GameServiceException("Error fetching title from database:", ex);
+            throw GameResults.serviceException(logger, methodName, "Error fetching title from database", ex);
         }finally {
-            logger.info("{}: exiting method", methodName);
+            logger.debug("{}: exiting method", methodName);
         }
     }
 
-    public List<Game> searchGames(String title, String developer, Double minPrice, Double maxPrice, String genre) {
-        // Use Spring Data's ExampleMatcher and Query by Example to create dynamic queries
-        ExampleMatcher matcher = ExampleMatcher.matchingAll()
-                .withMatcher("title", match -> match.ignoreCase().contains())
-                .withMatcher("developer", match -> match.ignoreCase().contains())
-                .withMatcher("genres", match -> match.ignoreCase().contains())
-                .withMatcher("price", match -> match.ignoreCase());
-
-        Game game = new Game();
-        game.setTitle(title);
-        game.setDeveloper(developer);
-        game.setGenres(Collections.singletonList(genre));
+    /**
+     * @return true once the search index is built, after which getGamesByTitle serves summaries from it
+     */
+    public boolean isSearchIndexReady() {
+        return searchIndex.isReady();
+    }
 
-        // For price, since we need to handle ranges, we might need to use a custom query, we can't put it here directly.
-        Example<Game> gameExample = Example.of(game, matcher);
+    /**
+     * Suggests titles completing what the user has typed so far. Suggestions come from the search index, or
+     * from a prefix query on MongoDB until the index is built.
+     *
+     * @param prefix the text typed so far
+     * @param limit the maximum number of suggestions to return, between 1 and {@value #MAX_PAGE_SIZE}
+     * @return the suggestions, best first
+     * @throws IllegalArgumentException if the limit is out of range
+     * @throws GameServiceException if an error occurs during database access
+     */
+    public List<Suggestion> autocomplete(String prefix, int limit) {
+        String methodName = ".autocomplete";
+        logger.debug("{}: entering method", methodName);
 
-        // Fetch all games that match the Example
-        List<Game> games = gameRepository.findAll(gameExample);
+        GameRequests.checkSize("limit", limit);
 
-        // Filter the results by price range
-        if(minPrice != null || maxPrice != null) {
-            games = games.stream()
-                    .filter(g -> (minPrice == null || g.getPrice() >= minPrice) && (maxPrice == null || g.getPrice() <= maxPrice))
-                    .collect(Collectors.toList());
+        try {
+            List<Suggestion> suggestions = searchIndex.isReady()
+                    ? searchIndex.autocomplete(prefix, limit)
+                    : gameRepository.findByNormalizedTitleStartingWith(Game.normalizeTitle(prefix.trim()),
+                                    PageRequest.of(0, limit, Sort.by("normalizedTitle")), GameSummary.class).stream()
+                            .map(game -> new Suggestion(game.getId(), game.getTitle()))
+                            .toList();
+            resultSizes.record("autocomplete", suggestions.size());
+            return suggestions;
+        } catch (DataAccessException ex) {
+            throw GameResults.serviceException(logger, methodName, "Error fetching suggestions from database", ex);
+        } finally {
+            logger.debug("{}: exiting method", methodName);
         }
+    }
 
-        return games;
+    /**
+     * Runs a faceted search over the in-memory catalog snapshot. The page of games and the counts of every
+     * facet value are computed together, without querying MongoDB.
+     *
+     * @param filter the selected facet values and price range
+     * @param page the zero-based index of the page to return
+     * @param size the maximum number of games to return, between 1 and {@value #MAX_PAGE_SIZE}
+     * @param sortBy the key to sort on, title, price or rating
+     * @param direction the direction of the sort, asc or desc
+     * @return the page of games, the total number of matches and the facet counts
+     * @throws IllegalArgumentException if a paging or sort parameter is invalid
+     * @throws CatalogIndexDisabledException if the in-memory catalog indexes are disabled
+     * @throws CatalogNotReadyException if the snapshot has not been built yet
+     */
+    public FacetedResult getFacetedSearch(FacetFilter filter, int page, int size, String sortBy, String direction) {
+        String methodName = ".getFacetedSearch";
+        logger.debug("{}: entering method", methodName);
+
+        FacetedResult result = catalogReads.facetedSearch(filter, page, size, sortBy, direction);
+        logger.debug("{}: exiting method", methodName);
+        return result;
+    }
+
+    /**
+     * Returns the first games of a storefront leaderboard from its in-memory snapshot.
+     *
+     * @param kind the leaderboard
+     * @param genre the genre, required for the DEALS leaderboard
+     * @param limit the number of games to return, between 1 and the size of the leaderboards
+     * @return the games, with the version of the snapshot they come from
+     * @throws IllegalArgumentException if the limit is out of range or the genre is missing
+     * @throws CatalogIndexDisabledException if the in-memory catalog indexes are disabled
+     * @throws CatalogNotReadyException if the leaderboards have not been built yet
+     */
+    public Leaderboard getLeaderboard(Leaderboard.Kind kind, String genre, int limit) {
+        String methodName = ".getLeaderboard";
+        logger.debug("{}: entering method", methodName);
+
+        Leaderboard leaderboard = catalogReads.leaderboard(kind, genre, limit);
+        logger.debug("{}: exiting method", methodName);
+        return leaderboard;
+    }
+
+    /**
+     * Loads games by ID and returns them in the order of the IDs.
+     */
+    private <T> List<T> getGamesInOrder(List<String> ids, Class<T> type) {
+        Map<String, Game> games = new HashMap<>();
+        gameRepository.findAllById(ids).forEach(game -> games.put(game.getId(), game));
+        return GameResults.inOrder(ids, games, type);
     }
 
     /**
-     * Adds a new game to the database.
+     * Searches the catalog. Every filter, including the price range, is evaluated by MongoDB, so only matching
+     * games are read and only the requested page is returned.
+     *
+     * @param criteria the search filters; filters that are not set do not restrict the results
+     * @param page the zero-based index of the page to return
+     * @param size the maximum number of games to return, between 1 and {@value #MAX_PAGE_SIZE}
+     * @param sortBy the key to sort on (title, price, rating or releaseDate), or null to sort by ID
+     * @param direction the direction of the sort, asc or desc
+     * @param type the class to read the games into, Game or GameSummary
+     * @param <T> the representation of the games
+     * @return the games of the requested page
+     * @throws IllegalArgumentException if a paging or sort parameter is invalid
+     * @throws GameServiceException if an error occurs during database access
+     */
+    public <T> List<T> searchGames(GameSearchCriteria criteria, int page, int size, String sortBy, String direction,
+                                   Class<T> type) {
+        String methodName = ".searchGames";
+        logger.debug("{}: entering method", methodName);
+
+        GameRequests.checkPage(page, size);
+        Sort sort = GameQueries.sort(sortBy, Sort.Direction.fromString(direction));
+
+        try {
+            List<T> games = gameRepository.search(criteria, PageRequest.of(page, size, sort), type);
+            resultSizes.record("searchGames", games.size());
+            return games;
+        } catch (DataAccessException ex) {
+            throw GameResults.serviceException(logger, methodName, "Error searching games in database", ex);
+        } finally {
+            logger.debug("{}: exiting method", methodName);
+        }
+    }
+
+    /**
+     * Adds a new game to the database, or replaces the catalog fields of an existing one. The reviews and the
+     * stock of an existing game are kept; reviews included in the request are added to them, and the stock
+     * of an existing game is changed through StockService.
      *
      * @param game the Game object to add
      * @return the saved Game object
+     * @throws IllegalArgumentException if a review score is outside the 0 to 10 scale
      * @throws GameServiceException if an error occurs during database access
      */
     public Game addGame(Game game) {
-        String methodName = ".getGameById";
-        logger.info("{}: entering method", methodName);
+        String methodName = ".addGame";
+        logger.debug("{}: entering method", methodName);
+
+        List<Review> reviews = GameRequests.takeReviews(game);
 
         try {
-            logger.info("{}: exiting method", methodName);
-            return gameRepository.save(game);
+            Game saved = gameRepository.upsertGame(game);
+            if (!reviews.isEmpty()) {
+                writeReviews(saved.getId(), reviews);
+                saved = gameRepository.findById(saved.getId()).orElse(saved);
+            }
+            gameChanges.upserted(saved);
+            return saved;
         }catch (DataAccessException ex) {
-            logger.error("Error fetching games from database", ex);
-            throw new GameServiceException("Error saving game to database", ex);
+            throw GameResults.serviceException(logger, methodName, "Error saving game to database", ex);
         }finally {
-            logger.info("{}: exiting method", methodName);
+            logger.debug("{}: exiting method", methodName);
+        }
+    }
+
+    /**
+     * Adds a review to a game. The review is counted in the game's review statistics before it is stored in
+     * the reviews collection, so a game that does not exist never receives reviews.
+     *
+     * @param gameId the ID of the game being reviewed
+     * @param review the review to add; its date defaults to now when missing
+     * @return the stored review
+     * @throws IllegalArgumentException if the score is outside the 0 to 10 scale
+     * @throws GameNotFoundException if the game with the specified ID does not exist in the database
+     * @throws GameServiceException if an error occurs during database access
+     */
+    public Review addReview(String gameId, Review review) {
+        String methodName = ".addReview";
+        logger.debug("{}: entering method", methodName);
+
+        GameRequests.prepareReview(review);
+
+        try {
+            writeReviews(gameId, List.of(review));
+            return review;
+        } catch (DataAccessException ex) {
+            throw GameResults.serviceException(logger, methodName,
+                    "Error saving review for game with ID " + gameId, ex);
+        } finally {
+            logger.debug("{}: exiting method", methodName);
+        }
+    }
+
+    /**
+     * @return true if reviews are queued by submitReview and written in batches
+     */
+    public boolean isReviewWriteBehind() {
+        return reviewWriteBehind.isEnabled();
+    }
+
+    /**
+     * Queues a review to be written with the next batch. The game is looked up first, from the game cache when
+     * possible, so that reviews of unknown games are still refused synchronously.
+     *
+     * @param gameId the ID of the game being reviewed
+     * @param review the review to add; its date defaults to now when missing
+     * @return the review as it will be stored, with its ID
+     * @throws IllegalArgumentException if the score is outside the 0 to 10 scale
+     * @throws GameNotFoundException if the game with the specified ID does not exist in the database
+     * @throws ReviewQueueFullException if too many reviews are waiting to be written
+     */
+    public Review submitReview(String gameId, Review review) {
+        String methodName = ".submitReview";
+        logger.debug("{}: entering method", methodName);
+
+        GameRequests.prepareReview(review);
+        if (getGameById(gameId).isEmpty()) {
+            throw GameResults.notFound(logger, methodName, gameId);
+        }
+        Review queued = reviewWriteBehind.submit(gameId, review);
+        logger.debug("{}: exiting method", methodName);
+        return queued;
+    }
+
+    /**
+     * Retrieves one page of the reviews of a game, newest first. Pages are fetched by seeking past the date
+     * and ID of the last review of the previous page.
+     *
+     * @param gameId the ID of the game
+     * @param before the cursor returned with the previous page, or null to fetch the first page
+     * @param limit the maximum number of reviews to return, between 1 and {@value #MAX_PAGE_SIZE}
+     * @return the page of reviews together with the cursor for the next page
+     * @throws IllegalArgumentException if the limit is out of range or the cursor is malformed
+     * @throws GameNotFoundException if the game with the specified ID does not exist in the database
+     * @throws GameServiceException if an error occurs during database access
+     */
+    public CursorPage<Review> getReviews(String gameId, String before, int limit) {
+        String methodName = ".getReviews";
+        logger.debug("{}: entering method", methodName);
+
+        GameRequests.checkSize("limit", limit);
+        Pageable pageable = GameRequests.pageOf(limit, GameRequests.REVIEW_ORDER);
+
+        try {
+            List<Review> reviews;
+            if (before == null) {
+                // Reviews the migration has not reached yet would be missing from the collection
+                if (gameRepository.hasEmbeddedReviews(gameId)) {
+                    reviewMigration.migrate(gameId);
+                }
+                reviews = reviewRepository.findByGameId(gameId, pageable);
+                if (reviews.isEmpty() && !gameRepository.existsById(gameId)) {
+                    throw GameResults.notFound(logger, methodName, gameId);
+                }
+            } else {
+                GameRequests.ReviewCursor cursor = GameRequests.decodeReviewCursor(before);
+                reviews = reviewRepository.findByGameIdBefore(gameId, cursor.date(), cursor.id(), pageable);
+            }
+
+            CursorPage<Review> page = GameRequests.reviewPage(reviews, limit);
+            resultSizes.record("getReviews", page.getItems().size());
+            return page;
+        } catch (DataAccessException ex) {
+            throw GameResults.serviceException(logger, methodName,
+                    "Error fetching reviews of game with ID " + gameId, ex);
+        } finally {
+            logger.debug("{}: exiting method", methodName);
         }
     }
 
@@ -157,32 +602,18 @@ public class GameShopService {
      *
      * @return The average review score of the game. If the game has no reviews, it returns 0.0.
      *
-     * @throws RuntimeException If the game with the specified ID does not exist in the database.
-     *
-     * This method works by first retrieving the game from the repository. If the game is found,
-     * it fetches the list of reviews for the game and calculates the average score. The average
-     * is calculated by converting each review to its score using a stream, calculating the average
-     * of these scores, and then returning this average. If there are no reviews, it defaults to 0.0.
+     * @throws GameNotFoundException If the game with the specified ID does not exist in the database.
      *
-     * If the game does not exist, a runtime exception is thrown.
+     * This method reads only the pre-aggregated review statistics of the game, so its cost does not depend on
+     * the number of reviews. Statistics that have not been built yet are rebuilt from the reviews first.
      */
     public double getAverageScore(String gameId) {
         String methodName = ".getAverageScore";
-        logger.info("{}: entering method", methodName);
-        Optional<Game> gameOptional = gameRepository.findById(gameId);
+        logger.debug("{}: entering method", methodName);
 
-        if (gameOptional.isPresent()) {
-            logger.info("{}: gameOptional is present", methodName);
-            List<Review> reviews = gameOptional.get().getReviews();
-            logger.info("{}: exiting method", methodName);
-            return reviews.stream()
-                    .mapToDouble(Review::getScore)
-                    .average()
-                    .orElse(0.0);  // default value if no reviews
-        } else {
-            logger.error( "{} Game with ID {} not found", methodName,gameId);
-            throw new RuntimeException("Error: Game with ID " + gameId + " not found");
-        }
+        ReviewStats stats = getReviewStats(methodName, gameId);
+        logger.debug("{}: exiting method", methodName);
+        return stats.average();
     }
 
     /**
@@ -190,20 +621,53 @@ public class GameShopService {
      *
      * @param gameId the ID of the game
      * @return the total number of reviews
-     * @throws RuntimeException if no game with the provided ID is found
+     * @throws GameNotFoundException if no game with the provided ID is found
      */
     public int getTotalReviews(String gameId) {
         String methodName = ".getTotalReviews";
-        logger.info("{}: entering method", methodName);
-        Optional<Game> gameOptional = gameRepository.findById(gameId);
+        logger.debug("{}: entering method", methodName);
+
+        ReviewStats stats = getReviewStats(methodName, gameId);
+        logger.debug("{}: exiting method", methodName);
+        return (int) stats.getCount();
+    }
 
-        if (gameOptional.isPresent()) {
-            List<Review> reviews = gameOptional.get().getReviews();
-            logger.info("{}: exiting method", methodName);
-            return reviews.size();
-        } else {
-            logger.error( "{} Game with ID {} not found", methodName,gameId);
-            throw new RuntimeException("Error: Game with ID " + gameId + " not found");
+    /**
+     * Counts the reviews in the statistics of the game, then stores them. Counting first means a failure in
+     * between leaves the statistics ahead of the reviews, which the next rebuild corrects, and never leaves
+     * stored reviews without a game.
+     */
+    private void writeReviews(String gameId, List<Review> reviews) {
+        ReviewStats delta = ReviewStats.of(reviews);
+        if (!gameRepository.incrementReviewStats(gameId, delta)) {
+            // Either the game does not exist or its statistics have not been built yet
+            if (reviewStatsBackfill.rebuild(gameId).isEmpty() || !gameRepository.incrementReviewStats(gameId, delta)) {
+                throw GameResults.notFound(logger, ".writeReviews", gameId);
+            }
+        }
+        gameChanges.reviewsAdded(gameId, delta);
+        GameRequests.assignReviews(gameId, reviews);
+        reviewRepository.insert(reviews);
+    }
+
+    private ReviewStats getReviewStats(String methodName, String gameId) {
+        try {
+            Optional<Game> gameOptional = coalescer.execute("getReviewStats", gameId,
+                    () -> gameRepository.findReviewStatsById(gameId));
+
+            if (gameOptional.isEmpty()) {
+                throw GameResults.notFound(logger, methodName, gameId);
+            }
+            ReviewStats stats = gameOptional.get().getReviewStats();
+            if (stats != null) {
+                return stats;
+            }
+            logger.info("{}: review statistics of game {} missing, rebuilding", methodName, gameId);
+            return reviewStatsBackfill.rebuild(gameId)
+                    .orElseThrow(() -> GameResults.notFound(logger, methodName, gameId));
+        } catch (DataAccessException ex) {
+            throw GameResults.serviceException(logger, methodName,
+                    "Error fetching review statistics of game with ID " + gameId, ex);
         }
     }
 
@@ -212,10 +676,24 @@ public class GameShopService {
      * findByPriceBetween method.
      * @param lowerBound The minimum price of the games.
      * @param upperBound The maximum price of the games.
+     * @param type The class to read the games into, Game or GameSummary.
+     * @param <T> The representation of the games.
      * @return A list of games within the specified price range.
+     * @throws GameServiceException if an error occurs during database access
      */
-    public List<Game> getGamesByPriceRange(double lowerBound, double upperBound) {
-        return gameRepository.findByPriceBetween(lowerBound, upperBound);
+    public <T> List<T> getGamesByPriceRange(double lowerBound, double upperBound, Class<T> type) {
+        String methodName = ".getGamesByPriceRange";
+        logger.debug("{}: entering method", methodName);
+
+        try {
+            List<T> games = gameRepository.findByPriceBetween(lowerBound, upperBound, type);
+            resultSizes.record("getGamesByPriceRange", games.size());
+            return games;
+        } catch (DataAccessException ex) {
+            throw GameResults.serviceException(logger, methodName, "Error fetching games by price from database", ex);
+        } finally {
+            logger.debug("{}: exiting method", methodName);
+        }
     }
 
     /**
@@ -226,15 +704,18 @@ public class GameShopService {
      */
     public void deleteGame(String id) {
         String methodName = ".deleteGame";
-        logger.info("{}: entering method", methodName);
+        logger.debug("{}: entering method", methodName);
 
         try {
             gameRepository.deleteById(id);
+            reviewRepository.deleteByGameId(id);
+            stockBucketRepository.deleteByGameId(id);
+            gameChanges.deleted(id);
         }catch (DataAccessException ex) {
-            logger.error("{}: Error deleting game with ID  {} from database", methodName, id, ex);
-            throw new GameServiceException("Error deleting game with ID " + id + " from database", ex);
+            throw GameResults.serviceException(logger, methodName,
+                    "Error deleting game with ID " + id + " from database", ex);
         }finally {
-            logger.info("{}: exiting method", methodName);
+            logger.debug("{}: exiting method", methodName);
         }
     }
 }
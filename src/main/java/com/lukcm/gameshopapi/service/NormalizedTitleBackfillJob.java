@@ -0,0 +1,35 @@
+package com.lukcm.gameshopapi.service;
+
+import com.lukcm.gameshopapi.repository.GameShopRepository;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+/**
+ * @author Max_MacKoul
+ *
+ * Fills in the normalizedTitle of games that were written before the field existed, so that title searches
+ * find them. It runs once at startup and only touches games that are missing the field.
+ */
+@Component
+public class NormalizedTitleBackfillJob implements ApplicationRunner {
+
+    private static final Logger logger = LogManager.getLogger(NormalizedTitleBackfillJob.class);
+
+    private final GameShopRepository gameRepository;
+
+    public NormalizedTitleBackfillJob(GameShopRepository gameRepository) {
+        this.gameRepository = gameRepository;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        String methodName = ".run";
+        logger.debug("{}: entering method", methodName);
+
+        int updated = gameRepository.backfillNormalizedTitles();
+        logger.info("{}: exiting method, {} games updated", methodName, updated);
+    }
+}
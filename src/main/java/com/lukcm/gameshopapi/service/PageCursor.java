@@ -0,0 +1,50 @@
+package com.lukcm.gameshopapi.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * @author Max_MacKoul
+ *
+ * Encodes and decodes the opaque cursor tokens handed out by keyset-paginated listings. A token wraps the
+ * sort key of the last item of a page so that the next page can be fetched with a range query on an index
+ * instead of a skip, which keeps every page equally cheap regardless of how deep the client has paged.
+ */
+public final class PageCursor {
+
+    private static final String PREFIX = "g1:";
+
+    private PageCursor() {
+    }
+
+    /**
+     * Builds the token that points just past the given key.
+     *
+     * @param key the sort key of the last item returned
+     * @return an opaque, URL-safe cursor token
+     */
+    public static String encode(String key) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((PREFIX + key).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Recovers the sort key from a token produced by {@link #encode(String)}.
+     *
+     * @param token the cursor token supplied by the client
+     * @return the sort key wrapped by the token
+     * @throws IllegalArgumentException if the token was not produced by this class
+     */
+    public static String decode(String token) {
+        String decoded;
+        try {
+            decoded = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException ex) {
+            throw new IllegalArgumentException("Invalid cursor: " + token, ex);
+        }
+        if (!decoded.startsWith(PREFIX) || decoded.length() == PREFIX.length()) {
+            throw new IllegalArgumentException("Invalid cursor: " + token);
+        }
+        return decoded.substring(PREFIX.length());
+    }
+}
@@ -0,0 +1,635 @@
+package com.lukcm.gameshopapi.service;
+
+import com.lukcm.gameshopapi.cache.GameCache;
+import com.lukcm.gameshopapi.dto.BulkImportResult;
+import com.lukcm.gameshopapi.dto.CursorPage;
+import com.lukcm.gameshopapi.dto.FacetFilter;
+import com.lukcm.gameshopapi.dto.FacetedResult;
+import com.lukcm.gameshopapi.dto.GameBatch;
+import com.lukcm.gameshopapi.dto.GameSearchCriteria;
+import com.lukcm.gameshopapi.dto.GameSummary;
+import com.lukcm.gameshopapi.dto.GameVersion;
+import com.lukcm.gameshopapi.dto.Leaderboard;
+import com.lukcm.gameshopapi.dto.Suggestion;
+import com.lukcm.gameshopapi.exception.GameNotFoundException;
+import com.lukcm.gameshopapi.exception.GameServiceException;
+import com.lukcm.gameshopapi.metrics.ResultSizeMetrics;
+import com.lukcm.gameshopapi.model.Game;
+import com.lukcm.gameshopapi.model.Identifiable;
+import com.lukcm.gameshopapi.model.Review;
+import com.lukcm.gameshopapi.model.ReviewStats;
+import com.lukcm.gameshopapi.repository.GameQueries;
+import com.lukcm.gameshopapi.repository.ReactiveGameShopRepository;
+import com.lukcm.gameshopapi.repository.ReactiveReviewRepository;
+import com.lukcm.gameshopapi.repository.ReactiveStockBucketRepository;
+import com.lukcm.gameshopapi.search.CatalogFacets;
+import com.lukcm.gameshopapi.search.GameSearchIndex;
+import com.lukcm.gameshopapi.search.Leaderboards;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.codec.DecodingException;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * @author Max_MacKoul
+ *
+ * Non-blocking counterpart of GameShopService, used when the application runs with the reactive profile. Every
+ * method has the same contract as the GameShopService method of the same name: the same validation, the same
+ * exceptions (delivered as error signals), the same MongoDB queries through the reactive repositories, and the
+ * same in-memory search index and facet snapshot. Results are emitted as they are read from the database.
+ * Everything that does not read or write the database is shared with GameShopService rather than copied:
+ * the validation and paging rules in GameRequests, the reads served from the catalog indexes in CatalogReads,
+ * the assembly of results and the error signals in GameResults, and the cache evictions and events that
+ * follow a write in GameChanges. What is left here is the Mono and Flux plumbing around the queries.
+ *
+ * The few steps that are only implemented on the blocking driver are run on the bounded elastic scheduler so
+ * that they never hold up an event loop thread: rebuilding missing review statistics, moving embedded reviews
+ * into the reviews collection and the bulk upserts of an import. So are the evictions from the game cache and
+ * the events published after a write, whose listeners run synchronously and may read the database.
+ * Single-game lookups are not served from the game cache, whose loader is blocking; they always read from
+ * MongoDB.
+ */
+@Service
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveGameShopService {
+
+    // Logger for this class
+    private static final Logger logger = LogManager.getLogger(ReactiveGameShopService.class);
+
+    private final ReactiveGameShopRepository gameRepository;
+
+    private final ReactiveReviewRepository reviewRepository;
+
+    private final ReactiveStockBucketRepository stockBucketRepository;
+
+    private final ReviewStatsBackfillJob reviewStatsBackfill;
+
+    private final ReviewMigrationJob reviewMigration;
+
+    private final GameBulkImporter gameBulkImporter;
+
+    private final GameSearchIndex searchIndex;
+
+    private final CatalogReads catalogReads;
+
+    private final GameChanges gameChanges;
+
+    private final ResultSizeMetrics resultSizes;
+
+    private final ReviewWriteBehind reviewWriteBehind;
+
+    /**
+     * Constructor for the ReactiveGameShopService.
+     *
+     * @param gameRepository the reactive repository of the games collection
+     * @param reviewRepository the reactive repository of the reviews collection
+     * @param stockBucketRepository the reactive repository of the stock buckets of games in hot-SKU mode
+     * @param reviewStatsBackfill rebuilds review statistics that have not been computed yet
+     * @param reviewMigration moves reviews still embedded in a game into the reviews collection
+     * @param gameBulkImporter writes the batches of a bulk import
+     * @param gameCache the cache of games by ID, invalidated on every write for the blocking readers
+     * @param searchIndex the in-memory index answering title searches and autocomplete
+     * @param catalogFacets the in-memory columnar snapshot answering faceted searches
+     * @param leaderboards the in-memory leaderboards of the storefront
+     * @param eventPublisher publishes a GameChangedEvent for every game added or deleted, and a ReviewsAddedEvent
+     *                       for every review write
+     * @param resultSizes records the number of items emitted by the methods returning lists
+     * @param reviewWriteBehind queues reviews and writes them in batches, when enabled
+     * @param catalogIndexEnabled whether the in-memory catalog indexes are built, gameshop.search.index.enabled
+     */
+    public ReactiveGameShopService(ReactiveGameShopRepository gameRepository, ReactiveReviewRepository reviewRepository,
+                                   ReactiveStockBucketRepository stockBucketRepository,
+                                   ReviewStatsBackfillJob reviewStatsBackfill, ReviewMigrationJob reviewMigration,
+                                   GameBulkImporter gameBulkImporter, GameCache gameCache,
+                                   GameSearchIndex searchIndex, CatalogFacets catalogFacets,
+                                   Leaderboards leaderboards, ApplicationEventPublisher eventPublisher,
+                                   ResultSizeMetrics resultSizes, ReviewWriteBehind reviewWriteBehind,
+                                   @Value("${gameshop.search.index.enabled:true}") boolean catalogIndexEnabled) {
+        this.gameRepository = gameRepository;
+        this.reviewRepository = reviewRepository;
+        this.stockBucketRepository = stockBucketRepository;
+        this.reviewStatsBackfill = reviewStatsBackfill;
+        this.reviewMigration = reviewMigration;
+        this.gameBulkImporter = gameBulkImporter;
+        this.searchIndex = searchIndex;
+        this.catalogReads = new CatalogReads(catalogFacets, leaderboards, resultSizes, catalogIndexEnabled);
+        this.gameChanges = new GameChanges(gameCache, eventPublisher);
+        this.resultSizes = resultSizes;
+        this.reviewWriteBehind = reviewWriteBehind;
+    }
+
+    /**
+     * Retrieves one page of the catalog, ordered by game ID. See GameShopService.getAllGames.
+     *
+     * @param after the cursor returned with the previous page, or null to fetch the first page
+     * @param limit the maximum number of games to return, between 1 and {@value GameShopService#MAX_PAGE_SIZE}
+     * @param type the class to read the games into, Game or GameSummary
+     * @param <T> the representation of the games
+     * @return the page of games together with the cursor for the next page
+     */
+    public <T extends Identifiable> Mono<CursorPage<T>> getAllGames(String after, int limit, Class<T> type) {
+        String methodName = ".getAllGames";
+        logger.debug("{}: entering method", methodName);
+
+        GameRequests.checkSize("limit", limit);
+        Pageable pageable = GameRequests.pageOf(limit, GameRequests.ID_ORDER);
+        Flux<T> games = after == null
+                ? gameRepository.findAllBy(pageable, type)
+                : gameRepository.findByIdGreaterThan(PageCursor.decode(after), pageable, type);
+
+        return games.collectList()
+                .map(list -> {
+                    CursorPage<T> page = GameRequests.gamePage(list, limit);
+                    resultSizes.record("getAllGames", page.getItems().size());
+                    return page;
+                })
+                .onErrorMap(DataAccessException.class,
+                        ex -> serviceException(methodName, "Error fetching games from database", ex))
+                .doFinally(signal -> logger.debug("{}: exiting method", methodName));
+    }
+
+    /**
+     * Streams the whole catalog, ordered by game ID, from a single database cursor. Games are requested from
+     * MongoDB in batches as the subscriber asks for them, so a slow client slows down the cursor instead of
+     * growing a buffer.
+     *
+     * @param type the class to read the games into, Game or GameSummary
+     * @param <T> the representation of the games
+     * @return all games
+     */
+    public <T> Flux<T> streamAllGames(Class<T> type) {
+        String methodName = ".streamAllGames";
+        logger.debug("{}: entering method", methodName);
+
+        return gameRepository.streamAllBy(GameRequests.ID_ORDER, type)
+                .onErrorMap(DataAccessException.class,
+                        ex -> serviceException(methodName, "Error fetching games from database", ex))
+                .doFinally(signal -> logger.debug("{}: exiting method", methodName));
+    }
+
+    /**
+     * Retrieves a game by its ID from MongoDB.
+     *
+     * @param id the unique ID of the game
+     * @return the game, or an empty Mono if not found
+     */
+    public Mono<Game> getGameById(String id) {
+        String methodName = ".getGameById";
+        logger.debug("{}: entering method", methodName);
+
+        return gameRepository.findById(id)
+                .onErrorMap(DataAccessException.class,
+                        ex -> serviceException(methodName, "Error fetching game with ID " + id + " from database", ex))
+                .doFinally(signal -> logger.debug("{}: exiting method", methodName));
+    }
+
+    /**
+     * Retrieves several games by their IDs with a single query. See GameShopService.getGamesByIds; like the
+     * other lookups of this variant, it does not use the game cache.
+     *
+     * @param ids the IDs of the games, between 1 and {@value GameShopService#MAX_BATCH_SIZE}; duplicates are
+     *            looked up once
+     * @return the games in the order of their IDs, and the IDs no game has
+     */
+    public Mono<GameBatch<Game>> getGamesByIds(List<String> ids) {
+        String methodName = ".getGamesByIds";
+        logger.debug("{}: entering method", methodName);
+
+        Set<String> distinctIds = GameRequests.distinctIds(ids);
+
+        return gameRepository.findAllById(distinctIds)
+                .collectMap(Game::getId)
+                .map(found -> {
+                    GameBatch<Game> batch = GameResults.batchOf(distinctIds, found::get);
+                    resultSizes.record("getGamesByIds", batch.getGames().size());
+                    return batch;
+                })
+                .onErrorMap(DataAccessException.class,
+                        ex -> serviceException(methodName, "Error fetching games by ID from database", ex))
+                .doFinally(signal -> logger.debug("{}: exiting method", methodName));
+    }
+
+    /**
+     * Retrieves the version and last modification time of a game without loading the game. See
+     * GameShopService.getGameVersion.
+     *
+     * @param id the unique ID of the game
+     * @return the version of the game, or an empty Mono if the game does not exist
+     */
+    public Mono<GameVersion> getGameVersion(String id) {
+        String methodName = ".getGameVersion";
+        logger.debug("{}: entering method", methodName);
+
+        return gameRepository.findVersionById(id)
+                .onErrorMap(DataAccessException.class,
+                        ex -> serviceException(methodName, "Error fetching version of game with ID " + id + " from database", ex))
+                .doFinally(signal -> logger.debug("{}: exiting method", methodName));
+    }
+
+    /**
+     * Searches for games by their title. See GameShopService.getGamesByTitle.
+     *
+     * @param title the title (or part of the title) to search for
+     * @param limit the maximum number of games to return, between 1 and {@value GameShopService#MAX_PAGE_SIZE}
+     * @param type the class to read the games into, Game or GameSummary
+     * @param <T> the representation of the games
+     * @return the games that match the search criteria, best matches first when the index is built
+     */
+    public <T> Flux<T> getGamesByTitle(String title, int limit, Class<T> type) {
+        String methodName = ".getGamesByTitle";
+        logger.debug("{}: entering method", methodName);
+
+        GameRequests.checkSize("limit", limit);
+        Flux<T> games;
+        if (searchIndex.isReady()) {
+            List<GameSummary> hits = searchIndex.search(title, limit);
+            games = type.isAssignableFrom(GameSummary.class)
+                    ? Flux.fromIterable(hits).map(type::cast)
+                    : getGamesInOrder(hits.stream().map(GameSummary::getId).toList(), type);
+        } else {
+            games = gameRepository.findByNormalizedTitleContaining(Game.normalizeTitle(title), type).take(limit);
+        }
+        return resultSizes.record("getGamesByTitle", games)
+                .onErrorMap(DataAccessException.class,
+                        ex -> serviceException(methodName, "Error fetching title from database", ex))
+                .doFinally(signal -> logger.debug("{}: exiting method", methodName));
+    }
+
+    /**
+     * Suggests titles completing what the user has typed so far. See GameShopService.autocomplete.
+     *
+     * @param prefix the text typed so far
+     * @param limit the maximum number of suggestions to return, between 1 and
+     * {@value GameShopService#MAX_PAGE_SIZE}
+     * @return the suggestions, best first
+     */
+    public Flux<Suggestion> autocomplete(String prefix, int limit) {
+        String methodName = ".autocomplete";
+        logger.debug("{}: entering method", methodName);
+
+        GameRequests.checkSize("limit", limit);
+        Flux<Suggestion> suggestions = searchIndex.isReady()
+                ? Flux.fromIterable(searchIndex.autocomplete(prefix, limit))
+                : gameRepository.findByNormalizedTitleStartingWith(Game.normalizeTitle(prefix.trim()),
+                        PageRequest.of(0, limit, Sort.by("normalizedTitle")), GameSummary.class)
+                .map(game -> new Suggestion(game.getId(), game.getTitle()));
+        return resultSizes.record("autocomplete", suggestions)
+                .onErrorMap(DataAccessException.class,
+                        ex -> serviceException(methodName, "Error fetching suggestions from database", ex))
+                .doFinally(signal -> logger.debug("{}: exiting method", methodName));
+    }
+
+    /**
+     * Returns the first games of a storefront leaderboard. See GameShopService.getLeaderboard.
+     *
+     * @param kind the leaderboard
+     * @param genre the genre, required for the DEALS leaderboard
+     * @param limit the number of games to return, between 1 and the size of the leaderboards
+     * @return the games, with the version of the snapshot they come from
+     */
+    public Mono<Leaderboard> getLeaderboard(Leaderboard.Kind kind, String genre, int limit) {
+        return Mono.fromCallable(() -> catalogReads.leaderboard(kind, genre, limit));
+    }
+
+    /**
+     * Runs a faceted search over the in-memory catalog snapshot. See GameShopService.getFacetedSearch.
+     *
+     * @param filter the selected facet values and price range
+     * @param page the zero-based index of the page to return
+     * @param size the maximum number of games to return, between 1 and {@value GameShopService#MAX_PAGE_SIZE}
+     * @param sortBy the key to sort on, title, price or rating
+     * @param direction the direction of the sort, asc or desc
+     * @return the page of games, the total number of matches and the facet counts
+     */
+    public Mono<FacetedResult> getFacetedSearch(FacetFilter filter, int page, int size, String sortBy,
+                                                String direction) {
+        return Mono.fromCallable(() -> catalogReads.facetedSearch(filter, page, size, sortBy, direction));
+    }
+
+    /**
+     * Searches the catalog. See GameShopService.searchGames.
+     *
+     * @param criteria the search filters; filters that are not set do not restrict the results
+     * @param page the zero-based index of the page to return
+     * @param size the maximum number of games to return, between 1 and {@value GameShopService#MAX_PAGE_SIZE}
+     * @param sortBy the key to sort on (title, price, rating or releaseDate), or null to sort by ID
+     * @param direction the direction of the sort, asc or desc
+     * @param type the class to read the games into, Game or GameSummary
+     * @param <T> the representation of the games
+     * @return the games of the requested page
+     */
+    public <T> Flux<T> searchGames(GameSearchCriteria criteria, int page, int size, String sortBy, String direction,
+                                   Class<T> type) {
+        String methodName = ".searchGames";
+        logger.debug("{}: entering method", methodName);
+
+        GameRequests.checkPage(page, size);
+        Sort sort = GameQueries.sort(sortBy, Sort.Direction.fromString(direction));
+
+        return resultSizes.record("searchGames", gameRepository.search(criteria, PageRequest.of(page, size, sort), type))
+                .onErrorMap(DataAccessException.class,
+                        ex -> serviceException(methodName, "Error searching games in database", ex))
+                .doFinally(signal -> logger.debug("{}: exiting method", methodName));
+    }
+
+    /**
+     * Retrieves games within a price range. See GameShopService.getGamesByPriceRange.
+     *
+     * @param lowerBound the minimum price of the games
+     * @param upperBound the maximum price of the games
+     * @param type the class to read the games into, Game or GameSummary
+     * @param <T> the representation of the games
+     * @return the games within the price range
+     */
+    public <T> Flux<T> getGamesByPriceRange(double lowerBound, double upperBound, Class<T> type) {
+        String methodName = ".getGamesByPriceRange";
+        logger.debug("{}: entering method", methodName);
+
+        return resultSizes.record("getGamesByPriceRange", gameRepository.findByPriceBetween(lowerBound, upperBound, type))
+                .onErrorMap(DataAccessException.class,
+                        ex -> serviceException(methodName, "Error fetching games by price from database", ex))
+                .doFinally(signal -> logger.debug("{}: exiting method", methodName));
+    }
+
+    /**
+     * Adds a new game to the database, or replaces the catalog fields of an existing one. See
+     * GameShopService.addGame.
+     *
+     * @param game the Game object to add
+     * @return the saved Game object
+     */
+    public Mono<Game> addGame(Game game) {
+        String methodName = ".addGame";
+        logger.debug("{}: entering method", methodName);
+
+        List<Review> reviews = GameRequests.takeReviews(game);
+
+        return gameRepository.upsertGame(game)
+                .flatMap(saved -> reviews.isEmpty()
+                        ? Mono.just(saved)
+                        : writeReviews(saved.getId(), reviews)
+                        .then(gameRepository.findById(saved.getId()))
+                        .defaultIfEmpty(saved))
+                .flatMap(saved -> blocking(() -> gameChanges.upserted(saved)).thenReturn(saved))
+                .onErrorMap(DataAccessException.class,
+                        ex -> serviceException(methodName, "Error saving game to database", ex))
+                .doFinally(signal -> logger.debug("{}: exiting method", methodName));
+    }
+
+    /**
+     * Imports games decoded from a request body, written in bulk upserts of gameshop.bulk.batch-size games like
+     * GameBulkImporter.importGames does. Unlike the blocking import, a record that cannot be decoded into a
+     * game ends the import at that point, because the decoder cannot resume after it.
+     *
+     * @param games the games of the request body, in order
+     * @return the number of games inserted, updated and failed, with the failures up to the error limit
+     */
+    public Mono<BulkImportResult> importGames(Flux<Game> games) {
+        String methodName = ".importGames";
+        logger.debug("{}: entering method", methodName);
+
+        BulkImportResult result = gameBulkImporter.newResult();
+        AtomicInteger received = new AtomicInteger();
+        AtomicReference<String> decodingError = new AtomicReference<>();
+
+        return games
+                .doOnNext(game -> received.incrementAndGet())
+                .onErrorResume(DecodingException.class, ex -> {
+                    decodingError.set(ex.getMessage());
+                    return Flux.empty();
+                })
+                .buffer(gameBulkImporter.getBatchSize())
+                .concatMap(batch -> Mono.fromRunnable(() ->
+                                gameBulkImporter.importBatch(batch, (int) result.getReceived(), result))
+                        .subscribeOn(Schedulers.boundedElastic()))
+                .then(Mono.fromSupplier(() -> {
+                    if (decodingError.get() != null) {
+                        result.recordReceived();
+                        result.recordError(received.get(), null,
+                                "Malformed JSON, import stopped: " + decodingError.get());
+                    }
+                    logger.info("{}: exiting method, {} received, {} inserted, {} updated, {} failed", methodName,
+                            result.getReceived(), result.getInserted(), result.getUpdated(), result.getFailed());
+                    return result;
+                }));
+    }
+
+    /**
+     * Adds a review to a game. See GameShopService.addReview.
+     *
+     * @param gameId the ID of the game being reviewed
+     * @param review the review to add; its date defaults to now when missing
+     * @return the stored review
+     */
+    public Mono<Review> addReview(String gameId, Review review) {
+        String methodName = ".addReview";
+        logger.debug("{}: entering method", methodName);
+
+        GameRequests.prepareReview(review);
+
+        return writeReviews(gameId, List.of(review))
+                .thenReturn(review)
+                .onErrorMap(DataAccessException.class,
+                        ex -> serviceException(methodName, "Error saving review for game with ID " + gameId, ex))
+                .doFinally(signal -> logger.debug("{}: exiting method", methodName));
+    }
+
+    /**
+     * @return true if reviews are queued by submitReview and written in batches
+     */
+    public boolean isReviewWriteBehind() {
+        return reviewWriteBehind.isEnabled();
+    }
+
+    /**
+     * Queues a review to be written with the next batch. See GameShopService.submitReview.
+     *
+     * @param gameId the ID of the game being reviewed
+     * @param review the review to add; its date defaults to now when missing
+     * @return the review as it will be stored, with its ID
+     */
+    public Mono<Review> submitReview(String gameId, Review review) {
+        String methodName = ".submitReview";
+        logger.debug("{}: entering method", methodName);
+
+        GameRequests.prepareReview(review);
+
+        return gameRepository.existsById(gameId)
+                .flatMap(exists -> exists
+                        ? Mono.fromCallable(() -> reviewWriteBehind.submit(gameId, review))
+                        : Mono.error(notFound(methodName, gameId)))
+                .onErrorMap(DataAccessException.class,
+                        ex -> serviceException(methodName, "Error looking up game with ID " + gameId, ex))
+                .doFinally(signal -> logger.debug("{}: exiting method", methodName));
+    }
+
+    /**
+     * Retrieves one page of the reviews of a game, newest first. See GameShopService.getReviews.
+     *
+     * @param gameId the ID of the game
+     * @param before the cursor returned with the previous page, or null to fetch the first page
+     * @param limit the maximum number of reviews to return, between 1 and {@value GameShopService#MAX_PAGE_SIZE}
+     * @return the page of reviews together with the cursor for the next page
+     */
+    public Mono<CursorPage<Review>> getReviews(String gameId, String before, int limit) {
+        String methodName = ".getReviews";
+        logger.debug("{}: entering method", methodName);
+
+        GameRequests.checkSize("limit", limit);
+        Pageable pageable = GameRequests.pageOf(limit, GameRequests.REVIEW_ORDER);
+
+        Mono<List<Review>> reviews;
+        if (before == null) {
+            // Reviews the migration has not reached yet would be missing from the collection
+            reviews = gameRepository.hasEmbeddedReviews(gameId)
+                    .flatMap(embedded -> embedded ? blocking(() -> reviewMigration.migrate(gameId)) : Mono.empty())
+                    .then(reviewRepository.findByGameId(gameId, pageable).collectList())
+                    .flatMap(list -> list.isEmpty()
+                            ? gameRepository.existsById(gameId)
+                            .flatMap(exists -> exists ? Mono.just(list) : Mono.error(notFound(methodName, gameId)))
+                            : Mono.just(list));
+        } else {
+            GameRequests.ReviewCursor cursor = GameRequests.decodeReviewCursor(before);
+            reviews = reviewRepository.findByGameIdBefore(gameId, cursor.date(), cursor.id(), pageable).collectList();
+        }
+
+        return reviews
+                .map(list -> {
+                    CursorPage<Review> page = GameRequests.reviewPage(list, limit);
+                    resultSizes.record("getReviews", page.getItems().size());
+                    return page;
+                })
+                .onErrorMap(DataAccessException.class,
+                        ex -> serviceException(methodName, "Error fetching reviews of game with ID " + gameId, ex))
+                .doFinally(signal -> logger.debug("{}: exiting method", methodName));
+    }
+
+    /**
+     * Retrieves the average review score for a game. See GameShopService.getAverageScore.
+     *
+     * @param gameId the ID of the game
+     * @return the average review score of the game, 0.0 if it has no reviews
+     */
+    public Mono<Double> getAverageScore(String gameId) {
+        return getReviewStats(".getAverageScore", gameId)
+                .map(ReviewStats::average);
+    }
+
+    /**
+     * Returns the total number of reviews for a game. See GameShopService.getTotalReviews.
+     *
+     * @param gameId the ID of the game
+     * @return the total number of reviews
+     */
+    public Mono<Integer> getTotalReviews(String gameId) {
+        return getReviewStats(".getTotalReviews", gameId).map(stats -> (int) stats.getCount());
+    }
+
+    /**
+     * Deletes a game, its reviews and its stock buckets. See GameShopService.deleteGame.
+     *
+     * @param id the unique ID of the game
+     * @return a Mono completing once the game is deleted
+     */
+    public Mono<Void> deleteGame(String id) {
+        String methodName = ".deleteGame";
+        logger.debug("{}: entering method", methodName);
+
+        return gameRepository.deleteById(id)
+                .then(reviewRepository.deleteByGameId(id))
+                .then(stockBucketRepository.deleteByGameId(id))
+                .then(blocking(() -> gameChanges.deleted(id)))
+                .onErrorMap(DataAccessException.class,
+                        ex -> serviceException(methodName, "Error deleting game with ID " + id + " from database", ex))
+                .doFinally(signal -> logger.debug("{}: exiting method", methodName))
+                .then();
+    }
+
+    /**
+     * Counts the reviews in the statistics of the game, then stores them. See GameShopService.writeReviews. The
+     * game is evicted from the game cache as soon as its statistics have changed, so that a failure to store
+     * the reviews does not leave the cached statistics behind.
+     */
+    private Mono<Void> writeReviews(String gameId, List<Review> reviews) {
+        ReviewStats delta = ReviewStats.of(reviews);
+        return gameRepository.incrementReviewStats(gameId, delta)
+                .flatMap(counted -> counted
+                        ? Mono.just(true)
+                        // Either the game does not exist or its statistics have not been built yet
+                        : blocking(() -> reviewStatsBackfill.rebuild(gameId))
+                        .flatMap(rebuilt -> rebuilt.isEmpty()
+                                ? Mono.just(false)
+                                : gameRepository.incrementReviewStats(gameId, delta)))
+                .flatMap(counted -> {
+                    if (!counted) {
+                        return Mono.error(notFound(".writeReviews", gameId));
+                    }
+                    GameRequests.assignReviews(gameId, reviews);
+                    return blocking(() -> gameChanges.reviewsAdded(gameId, delta))
+                            .then(reviewRepository.insert(reviews).then());
+                });
+    }
+
+    private Mono<ReviewStats> getReviewStats(String methodName, String gameId) {
+        logger.debug("{}: entering method", methodName);
+
+        return gameRepository.findReviewStatsById(gameId)
+                .switchIfEmpty(Mono.error(() -> notFound(methodName, gameId)))
+                .flatMap(game -> {
+                    if (game.getReviewStats() != null) {
+                        return Mono.just(game.getReviewStats());
+                    }
+                    logger.info("{}: review statistics of game {} missing, rebuilding", methodName, gameId);
+                    return blocking(() -> reviewStatsBackfill.rebuild(gameId))
+                            .flatMap(stats -> stats.map(Mono::just).orElseGet(() -> Mono.error(notFound(methodName, gameId))));
+                })
+                .onErrorMap(DataAccessException.class,
+                        ex -> serviceException(methodName, "Error fetching review statistics of game with ID " + gameId, ex))
+                .doFinally(signal -> logger.debug("{}: exiting method", methodName));
+    }
+
+    /**
+     * Loads games by ID and returns them in the order of the IDs.
+     */
+    private <T> Flux<T> getGamesInOrder(List<String> ids, Class<T> type) {
+        return gameRepository.findAllById(ids)
+                .collectMap(Game::getId)
+                .flatMapIterable(games -> GameResults.inOrder(ids, games, type));
+    }
+
+    /**
+     * Runs a call on the blocking driver, or a side effect that may block such as the synchronous listeners of
+     * an event, on the bounded elastic scheduler.
+     */
+    private static <T> Mono<T> blocking(Callable<T> call) {
+        return Mono.fromCallable(call).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private static Mono<Void> blocking(Runnable call) {
+        return Mono.<Void>fromRunnable(call).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private static GameNotFoundException notFound(String methodName, String gameId) {
+        return GameResults.notFound(logger, methodName, gameId);
+    }
+
+    private static GameServiceException serviceException(String methodName, String message, DataAccessException ex) {
+        return GameResults.serviceException(logger, methodName, message, ex);
+    }
+}
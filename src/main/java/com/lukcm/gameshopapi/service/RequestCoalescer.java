@@ -0,0 +1,132 @@
+package com.lukcm.gameshopapi.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * @author Max_MacKoul
+ *
+ * Collapses concurrent identical reads into one database call. The first thread asking for an operation with
+ * given arguments makes the call; the threads asking for the same while it runs wait for it and receive the
+ * same result, or the same exception. Once the call returns, the next request makes a new call, so results are
+ * never served after the fact the way a cache would serve them.
+ *
+ * A waiting thread gives up after gameshop.coalescing.max-wait (default 2s) and makes the call itself, so that
+ * one stuck call cannot hold every request for the same data. Setting gameshop.coalescing.enabled to false
+ * makes every request call the database.
+ *
+ * The results are shared between threads and must not be modified by the callers.
+ *
+ * Calls are counted by the counter gameshop.coalescing.calls, tagged with the operation and the result:
+ * executed for the calls made by the first request, collapsed for the requests that received the result of
+ * another's call, and timed_out for those that stopped waiting and made the call themselves.
+ */
+@Component
+public class RequestCoalescer {
+
+    private static final Logger logger = LogManager.getLogger(RequestCoalescer.class);
+
+    public static final String METRIC_NAME = "gameshop.coalescing.calls";
+
+    private final Map<Key, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+
+    private final MeterRegistry registry;
+
+    private final boolean enabled;
+
+    private final Duration maxWait;
+
+    public RequestCoalescer(MeterRegistry registry,
+                            @Value("${gameshop.coalescing.enabled:true}") boolean enabled,
+                            @Value("${gameshop.coalescing.max-wait:2s}") Duration maxWait) {
+        this.registry = registry;
+        this.enabled = enabled;
+        this.maxWait = maxWait;
+    }
+
+    /**
+     * Makes the call, or waits for the identical call already in flight and returns its result.
+     *
+     * @param operation the name of the operation, e.g. getGameById
+     * @param arguments the arguments of the operation, with equals and hashCode, e.g. an ID or a List.of(...)
+     * @param call makes the database call
+     * @param <T> the type of the result
+     * @return the result of the call
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T execute(String operation, Object arguments, Supplier<T> call) {
+        if (!enabled) {
+            return call.get();
+        }
+
+        Key key = new Key(operation, arguments);
+        CompletableFuture<Object> flight = new CompletableFuture<>();
+        CompletableFuture<Object> existing = inFlight.putIfAbsent(key, flight);
+        if (existing != null) {
+            return (T) await(operation, existing, call);
+        }
+
+        count(operation, "executed");
+        try {
+            T result = call.get();
+            inFlight.remove(key, flight);
+            flight.complete(result);
+            return result;
+        } catch (RuntimeException | Error ex) {
+            inFlight.remove(key, flight);
+            flight.completeExceptionally(ex);
+            throw ex;
+        }
+    }
+
+    private Object await(String operation, CompletableFuture<Object> flight, Supplier<?> call) {
+        String methodName = ".await";
+        try {
+            Object result = flight.get(maxWait.toMillis(), TimeUnit.MILLISECONDS);
+            count(operation, "collapsed");
+            return result;
+        } catch (ExecutionException ex) {
+            count(operation, "collapsed");
+            Throwable cause = ex.getCause();
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw (Error) cause;
+        } catch (TimeoutException ex) {
+            count(operation, "timed_out");
+            logger.warn("{}: {} still running after {}, calling the database directly", methodName, operation,
+                    maxWait);
+            return call.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for " + operation, ex);
+        }
+    }
+
+    private void count(String operation, String result) {
+        counters.computeIfAbsent(operation + ':' + result, name -> Counter.builder(METRIC_NAME)
+                        .description("Database reads made, and requests served by another request's read")
+                        .tag("operation", operation)
+                        .tag("result", result)
+                        .register(registry))
+                .increment();
+    }
+
+    private record Key(String operation, Object arguments) {
+    }
+}
@@ -0,0 +1,142 @@
+package com.lukcm.gameshopapi.service;
+
+import com.lukcm.gameshopapi.cache.GameCache;
+import com.lukcm.gameshopapi.model.Game;
+import com.lukcm.gameshopapi.model.Review;
+import com.lukcm.gameshopapi.repository.GameShopRepository;
+import com.lukcm.gameshopapi.repository.ReviewRepository;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * @author Max_MacKoul
+ *
+ * Moves the reviews embedded in game documents into the reviews collection while the application keeps
+ * serving requests. At startup it works through every game that still embeds reviews on a background thread,
+ * unless gameshop.reviews.migration.enabled is set to false. A game can also be migrated on demand, which is
+ * how the reviews endpoint makes sure it sees all reviews of a game that has not been reached yet.
+ *
+ * Migrating a game copies its embedded reviews with IDs derived from the game ID and the position of the
+ * review, then removes the embedded array only if it has not grown in the meantime. Copying again after an
+ * interruption therefore rewrites the same reviews instead of duplicating them. The review statistics of the
+ * game already count the embedded reviews and are not changed. Undated reviews are given the epoch as their
+ * date, so they sort last.
+ */
+@Component
+public class ReviewMigrationJob implements ApplicationRunner {
+
+    private static final Logger logger = LogManager.getLogger(ReviewMigrationJob.class);
+
+    private static final int MAX_MIGRATE_ATTEMPTS = 3;
+
+    private final GameShopRepository gameRepository;
+
+    private final ReviewRepository reviewRepository;
+
+    private final GameCache gameCache;
+
+    private final boolean enabled;
+
+    public ReviewMigrationJob(GameShopRepository gameRepository, ReviewRepository reviewRepository, GameCache gameCache,
+                              @Value("${gameshop.reviews.migration.enabled:true}") boolean enabled) {
+        this.gameRepository = gameRepository;
+        this.reviewRepository = reviewRepository;
+        this.gameCache = gameCache;
+        this.enabled = enabled;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (enabled) {
+            Thread migration = new Thread(this::migrateAll, "review-migration");
+            migration.setDaemon(true);
+            migration.start();
+        }
+    }
+
+    /**
+     * Migrates every game that still embeds reviews.
+     *
+     * @return the number of games migrated
+     */
+    public int migrateAll() {
+        String methodName = ".migrateAll";
+        logger.debug("{}: entering method", methodName);
+
+        int migrated = 0;
+        try (Stream<Game> games = gameRepository.streamIdsWithEmbeddedReviews()) {
+            Iterator<Game> it = games.iterator();
+            while (it.hasNext()) {
+                migrate(it.next().getId());
+                migrated++;
+            }
+        } catch (RuntimeException ex) {
+            logger.error("{}: Error migrating reviews, {} games migrated: {}", methodName, migrated, ex);
+            return migrated;
+        }
+
+        logger.info("{}: exiting method, {} games migrated", methodName, migrated);
+        return migrated;
+    }
+
+    /**
+     * Moves the embedded reviews of a single game into the reviews collection. Games without embedded reviews
+     * are left untouched.
+     *
+     * @param gameId the ID of the game
+     */
+    public void migrate(String gameId) {
+        String methodName = ".migrate";
+
+        for (int attempt = 1; attempt <= MAX_MIGRATE_ATTEMPTS; attempt++) {
+            Optional<Game> game = gameRepository.findReviewsById(gameId);
+            if (game.isEmpty() || game.get().getReviews() == null || game.get().getReviews().isEmpty()) {
+                return;
+            }
+            List<Review> reviews = game.get().getReviews();
+            for (int i = 0; i < reviews.size(); i++) {
+                Review review = reviews.get(i);
+                review.setId(legacyReviewId(gameId, i));
+                review.setGameId(gameId);
+                if (review.getDate() == null) {
+                    review.setDate(new Date(0));
+                }
+            }
+            reviewRepository.upsertAll(reviews);
+
+            if (gameRepository.unsetEmbeddedReviews(gameId, reviews.size())) {
+                gameCache.invalidate(gameId);
+                return;
+            }
+            logger.info("{}: embedded reviews of game {} changed during migration, retrying", methodName, gameId);
+        }
+    }
+
+    /**
+     * Derives a stable review ID from the game ID and the position of the review in the embedded array.
+     */
+    private static String legacyReviewId(String gameId, int index) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256")
+                    .digest((gameId + ":" + index).getBytes(StandardCharsets.UTF_8));
+            return new ObjectId(Arrays.copyOf(hash, 12)).toHexString();
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 is not available", ex);
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.lukcm.gameshopapi.service;
+
+import com.lukcm.gameshopapi.model.Game;
+import com.lukcm.gameshopapi.model.ReviewStats;
+import com.lukcm.gameshopapi.repository.GameShopRepository;
+import com.lukcm.gameshopapi.repository.ReviewRepository;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * @author Max_MacKoul
+ *
+ * Rebuilds the pre-aggregated review statistics of games from their reviews. It runs once at startup,
+ * controlled by the gameshop.review-stats.backfill property:
+ * <ul>
+ *     <li>missing (default) - only games that have no statistics yet are processed</li>
+ *     <li>all - the statistics of every game are rebuilt</li>
+ *     <li>none - nothing is done at startup</li>
+ * </ul>
+ * Statistics are computed with an aggregation over the reviews collection, after moving any reviews the game
+ * still embeds into it. A game whose statistics are incremented while it is being rebuilt is retried, up to
+ * three times, after which the statistics the concurrent writes stored are kept. Reviews are counted in the
+ * statistics before they are inserted, so a rebuild of every game should run while few reviews are being
+ * written; games without statistics are always rebuilt exactly.
+ */
+@Component
+public class ReviewStatsBackfillJob implements ApplicationRunner {
+
+    /** Which games the backfill processes at startup. */
+    public enum Mode { NONE, MISSING, ALL }
+
+    private static final Logger logger = LogManager.getLogger(ReviewStatsBackfillJob.class);
+
+    private static final int MAX_REBUILD_ATTEMPTS = 3;
+
+    private final GameShopRepository gameRepository;
+
+    private final ReviewRepository reviewRepository;
+
+    private final ReviewMigrationJob reviewMigration;
+
+    private final Mode mode;
+
+    public ReviewStatsBackfillJob(GameShopRepository gameRepository, ReviewRepository reviewRepository,
+                                  ReviewMigrationJob reviewMigration,
+                                  @Value("${gameshop.review-stats.backfill:missing}") Mode mode) {
+        this.gameRepository = gameRepository;
+        this.reviewRepository = reviewRepository;
+        this.reviewMigration = reviewMigration;
+        this.mode = mode;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (mode != Mode.NONE) {
+            backfill(mode == Mode.ALL);
+        }
+    }
+
+    /**
+     * Rebuilds the review statistics of many games.
+     *
+     * @param rebuildAll true to rebuild every game, false to only build the games without statistics
+     * @return the number of games whose statistics were written
+     */
+    public int backfill(boolean rebuildAll) {
+        String methodName = ".backfill";
+        logger.info("{}: entering method, rebuildAll={}", methodName, rebuildAll);
+
+        int written = 0;
+        try (Stream<Game> games = rebuildAll
+                ? gameRepository.streamAllIds()
+                : gameRepository.streamIdsWithoutReviewStats()) {
+            Iterator<Game> it = games.iterator();
+            while (it.hasNext()) {
+                if (rebuild(it.next().getId()).isPresent()) {
+                    written++;
+                }
+            }
+        }
+
+        logger.info("{}: exiting method, {} games written", methodName, written);
+        return written;
+    }
+
+    /**
+     * Rebuilds the review statistics of a single game and stores them.
+     *
+     * @param gameId the ID of the game
+     * @return the statistics stored for the game, or an empty Optional if the game does not exist. If the
+     * statistics kept changing during every attempt, they are those of the concurrent writes rather than
+     * rebuilt ones.
+     * @throws IllegalStateException if the game lost its statistics during every attempt
+     */
+    public Optional<ReviewStats> rebuild(String gameId) {
+        String methodName = ".rebuild";
+
+        for (int attempt = 1; attempt <= MAX_REBUILD_ATTEMPTS; attempt++) {
+            Optional<Game> game = gameRepository.findReviewStatsById(gameId);
+            if (game.isEmpty()) {
+                return Optional.empty();
+            }
+            ReviewStats expected = game.get().getReviewStats();
+            reviewMigration.migrate(gameId);
+            ReviewStats stats = reviewRepository.aggregateStats(gameId);
+            if (gameRepository.replaceReviewStats(gameId, expected, stats)) {
+                return Optional.of(stats);
+            }
+            logger.info("{}: review statistics of game {} changed during rebuild, retrying", methodName, gameId);
+        }
+
+        // The statistics the rebuild computed were never stored, so report the ones that were
+        Optional<Game> game = gameRepository.findReviewStatsById(gameId);
+        if (game.isEmpty()) {
+            return Optional.empty();
+        }
+        ReviewStats stored = game.get().getReviewStats();
+        if (stored == null) {
+            throw new IllegalStateException("Review statistics of game " + gameId + " could not be rebuilt");
+        }
+        logger.warn("{}: review statistics of game {} changed during {} rebuilds, keeping the stored statistics",
+                methodName, gameId, MAX_REBUILD_ATTEMPTS);
+        return Optional.of(stored);
+    }
+}
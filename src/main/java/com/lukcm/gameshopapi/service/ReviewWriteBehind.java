@@ -0,0 +1,394 @@
+package com.lukcm.gameshopapi.service;
+
+import com.lukcm.gameshopapi.cache.GameCache;
+import com.lukcm.gameshopapi.exception.ReviewQueueFullException;
+import com.lukcm.gameshopapi.model.Review;
+import com.lukcm.gameshopapi.model.ReviewStats;
+import com.lukcm.gameshopapi.repository.GameShopRepository;
+import com.lukcm.gameshopapi.repository.ReviewRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Max_MacKoul
+ *
+ * Buffers submitted reviews in a bounded queue and writes them in batches from a single background thread,
+ * so that a burst of reviews after a launch becomes a few bulk writes instead of one update of the same game
+ * document per review. Only used when gameshop.reviews.write-behind.enabled is true.
+ * <ul>
+ *     <li>gameshop.reviews.write-behind.capacity - the number of reviews the queue holds (default 10000);
+ *     submissions beyond it are refused with a ReviewQueueFullException</li>
+ *     <li>gameshop.reviews.write-behind.batch-size - the most reviews written by one flush (default 500)</li>
+ *     <li>gameshop.reviews.write-behind.flush-interval - how long the oldest queued review waits for the batch
+ *     to fill (default 200ms)</li>
+ *     <li>gameshop.reviews.write-behind.drain-timeout - how long shutdown waits for the queue to be written
+ *     (default 30s)</li>
+ * </ul>
+ * A flush first stores all the reviews of its batch in one unordered bulk write, upserting them by their ID so
+ * that storing them again on a retry is harmless, then counts the reviews of each game in its statistics with one
+ * $inc. A failed flush is retried until it succeeds. An $inc that failed may still have been applied, so a retry
+ * rebuilds the statistics of that game from its stored reviews instead of incrementing them again; when a flush
+ * gives up after storing its reviews, the statistics of the games it had not counted yet are rebuilt the same
+ * way. Reviews of a game deleted after they were queued are deleted again and discarded.
+ *
+ * The queue is drained when the application shuts down, after the web server has stopped taking requests.
+ * Submissions and the start of the drain hold the same lock, so a review is either queued before the drain
+ * starts, and drained, or refused. Reviews still queued when the drain timeout expires are lost and logged.
+ *
+ * Metrics: the gauge gameshop.reviews.write-behind.queue.depth, the timer
+ * gameshop.reviews.write-behind.latency from submission to storage, the distribution summary
+ * gameshop.reviews.write-behind.batch of the reviews per flush, and the counter
+ * gameshop.reviews.write-behind.reviews tagged with the result: stored, rejected, discarded or lost.
+ */
+@Component
+public class ReviewWriteBehind implements SmartLifecycle {
+
+    private static final Logger logger = LogManager.getLogger(ReviewWriteBehind.class);
+
+    private static final String METRIC_PREFIX = "gameshop.reviews.write-behind";
+
+    private static final long MAX_RETRY_DELAY_MILLIS = 5000;
+
+    private final GameShopRepository gameRepository;
+
+    private final ReviewRepository reviewRepository;
+
+    private final ReviewStatsBackfillJob reviewStatsBackfill;
+
+    private final GameChanges gameChanges;
+
+    private final boolean enabled;
+
+    private final int batchSize;
+
+    private final long flushIntervalNanos;
+
+    private final Duration drainTimeout;
+
+    private final BlockingQueue<Queued> queue;
+
+    private final MeterRegistry registry;
+
+    private final Timer latency;
+
+    private final DistributionSummary batches;
+
+    // Held to queue a review, and to stop accepting them at shutdown
+    private final Object stateLock = new Object();
+
+    private boolean accepting;
+
+    private volatile boolean running;
+
+    // When the drain at shutdown must end, or 0 while the application runs
+    private volatile long drainDeadline;
+
+    private Thread writer;
+
+    public ReviewWriteBehind(GameShopRepository gameRepository, ReviewRepository reviewRepository,
+                             ReviewStatsBackfillJob reviewStatsBackfill, GameCache gameCache,
+                             ApplicationEventPublisher eventPublisher, MeterRegistry registry,
+                             @Value("${gameshop.reviews.write-behind.enabled:false}") boolean enabled,
+                             @Value("${gameshop.reviews.write-behind.capacity:10000}") int capacity,
+                             @Value("${gameshop.reviews.write-behind.batch-size:500}") int batchSize,
+                             @Value("${gameshop.reviews.write-behind.flush-interval:200ms}") Duration flushInterval,
+                             @Value("${gameshop.reviews.write-behind.drain-timeout:30s}") Duration drainTimeout) {
+        this.gameRepository = gameRepository;
+        this.reviewRepository = reviewRepository;
+        this.reviewStatsBackfill = reviewStatsBackfill;
+        this.gameChanges = new GameChanges(gameCache, eventPublisher);
+        this.registry = registry;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = flushInterval.toNanos();
+        this.drainTimeout = drainTimeout;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+
+        Gauge.builder(METRIC_PREFIX + ".queue.depth", queue, BlockingQueue::size)
+                .description("Reviews waiting to be written")
+                .register(registry);
+        this.latency = Timer.builder(METRIC_PREFIX + ".latency")
+                .description("Time from the submission of a review to its storage")
+                .register(registry);
+        this.batches = DistributionSummary.builder(METRIC_PREFIX + ".batch")
+                .description("Reviews written by one flush")
+                .baseUnit("reviews")
+                .register(registry);
+    }
+
+    /**
+     * @return true if reviews are written by this queue rather than one by one
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Queues a review for writing. The review is given its ID and game ID immediately, so that the caller can
+     * return it, but it is only readable once the next flush has stored it.
+     *
+     * @param gameId the ID of the game being reviewed, which must exist
+     * @param review the review, already validated
+     * @return the review as it will be stored
+     * @throws ReviewQueueFullException if the queue is full or the application is shutting down
+     */
+    public Review submit(String gameId, Review review) {
+        review.setId(new ObjectId().toHexString());
+        review.setGameId(gameId);
+        String refused;
+        synchronized (stateLock) {
+            if (!accepting) {
+                refused = "shutting down";
+            } else if (!queue.offer(new Queued(review, System.nanoTime()))) {
+                refused = "the review queue is full";
+            } else {
+                return review;
+            }
+        }
+        count("rejected", 1);
+        throw new ReviewQueueFullException(refused);
+    }
+
+    @Override
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        synchronized (stateLock) {
+            accepting = true;
+        }
+        running = true;
+        writer = new Thread(this::writeLoop, "review-write-behind");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @Override
+    public void stop() {
+        String methodName = ".stop";
+        if (!running) {
+            return;
+        }
+        synchronized (stateLock) {
+            accepting = false;
+        }
+        // No review can be queued any more, so the writer stops once the queue is empty
+        logger.info("{}: draining {} queued reviews", methodName, queue.size());
+        drainDeadline = System.nanoTime() + drainTimeout.toNanos();
+        running = false;
+        try {
+            writer.join(drainTimeout.toMillis() + MAX_RETRY_DELAY_MILLIS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        if (writer.isAlive()) {
+            // The writer is stuck in a flush; whatever it has not taken from the queue will not be written
+            List<Queued> left = new ArrayList<>();
+            queue.drainTo(left);
+            logger.error("{}: the writer did not finish in time, {} queued reviews were not written", methodName,
+                    left.size());
+            count("lost", left.size());
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Stops after the web server, whose phases are the highest, so that the reviews accepted by the last
+     * requests are drained.
+     */
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 1024;
+    }
+
+    private void writeLoop() {
+        String methodName = ".writeLoop";
+        List<Queued> batch = new ArrayList<>(batchSize);
+        try {
+            while (running || !queue.isEmpty()) {
+                if (drainDeadline != 0 && System.nanoTime() > drainDeadline) {
+                    break;
+                }
+                Queued first = queue.poll(flushIntervalNanos, TimeUnit.NANOSECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                // Wait for the batch to fill for at most the flush interval of its oldest review
+                long flushAt = first.submittedAt() + flushIntervalNanos;
+                while (batch.size() < batchSize) {
+                    if (queue.drainTo(batch, batchSize - batch.size()) > 0) {
+                        continue;
+                    }
+                    long wait = flushAt - System.nanoTime();
+                    Queued next = wait > 0 && running ? queue.poll(wait, TimeUnit.NANOSECONDS) : null;
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                flush(batch);
+                batch.clear();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        // Drained rather than copied, so that stop never counts the same reviews as lost again
+        queue.drainTo(batch);
+        if (!batch.isEmpty()) {
+            logger.error("{}: {} reviews were not written before shutdown", methodName, batch.size());
+            count("lost", batch.size());
+        }
+    }
+
+    /**
+     * Writes a batch, retrying until it succeeds or the drain timeout expires.
+     */
+    private void flush(List<Queued> batch) throws InterruptedException {
+        String methodName = ".flush";
+
+        Map<String, List<Review>> byGame = new LinkedHashMap<>();
+        for (Queued queued : batch) {
+            byGame.computeIfAbsent(queued.review().getGameId(), key -> new ArrayList<>()).add(queued.review());
+        }
+        // The games whose statistics count the batch, and those a failed attempt may have incremented
+        Set<String> counted = new HashSet<>();
+        Set<String> uncertain = new HashSet<>();
+        boolean stored = false;
+        long retryDelay = 100;
+        while (true) {
+            String gameId = null;
+            try {
+                if (!stored) {
+                    reviewRepository.upsertAll(batch.stream().map(Queued::review).toList());
+                    stored = true;
+                }
+                for (Map.Entry<String, List<Review>> game : byGame.entrySet()) {
+                    gameId = game.getKey();
+                    if (!counted.contains(gameId)) {
+                        countReviews(game, uncertain.contains(gameId), counted);
+                    }
+                }
+                recordStored(batch, byGame);
+                return;
+            } catch (DataAccessException ex) {
+                if (gameId != null) {
+                    uncertain.add(gameId);
+                }
+                if (drainDeadline != 0 && System.nanoTime() > drainDeadline) {
+                    logger.error("{}: Error writing {} reviews, giving up after the drain timeout: {}", methodName,
+                            batch.size(), ex);
+                    giveUp(batch, byGame, counted, stored);
+                    return;
+                }
+                logger.error("{}: Error writing {} reviews, retrying in {} ms: {}", methodName, batch.size(),
+                        retryDelay, ex);
+                Thread.sleep(retryDelay);
+                retryDelay = Math.min(retryDelay * 2, MAX_RETRY_DELAY_MILLIS);
+            } catch (RuntimeException ex) {
+                // Not a database error, so retrying would fail the same way
+                logger.error("{}: Error writing {} reviews, giving up: {}", methodName, batch.size(), ex);
+                giveUp(batch, byGame, counted, stored);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Ends a flush that will not be retried. Reviews not stored yet are lost; stored ones stay, and the
+     * statistics of the games not counted yet are rebuilt from them, once.
+     */
+    private void giveUp(List<Queued> batch, Map<String, List<Review>> byGame, Set<String> counted,
+                        boolean stored) {
+        String methodName = ".giveUp";
+        if (!stored) {
+            count("lost", batch.size());
+            return;
+        }
+        for (Map.Entry<String, List<Review>> game : byGame.entrySet()) {
+            if (!counted.contains(game.getKey())) {
+                try {
+                    countReviews(game, true, counted);
+                } catch (RuntimeException ex) {
+                    logger.error("{}: review statistics of game {} do not count {} stored reviews, rebuild them "
+                            + "with gameshop.review-stats.backfill=all: {}", methodName, game.getKey(),
+                            game.getValue().size(), ex);
+                }
+            }
+        }
+        recordStored(batch, byGame);
+    }
+
+    /**
+     * Counts the stored reviews of one game in its statistics, or deletes them if the game no longer exists.
+     *
+     * @param game the ID of the game and its reviews, which are emptied if they are discarded
+     * @param rebuild true to rebuild the statistics rather than increment them, when an earlier attempt may have
+     *                incremented them already
+     * @param counted the games done with, to which the game is added before its listeners are notified
+     */
+    private void countReviews(Map.Entry<String, List<Review>> game, boolean rebuild, Set<String> counted) {
+        String methodName = ".countReviews";
+        String gameId = game.getKey();
+        ReviewStats delta = ReviewStats.of(game.getValue());
+        // Unlike GameShopService.writeReviews, the reviews are stored already, so a rebuild counts them: it is
+        // also how a game whose statistics have not been built yet gets them
+        if ((rebuild || !gameRepository.incrementReviewStats(gameId, delta))
+                && reviewStatsBackfill.rebuild(gameId).isEmpty()) {
+            logger.warn("{}: game {} was deleted, discarding {} reviews", methodName, gameId, game.getValue().size());
+            // They were stored after the reviews of the game were deleted with it
+            reviewRepository.deleteAllById(game.getValue().stream().map(Review::getId).toList());
+            count("discarded", game.getValue().size());
+            game.setValue(List.of());
+            counted.add(gameId);
+            return;
+        }
+        counted.add(gameId);
+        gameChanges.reviewsAdded(gameId, delta);
+    }
+
+    private void recordStored(List<Queued> batch, Map<String, List<Review>> byGame) {
+        long now = System.nanoTime();
+        int stored = 0;
+        for (Queued queued : batch) {
+            if (!byGame.get(queued.review().getGameId()).isEmpty()) {
+                latency.record(now - queued.submittedAt(), TimeUnit.NANOSECONDS);
+                stored++;
+            }
+        }
+        count("stored", stored);
+        batches.record(batch.size());
+    }
+
+    private void count(String result, int reviews) {
+        registry.counter(METRIC_PREFIX + ".reviews", "result", result).increment(reviews);
+    }
+
+    private record Queued(Review review, long submittedAt) {
+    }
+}
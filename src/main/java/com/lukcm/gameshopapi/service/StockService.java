@@ -0,0 +1,419 @@
+package com.lukcm.gameshopapi.service;
+
+import com.lukcm.gameshopapi.cache.GameCache;
+import com.lukcm.gameshopapi.exception.GameNotFoundException;
+import com.lukcm.gameshopapi.exception.GameServiceException;
+import com.lukcm.gameshopapi.exception.InsufficientStockException;
+import com.lukcm.gameshopapi.exception.ReservationNotFoundException;
+import com.lukcm.gameshopapi.exception.ReservationStateException;
+import com.lukcm.gameshopapi.model.Game;
+import com.lukcm.gameshopapi.model.StockBucket;
+import com.lukcm.gameshopapi.model.StockReservation;
+import com.lukcm.gameshopapi.repository.GameShopRepository;
+import com.lukcm.gameshopapi.repository.StockBucketRepository;
+import com.lukcm.gameshopapi.repository.StockReservationRepository;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Stream;
+
+/**
+ * @author Max_MacKoul
+ *
+ * Service layer for the stock of games. Stock is only ever changed with conditional $inc updates, never by
+ * writing the whole game, so concurrent checkouts cannot lose each other's updates or oversell a game.
+ *
+ * A reservation takes the stock of all its items up front and holds it for gameshop.stock.reservation-ttl.
+ * It is then committed, which makes the sale final, or released, which returns the stock. Held reservations
+ * that expire are released by a sweep every gameshop.stock.sweep-interval-ms milliseconds.
+ *
+ * The stock of a game that sells too fast for a single document can be split into buckets (hot-SKU mode).
+ * Reservations then take stock from a random bucket, so concurrent checkouts of the same game mostly update
+ * different documents.
+ *
+ * No multi-document transactions are used. Stock is taken before the reservation is stored and the
+ * reservation is marked released before its stock is returned, so a crash between the two steps can only
+ * leave stock unsold, never sell it twice.
+ */
+@Service
+public class StockService {
+
+    private static final Logger logger = LogManager.getLogger(StockService.class);
+
+    /** The largest number of buckets the stock of a game can be split into. */
+    public static final int MAX_BUCKETS = 64;
+
+    private final GameShopRepository gameRepository;
+
+    private final StockBucketRepository bucketRepository;
+
+    private final StockReservationRepository reservationRepository;
+
+    private final GameCache gameCache;
+
+    private final Duration reservationTtl;
+
+    public StockService(GameShopRepository gameRepository, StockBucketRepository bucketRepository,
+                        StockReservationRepository reservationRepository, GameCache gameCache,
+                        @Value("${gameshop.stock.reservation-ttl:15m}") Duration reservationTtl) {
+        this.gameRepository = gameRepository;
+        this.bucketRepository = bucketRepository;
+        this.reservationRepository = reservationRepository;
+        this.gameCache = gameCache;
+        this.reservationTtl = reservationTtl;
+    }
+
+    /**
+     * Reserves stock of one or more games. Either the stock of every item is reserved or none is.
+     *
+     * @param items the games and quantities to reserve; items for the same game are added together
+     * @return the held reservation
+     * @throws IllegalArgumentException if there are no items or a quantity is not positive
+     * @throws GameNotFoundException if one of the games does not exist
+     * @throws InsufficientStockException if one of the games does not have enough stock
+     * @throws GameServiceException if an error occurs during database access
+     */
+    public StockReservation reserve(List<StockReservation.Item> items) {
+        String methodName = ".reserve";
+        logger.debug("{}: entering method", methodName);
+
+        if (items == null || items.isEmpty()) {
+            throw new IllegalArgumentException("a reservation needs at least one item");
+        }
+        // Merge the items of each game, in a stable order
+        Map<String, Integer> quantities = new TreeMap<>();
+        for (StockReservation.Item item : items) {
+            if (item.getGameId() == null || item.getQuantity() < 1) {
+                throw new IllegalArgumentException("every item needs a gameId and a positive quantity");
+            }
+            quantities.merge(item.getGameId(), item.getQuantity(), Integer::sum);
+        }
+
+        List<StockReservation.Item> taken = new ArrayList<>();
+        try {
+            quantities.forEach((gameId, quantity) -> take(gameId, quantity, taken));
+
+            Date now = new Date();
+            StockReservation reservation = new StockReservation();
+            reservation.setItems(taken);
+            reservation.setStatus(StockReservation.Status.HELD);
+            reservation.setCreatedAt(now);
+            reservation.setExpiresAt(new Date(now.getTime() + reservationTtl.toMillis()));
+            return reservationRepository.insert(reservation);
+        } catch (RuntimeException ex) {
+            taken.forEach(this::giveBack);
+            if (ex instanceof DataAccessException) {
+                logger.error("{}: Error reserving stock: {}", methodName, ex);
+                throw new GameServiceException("Error reserving stock", ex);
+            }
+            throw ex;
+        } finally {
+            quantities.keySet().forEach(gameCache::invalidate);
+            logger.debug("{}: exiting method", methodName);
+        }
+    }
+
+    /**
+     * Makes the sale of a held reservation final.
+     *
+     * @param reservationId the ID of the reservation
+     * @return the committed reservation
+     * @throws ReservationNotFoundException if the reservation does not exist
+     * @throws ReservationStateException if the reservation has expired or was already committed or released
+     */
+    public StockReservation commit(String reservationId) {
+        String methodName = ".commit";
+        logger.debug("{}: entering method", methodName);
+
+        try {
+            StockReservation reservation = reservationRepository.finishHeld(reservationId,
+                    StockReservation.Status.COMMITTED, new Date());
+            if (reservation == null) {
+                throw notHeld(reservationId);
+            }
+            reservation.setStatus(StockReservation.Status.COMMITTED);
+            return reservation;
+        } catch (DataAccessException ex) {
+            logger.error("{}: Error committing reservation {}: {}", methodName, reservationId, ex);
+            throw new GameServiceException("Error committing reservation " + reservationId, ex);
+        } finally {
+            logger.debug("{}: exiting method", methodName);
+        }
+    }
+
+    /**
+     * Releases a held reservation and returns its stock.
+     *
+     * @param reservationId the ID of the reservation
+     * @return the released reservation
+     * @throws ReservationNotFoundException if the reservation does not exist
+     * @throws ReservationStateException if the reservation was already committed or released
+     */
+    public StockReservation release(String reservationId) {
+        String methodName = ".release";
+        logger.debug("{}: entering method", methodName);
+
+        try {
+            StockReservation reservation = reservationRepository.finishHeld(reservationId,
+                    StockReservation.Status.RELEASED, null);
+            if (reservation == null) {
+                throw notHeld(reservationId);
+            }
+            returnItems(reservation);
+            reservation.setStatus(StockReservation.Status.RELEASED);
+            return reservation;
+        } catch (DataAccessException ex) {
+            logger.error("{}: Error releasing reservation {}: {}", methodName, reservationId, ex);
+            throw new GameServiceException("Error releasing reservation " + reservationId, ex);
+        } finally {
+            logger.debug("{}: exiting method", methodName);
+        }
+    }
+
+    /**
+     * Retrieves a reservation by its ID.
+     *
+     * @param reservationId the ID of the reservation
+     * @return the reservation
+     * @throws ReservationNotFoundException if the reservation does not exist
+     */
+    public StockReservation getReservation(String reservationId) {
+        return reservationRepository.findById(reservationId)
+                .orElseThrow(() -> new ReservationNotFoundException(reservationId));
+    }
+
+    /**
+     * Releases every held reservation that has expired. Several instances may sweep at the same time; each
+     * reservation is released by exactly one of them.
+     *
+     * @return the number of reservations released
+     */
+    @Scheduled(fixedDelayString = "${gameshop.stock.sweep-interval-ms:30000}")
+    public int releaseExpired() {
+        String methodName = ".releaseExpired";
+
+        int released = 0;
+        try (Stream<StockReservation> expired = reservationRepository.streamByStatusAndExpiresAtBefore(
+                StockReservation.Status.HELD, new Date())) {
+            Iterator<StockReservation> it = expired.iterator();
+            while (it.hasNext()) {
+                StockReservation reservation = reservationRepository.finishHeld(it.next().getId(),
+                        StockReservation.Status.RELEASED, null);
+                if (reservation != null) {
+                    returnItems(reservation);
+                    released++;
+                }
+            }
+        } catch (DataAccessException ex) {
+            logger.error("{}: Error releasing expired reservations: {}", methodName, ex);
+        }
+        if (released > 0) {
+            logger.info("{}: released {} expired reservations", methodName, released);
+        }
+        return released;
+    }
+
+    /**
+     * Returns the stock of a game that is available to reserve.
+     *
+     * @param gameId the ID of the game
+     * @return the available stock, summed over the buckets in hot-SKU mode
+     * @throws GameNotFoundException if the game does not exist
+     */
+    public int getStock(String gameId) {
+        Game game = gameRepository.findStockById(gameId).orElseThrow(() -> new GameNotFoundException(gameId));
+        if (game.getStockBuckets() == null) {
+            return game.getTotalStock();
+        }
+        return bucketRepository.findByGameId(gameId).stream().mapToInt(StockBucket::getStock).sum();
+    }
+
+    /**
+     * Adds stock to a game, for example when a delivery arrives.
+     *
+     * @param gameId the ID of the game
+     * @param quantity the quantity to add
+     * @return the available stock after the delivery
+     * @throws IllegalArgumentException if the quantity is not positive
+     * @throws GameNotFoundException if the game does not exist
+     */
+    public int restock(String gameId, int quantity) {
+        if (quantity < 1) {
+            throw new IllegalArgumentException("quantity must be positive");
+        }
+        if (!returnStock(gameId, quantity, null)) {
+            throw new GameNotFoundException(gameId);
+        }
+        gameCache.invalidate(gameId);
+        return getStock(gameId);
+    }
+
+    /**
+     * Splits the stock of a game into buckets, so that concurrent reservations of the game update different
+     * documents. Reservations made while the stock is being moved may briefly see the game as sold out.
+     *
+     * @param gameId the ID of the game
+     * @param buckets the number of buckets, between 2 and {@value #MAX_BUCKETS}
+     * @throws IllegalArgumentException if the number of buckets is out of range or the stock is already split
+     * @throws GameNotFoundException if the game does not exist
+     */
+    public void splitStock(String gameId, int buckets) {
+        String methodName = ".splitStock";
+        logger.debug("{}: entering method", methodName);
+
+        if (buckets < 2 || buckets > MAX_BUCKETS) {
+            throw new IllegalArgumentException("buckets must be between 2 and " + MAX_BUCKETS);
+        }
+        Game game = gameRepository.splitStock(gameId, buckets);
+        if (game == null) {
+            gameRepository.findStockById(gameId).orElseThrow(() -> new GameNotFoundException(gameId));
+            throw new IllegalArgumentException("The stock of game " + gameId + " is already split");
+        }
+        int stock = game.getTotalStock();
+        for (int bucket = 0; bucket < buckets; bucket++) {
+            bucketRepository.put(gameId, bucket, stock / buckets + (bucket < stock % buckets ? 1 : 0));
+        }
+        gameCache.invalidate(gameId);
+        logger.info("{}: exiting method, split {} units of game {} into {} buckets", methodName, stock, gameId, buckets);
+    }
+
+    /**
+     * Moves the stock of a game in hot-SKU mode back into totalStock.
+     *
+     * @param gameId the ID of the game
+     * @throws GameNotFoundException if the game does not exist
+     */
+    public void mergeStock(String gameId) {
+        String methodName = ".mergeStock";
+        logger.debug("{}: entering method", methodName);
+
+        if (!gameRepository.mergeStock(gameId)) {
+            gameRepository.findStockById(gameId).orElseThrow(() -> new GameNotFoundException(gameId));
+            return;
+        }
+        int stock = 0;
+        for (StockBucket bucket : bucketRepository.findByGameId(gameId)) {
+            stock += bucketRepository.drain(gameId, bucket.getBucket());
+        }
+        if (stock > 0) {
+            returnStock(gameId, stock, null);
+        }
+        gameCache.invalidate(gameId);
+        logger.info("{}: exiting method, merged {} units of game {}", methodName, stock, gameId);
+    }
+
+    private RuntimeException notHeld(String reservationId) {
+        Optional<StockReservation> reservation = reservationRepository.findById(reservationId);
+        if (reservation.isEmpty()) {
+            return new ReservationNotFoundException(reservationId);
+        }
+        StockReservation.Status status = reservation.get().getStatus();
+        return new ReservationStateException(reservationId,
+                status == StockReservation.Status.HELD ? "expired" : status.name().toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Takes the quantity of a game from totalStock or, in hot-SKU mode, from its buckets, and records where
+     * it was taken from.
+     */
+    private void take(String gameId, int quantity, List<StockReservation.Item> taken) {
+        if (gameRepository.reserveStock(gameId, quantity)) {
+            taken.add(new StockReservation.Item(gameId, quantity, null));
+            return;
+        }
+        Game game = gameRepository.findStockById(gameId).orElseThrow(() -> new GameNotFoundException(gameId));
+        if (game.getStockBuckets() == null) {
+            throw new InsufficientStockException(gameId, quantity);
+        }
+
+        // Try the buckets one by one from a random start, so that concurrent reservations spread out
+        int buckets = game.getStockBuckets();
+        int start = ThreadLocalRandom.current().nextInt(buckets);
+        for (int i = 0; i < buckets; i++) {
+            int bucket = (start + i) % buckets;
+            if (bucketRepository.take(gameId, bucket, quantity)) {
+                taken.add(new StockReservation.Item(gameId, quantity, bucket));
+                return;
+            }
+        }
+
+        // No single bucket holds enough, gather the quantity from several of them
+        int remaining = quantity;
+        for (StockBucket bucket : bucketRepository.findByGameId(gameId)) {
+            int part = Math.min(remaining, bucket.getStock());
+            if (part > 0 && bucketRepository.take(gameId, bucket.getBucket(), part)) {
+                taken.add(new StockReservation.Item(gameId, part, bucket.getBucket()));
+                remaining -= part;
+                if (remaining == 0) {
+                    return;
+                }
+            }
+        }
+        throw new InsufficientStockException(gameId, quantity);
+    }
+
+    private void returnItems(StockReservation reservation) {
+        reservation.getItems().forEach(this::giveBack);
+        reservation.getItems().forEach(item -> gameCache.invalidate(item.getGameId()));
+    }
+
+    private void giveBack(StockReservation.Item item) {
+        returnStock(item.getGameId(), item.getQuantity(), item.getBucket());
+    }
+
+    /**
+     * Returns stock to a game, into totalStock or, in hot-SKU mode, into the preferred bucket.
+     *
+     * @return false if the game does not exist
+     */
+    private boolean returnStock(String gameId, int quantity, Integer preferredBucket) {
+        String methodName = ".returnStock";
+        // The mode of the game can change between the steps, so try again when it does
+        for (int attempt = 0; attempt < 3; attempt++) {
+            if (gameRepository.releaseStock(gameId, quantity)) {
+                return true;
+            }
+            Optional<Game> game = gameRepository.findStockById(gameId);
+            if (game.isEmpty()) {
+                return false;
+            }
+            Integer buckets = game.get().getStockBuckets();
+            if (buckets != null) {
+                int bucket = preferredBucket != null && preferredBucket < buckets
+                        ? preferredBucket
+                        : ThreadLocalRandom.current().nextInt(buckets);
+                bucketRepository.put(gameId, bucket, quantity);
+
+                // A merge may have drained the buckets before the put, stranding the stock in a bucket that is
+                // no longer read; if the game left hot-SKU mode, move whatever the bucket holds to totalStock
+                Optional<Game> after = gameRepository.findStockById(gameId);
+                if (after.isEmpty() || after.get().getStockBuckets() != null) {
+                    return true;
+                }
+                quantity = bucketRepository.drain(gameId, bucket);
+                if (quantity == 0) {
+                    // The merge drained it after the put
+                    return true;
+                }
+                preferredBucket = null;
+            }
+        }
+        logger.error("{}: could not return {} units to game {}, its stock mode keeps changing", methodName,
+                quantity, gameId);
+        return false;
+    }
+}
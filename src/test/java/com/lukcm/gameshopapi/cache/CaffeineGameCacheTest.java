@@ -0,0 +1,94 @@
+package com.lukcm.gameshopapi.cache;
+
+import com.lukcm.gameshopapi.model.Game;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Max_MacKoul
+ *
+ * Checks that CaffeineGameCache serves bulk lookups from the cache and never lets a bulk load undo an
+ * invalidation that arrived while it was reading the database.
+ */
+class CaffeineGameCacheTest {
+
+    private final CaffeineGameCache cache = new CaffeineGameCache(100, Duration.ofMinutes(5), Duration.ofSeconds(30));
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @AfterEach
+    void stopThreads() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void cachesBulkLoadsIncludingUnknownIds() {
+        Map<String, Optional<Game>> first = cache.getAll(Set.of("a", "b"), this::load);
+        Map<String, Optional<Game>> second = cache.getAll(Set.of("a", "b"), this::load);
+
+        assertThat(first.get("a")).isPresent();
+        assertThat(first.get("b")).isEmpty();
+        assertThat(second).isEqualTo(first);
+        assertThat(loads.get()).isEqualTo(1);
+        assertThat(cache.get("a", id -> Optional.empty())).isPresent();
+    }
+
+    @Test
+    void doesNotCacheABulkLoadThatAnInvalidationOverlapped() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch invalidated = new CountDownLatch(1);
+
+        Future<Map<String, Optional<Game>>> bulk = executor.submit(() -> cache.getAll(Set.of("a"), ids -> {
+            loading.countDown();
+            await(invalidated);
+            // Read before the write that the invalidation follows
+            return load(ids);
+        }));
+        assertThat(loading.await(10, TimeUnit.SECONDS)).isTrue();
+        cache.invalidate("a");
+        invalidated.countDown();
+
+        assertThat(bulk.get(10, TimeUnit.SECONDS).get("a")).isPresent();
+        // The stale game was returned to the caller but not kept: the next lookup reads again
+        assertThat(cache.get("a", id -> Optional.empty())).isEmpty();
+    }
+
+    private Map<String, Optional<Game>> load(Set<String> ids) {
+        loads.incrementAndGet();
+        Map<String, Optional<Game>> games = new LinkedHashMap<>();
+        for (String id : ids) {
+            if (id.equals("a")) {
+                Game game = new Game();
+                game.setId(id);
+                games.put(id, Optional.of(game));
+            }
+        }
+        return games;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(ex);
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.lukcm.gameshopapi.event;
+
+import com.lukcm.gameshopapi.model.Game;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import de.bwaldvogel.mongo.MongoServer;
+import de.bwaldvogel.mongo.backend.memory.MemoryBackend;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Max_MacKoul
+ *
+ * Runs the GameChangeStreamListener against mongo-java-server, an in-memory stand-in for MongoDB that keeps an
+ * oplog and serves change streams.
+ */
+class GameChangeStreamListenerTest {
+
+    private MongoServer server;
+
+    private MongoClient client;
+
+    private MongoTemplate mongoTemplate;
+
+    private final BlockingQueue<GameChangedEvent> events = new LinkedBlockingQueue<>();
+
+    // The number of events the publisher still has to fail
+    private final AtomicInteger failures = new AtomicInteger();
+
+    private final ApplicationEventPublisher publisher = event -> {
+        if (failures.getAndUpdate(left -> Math.max(0, left - 1)) > 0) {
+            throw new IllegalStateException("listener failed");
+        }
+        events.add((GameChangedEvent) event);
+    };
+
+    private GameChangeStreamListener listener;
+
+    @BeforeEach
+    void startServer() {
+        MemoryBackend backend = new MemoryBackend();
+        backend.enableOplog();
+        server = new MongoServer(backend);
+        InetSocketAddress address = server.bind();
+        client = MongoClients.create("mongodb://localhost:" + address.getPort());
+        mongoTemplate = new MongoTemplate(client, "gameshop-test");
+    }
+
+    @AfterEach
+    void stopServer() {
+        if (listener != null && listener.isRunning()) {
+            listener.stop();
+        }
+        client.close();
+        server.shutdownNow();
+    }
+
+    @Test
+    void publishesInsertsUpdatesAndDeletes() throws InterruptedException {
+        startListener();
+
+        Game game = mongoTemplate.insert(game("Hades"));
+        GameChangedEvent inserted = next();
+        assertThat(inserted.getType()).isEqualTo(GameChangedEvent.Type.UPSERTED);
+        assertThat(inserted.getGameId()).isEqualTo(game.getId());
+        assertThat(inserted.getGame().getTitle()).isEqualTo("Hades");
+        assertThat(inserted.isRemote()).isTrue();
+
+        // A replacement rather than a $set, whose document key the stand-in does not report
+        game.setPrice(19.99);
+        mongoTemplate.save(game);
+        GameChangedEvent updated = next();
+        assertThat(updated.getType()).isEqualTo(GameChangedEvent.Type.UPSERTED);
+        assertThat(updated.getGame().getPrice()).isEqualTo(19.99);
+
+        mongoTemplate.remove(game);
+        GameChangedEvent deleted = next();
+        assertThat(deleted.getType()).isEqualTo(GameChangedEvent.Type.DELETED);
+        assertThat(deleted.getGameId()).isEqualTo(game.getId());
+    }
+
+    @Test
+    void resetsAndKeepsWatchingWhenAListenerFails() throws InterruptedException {
+        startListener();
+
+        failures.set(1);
+        mongoTemplate.insert(game("Celeste"));
+        assertThat(next().getType()).isEqualTo(GameChangedEvent.Type.RESET);
+
+        Game later = mongoTemplate.insert(game("Hollow Knight"));
+        GameChangedEvent event = next();
+        assertThat(event.getType()).isEqualTo(GameChangedEvent.Type.UPSERTED);
+        assertThat(event.getGameId()).isEqualTo(later.getId());
+        assertThat(listener.isRunning()).isTrue();
+    }
+
+    @Test
+    void retriesAChangeWhoseResetFails() throws InterruptedException {
+        startListener();
+        mongoTemplate.insert(game("Hades"));
+        assertThat(next().getType()).isEqualTo(GameChangedEvent.Type.UPSERTED);
+
+        // The change and the RESET replacing it both fail, so the change is delivered again
+        failures.set(2);
+        Game game = mongoTemplate.insert(game("Celeste"));
+        GameChangedEvent event = next();
+        assertThat(event.getType()).isEqualTo(GameChangedEvent.Type.UPSERTED);
+        assertThat(event.getGameId()).isEqualTo(game.getId());
+        assertThat(listener.isRunning()).isTrue();
+    }
+
+    @Test
+    void resumesAfterARestartFromTheStoredToken() throws InterruptedException {
+        startListener();
+        mongoTemplate.insert(game("Hades"));
+        assertThat(next().getType()).isEqualTo(GameChangedEvent.Type.UPSERTED);
+        listener.stop();
+
+        Game missed = mongoTemplate.insert(game("Celeste"));
+        startListener();
+
+        GameChangedEvent event = next();
+        assertThat(event.getGameId()).isEqualTo(missed.getId());
+        assertThat(events.poll(1, TimeUnit.SECONDS)).isNull();
+    }
+
+    private void startListener() {
+        listener = new GameChangeStreamListener(mongoTemplate, publisher, "test", Duration.ofMillis(50));
+        listener.start();
+    }
+
+    private GameChangedEvent next() throws InterruptedException {
+        GameChangedEvent event = events.poll(10, TimeUnit.SECONDS);
+        assertThat(event).as("change stream event").isNotNull();
+        return event;
+    }
+
+    private static Game game(String title) {
+        Game game = new Game();
+        game.setTitle(title);
+        game.setPrice(9.99);
+        return game;
+    }
+}
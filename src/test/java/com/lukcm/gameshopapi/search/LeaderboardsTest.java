@@ -0,0 +1,169 @@
+package com.lukcm.gameshopapi.search;
+
+import com.lukcm.gameshopapi.dto.Leaderboard;
+import com.lukcm.gameshopapi.event.ReviewsAddedEvent;
+import com.lukcm.gameshopapi.model.Game;
+import com.lukcm.gameshopapi.model.ReviewStats;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * @author Max_MacKoul
+ *
+ * Checks when Leaderboards publishes a new snapshot, and that a leaderboard refills from the games below its
+ * snapshot when one of its games leaves.
+ */
+class LeaderboardsTest {
+
+    private static final int SIZE = 3;
+
+    private Leaderboards leaderboards;
+
+    @BeforeEach
+    void build() {
+        leaderboards = new Leaderboards(SIZE);
+        assertThat(leaderboards.isReady()).isFalse();
+        CatalogIndex.Loader loader = leaderboards.newLoader();
+        // Rated 9, 8, 7, 6 and 5, so that the snapshots hold a, b and c
+        loader.add(game("a", 9, 10, 5, "rpg"));
+        loader.add(game("b", 8, 20, 4, "rpg"));
+        loader.add(game("c", 7, 30, 3, "rpg"));
+        loader.add(game("d", 6, 40, 2, "rpg"));
+        loader.add(game("e", 5, 50, 1, "puzzle"));
+        loader.publish();
+        assertThat(leaderboards.isReady()).isTrue();
+    }
+
+    @Test
+    void snapshotsHoldTheFirstGamesOfEachLeaderboard() {
+        assertThat(ids(Leaderboard.Kind.TOP_RATED, null)).containsExactly("a", "b", "c");
+        assertThat(ids(Leaderboard.Kind.MOST_REVIEWED, null)).containsExactly("a", "b", "c");
+        assertThat(ids(Leaderboard.Kind.DEALS, "rpg")).containsExactly("a", "b", "c");
+        assertThat(ids(Leaderboard.Kind.DEALS, "puzzle")).containsExactly("e");
+        assertThat(ids(Leaderboard.Kind.DEALS, "racing")).isEmpty();
+        assertThat(leaderboards.get(Leaderboard.Kind.TOP_RATED, null, 2).getGames()).hasSize(2);
+    }
+
+    @Test
+    void changesBelowTheSnapshotDoNotPublishOne() {
+        long version = version(Leaderboard.Kind.TOP_RATED, null);
+
+        leaderboards.put(game("d", 6.5, 40, 2, "rpg"));
+        leaderboards.put(game("f", 1, 60, 0, "rpg"));
+
+        assertThat(version(Leaderboard.Kind.TOP_RATED, null)).isEqualTo(version);
+        assertThat(ids(Leaderboard.Kind.TOP_RATED, null)).containsExactly("a", "b", "c");
+    }
+
+    @Test
+    void aGameEnteringTheSnapshotPublishesANewVersion() {
+        long version = version(Leaderboard.Kind.TOP_RATED, null);
+
+        leaderboards.put(game("d", 8.5, 40, 2, "rpg"));
+
+        assertThat(version(Leaderboard.Kind.TOP_RATED, null)).isGreaterThan(version);
+        assertThat(ids(Leaderboard.Kind.TOP_RATED, null)).containsExactly("a", "d", "b");
+    }
+
+    @Test
+    void unchangedGamesAndDuplicateEventsDoNotPublishOne() {
+        long version = version(Leaderboard.Kind.TOP_RATED, null);
+
+        leaderboards.put(game("a", 9, 10, 5, "rpg"));
+        leaderboards.put(game("a", 9, 10, 5, "rpg"));
+
+        assertThat(version(Leaderboard.Kind.TOP_RATED, null)).isEqualTo(version);
+    }
+
+    @Test
+    void refillsFromTheGamesBelowWhenAGameLeaves() {
+        long version = version(Leaderboard.Kind.TOP_RATED, null);
+
+        leaderboards.remove("b");
+
+        assertThat(version(Leaderboard.Kind.TOP_RATED, null)).isGreaterThan(version);
+        assertThat(ids(Leaderboard.Kind.TOP_RATED, null)).containsExactly("a", "c", "d");
+        assertThat(ids(Leaderboard.Kind.DEALS, "rpg")).containsExactly("a", "c", "d");
+
+        // A game dropping below the snapshot is replaced as well
+        leaderboards.put(game("a", 1, 10, 5, "rpg"));
+        assertThat(ids(Leaderboard.Kind.TOP_RATED, null)).containsExactly("c", "d", "e");
+    }
+
+    @Test
+    void movesAGameBetweenGenres() {
+        leaderboards.put(game("e", 5, 50, 1, "rpg"));
+
+        assertThat(ids(Leaderboard.Kind.DEALS, "puzzle")).isEmpty();
+        assertThat(ids(Leaderboard.Kind.DEALS, "rpg")).containsExactly("a", "b", "c");
+        leaderboards.put(game("e", 5, 5, 1, "rpg"));
+        assertThat(ids(Leaderboard.Kind.DEALS, "rpg")).containsExactly("e", "a", "b");
+    }
+
+    @Test
+    void countsAddedReviews() {
+        leaderboards.onReviewsAdded(new ReviewsAddedEvent("e", stats(10)));
+
+        assertThat(ids(Leaderboard.Kind.MOST_REVIEWED, null)).containsExactly("e", "a", "b");
+        assertThat(leaderboards.get(Leaderboard.Kind.MOST_REVIEWED, null, 1).getGames().get(0).getReviews())
+                .isEqualTo(11);
+
+        // A game written without statistics keeps its count
+        Game withoutStats = game("e", 5, 50, 0, "puzzle");
+        withoutStats.setReviewStats(null);
+        leaderboards.put(withoutStats);
+        assertThat(ids(Leaderboard.Kind.MOST_REVIEWED, null)).containsExactly("e", "a", "b");
+    }
+
+    @Test
+    void versionsKeepIncreasingAcrossRebuilds() {
+        long version = version(Leaderboard.Kind.TOP_RATED, null);
+
+        CatalogIndex.Loader loader = leaderboards.newLoader();
+        loader.add(game("a", 9, 10, 5, "rpg"));
+        loader.publish();
+
+        assertThat(version(Leaderboard.Kind.TOP_RATED, null)).isGreaterThan(version);
+        assertThat(ids(Leaderboard.Kind.TOP_RATED, null)).containsExactly("a");
+    }
+
+    @Test
+    void refusesInvalidRequests() {
+        assertThatThrownBy(() -> leaderboards.get(Leaderboard.Kind.TOP_RATED, null, SIZE + 1))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> leaderboards.get(Leaderboard.Kind.TOP_RATED, null, 0))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> leaderboards.get(Leaderboard.Kind.DEALS, " ", 1))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private List<String> ids(Leaderboard.Kind kind, String genre) {
+        return leaderboards.get(kind, genre, SIZE).getGames().stream().map(Leaderboard.Entry::getId).toList();
+    }
+
+    private long version(Leaderboard.Kind kind, String genre) {
+        return leaderboards.get(kind, genre, SIZE).getVersion();
+    }
+
+    private static Game game(String id, double rating, double price, long reviews, String genre) {
+        Game game = new Game();
+        game.setId(id);
+        game.setTitle("Game " + id);
+        game.setRating(rating);
+        game.setPrice(price);
+        game.setGenres(List.of(genre));
+        game.setReviewStats(stats(reviews));
+        return game;
+    }
+
+    private static ReviewStats stats(long count) {
+        ReviewStats stats = new ReviewStats();
+        stats.setCount(count);
+        return stats;
+    }
+}
@@ -0,0 +1,197 @@
+package com.lukcm.gameshopapi.security;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKMatcher;
+import com.nimbusds.jose.jwk.JWKSelector;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.security.oauth2.resource.OAuth2ResourceServerProperties;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Max_MacKoul
+ *
+ * Runs RefreshingJwkSource, and the decoder JwtDecoderConfig builds on it, against a stand-in JWK set endpoint.
+ */
+class RefreshingJwkSourceTest {
+
+    private static final Duration WAIT = Duration.ofSeconds(10);
+
+    private final RSAKey firstKey = generateKey("first");
+
+    private final RSAKey secondKey = generateKey("second");
+
+    // The JWK set the endpoint serves, or null to answer 500
+    private final AtomicReference<JWKSet> served = new AtomicReference<>(new JWKSet(firstKey.toPublicJWK()));
+
+    private final AtomicInteger fetches = new AtomicInteger();
+
+    private HttpServer server;
+
+    private URL jwkSetUrl;
+
+    private ThreadPoolTaskScheduler scheduler;
+
+    @BeforeEach
+    void startEndpoint() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/jwks", exchange -> {
+            fetches.incrementAndGet();
+            JWKSet set = served.get();
+            byte[] body = (set == null ? "unavailable" : set.toString()).getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(set == null ? 500 : 200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+        jwkSetUrl = new URL("http://127.0.0.1:" + server.getAddress().getPort() + "/jwks");
+
+        scheduler = new ThreadPoolTaskScheduler();
+        scheduler.initialize();
+    }
+
+    @AfterEach
+    void stopEndpoint() {
+        scheduler.shutdown();
+        server.stop(0);
+    }
+
+    @Test
+    void fetchesTheKeysWhenCreated() throws Exception {
+        RefreshingJwkSource source = new RefreshingJwkSource(jwkSetUrl, Duration.ofHours(1), scheduler);
+
+        awaitKey(source, "first");
+        assertThat(fetches.get()).isEqualTo(1);
+    }
+
+    @Test
+    void picksUpRotatedKeysAndKeepsThemWhenTheIssuerFails() throws Exception {
+        RefreshingJwkSource source = new RefreshingJwkSource(jwkSetUrl, Duration.ofHours(1), scheduler);
+        awaitKey(source, "first");
+
+        served.set(new JWKSet(secondKey.toPublicJWK()));
+        source.refresh();
+        assertThat(keyIds(source, "second")).containsExactly("second");
+        assertThat(keyIds(source, "first")).isEmpty();
+
+        served.set(null);
+        source.refresh();
+        assertThat(keyIds(source, "second")).containsExactly("second");
+    }
+
+    @Test
+    void refreshesAtMostOnceForUnknownKeyIds() throws Exception {
+        RefreshingJwkSource source = new RefreshingJwkSource(jwkSetUrl, Duration.ofHours(1), scheduler);
+        awaitKey(source, "first");
+
+        for (int i = 0; i < 100; i++) {
+            assertThat(keyIds(source, "made-up-" + i)).isEmpty();
+        }
+        Thread.sleep(200);
+        // The fetch at creation counts as the last refresh, so no other one is due for MIN_REFRESH_INTERVAL
+        assertThat(fetches.get()).isEqualTo(1);
+    }
+
+    @Test
+    void refreshesForTheNextTokenWhenTheFirstFetchFailed() throws Exception {
+        served.set(null);
+        RefreshingJwkSource source = new RefreshingJwkSource(jwkSetUrl, Duration.ofHours(1), scheduler);
+        Instant deadline = Instant.now().plus(WAIT);
+        while (fetches.get() == 0 && Instant.now().isBefore(deadline)) {
+            Thread.sleep(20);
+        }
+
+        served.set(new JWKSet(firstKey.toPublicJWK()));
+        // Polling with the key ID requests the refresh once the failed fetch has ended
+        awaitKey(source, "first");
+        assertThat(fetches.get()).isEqualTo(2);
+    }
+
+    @Test
+    void decoderValidatesTokensWithTheFetchedKeysOnItsOwnThread() throws Exception {
+        OAuth2ResourceServerProperties properties = new OAuth2ResourceServerProperties();
+        properties.getJwt().setJwkSetUri(jwkSetUrl.toString());
+        JwtDecoder decoder = new JwtDecoderConfig().jwtDecoder(properties, new SimpleMeterRegistry(), null,
+                Duration.ofMinutes(5), false, 10, Duration.ofMinutes(5));
+
+        Instant deadline = Instant.now().plus(WAIT);
+        while (fetches.get() == 0 && Instant.now().isBefore(deadline)) {
+            Thread.sleep(20);
+        }
+        String token = sign(firstKey, "alice");
+        // The fetch may still be parsing the response when the request has been counted
+        Exception last = null;
+        while (Instant.now().isBefore(deadline)) {
+            try {
+                assertThat(decoder.decode(token).getSubject()).isEqualTo("alice");
+                last = null;
+                break;
+            } catch (Exception ex) {
+                last = ex;
+                Thread.sleep(20);
+            }
+        }
+        assertThat(last).isNull();
+        assertThat(Thread.getAllStackTraces().keySet())
+                .anyMatch(thread -> thread.getName().equals("jwk-refresh-1"));
+    }
+
+    private static void awaitKey(RefreshingJwkSource source, String keyId) throws InterruptedException {
+        Instant deadline = Instant.now().plus(WAIT);
+        while (keyIds(source, keyId).isEmpty() && Instant.now().isBefore(deadline)) {
+            Thread.sleep(20);
+        }
+        assertThat(keyIds(source, keyId)).containsExactly(keyId);
+    }
+
+    private static List<String> keyIds(RefreshingJwkSource source, String keyId) {
+        return source.get(new JWKSelector(new JWKMatcher.Builder().keyID(keyId).build()), null).stream()
+                .map(JWK::getKeyID)
+                .toList();
+    }
+
+    private static String sign(RSAKey key, String subject) throws JOSEException {
+        SignedJWT jwt = new SignedJWT(new JWSHeader.Builder(JWSAlgorithm.RS256).keyID(key.getKeyID()).build(),
+                new JWTClaimsSet.Builder()
+                        .subject(subject)
+                        .expirationTime(Date.from(Instant.now().plusSeconds(60)))
+                        .build());
+        jwt.sign(new RSASSASigner(key));
+        return jwt.serialize();
+    }
+
+    private static RSAKey generateKey(String keyId) {
+        try {
+            return new RSAKeyGenerator(2048).keyID(keyId).generate();
+        } catch (JOSEException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+}
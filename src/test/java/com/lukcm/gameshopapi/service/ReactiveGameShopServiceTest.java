@@ -0,0 +1,153 @@
+package com.lukcm.gameshopapi.service;
+
+import com.lukcm.gameshopapi.cache.GameCache;
+import com.lukcm.gameshopapi.dto.CursorPage;
+import com.lukcm.gameshopapi.exception.GameServiceException;
+import com.lukcm.gameshopapi.metrics.ResultSizeMetrics;
+import com.lukcm.gameshopapi.model.Game;
+import com.lukcm.gameshopapi.model.Review;
+import com.lukcm.gameshopapi.repository.ReactiveGameShopRepository;
+import com.lukcm.gameshopapi.repository.ReactiveReviewRepository;
+import com.lukcm.gameshopapi.repository.ReactiveStockBucketRepository;
+import com.lukcm.gameshopapi.search.CatalogFacets;
+import com.lukcm.gameshopapi.search.GameSearchIndex;
+import com.lukcm.gameshopapi.search.Leaderboards;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessResourceFailureException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author Max_MacKoul
+ *
+ * Checks that the reactive service keeps the listeners of its writes off the calling thread, which is an event
+ * loop thread when it serves a request, and that it validates and reports errors like GameShopService.
+ */
+class ReactiveGameShopServiceTest {
+
+    private static final String GAME_ID = "game";
+
+    private final ReactiveGameShopRepository gameRepository = mock(ReactiveGameShopRepository.class);
+
+    private final ReactiveReviewRepository reviewRepository = mock(ReactiveReviewRepository.class);
+
+    private final ReactiveStockBucketRepository stockBucketRepository = mock(ReactiveStockBucketRepository.class);
+
+    private final GameCache gameCache = mock(GameCache.class);
+
+    private final ApplicationEventPublisher eventPublisher = mock(ApplicationEventPublisher.class);
+
+    // The thread each kind of side effect ran on
+    private final Map<String, String> threads = new ConcurrentHashMap<>();
+
+    private final ReactiveGameShopService service = new ReactiveGameShopService(gameRepository, reviewRepository,
+            stockBucketRepository, mock(ReviewStatsBackfillJob.class), mock(ReviewMigrationJob.class),
+            mock(GameBulkImporter.class), gameCache, mock(GameSearchIndex.class), mock(CatalogFacets.class),
+            mock(Leaderboards.class), eventPublisher, new ResultSizeMetrics(new SimpleMeterRegistry()),
+            mock(ReviewWriteBehind.class), true);
+
+    ReactiveGameShopServiceTest() {
+        doAnswer(invocation -> threads.put("invalidate", Thread.currentThread().getName()))
+                .when(gameCache).invalidate(any());
+        doAnswer(invocation -> threads.put(invocation.getArgument(0).getClass().getSimpleName(),
+                Thread.currentThread().getName()))
+                .when(eventPublisher).publishEvent(any(Object.class));
+    }
+
+    @Test
+    void addGameNotifiesOffTheCallingThread() {
+        Game game = new Game();
+        game.setId(GAME_ID);
+        when(gameRepository.upsertGame(game)).thenReturn(Mono.just(game));
+
+        assertThat(service.addGame(game).block()).isSameAs(game);
+
+        assertThat(threads).containsOnlyKeys("invalidate", "GameChangedEvent");
+        assertThat(threads.values()).allMatch(thread -> thread.startsWith("boundedElastic"));
+    }
+
+    @Test
+    void addReviewNotifiesOffTheCallingThreadBeforeStoringTheReview() {
+        Review review = new Review();
+        review.setScore(8);
+        when(gameRepository.incrementReviewStats(eq(GAME_ID), any())).thenReturn(Mono.just(true));
+        when(reviewRepository.insert(anyIterable())).thenReturn(Flux.just(review));
+
+        assertThat(service.addReview(GAME_ID, review).block()).isSameAs(review);
+
+        assertThat(threads).containsOnlyKeys("invalidate", "ReviewsAddedEvent");
+        assertThat(threads.values()).allMatch(thread -> thread.startsWith("boundedElastic"));
+        assertThat(review.getGameId()).isEqualTo(GAME_ID);
+        assertThat(review.getId()).isNotNull();
+    }
+
+    @Test
+    void deleteGameNotifiesOffTheCallingThread() {
+        when(gameRepository.deleteById(GAME_ID)).thenReturn(Mono.empty());
+        when(reviewRepository.deleteByGameId(GAME_ID)).thenReturn(Mono.just(0L));
+        when(stockBucketRepository.deleteByGameId(GAME_ID)).thenReturn(Mono.just(0L));
+
+        service.deleteGame(GAME_ID).block();
+
+        assertThat(threads).containsOnlyKeys("invalidate", "GameChangedEvent");
+        assertThat(threads.values()).allMatch(thread -> thread.startsWith("boundedElastic"));
+    }
+
+    @Test
+    void refusesAReviewWithoutAScore() {
+        Review review = new Review();
+        review.setScore(Double.NaN);
+
+        assertThatThrownBy(() -> service.addReview(GAME_ID, review))
+                .isInstanceOf(IllegalArgumentException.class);
+        verify(gameRepository, never()).incrementReviewStats(any(), any());
+    }
+
+    @Test
+    void wrapsDatabaseErrorsOfAPriceRangeSearch() {
+        when(gameRepository.findByPriceBetween(anyDouble(), anyDouble(), eq(Game.class)))
+                .thenReturn(Flux.error(new DataAccessResourceFailureException("down")));
+
+        assertThatThrownBy(() -> service.getGamesByPriceRange(0, 10, Game.class).collectList().block())
+                .isInstanceOf(GameServiceException.class)
+                .hasCauseInstanceOf(DataAccessResourceFailureException.class);
+    }
+
+    @Test
+    void pagesReviewsWithACursorThatReadsBack() {
+        Review newer = new Review();
+        newer.setId("6523f0f0f0f0f0f0f0f0f0f1");
+        newer.setDate(new Date(2000));
+        Review older = new Review();
+        older.setId("6523f0f0f0f0f0f0f0f0f0f0");
+        older.setDate(new Date(1000));
+
+        CursorPage<Review> page = GameRequests.reviewPage(List.of(newer, older), 1);
+        GameRequests.ReviewCursor cursor = GameRequests.decodeReviewCursor(page.getNextCursor());
+
+        assertThat(page.getItems()).containsExactly(newer);
+        assertThat(cursor.date()).isEqualTo(newer.getDate());
+        assertThat(cursor.id().toHexString()).isEqualTo(newer.getId());
+        assertThatThrownBy(() -> GameRequests.decodeReviewCursor(PageCursor.encode("x:y")))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,182 @@
+package com.lukcm.gameshopapi.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * @author Max_MacKoul
+ *
+ * Checks how RequestCoalescer shares one call between concurrent requests: its result, its exception, and what
+ * the waiting requests do when it takes longer than gameshop.coalescing.max-wait.
+ */
+class RequestCoalescerTest {
+
+    private static final int WAITERS = 4;
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(WAITERS + 1);
+
+    // Holds the first call until released
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private final CountDownLatch firstCallStarted = new CountDownLatch(1);
+
+    private final AtomicInteger calls = new AtomicInteger();
+
+    @AfterEach
+    void stopThreads() {
+        release.countDown();
+        executor.shutdownNow();
+    }
+
+    @Test
+    void sharesTheResultOfTheCallInFlight() throws Exception {
+        RequestCoalescer coalescer = new RequestCoalescer(registry, true, Duration.ofSeconds(10));
+
+        Future<String> first = executor.submit(() -> coalescer.execute("op", "id", () -> blockingCall("result")));
+        firstCallStarted.await();
+        List<Future<String>> waiters = submitWaiters(coalescer, () -> "own result");
+        awaitWaiting();
+        release.countDown();
+
+        assertThat(first.get(10, TimeUnit.SECONDS)).isEqualTo("result");
+        for (Future<String> waiter : waiters) {
+            assertThat(waiter.get(10, TimeUnit.SECONDS)).isEqualTo("result");
+        }
+        assertThat(calls.get()).isEqualTo(1);
+        assertThat(count("executed")).isEqualTo(1);
+        assertThat(count("collapsed")).isEqualTo(WAITERS);
+    }
+
+    @Test
+    void fansOutTheExceptionOfTheCallInFlight() throws Exception {
+        RequestCoalescer coalescer = new RequestCoalescer(registry, true, Duration.ofSeconds(10));
+        IllegalStateException failure = new IllegalStateException("database down");
+
+        Future<String> first = executor.submit(() -> coalescer.execute("op", "id", () -> {
+            blockingCall("unused");
+            throw failure;
+        }));
+        firstCallStarted.await();
+        List<Future<String>> waiters = submitWaiters(coalescer, () -> "own result");
+        awaitWaiting();
+        release.countDown();
+
+        assertThatThrownBy(() -> first.get(10, TimeUnit.SECONDS)).hasCause(failure);
+        for (Future<String> waiter : waiters) {
+            assertThatThrownBy(() -> waiter.get(10, TimeUnit.SECONDS))
+                    .isInstanceOf(ExecutionException.class)
+                    .hasCause(failure);
+        }
+        assertThat(calls.get()).isEqualTo(1);
+        assertThat(count("collapsed")).isEqualTo(WAITERS);
+
+        // The failed call is not kept: the next request calls again
+        assertThat(coalescer.execute("op", "id", () -> "recovered")).isEqualTo("recovered");
+    }
+
+    @Test
+    void waitersCallThemselvesWhenTheCallInFlightIsStuck() throws Exception {
+        RequestCoalescer coalescer = new RequestCoalescer(registry, true, Duration.ofMillis(100));
+
+        Future<String> first = executor.submit(() -> coalescer.execute("op", "id", () -> blockingCall("late")));
+        firstCallStarted.await();
+        List<Future<String>> waiters = submitWaiters(coalescer, () -> "own result");
+
+        for (Future<String> waiter : waiters) {
+            assertThat(waiter.get(10, TimeUnit.SECONDS)).isEqualTo("own result");
+        }
+        assertThat(first.isDone()).isFalse();
+        assertThat(count("timed_out")).isEqualTo(WAITERS);
+
+        release.countDown();
+        assertThat(first.get(10, TimeUnit.SECONDS)).isEqualTo("late");
+    }
+
+    @Test
+    void doesNotShareCallsWithOtherArguments() throws Exception {
+        RequestCoalescer coalescer = new RequestCoalescer(registry, true, Duration.ofSeconds(10));
+
+        Future<String> first = executor.submit(() -> coalescer.execute("op", "id", () -> blockingCall("result")));
+        firstCallStarted.await();
+
+        assertThat(coalescer.execute("op", "other-id", () -> "other")).isEqualTo("other");
+        assertThat(coalescer.execute("other-op", "id", () -> "other op")).isEqualTo("other op");
+        release.countDown();
+        assertThat(first.get(10, TimeUnit.SECONDS)).isEqualTo("result");
+    }
+
+    @Test
+    void callsEveryTimeWhenDisabled() {
+        RequestCoalescer coalescer = new RequestCoalescer(registry, false, Duration.ofSeconds(10));
+
+        coalescer.execute("op", "id", calls::incrementAndGet);
+        coalescer.execute("op", "id", calls::incrementAndGet);
+
+        assertThat(calls.get()).isEqualTo(2);
+        assertThat(registry.find(RequestCoalescer.METRIC_NAME).counters()).isEmpty();
+    }
+
+    private String blockingCall(String result) {
+        calls.incrementAndGet();
+        firstCallStarted.countDown();
+        try {
+            release.await();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(ex);
+        }
+        return result;
+    }
+
+    private List<Future<String>> submitWaiters(RequestCoalescer coalescer, Supplier<String> call) {
+        List<Future<String>> waiters = new ArrayList<>();
+        for (int i = 0; i < WAITERS; i++) {
+            waiters.add(executor.submit(() -> coalescer.execute("op", "id", call)));
+        }
+        return waiters;
+    }
+
+    /**
+     * Waits until every waiter is parked on the call in flight, so that releasing it reaches all of them.
+     */
+    private void awaitWaiting() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (waitingThreads() < WAITERS && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(waitingThreads()).isEqualTo(WAITERS);
+    }
+
+    private static long waitingThreads() {
+        return Thread.getAllStackTraces().entrySet().stream()
+                .filter(thread -> thread.getKey().getState() == Thread.State.TIMED_WAITING)
+                .filter(thread -> Arrays.stream(thread.getValue())
+                        .anyMatch(frame -> frame.getMethodName().equals("await")
+                                && frame.getClassName().equals(RequestCoalescer.class.getName())))
+                .count();
+    }
+
+    private double count(String result) {
+        return registry.get(RequestCoalescer.METRIC_NAME).tag("operation", "op").tag("result", result).counter()
+                .count();
+    }
+}
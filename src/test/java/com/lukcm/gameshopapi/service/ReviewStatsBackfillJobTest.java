@@ -0,0 +1,79 @@
+package com.lukcm.gameshopapi.service;
+
+import com.lukcm.gameshopapi.model.Game;
+import com.lukcm.gameshopapi.model.ReviewStats;
+import com.lukcm.gameshopapi.repository.GameShopRepository;
+import com.lukcm.gameshopapi.repository.ReviewRepository;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author Max_MacKoul
+ *
+ * Checks that ReviewStatsBackfillJob only reports statistics that are stored for the game.
+ */
+class ReviewStatsBackfillJobTest {
+
+    private static final String GAME_ID = "game";
+
+    private final GameShopRepository gameRepository = mock(GameShopRepository.class);
+
+    private final ReviewRepository reviewRepository = mock(ReviewRepository.class);
+
+    private final ReviewStatsBackfillJob backfill = new ReviewStatsBackfillJob(gameRepository, reviewRepository,
+            mock(ReviewMigrationJob.class), ReviewStatsBackfillJob.Mode.NONE);
+
+    @Test
+    void returnsTheRebuiltStatisticsOnceStored() {
+        ReviewStats rebuilt = stats(3);
+        when(gameRepository.findReviewStatsById(GAME_ID)).thenReturn(Optional.of(game(null)));
+        when(reviewRepository.aggregateStats(GAME_ID)).thenReturn(rebuilt);
+        when(gameRepository.replaceReviewStats(GAME_ID, null, rebuilt)).thenReturn(true);
+
+        assertThat(backfill.rebuild(GAME_ID)).containsSame(rebuilt);
+    }
+
+    @Test
+    void returnsTheStoredStatisticsWhenEveryAttemptLostItsRace() {
+        ReviewStats stored = stats(7);
+        when(gameRepository.findReviewStatsById(GAME_ID)).thenReturn(Optional.of(game(stored)));
+        when(reviewRepository.aggregateStats(GAME_ID)).thenReturn(stats(5));
+        when(gameRepository.replaceReviewStats(eq(GAME_ID), any(), any())).thenReturn(false);
+
+        assertThat(backfill.rebuild(GAME_ID)).containsSame(stored);
+        verify(gameRepository, times(3)).replaceReviewStats(eq(GAME_ID), any(), any());
+    }
+
+    @Test
+    void reportsAGameDeletedDuringTheLastAttemptAsMissing() {
+        when(gameRepository.findReviewStatsById(GAME_ID))
+                .thenReturn(Optional.of(game(stats(1))), Optional.of(game(stats(2))), Optional.of(game(stats(3))),
+                        Optional.empty());
+        when(reviewRepository.aggregateStats(GAME_ID)).thenReturn(stats(1));
+        when(gameRepository.replaceReviewStats(eq(GAME_ID), any(), any())).thenReturn(false);
+
+        assertThat(backfill.rebuild(GAME_ID)).isEmpty();
+    }
+
+    private static Game game(ReviewStats stats) {
+        Game game = new Game();
+        game.setId(GAME_ID);
+        game.setReviewStats(stats);
+        return game;
+    }
+
+    private static ReviewStats stats(long count) {
+        ReviewStats stats = new ReviewStats();
+        stats.setCount(count);
+        return stats;
+    }
+}
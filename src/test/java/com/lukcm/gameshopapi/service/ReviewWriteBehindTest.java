@@ -0,0 +1,212 @@
+package com.lukcm.gameshopapi.service;
+
+import com.lukcm.gameshopapi.cache.GameCache;
+import com.lukcm.gameshopapi.event.ReviewsAddedEvent;
+import com.lukcm.gameshopapi.exception.ReviewQueueFullException;
+import com.lukcm.gameshopapi.model.Review;
+import com.lukcm.gameshopapi.model.ReviewStats;
+import com.lukcm.gameshopapi.repository.GameShopRepository;
+import com.lukcm.gameshopapi.repository.ReviewRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atMost;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author Max_MacKoul
+ *
+ * Drains batches of reviews through ReviewWriteBehind against mocked repositories, to check what a retried or
+ * abandoned flush leaves in the review statistics.
+ */
+class ReviewWriteBehindTest {
+
+    private final GameShopRepository gameRepository = mock(GameShopRepository.class);
+
+    private final ReviewRepository reviewRepository = mock(ReviewRepository.class);
+
+    private final ReviewStatsBackfillJob reviewStatsBackfill = mock(ReviewStatsBackfillJob.class);
+
+    private final ApplicationEventPublisher eventPublisher = mock(ApplicationEventPublisher.class);
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    void storesTheBatchThenCountsEachGameOnce() {
+        when(gameRepository.incrementReviewStats(any(), any())).thenReturn(true);
+
+        drain(Duration.ofSeconds(30), review("a", 8), review("a", 6), review("b", 9));
+
+        InOrder order = inOrder(reviewRepository, gameRepository);
+        order.verify(reviewRepository).upsertAll(argThat(reviews -> reviews.size() == 3));
+        order.verify(gameRepository).incrementReviewStats(eq("a"), argThat(delta -> delta.getCount() == 2));
+        order.verify(gameRepository).incrementReviewStats(eq("b"), argThat(delta -> delta.getCount() == 1));
+        verify(eventPublisher, times(2)).publishEvent(any(ReviewsAddedEvent.class));
+        assertThat(count("stored")).isEqualTo(3);
+    }
+
+    @Test
+    void retryRebuildsTheStatisticsOfAGameWhoseIncrementFailed() {
+        when(gameRepository.incrementReviewStats(eq("a"), any()))
+                .thenThrow(new DataAccessResourceFailureException("timed out"));
+        when(gameRepository.incrementReviewStats(eq("b"), any())).thenReturn(true);
+        when(reviewStatsBackfill.rebuild("a")).thenReturn(Optional.of(new ReviewStats()));
+
+        drain(Duration.ofSeconds(30), review("a", 8), review("b", 9));
+
+        // The $inc of a may have been applied, so it is not run again; b is counted once
+        verify(gameRepository, times(1)).incrementReviewStats(eq("a"), any());
+        verify(gameRepository, times(1)).incrementReviewStats(eq("b"), any());
+        verify(reviewStatsBackfill).rebuild("a");
+        verify(reviewRepository, times(1)).upsertAll(anyList());
+        verify(eventPublisher, times(2)).publishEvent(any(ReviewsAddedEvent.class));
+        assertThat(count("stored")).isEqualTo(2);
+    }
+
+    @Test
+    void retryStoresAgainAndCountsAfterAFailedStore() {
+        doThrow(new DataAccessResourceFailureException("down")).doNothing()
+                .when(reviewRepository).upsertAll(anyList());
+        when(gameRepository.incrementReviewStats(any(), any())).thenReturn(true);
+
+        drain(Duration.ofSeconds(30), review("a", 8));
+
+        verify(reviewRepository, times(2)).upsertAll(anyList());
+        verify(gameRepository, times(1)).incrementReviewStats(eq("a"), any());
+        assertThat(count("stored")).isEqualTo(1);
+    }
+
+    @Test
+    void losesTheBatchWithoutCountingItWhenItCannotBeStoredBeforeTheDrainTimeout() {
+        doThrow(new DataAccessResourceFailureException("down")).when(reviewRepository).upsertAll(anyList());
+
+        drain(Duration.ZERO, review("a", 8), review("b", 9));
+
+        verify(gameRepository, never()).incrementReviewStats(any(), any());
+        verify(reviewStatsBackfill, never()).rebuild(any());
+        assertThat(count("lost")).isEqualTo(2);
+    }
+
+    @Test
+    void rebuildsTheGamesNotCountedWhenGivingUpAfterStoring() {
+        when(gameRepository.incrementReviewStats(any(), any()))
+                .thenThrow(new DataAccessResourceFailureException("timed out"));
+        when(reviewStatsBackfill.rebuild(any())).thenReturn(Optional.of(new ReviewStats()));
+
+        // Long enough for the writer to take the batch, which waits for the flush interval, not to retry it
+        drain(Duration.ofMillis(100), review("a", 8), review("b", 9));
+
+        // Whether b was tried before the flush gave up, neither game is incremented twice
+        verify(reviewStatsBackfill).rebuild("a");
+        verify(reviewStatsBackfill).rebuild("b");
+        verify(gameRepository, atMost(1)).incrementReviewStats(eq("a"), any());
+        verify(gameRepository, atMost(1)).incrementReviewStats(eq("b"), any());
+        assertThat(count("stored")).isEqualTo(2);
+    }
+
+    @Test
+    void deletesAndDiscardsTheReviewsOfADeletedGame() {
+        when(gameRepository.incrementReviewStats(eq("a"), any())).thenReturn(false);
+        when(gameRepository.incrementReviewStats(eq("b"), any())).thenReturn(true);
+        when(reviewStatsBackfill.rebuild("a")).thenReturn(Optional.empty());
+        doNothing().when(reviewRepository).deleteAllById(any());
+
+        Review deleted = review("a", 8);
+        drain(Duration.ofSeconds(30), deleted, review("b", 9));
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Iterable<String>> ids = ArgumentCaptor.forClass(Iterable.class);
+        verify(reviewRepository).deleteAllById(ids.capture());
+        assertThat(ids.getValue()).containsExactly(deleted.getId());
+        verify(eventPublisher, times(1)).publishEvent(any(ReviewsAddedEvent.class));
+        assertThat(count("discarded")).isEqualTo(1);
+        assertThat(count("stored")).isEqualTo(1);
+    }
+
+    @Test
+    void refusesReviewsSubmittedOnceTheDrainHasStarted() {
+        when(gameRepository.incrementReviewStats(any(), any())).thenReturn(true);
+        ReviewWriteBehind writeBehind = writeBehind(100, Duration.ofSeconds(30));
+        writeBehind.start();
+        writeBehind.submit("a", review("a", 8));
+        writeBehind.stop();
+
+        assertThatThrownBy(() -> writeBehind.submit("a", review("a", 7)))
+                .isInstanceOf(ReviewQueueFullException.class);
+        assertThat(count("stored")).isEqualTo(1);
+        assertThat(count("rejected")).isEqualTo(1);
+    }
+
+    @Test
+    void stopsTakingBatchesFromTheQueueWhenTheDrainTimeoutExpires() {
+        when(gameRepository.incrementReviewStats(any(), any())).thenReturn(true);
+        doAnswer(invocation -> {
+            Thread.sleep(100);
+            return null;
+        }).when(reviewRepository).upsertAll(anyList());
+        ReviewWriteBehind writeBehind = writeBehind(1, Duration.ofMillis(300));
+        writeBehind.start();
+        for (int i = 0; i < 50; i++) {
+            writeBehind.submit("a", review("a", 8));
+        }
+
+        long start = System.nanoTime();
+        writeBehind.stop();
+
+        // Every batch stores in time, but the queue holds more batches than the timeout allows
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(2));
+        assertThat(count("lost")).isPositive();
+        assertThat(count("lost") + count("stored")).isEqualTo(50);
+    }
+
+    /**
+     * Submits the reviews and stops the queue, which flushes them as one batch before returning. The drain timeout
+     * only starts when the queue is stopped, which may be after the first attempt to flush.
+     */
+    private void drain(Duration drainTimeout, Review... reviews) {
+        ReviewWriteBehind writeBehind = writeBehind(100, drainTimeout);
+        writeBehind.start();
+        for (Review review : reviews) {
+            writeBehind.submit(review.getGameId(), review);
+        }
+        writeBehind.stop();
+        assertThat(count("lost") + count("stored") + count("discarded")).isEqualTo(reviews.length);
+    }
+
+    private ReviewWriteBehind writeBehind(int batchSize, Duration drainTimeout) {
+        return new ReviewWriteBehind(gameRepository, reviewRepository, reviewStatsBackfill, mock(GameCache.class),
+                eventPublisher, registry, true, 100, batchSize, Duration.ofMillis(200), drainTimeout);
+    }
+
+    private static Review review(String gameId, double score) {
+        Review review = new Review();
+        review.setGameId(gameId);
+        review.setScore(score);
+        return review;
+    }
+
+    private double count(String result) {
+        return registry.counter("gameshop.reviews.write-behind.reviews", "result", result).count();
+    }
+}
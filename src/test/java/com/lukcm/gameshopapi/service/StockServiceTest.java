@@ -0,0 +1,97 @@
+package com.lukcm.gameshopapi.service;
+
+import com.lukcm.gameshopapi.cache.GameCache;
+import com.lukcm.gameshopapi.model.Game;
+import com.lukcm.gameshopapi.model.StockReservation;
+import com.lukcm.gameshopapi.repository.GameShopRepository;
+import com.lukcm.gameshopapi.repository.StockBucketRepository;
+import com.lukcm.gameshopapi.repository.StockReservationRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author Max_MacKoul
+ *
+ * Checks that stock returned while the game leaves hot-SKU mode ends up in totalStock.
+ */
+class StockServiceTest {
+
+    private static final String GAME_ID = "game";
+
+    private final GameShopRepository gameRepository = mock(GameShopRepository.class);
+
+    private final StockBucketRepository bucketRepository = mock(StockBucketRepository.class);
+
+    private final StockReservationRepository reservationRepository = mock(StockReservationRepository.class);
+
+    private StockService stockService;
+
+    @BeforeEach
+    void createService() {
+        stockService = new StockService(gameRepository, bucketRepository, reservationRepository,
+                mock(GameCache.class), Duration.ofMinutes(15));
+        StockReservation reservation = new StockReservation();
+        reservation.setId("reservation");
+        reservation.setItems(List.of(new StockReservation.Item(GAME_ID, 3, 1)));
+        when(reservationRepository.finishHeld(eq("reservation"), eq(StockReservation.Status.RELEASED), isNull()))
+                .thenReturn(reservation);
+    }
+
+    @Test
+    void returnsStockToItsBucketInHotSkuMode() {
+        when(gameRepository.releaseStock(GAME_ID, 3)).thenReturn(false);
+        when(gameRepository.findStockById(GAME_ID)).thenReturn(Optional.of(game(4)));
+
+        stockService.release("reservation");
+
+        verify(bucketRepository).put(GAME_ID, 1, 3);
+        verify(bucketRepository, never()).drain(any(), anyInt());
+    }
+
+    @Test
+    void movesStockReturnedDuringAMergeToTotalStock() {
+        // The game is read in hot-SKU mode, then merged before the stock is put into the bucket
+        when(gameRepository.releaseStock(GAME_ID, 3)).thenReturn(false, true);
+        when(gameRepository.findStockById(GAME_ID)).thenReturn(Optional.of(game(4)), Optional.of(game(null)));
+        when(bucketRepository.drain(GAME_ID, 1)).thenReturn(3);
+
+        stockService.release("reservation");
+
+        var order = inOrder(bucketRepository, gameRepository);
+        order.verify(bucketRepository).put(GAME_ID, 1, 3);
+        order.verify(bucketRepository).drain(GAME_ID, 1);
+        order.verify(gameRepository).releaseStock(GAME_ID, 3);
+    }
+
+    @Test
+    void leavesStockTheMergeAlreadyMoved() {
+        when(gameRepository.releaseStock(GAME_ID, 3)).thenReturn(false);
+        when(gameRepository.findStockById(GAME_ID)).thenReturn(Optional.of(game(4)), Optional.of(game(null)));
+        when(bucketRepository.drain(GAME_ID, 1)).thenReturn(0);
+
+        stockService.release("reservation");
+
+        verify(gameRepository, never()).releaseStock(GAME_ID, 0);
+    }
+
+    private static Game game(Integer stockBuckets) {
+        Game game = new Game();
+        game.setId(GAME_ID);
+        game.setStockBuckets(stockBuckets);
+        return game;
+    }
+}